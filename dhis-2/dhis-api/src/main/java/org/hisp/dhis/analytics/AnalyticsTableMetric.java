@@ -0,0 +1,195 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Timing and row count of a stage of analytics table generation for a single
+ * analytics table partition. Metrics are kept across table generation runs, so
+ * that regressions for individual partitions and stages can be identified.
+ */
+public class AnalyticsTableMetric
+{
+    private int id;
+
+    /**
+     * Base name of the analytics table type, e.g. <code>analytics_event</code>.
+     */
+    private String tableType;
+
+    /**
+     * Name of the analytics table partition, null if the stage applies to all
+     * partitions of the table type.
+     */
+    private String tableName;
+
+    private AnalyticsTableStage stage;
+
+    /**
+     * Detail of the stage, such as the value types of a populate pass or the
+     * column of an index, can be null.
+     */
+    private String detail;
+
+    private Date started;
+
+    /**
+     * Duration in milliseconds.
+     */
+    private long duration;
+
+    /**
+     * Number of rows affected, null if not applicable.
+     */
+    private Integer rows;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public AnalyticsTableMetric()
+    {
+    }
+
+    public AnalyticsTableMetric( String tableType, String tableName, AnalyticsTableStage stage, String detail, Date started, long duration, Integer rows )
+    {
+        this.tableType = tableType;
+        this.tableName = tableName;
+        this.stage = stage;
+        this.detail = detail;
+        this.started = started;
+        this.duration = duration;
+        this.rows = rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters and setters
+    // -------------------------------------------------------------------------
+
+    public int getId()
+    {
+        return id;
+    }
+
+    public void setId( int id )
+    {
+        this.id = id;
+    }
+
+    @JsonProperty
+    public String getTableType()
+    {
+        return tableType;
+    }
+
+    public void setTableType( String tableType )
+    {
+        this.tableType = tableType;
+    }
+
+    @JsonProperty
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    public void setTableName( String tableName )
+    {
+        this.tableName = tableName;
+    }
+
+    @JsonProperty
+    public AnalyticsTableStage getStage()
+    {
+        return stage;
+    }
+
+    public void setStage( AnalyticsTableStage stage )
+    {
+        this.stage = stage;
+    }
+
+    @JsonProperty
+    public String getDetail()
+    {
+        return detail;
+    }
+
+    public void setDetail( String detail )
+    {
+        this.detail = detail;
+    }
+
+    @JsonProperty
+    public Date getStarted()
+    {
+        return started;
+    }
+
+    public void setStarted( Date started )
+    {
+        this.started = started;
+    }
+
+    @JsonProperty
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    public void setDuration( long duration )
+    {
+        this.duration = duration;
+    }
+
+    @JsonProperty
+    public Integer getRows()
+    {
+        return rows;
+    }
+
+    public void setRows( Integer rows )
+    {
+        this.rows = rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        return "[Table type: " + tableType + ", table: " + tableName + ", stage: " + stage + 
+            ", detail: " + detail + ", started: " + started + ", duration: " + duration + ", rows: " + rows + "]";
+    }
+}
@@ -70,6 +70,18 @@ public interface DataAnalysisStore
      * @return a mapping between OrganisationUnit unit identifier and its average data value.
      */
     Map<Integer, Double> getAverage( DataElement dataElement, DataElementCategoryOptionCombo categoryOptionCombo, Collection<OrganisationUnit> parents, Date from );
+
+    /**
+     * Calculates the average and standard deviation of the DataValues registered
+     * for the given data elements for each category option combo and organisation
+     * unit in a single query.
+     *
+     * @param dataElements the DataElements.
+     * @param parents the parent OrganisationUnits.
+     * @param from the from date for which to include data values.
+     * @return a list of DataAnalysisMeasures.
+     */
+    List<DataAnalysisMeasures> getDataAnalysisMeasures( Collection<DataElement> dataElements, Collection<OrganisationUnit> parents, Date from );
     
     /**
      * Generates a collection of data value violations of min-max predefined values.
@@ -84,6 +96,25 @@ public interface DataAnalysisStore
     List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements, Collection<DataElementCategoryOptionCombo> categoryOptionCombos,
         Collection<Period> periods, Collection<OrganisationUnit> parents, int limit );
     
+    /**
+     * Generates a collection of data values which deviate more than the given
+     * factor of standard deviations from the average of the data values for
+     * the same data element, category option combo and organisation unit.
+     * The averages and standard deviations are calculated and the outliers
+     * returned in a single query.
+     *
+     * @param dataElements the data elements.
+     * @param periods the periods.
+     * @param parents the parent OrganisationUnit units.
+     * @param stdDevFactor the factor of standard deviations.
+     * @param from the from date for which to include data values when
+     *        calculating averages and standard deviations.
+     * @param limit the max limit of outliers to return.
+     * @return a list of outlier data values.
+     */
+    List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements, Collection<Period> periods,
+        Collection<OrganisationUnit> parents, double stdDevFactor, Date from, int limit );
+
     /**
      * Returns a collection of DeflatedDataValues for the given input.
      * 
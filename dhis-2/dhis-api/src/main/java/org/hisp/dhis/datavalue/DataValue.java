@@ -77,6 +77,12 @@ public class DataValue
 
     private Date lastUpdated;
 
+    /**
+     * Time of the last change on the server. Unlike lastUpdated, which can be
+     * provided by clients on import, this is always assigned by the server.
+     */
+    private Date lastUpdatedAtServer;
+
     private String comment;
 
     private Boolean followup;
@@ -101,6 +107,7 @@ public class DataValue
     {
         this.created = new Date();
         this.lastUpdated = new Date();
+        this.lastUpdatedAtServer = new Date();
     }
 
     /**
@@ -120,6 +127,7 @@ public class DataValue
         this.attributeOptionCombo = attributeOptionCombo;
         this.created = new Date();
         this.lastUpdated = new Date();
+        this.lastUpdatedAtServer = new Date();
     }
 
     /**
@@ -141,6 +149,7 @@ public class DataValue
         this.value = value;
         this.created = new Date();
         this.lastUpdated = new Date();
+        this.lastUpdatedAtServer = new Date();
     }
 
     /**
@@ -166,6 +175,7 @@ public class DataValue
         this.storedBy = storedBy;
         this.created = new Date();
         this.lastUpdated = lastUpdated;
+        this.lastUpdatedAtServer = new Date();
         this.comment = comment;
     }
 
@@ -391,6 +401,16 @@ public class DataValue
         this.lastUpdated = lastUpdated;
     }
 
+    public Date getLastUpdatedAtServer()
+    {
+        return lastUpdatedAtServer;
+    }
+
+    public void setLastUpdatedAtServer( Date lastUpdatedAtServer )
+    {
+        this.lastUpdatedAtServer = lastUpdatedAtServer;
+    }
+
     public String getComment()
     {
         return comment;
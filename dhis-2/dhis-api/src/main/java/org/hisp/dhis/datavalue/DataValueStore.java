@@ -44,6 +44,7 @@ import org.hisp.dhis.period.PeriodType;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -165,6 +166,20 @@ public interface DataValueStore
         Collection<DataElementOperand> dataElementOperands, Collection<Period> periods,
         OrganisationUnit orgUnit );
 
+    /**
+     * Returns values for a collection of DataElementOperands, in the same way
+     * as for a single organisation unit, for each of the given organisation
+     * units. Values are fetched for all organisation units in one query.
+     *
+     * @param dataElementOperands the DataElementOperands.
+     * @param periods the Periods of the DataValues.
+     * @param orgUnits the roots of the OrganisationUnit trees to include.
+     * @return the map of values by organisation unit identifier
+     */
+    Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> getDataElementOperandValues(
+        Collection<DataElementOperand> dataElementOperands, Collection<Period> periods,
+        Collection<OrganisationUnit> orgUnits );
+
     /**
      * Gets the number of DataValues which have been updated between the given 
      * start and end date. The <pre>startDate</pre> and <pre>endDate</pre> parameters
@@ -198,4 +213,42 @@ public interface DataValueStore
         Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
         MapMap<String, DataElementOperand, Date> lastUpdatedMap );
 
+    /**
+     * Returns maps of values for each attribute option combo found, for each
+     * of the given organisation units and periods. Data values are fetched
+     * for all organisation units and periods in one query. Values are found
+     * in the same way as for a single organisation unit and period, using the
+     * start date of each period as the date which must be present in the
+     * period of the data value.
+     *
+     * @param dataElementOperandsToGet DataElementOperands to fetch
+     * @param periods periods for which to fetch the values
+     * @param sources OrganisationUnits for which to fetch the values
+     * @param periodTypes allowable period types in which to find the data
+     * @param attributeCombo the attribute combo to check (if restricted)
+     * @return map of values by attribute option combo UID, then DataElementOperand,
+     *         mapped by organisation unit identifier and period
+     */
+    MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> getDataValueMapByAttributeCombo(
+        SetMap<String, DataElementOperand> dataElementOperandsToGet, Collection<Period> periods,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints );
+
+    /**
+     * Returns the UIDs of the data elements with data values updated after the
+     * given date, including deleted data values, for each organisation unit
+     * and period. The server assigned last updated time of data values is
+     * used, as the last updated time can be provided by clients. Data values are matched to periods in the same way as for
+     * {@link #getDataValueMapByAttributeCombo(SetMap, Collection, Collection, Collection, DataElementCategoryOptionCombo, Set, Set)}.
+     *
+     * @param dataElements UIDs of the data elements to look for
+     * @param periods periods for which to look for updated data values
+     * @param periodTypes allowable period types in which to find the data
+     * @param lastUpdated the date after which data values must be updated
+     * @return set of data element UIDs, mapped by organisation unit identifier
+     *         and period
+     */
+    MapMap<Integer, Period, Set<String>> getDataElementsLastUpdatedAfter( Collection<String> dataElements,
+        Collection<Period> periods, Collection<PeriodType> periodTypes, Date lastUpdated );
+
 }
@@ -210,6 +210,24 @@ public interface ExpressionService
         Map<? extends DimensionalItemObject, Double> valueMap, Map<String, Double> constantMap,
         Map<String, Integer> orgUnitCountMap );
 
+    /**
+     * Generates the calculated value for the given parameters based on the
+     * values in the given maps. The indicator numerator and denominator are
+     * compiled once and evaluated directly against the value map. This method
+     * is preferable when calculating values for many indicators using the
+     * same value map.
+     *
+     * @param indicator the indicator for which to calculate the value.
+     * @param period the period for which to calculate the value.
+     * @param itemValueMap the map of dimension item identifiers and data values.
+     * @param constantMap the map of constants.
+     * @param orgUnitCountMap the map of organisation unit counts.
+     * @return the calculated value as a double.
+     */
+    IndicatorValue getIndicatorValueObjectForItemIds( Indicator indicator, Period period,
+        Map<String, Double> itemValueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap );
+
     /**
      * Generates the calculated value for the given expression base on the
      * values supplied in the value map, constant map and days.
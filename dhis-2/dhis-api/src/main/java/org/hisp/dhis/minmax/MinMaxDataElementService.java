@@ -70,4 +70,59 @@ public interface MinMaxDataElementService
     void removeMinMaxDataElements( DataElementCategoryOptionCombo optionCombo );
     
     void removeMinMaxDataElements( Collection<DataElement> dataElements, Collection<OrganisationUnit> organisationUnits );
+
+    // -------------------------------------------------------------------------
+    // MinMaxStatistics
+    // -------------------------------------------------------------------------
+
+    MinMaxStatistics getMinMaxStatistics( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo );
+
+    /**
+     * Returns the statistics for the given data elements for the given parent
+     * organisation units and their descendants.
+     *
+     * @param dataElements the data elements.
+     * @param parents the parent organisation units.
+     * @return a list of statistics.
+     */
+    List<MinMaxStatistics> getMinMaxStatistics( Collection<DataElement> dataElements, Collection<OrganisationUnit> parents );
+
+    /**
+     * Updates the statistics of the given organisation unit, data element and
+     * category option combo when a data value changes. Does nothing for
+     * data elements which are not numeric.
+     *
+     * @param source the organisation unit.
+     * @param dataElement the data element.
+     * @param optionCombo the category option combo.
+     * @param previousValue the previous value, null if the data value was
+     *        added or restored.
+     * @param value the new value, null if the data value was deleted.
+     */
+    void updateMinMaxStatistics( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        String previousValue, String value );
+
+    /**
+     * Recalculates the statistics for the given data elements and organisation
+     * units from the data values. Used after data values have been written
+     * in bulk. Data elements which are not numeric are ignored.
+     *
+     * @param dataElements the data elements.
+     * @param sources the organisation units.
+     */
+    void refreshMinMaxStatistics( Collection<DataElement> dataElements, Collection<OrganisationUnit> sources );
+
+    /**
+     * Calculates the statistics for all numeric data elements from the data
+     * values if no statistics exist.
+     *
+     * @return the number of statistics created.
+     */
+    int populateMinMaxStatistics();
+
+    void removeMinMaxStatistics( OrganisationUnit organisationUnit );
+
+    void removeMinMaxStatistics( DataElement dataElement );
+
+    void removeMinMaxStatistics( DataElementCategoryOptionCombo optionCombo );
 }
@@ -0,0 +1,229 @@
+package org.hisp.dhis.minmax;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Running statistics of the non-deleted numeric data values of a data element,
+ * category option combo and organisation unit, spanning all periods. The count,
+ * sum and sum of squares of the values are maintained as data values are
+ * saved, which allows for deriving the average, standard deviation and
+ * min-max bounds without reading the data values.
+ */
+public class MinMaxStatistics
+    implements Serializable
+{
+    /**
+     * Determines if a de-serialized file is compatible with this class.
+     */
+    private static final long serialVersionUID = -2748519405866284390L;
+
+    private OrganisationUnit source;
+
+    private DataElement dataElement;
+
+    private DataElementCategoryOptionCombo optionCombo;
+
+    private long valueCount;
+
+    private double valueSum;
+
+    private double valueSumOfSquares;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public MinMaxStatistics()
+    {
+    }
+
+    public MinMaxStatistics( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        long valueCount, double valueSum, double valueSumOfSquares )
+    {
+        this.source = source;
+        this.dataElement = dataElement;
+        this.optionCombo = optionCombo;
+        this.valueCount = valueCount;
+        this.valueSum = valueSum;
+        this.valueSumOfSquares = valueSumOfSquares;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the average of the values, or null if there are no values.
+     */
+    public Double getAverage()
+    {
+        return valueCount > 0 ? valueSum / valueCount : null;
+    }
+
+    /**
+     * Returns the population standard deviation of the values, or null if
+     * there are no values.
+     */
+    public Double getStandardDeviation()
+    {
+        if ( valueCount <= 0 )
+        {
+            return null;
+        }
+
+        double average = valueSum / valueCount;
+
+        // Guard against small negative variance caused by rounding errors
+
+        return Math.sqrt( Math.max( 0d, valueSumOfSquares / valueCount - average * average ) );
+    }
+
+    /**
+     * Returns the lower bound of values which are within the given factor of
+     * standard deviations from the average, or null if there are no values.
+     *
+     * @param stdDevFactor the factor of standard deviations.
+     */
+    public Integer getLowBound( double stdDevFactor )
+    {
+        return valueCount > 0 ? (int) ( getAverage() - getStandardDeviation() * stdDevFactor ) : null;
+    }
+
+    /**
+     * Returns the upper bound of values which are within the given factor of
+     * standard deviations from the average, or null if there are no values.
+     *
+     * @param stdDevFactor the factor of standard deviations.
+     */
+    public Integer getHighBound( double stdDevFactor )
+    {
+        return valueCount > 0 ? (int) ( getAverage() + getStandardDeviation() * stdDevFactor ) : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Equals and hashCode
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( source, dataElement, optionCombo );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        if ( obj == null || getClass() != obj.getClass() )
+        {
+            return false;
+        }
+
+        final MinMaxStatistics other = (MinMaxStatistics) obj;
+
+        return Objects.equals( source, other.source ) && Objects.equals( dataElement, other.dataElement ) &&
+            Objects.equals( optionCombo, other.optionCombo );
+    }
+
+    // -------------------------------------------------------------------------
+    // Setters and getters
+    // -------------------------------------------------------------------------
+
+    public OrganisationUnit getSource()
+    {
+        return source;
+    }
+
+    public void setSource( OrganisationUnit source )
+    {
+        this.source = source;
+    }
+
+    public DataElement getDataElement()
+    {
+        return dataElement;
+    }
+
+    public void setDataElement( DataElement dataElement )
+    {
+        this.dataElement = dataElement;
+    }
+
+    public DataElementCategoryOptionCombo getOptionCombo()
+    {
+        return optionCombo;
+    }
+
+    public void setOptionCombo( DataElementCategoryOptionCombo optionCombo )
+    {
+        this.optionCombo = optionCombo;
+    }
+
+    public long getValueCount()
+    {
+        return valueCount;
+    }
+
+    public void setValueCount( long valueCount )
+    {
+        this.valueCount = valueCount;
+    }
+
+    public double getValueSum()
+    {
+        return valueSum;
+    }
+
+    public void setValueSum( double valueSum )
+    {
+        this.valueSum = valueSum;
+    }
+
+    public double getValueSumOfSquares()
+    {
+        return valueSumOfSquares;
+    }
+
+    public void setValueSumOfSquares( double valueSumOfSquares )
+    {
+        this.valueSumOfSquares = valueSumOfSquares;
+    }
+}
@@ -0,0 +1,92 @@
+package org.hisp.dhis.minmax;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MinMaxStatisticsStore
+{
+    String ID = MinMaxStatisticsStore.class.getName();
+
+    MinMaxStatistics get( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo );
+
+    /**
+     * Returns statistics for the given data elements for the given parent
+     * organisation units and their descendants.
+     *
+     * @param dataElements the data elements.
+     * @param parents the parent organisation units.
+     * @return a list of statistics.
+     */
+    List<MinMaxStatistics> get( Collection<DataElement> dataElements, Collection<OrganisationUnit> parents );
+
+    /**
+     * Adds the given deltas to the statistics of the given organisation unit,
+     * data element and category option combo. Creates the statistics if they
+     * do not exist and the count delta is positive.
+     *
+     * @param source the organisation unit.
+     * @param dataElement the data element.
+     * @param optionCombo the category option combo.
+     * @param valueCount the delta of the count of values.
+     * @param valueSum the delta of the sum of values.
+     * @param valueSumOfSquares the delta of the sum of squared values.
+     */
+    void update( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        long valueCount, double valueSum, double valueSumOfSquares );
+
+    /**
+     * Recalculates the statistics for the given data elements and
+     * organisation units from the data values.
+     *
+     * @param dataElements the numeric data elements.
+     * @param sources the organisation units.
+     */
+    void refresh( Collection<DataElement> dataElements, Collection<OrganisationUnit> sources );
+
+    /**
+     * Calculates the statistics for all numeric data elements from the data
+     * values if no statistics exist.
+     *
+     * @return the number of statistics created.
+     */
+    int populate();
+
+    void delete( OrganisationUnit organisationUnit );
+
+    void delete( DataElement dataElement );
+
+    void delete( DataElementCategoryOptionCombo optionCombo );
+}
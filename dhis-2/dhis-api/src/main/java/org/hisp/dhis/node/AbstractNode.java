@@ -116,6 +116,16 @@ public abstract class AbstractNode implements Node
         this.parent = parent;
     }
 
+    /**
+     * Sets this node as the parent of the given node, without adding it to the
+     * children of this node. Used by nodes which build their children on
+     * demand.
+     */
+    protected void adopt( Node child )
+    {
+        ((AbstractNode) child).setParent( this );
+    }
+
     @Override
     public boolean is( NodeType type )
     {
@@ -0,0 +1,100 @@
+package org.hisp.dhis.node.types;
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.node.Node;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Collection node which builds the node of each of its objects first when
+ * the children are accessed, typically while being serialized. Only the most
+ * recently built node is retained, so that only the node of the object
+ * currently being written is kept in memory, and a node which is accessed
+ * repeatedly, like the first node when serializers read the columns from it
+ * before iterating, is built once. Children should be read only, as
+ * modifications of built nodes are not retained. Not thread-safe.
+ */
+public class LazyCollectionNode extends CollectionNode
+{
+    private final List<?> objects;
+
+    private final Function<Object, ? extends Node> nodeBuilder;
+
+    private int builtIndex = -1;
+
+    private Node builtNode;
+
+    /**
+     * @param name        the name of the node.
+     * @param objects     the objects of the collection.
+     * @param nodeBuilder the function building the node of an object, must
+     *                    not return null.
+     */
+    public LazyCollectionNode( String name, List<?> objects, Function<Object, ? extends Node> nodeBuilder )
+    {
+        super( name );
+        this.objects = objects;
+        this.nodeBuilder = nodeBuilder;
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return new AbstractList<Node>()
+        {
+            @Override
+            public Node get( int index )
+            {
+                return getNode( index );
+            }
+
+            @Override
+            public int size()
+            {
+                return objects.size();
+            }
+        };
+    }
+
+    private Node getNode( int index )
+    {
+        if ( index != builtIndex )
+        {
+            Node node = nodeBuilder.apply( objects.get( index ) );
+            adopt( node );
+
+            builtNode = node;
+            builtIndex = index;
+        }
+
+        return builtNode;
+    }
+}
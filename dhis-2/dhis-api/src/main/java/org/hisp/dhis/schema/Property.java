@@ -43,6 +43,8 @@ import org.springframework.core.Ordered;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -80,6 +82,16 @@ public class Property implements Ordered, Klass
      */
     private Method setterMethod;
 
+    /**
+     * Generated function invoking the getter of this property, null if not generated.
+     */
+    private transient Function<Object, Object> getterFunction;
+
+    /**
+     * Generated function invoking the setter of this property, null if not generated.
+     */
+    private transient BiConsumer<Object, Object> setterFunction;
+
     /**
      * Name for this property, if this class is a collection, it is the name of the items -inside- the collection
      * and not the collection wrapper itself.
@@ -331,6 +343,7 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.getterFunction = null;
     }
 
     public Method getSetterMethod()
@@ -341,6 +354,62 @@ public class Property implements Ordered, Klass
     public void setSetterMethod( Method setterMethod )
     {
         this.setterMethod = setterMethod;
+        this.setterFunction = null;
+    }
+
+    public Function<Object, Object> getGetterFunction()
+    {
+        return getterFunction;
+    }
+
+    public void setGetterFunction( Function<Object, Object> getterFunction )
+    {
+        this.getterFunction = getterFunction;
+    }
+
+    public BiConsumer<Object, Object> getSetterFunction()
+    {
+        return setterFunction;
+    }
+
+    public void setSetterFunction( BiConsumer<Object, Object> setterFunction )
+    {
+        this.setterFunction = setterFunction;
+    }
+
+    /**
+     * Returns the value of this property for the given object through the getter
+     * function, which is generated when the schema of the property is loaded.
+     * Returns null if the object is null or if there is no getter function.
+     *
+     * @param object the object to get the value from.
+     * @return the value of this property.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T getValue( Object object )
+    {
+        if ( object == null )
+        {
+            return null;
+        }
+
+        return getterFunction != null ? (T) getterFunction.apply( object ) : null;
+    }
+
+    /**
+     * Sets the value of this property for the given object through the setter
+     * function, which is generated when the schema of the property is loaded.
+     * Does nothing if the object is null or if there is no setter function.
+     *
+     * @param object the object to set the value on.
+     * @param value  the value to set.
+     */
+    public void setValue( Object object, Object value )
+    {
+        if ( object != null && setterFunction != null )
+        {
+            setterFunction.accept( object, value );
+        }
     }
 
     @JsonProperty
@@ -99,6 +99,10 @@ public enum SettingKey
     CAN_GRANT_OWN_USER_AUTHORITY_GROUPS( "keyCanGrantOwnUserAuthorityGroups", Boolean.FALSE, Boolean.class ),
     IGNORE_ANALYTICS_APPROVAL_YEAR_THRESHOLD( "keyIgnoreAnalyticsApprovalYearThreshold", -1, Integer.class ),
     ANALYTICS_MAX_LIMIT( "keyAnalyticsMaxLimit", 100000, Integer.class ),
+    ANALYTICS_CACHE_EXPIRATION( "keyAnalyticsCacheExpiration", 0, Integer.class ),
+    ANALYTICS_ROLLUPS( "keyAnalyticsRollups", "", String.class ),
+    ANALYTICS_METRICS_RETENTION_DAYS( "keyAnalyticsMetricsRetentionDays", 90, Integer.class ),
+    ANALYTICS_EVENT_CLUSTER_ORG_UNIT_LEVELS( "keyAnalyticsEventClusterOrgUnitLevels", 0, Integer.class ),
     RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT( "keyRespectMetaDataStartEndDatesInAnalyticsTableExport", Boolean.FALSE, Boolean.class ),
     SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT( "keySkipDataTypeValidationInAnalyticsTableExport", Boolean.FALSE, Boolean.class ),
     CUSTOM_LOGIN_PAGE_LOGO( "keyCustomLoginPageLogo", Boolean.FALSE, Boolean.class ),
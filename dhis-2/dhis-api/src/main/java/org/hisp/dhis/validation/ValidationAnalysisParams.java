@@ -34,6 +34,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * This class represents the most fundamental parameters to run a validation rule analysis.
@@ -70,6 +71,8 @@ public final class ValidationAnalysisParams
 
     private int dayInPeriod = -1;
 
+    private Date lastUpdatedAfter;
+
     /**
      * Gets the rules selected for analysis
      *
@@ -144,6 +147,19 @@ public final class ValidationAnalysisParams
         return dayInPeriod;
     }
 
+    /**
+     * Gets the date after which data must have been updated for a rule to be evaluated. If set, rules are only
+     * evaluated for the organisation units and periods with data values updated after this date, except rules which
+     * do not depend only on data values. Validation results which are no longer violated are removed. If null, all
+     * rules are evaluated.
+     *
+     * @return the date, or null if disabled.
+     */
+    public Date getLastUpdatedAfter()
+    {
+        return lastUpdatedAfter;
+    }
+
     /**
      * Limits the number of results we should look for. This can help prevent the analysis running too long by stopping
      * after a set number of results, as well as limit any payload trough api.
@@ -218,6 +234,19 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * Makes the analysis incremental, evaluating rules only where data values have been updated after the given
+         * date. Typically the time of the previous analysis.
+         *
+         * @param lastUpdatedAfter the date, or null to evaluate all rules
+         * @return the updated builder object
+         */
+        public Builder withLastUpdatedAfter( Date lastUpdatedAfter )
+        {
+            this.params.lastUpdatedAfter = lastUpdatedAfter;
+            return this;
+        }
+
         /**
          * The max number of results we want from the analysis.
          *
@@ -0,0 +1,112 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.node.Node;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LazyCollectionNodeTest
+{
+    private List<Object> built;
+
+    private LazyCollectionNode collectionNode;
+
+    @Before
+    public void setUp()
+    {
+        built = new ArrayList<>();
+
+        collectionNode = new LazyCollectionNode( "items", Lists.newArrayList( "A", "B", "C" ), object -> {
+            built.add( object );
+            return new SimpleNode( "item", object );
+        } );
+    }
+
+    @Test
+    public void testSizeDoesNotBuildNodes()
+    {
+        assertEquals( 3, collectionNode.getChildren().size() );
+        assertFalse( collectionNode.getChildren().isEmpty() );
+        assertTrue( built.isEmpty() );
+    }
+
+    @Test
+    public void testIterateBuildsEachNodeOnce()
+    {
+        List<Object> values = new ArrayList<>();
+
+        for ( Node node : collectionNode.getChildren() )
+        {
+            values.add( ((SimpleNode) node).getValue() );
+            assertEquals( collectionNode, node.getParent() );
+        }
+
+        assertEquals( Lists.newArrayList( "A", "B", "C" ), values );
+        assertEquals( Lists.newArrayList( "A", "B", "C" ), built );
+    }
+
+    @Test
+    public void testFirstNodeThenIterateBuildsEachNodeOnce()
+    {
+        Node first = collectionNode.getChildren().get( 0 );
+
+        assertEquals( "A", ((SimpleNode) first).getValue() );
+
+        int count = 0;
+
+        for ( Node node : collectionNode.getChildren() )
+        {
+            if ( count++ == 0 )
+            {
+                assertSame( first, node );
+            }
+        }
+
+        assertEquals( 3, count );
+        assertEquals( Lists.newArrayList( "A", "B", "C" ), built );
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        LazyCollectionNode emptyNode = new LazyCollectionNode( "items", new ArrayList<>(), object -> {
+            throw new IllegalStateException();
+        } );
+
+        assertTrue( emptyNode.getChildren().isEmpty() );
+        assertFalse( emptyNode.getChildren().iterator().hasNext() );
+    }
+}
@@ -0,0 +1,97 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.common.Grid;
+
+/**
+ * Cache for analytics query responses. Entries are tagged with the years of
+ * the analytics table partitions they were computed from, which allows for
+ * invalidating only the entries affected by an analytics table update.
+ */
+public interface AnalyticsCache
+{
+    /**
+     * Returns the grid for the given query. The grid is retrieved from the
+     * cache if present, or computed with the given supplier and put in the
+     * cache if not. The returned grid is a copy which can be modified by the
+     * caller.
+     *
+     * @param params the {@link DataQueryParams}, with user constraints applied.
+     * @param gridSupplier the supplier of the grid on cache miss.
+     * @return a grid.
+     */
+    Grid getGrid( DataQueryParams params, Supplier<Grid> gridSupplier );
+
+    /**
+     * Returns the aggregated value map for the given query and analytics table.
+     * The map is retrieved from the cache if present, or computed with the given
+     * supplier and put in the cache if not. The returned map is a copy which
+     * can be modified by the caller.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param tableName the analytics table name.
+     * @param partitions the partitions which the value map is computed from,
+     *        null if the partitions are unknown.
+     * @param valueMapSupplier the supplier of the value map on cache miss.
+     * @return a mapping between dimension keys and aggregated values.
+     */
+    Map<String, Object> getValueMap( DataQueryParams params, String tableName, Set<String> partitions,
+        Supplier<Map<String, Object>> valueMapSupplier );
+
+    /**
+     * Invalidates all entries computed from the given analytics table partitions,
+     * including entries for which the partitions are unknown. A partition without
+     * a year suffix invalidates all entries.
+     *
+     * @param partitions the analytics table partition names.
+     */
+    void invalidatePartitions( Collection<String> partitions );
+
+    /**
+     * Invalidates all entries.
+     */
+    void invalidateAll();
+
+    /**
+     * Indicates whether the cache is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns statistics for the cache, including hit, miss and eviction
+     * counts.
+     */
+    AnalyticsCacheStatistics getStatistics();
+}
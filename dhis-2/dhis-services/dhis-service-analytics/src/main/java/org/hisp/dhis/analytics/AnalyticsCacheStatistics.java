@@ -0,0 +1,163 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+
+/**
+ * Statistics for the {@link AnalyticsCache}.
+ */
+public class AnalyticsCacheStatistics
+{
+    private boolean enabled;
+
+    private long size;
+
+    private long weight;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private long invalidationCount;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public AnalyticsCacheStatistics()
+    {
+    }
+
+    public AnalyticsCacheStatistics( boolean enabled, long size, long weight, long hitCount,
+        long missCount, long evictionCount, long invalidationCount )
+    {
+        this.enabled = enabled;
+        this.size = size;
+        this.weight = weight;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the ratio of cache requests which were hits, 1.0 if no requests
+     * have been made.
+     */
+    @JsonProperty
+    public double getHitRate()
+    {
+        long requestCount = hitCount + missCount;
+
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    @JsonProperty
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Number of entries in the cache.
+     */
+    @JsonProperty
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Total weight of the entries in the cache, measured in number of values.
+     */
+    @JsonProperty
+    public long getWeight()
+    {
+        return weight;
+    }
+
+    @JsonProperty
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    @JsonProperty
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Number of entries evicted due to size or expiration.
+     */
+    @JsonProperty
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Number of entries invalidated due to analytics table updates.
+     */
+    @JsonProperty
+    public long getInvalidationCount()
+    {
+        return invalidationCount;
+    }
+
+    // -------------------------------------------------------------------------
+    // toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "enabled", enabled )
+            .add( "size", size )
+            .add( "weight", weight )
+            .add( "hit count", hitCount )
+            .add( "miss count", missCount )
+            .add( "eviction count", evictionCount )
+            .add( "invalidation count", invalidationCount ).toString();
+    }
+}
@@ -29,11 +29,11 @@ package org.hisp.dhis.analytics;
  */
 
 import java.util.Map;
-import java.util.concurrent.Future;
 
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.common.ListMap;
+import org.springframework.util.concurrent.ListenableFuture;
 
 /**
  * Manager for queries for retrieval of analytics data.
@@ -42,18 +42,25 @@ import org.hisp.dhis.common.ListMap;
  */
 public interface AnalyticsManager
 {
+    /**
+     * Name of the executor which runs analytics data queries.
+     */
+    String EXECUTOR = "analyticsQueryExecutor";
+
     /**
      * Retrieves aggregated data values for the given query. The data is returned
      * as a mapping where the key is concatenated from the dimension options for
      * all dimensions separated by "-", and the value is the data value. This 
-     * method is invoked asynchronously. The value class can be Double or String.
+     * method is invoked asynchronously on the {@link #EXECUTOR} executor. The
+     * value class can be Double or String. Cancelling the returned future
+     * cancels the running query.
      * 
      * @param params the query to retrieve aggregated data for.
      * @param maxLimit the max number of records to retrieve.
      * @return a map.
      * @throws IllegalQueryException if query result set exceeds the max limit.
      */
-    Future<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, int maxLimit );
+    ListenableFuture<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, int maxLimit );
     
     /**
      * Inserts entries for the aggregation periods mapped to each data period
@@ -0,0 +1,267 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.table.PartitionUtils;
+import org.hisp.dhis.period.PeriodType;
+
+import com.google.common.collect.Lists;
+
+import static org.hisp.dhis.analytics.DataQueryParams.LEVEL_PREFIX;
+
+/**
+ * Class representing the shape of a pre-aggregated analytics rollup table. A
+ * rollup table holds the sum of the values of an analytics table partition
+ * grouped by data element, the period columns of the given period type and
+ * all coarser period types, the organisation unit level columns down to the
+ * given level and the approval level. Disaggregated rollup tables also retain
+ * the category option combo and attribute option combo columns.
+ * <p>
+ * Rollup shapes are configured as a semicolon separated list of period type,
+ * organisation unit level and an optional disaggregated flag, e.g.
+ * <code>Monthly:2;Yearly:1:disaggregated</code>.
+ */
+public class AnalyticsRollup
+{
+    private static final Log log = LogFactory.getLog( AnalyticsRollup.class );
+
+    public static final String TABLE_INFIX = "_rollup_";
+
+    private static final String SHAPE_SEP = ";";
+
+    private static final String PART_SEP = ":";
+
+    private static final String DISAGGREGATED = "disaggregated";
+
+    public static final Comparator<AnalyticsRollup> SIZE_COMPARATOR = Comparator
+        .comparing( AnalyticsRollup::isDisaggregated )
+        .thenComparing( rollup -> -rollup.getPeriodType().getFrequencyOrder() )
+        .thenComparing( AnalyticsRollup::getOrgUnitLevel );
+
+    private PeriodType periodType;
+
+    private int orgUnitLevel;
+
+    private boolean disaggregated;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public AnalyticsRollup( PeriodType periodType, int orgUnitLevel, boolean disaggregated )
+    {
+        this.periodType = periodType;
+        this.orgUnitLevel = orgUnitLevel;
+        this.disaggregated = disaggregated;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Parses the given rollup shape configuration. Invalid shapes are ignored.
+     *
+     * @param shapes the rollup shape configuration, can be null.
+     * @return a list of rollups.
+     */
+    public static List<AnalyticsRollup> getRollups( String shapes )
+    {
+        List<AnalyticsRollup> rollups = new ArrayList<>();
+
+        if ( StringUtils.isBlank( shapes ) )
+        {
+            return rollups;
+        }
+
+        for ( String shape : shapes.split( SHAPE_SEP ) )
+        {
+            String[] parts = StringUtils.split( shape.trim(), PART_SEP );
+
+            PeriodType periodType = parts.length >= 2 ? PeriodType.getByNameIgnoreCase( parts[0] ) : null;
+            Integer level = parts.length >= 2 ? getLevel( parts[1].trim() ) : null;
+            boolean disaggregated = parts.length == 3 && DISAGGREGATED.equalsIgnoreCase( parts[2].trim() );
+
+            if ( periodType == null || level == null || ( parts.length == 3 && !disaggregated ) || parts.length > 3 )
+            {
+                log.warn( "Ignoring invalid analytics rollup shape: " + shape );
+                continue;
+            }
+
+            AnalyticsRollup rollup = new AnalyticsRollup( periodType, level, disaggregated );
+
+            if ( !rollups.contains( rollup ) )
+            {
+                rollups.add( rollup );
+            }
+        }
+
+        return rollups;
+    }
+
+    /**
+     * Returns the name of this rollup, e.g. <code>monthly_2</code>.
+     */
+    public String getName()
+    {
+        return periodType.getName().toLowerCase() + PartitionUtils.SEP + orgUnitLevel + ( disaggregated ? PartitionUtils.SEP + "co" : "" );
+    }
+
+    /**
+     * Returns the base name of the rollup table for the given analytics table
+     * base name.
+     *
+     * @param baseName the analytics table base name.
+     */
+    public String getTableBaseName( String baseName )
+    {
+        return baseName + TABLE_INFIX + getName();
+    }
+
+    /**
+     * Returns the name of the rollup table partition for the given analytics
+     * table partition, where the yearly suffix is retained as the last part
+     * of the name, e.g. <code>analytics_rollup_monthly_2_2017</code> for
+     * <code>analytics_2017</code>.
+     *
+     * @param partition the analytics table partition name.
+     */
+    public String getPartitionName( String partition )
+    {
+        int index = partition.lastIndexOf( PartitionUtils.SEP );
+
+        return index > 0 ?
+            getTableBaseName( partition.substring( 0, index ) ) + partition.substring( index ) :
+            getTableBaseName( partition );
+    }
+
+    /**
+     * Returns the unquoted names of the dimension columns retained by this
+     * rollup.
+     */
+    public List<String> getColumns()
+    {
+        List<String> columns = Lists.newArrayList( "dx" );
+
+        if ( disaggregated )
+        {
+            columns.add( "co" );
+            columns.add( "ao" );
+        }
+
+        for ( PeriodType type : PeriodType.getAvailablePeriodTypes() )
+        {
+            if ( type.getFrequencyOrder() >= periodType.getFrequencyOrder() )
+            {
+                columns.add( type.getName().toLowerCase() );
+            }
+        }
+
+        for ( int i = 1; i <= orgUnitLevel; i++ )
+        {
+            columns.add( LEVEL_PREFIX + i );
+        }
+
+        columns.add( "approvallevel" );
+
+        return columns;
+    }
+
+    private static Integer getLevel( String level )
+    {
+        try
+        {
+            int value = Integer.parseInt( level );
+
+            return value > 0 ? value : null;
+        }
+        catch ( NumberFormatException ex )
+        {
+            return null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public PeriodType getPeriodType()
+    {
+        return periodType;
+    }
+
+    public int getOrgUnitLevel()
+    {
+        return orgUnitLevel;
+    }
+
+    public boolean isDisaggregated()
+    {
+        return disaggregated;
+    }
+
+    // -------------------------------------------------------------------------
+    // hashCode, equals, toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int hashCode()
+    {
+        return getName().hashCode();
+    }
+
+    @Override
+    public boolean equals( Object object )
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+
+        if ( object == null || getClass() != object.getClass() )
+        {
+            return false;
+        }
+
+        return getName().equals( ( (AnalyticsRollup) object ).getName() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
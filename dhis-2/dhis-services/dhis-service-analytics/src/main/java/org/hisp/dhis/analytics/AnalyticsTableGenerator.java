@@ -55,6 +55,18 @@ public interface AnalyticsTableGenerator
      */
     void generateTables( @Nullable Integer lastYears, @Nullable TaskId taskId, Set<AnalyticsTableType> skipTableTypes, boolean skipResourceTables );
 
+    /**
+     * Updates analytics tables incrementally with the data which has changed
+     * since the last successful analytics table update. Falls back to a full
+     * update for the analytics table types for which an incremental update is
+     * not possible, and for all types if no previous update exists.
+     *
+     * @param taskId the task identifier, can be null.
+     * @param skipTableTypes indicates the types of analytics tables for
+     *        which to skip generation.
+     */
+    void generateTablesIncrementally( @Nullable TaskId taskId, Set<AnalyticsTableType> skipTableTypes );
+
     /**
      * Drops all existing analytics tables.
      */
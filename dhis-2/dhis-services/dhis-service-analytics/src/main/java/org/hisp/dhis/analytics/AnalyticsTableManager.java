@@ -28,6 +28,7 @@ package org.hisp.dhis.analytics;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.analytics.table.AnalyticsTablePipeline;
 import org.hisp.dhis.analytics.table.AnalyticsTableType;
 
 import java.util.Collection;
@@ -61,6 +62,36 @@ public interface AnalyticsTableManager
      */
     List<AnalyticsTable> getTables( Date earliest );
     
+    /**
+     * Indicates whether this table manager supports incremental updates through
+     * {@link #getIncrementalTables(Date)}, {@link #populateTablesIncrementallyAsync}
+     * and {@link #mergeTable(AnalyticsTable, Date)}.
+     * 
+     * @return true if incremental updates are supported.
+     */
+    boolean supportsIncrementalUpdate();
+    
+    /**
+     * Returns a list of generated {@link AnalyticsTable} for the yearly partitions
+     * which have data changed since the given date. Used for incremental updates,
+     * where the temporary tables hold the changed data only.
+     * 
+     * @param lastUpdated the date of the last successful analytics table update.
+     * @return list of analytics tables.
+     */
+    List<AnalyticsTable> getIncrementalTables( Date lastUpdated );
+    
+    /**
+     * Indicates whether the analytics tables can be updated incrementally with
+     * the data changed since the given date. This requires that the meta-data
+     * which the resource tables are based on has not changed since the given
+     * date.
+     * 
+     * @param lastUpdated the date of the last successful analytics table update.
+     * @return true if the analytics tables can be updated incrementally.
+     */
+    boolean isIncrementalUpdatePossible( Date lastUpdated );
+    
     /**
      * Returns a list of existing analytics database table names.
      * 
@@ -96,6 +127,13 @@ public interface AnalyticsTableManager
      */
     Future<?> createIndexesAsync( ConcurrentLinkedQueue<AnalyticsIndex> indexes );
     
+    /**
+     * Creates the given single index.
+     * 
+     * @param index the analytics index.
+     */
+    void createIndex( AnalyticsIndex index );
+    
     /**
      * Attempts to drop analytics table, then rename temporary table to analytics
      * table.
@@ -113,6 +151,75 @@ public interface AnalyticsTableManager
      */
     Future<?> populateTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables );
     
+    /**
+     * Copies and denormalizes rows from data value table into the given
+     * analytics table.
+     * 
+     * @param table the analytics table.
+     */
+    void populateTable( AnalyticsTable table );
+    
+    /**
+     * Works on the given pipeline until all of its analytics tables have
+     * passed through all stages. Invoked once for each pipeline worker.
+     * 
+     * @param pipeline the analytics table pipeline.
+     * @return a future representing the asynchronous task.
+     */
+    Future<?> processPipelineAsync( AnalyticsTablePipeline pipeline );
+    
+    /**
+     * Copies and denormalizes rows from data value table which were changed
+     * since the given date into temporary analytics tables.
+     * 
+     * @param tables the analytics tables.
+     * @param lastUpdated the date of the last successful analytics table update.
+     * @return a future representing the asynchronous task.
+     */
+    Future<?> populateTablesIncrementallyAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, Date lastUpdated );
+    
+    /**
+     * Removes the rows of the analytics table which correspond to data values
+     * changed since the given date, including deleted data values, then inserts
+     * the rows of the temporary analytics table into the analytics table and
+     * drops the temporary table.
+     * 
+     * @param table the analytics table.
+     * @param lastUpdated the date of the last successful analytics table update.
+     */
+    void mergeTable( AnalyticsTable table, Date lastUpdated );
+    
+    /**
+     * Indicates whether this table manager supports rollup tables through
+     * {@link #getRollupTables(AnalyticsTable)} and
+     * {@link #populateRollupTablesAsync}.
+     * 
+     * @return true if rollup tables are supported.
+     */
+    boolean supportsRollupTables();
+    
+    /**
+     * Returns a list of {@link AnalyticsTable} representing the pre-aggregated
+     * rollup tables for the given analytics table, based on the configured
+     * rollup shapes. The dimension columns of each rollup table are the columns
+     * retained by the rollup.
+     * 
+     * @param table the analytics table.
+     * @return list of rollup tables, empty if no rollups are configured.
+     */
+    List<AnalyticsTable> getRollupTables( AnalyticsTable table );
+    
+    /**
+     * Creates and populates the temporary rollup tables for the given analytics
+     * tables by aggregating the rows of the analytics tables.
+     * 
+     * @param tables the analytics tables.
+     * @param fromTempTables whether to aggregate from the temporary analytics
+     *        tables or from the live analytics tables.
+     * @return a future representing the asynchronous task.
+     */
+    Future<?> populateRollupTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, boolean fromTempTables );
+    
     /**
      * Performs analyze operations on analytics tables.
      * 
@@ -146,6 +253,15 @@ public interface AnalyticsTableManager
      */
     Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables, Collection<String> dataElements, int aggregationLevel );
     
+    /**
+     * Applies aggregation level logic to the given analytics table.
+     * 
+     * @param table the analytics table.
+     * @param dataElements the data element uids to apply aggregation levels for.
+     * @param aggregationLevel the aggregation level.
+     */
+    void applyAggregationLevels( AnalyticsTable table, Collection<String> dataElements, int aggregationLevel );
+    
     /**
      * Performs vacuum or optimization of the given table. The type of operation
      * performed is dependent on the underlying DBMS.
@@ -154,4 +270,11 @@ public interface AnalyticsTableManager
      * @return a future representing the asynchronous task.
      */
     Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables );
+    
+    /**
+     * Performs vacuum or optimization of the given table.
+     * 
+     * @param table the analytics table.
+     */
+    void vacuumTable( AnalyticsTable table );
 }
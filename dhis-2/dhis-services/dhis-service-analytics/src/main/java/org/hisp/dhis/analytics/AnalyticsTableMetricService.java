@@ -0,0 +1,80 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Service for recording and retrieving timing and row count metrics of the
+ * stages of analytics table generation.
+ */
+public interface AnalyticsTableMetricService
+{
+    /**
+     * Saves the given metric. Failures are logged and never propagated, so
+     * that recording metrics does not interrupt analytics table generation.
+     *
+     * @param metric the analytics table metric.
+     */
+    void addMetric( AnalyticsTableMetric metric );
+
+    /**
+     * Saves a metric for the given stage, which started at the given time and
+     * ends now.
+     *
+     * @param tableType the analytics table type base name.
+     * @param tableName the analytics table partition name, can be null.
+     * @param stage the stage.
+     * @param detail the detail of the stage, can be null.
+     * @param started the start time of the stage.
+     * @param rows the number of affected rows, can be null.
+     */
+    void addMetric( String tableType, String tableName, AnalyticsTableStage stage, String detail, Date started, Integer rows );
+
+    /**
+     * Returns analytics table metrics, ordered by start time, newest first.
+     *
+     * @param tableType the analytics table type base name, can be null.
+     * @param tableName the analytics table partition name, can be null.
+     * @param stage the stage, can be null.
+     * @param startDate include metrics started on or after this date, can be null.
+     * @param endDate include metrics started on or before this date, can be null.
+     * @param max the maximum number of metrics to return.
+     * @return a list of analytics table metrics.
+     */
+    List<AnalyticsTableMetric> getMetrics( String tableType, String tableName, AnalyticsTableStage stage, Date startDate, Date endDate, int max );
+
+    /**
+     * Deletes metrics which are older than the retention period given by the
+     * {@link org.hisp.dhis.setting.SettingKey#ANALYTICS_METRICS_RETENTION_DAYS}
+     * system setting.
+     */
+    void deleteExpiredMetrics();
+}
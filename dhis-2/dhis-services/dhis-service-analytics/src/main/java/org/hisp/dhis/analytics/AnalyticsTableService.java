@@ -30,6 +30,8 @@ import org.hisp.dhis.analytics.table.AnalyticsTableType;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Date;
+
 import org.hisp.dhis.scheduling.TaskId;
 
 /**
@@ -53,6 +55,21 @@ public interface AnalyticsTableService
      * @param taskId the {@link TaskId}.
      */
     void update( Integer lastYears, TaskId taskId );
+
+    /**
+     * Updates the analytics tables incrementally with the data which has
+     * changed since the given date. Only the partitions affected by the
+     * changed data are updated, and the existing rows of the changed data
+     * are replaced. An incremental update is not possible if meta-data which
+     * the analytics tables are based on has changed, or if any of the
+     * affected partitions does not exist.
+     *
+     * @param lastUpdated the date of the last successful analytics table update.
+     * @param taskId the {@link TaskId}.
+     * @return true if the tables were updated incrementally, false if a full
+     *         update is required.
+     */
+    boolean updateIncrementally( Date lastUpdated, TaskId taskId );
     
     /**
      * Drops main and temporary analytics tables.
@@ -29,7 +29,9 @@ package org.hisp.dhis.analytics;
  */
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hisp.dhis.common.ListMap;
 
@@ -96,6 +98,29 @@ public class DataQueryGroups
         return sequentialQueries;
     }
     
+    /**
+     * Gets the partitions of all queries. Returns null if any query is not
+     * partitioned, meaning that the query may read from any partition.
+     * 
+     * @return the partitions of all queries.
+     */
+    public Set<String> getPartitions()
+    {
+        Set<String> partitions = new HashSet<>();
+        
+        for ( DataQueryParams query : queries )
+        {
+            if ( query.getPartitions() == null || !query.getPartitions().hasAny() )
+            {
+                return null;
+            }
+            
+            partitions.addAll( query.getPartitions().getPartitions() );
+        }
+        
+        return partitions;
+    }
+    
     /**
      * Indicates whether the current number of queries in this group is optimal. 
      * Uses the given optimal query number compared to the size of the largest 
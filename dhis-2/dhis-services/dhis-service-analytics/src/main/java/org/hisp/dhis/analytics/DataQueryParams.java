@@ -415,7 +415,97 @@ public class DataQueryParams
     {
         return aggregationType != null ? aggregationType.toString() : null;
     }
-    
+
+    /**
+     * Returns a key which uniquely identifies the response of this query. The
+     * key is normalized, meaning that the order of filters and filter items
+     * does not affect the key, while the order of dimensions and dimension
+     * items, which affects the response, is retained. Data approval levels are
+     * included as they are derived from the current user.
+     */
+    public String getKey()
+    {
+        StringBuilder key = new StringBuilder();
+
+        dimensions.forEach( dim -> key.append( "dimension:" ).append( getDimensionKey( dim, false ) ).append( DIMENSION_SEP ) );
+
+        filters.stream()
+            .map( dim -> getDimensionKey( dim, true ) )
+            .sorted()
+            .forEach( dim -> key.append( "filter:" ).append( dim ).append( DIMENSION_SEP ) );
+
+        measureCriteria.entrySet().stream()
+            .map( e -> e.getKey() + ":" + e.getValue() )
+            .sorted()
+            .forEach( c -> key.append( "measureCriteria:" ).append( c ).append( DIMENSION_SEP ) );
+
+        preAggregateMeasureCriteria.entrySet().stream()
+            .map( e -> e.getKey() + ":" + e.getValue() )
+            .sorted()
+            .forEach( c -> key.append( "preAggregateMeasureCriteria:" ).append( c ).append( DIMENSION_SEP ) );
+
+        dataApprovalLevels.entrySet().stream()
+            .map( e -> e.getKey().getUid() + ":" + e.getValue() )
+            .sorted()
+            .forEach( c -> key.append( "dataApprovalLevel:" ).append( c ).append( DIMENSION_SEP ) );
+
+        return key
+            .append( "aggregationType:" ).append( aggregationType ).append( DIMENSION_SEP )
+            .append( "skipMeta:" ).append( skipMeta ).append( DIMENSION_SEP )
+            .append( "skipData:" ).append( skipData ).append( DIMENSION_SEP )
+            .append( "skipHeaders:" ).append( skipHeaders ).append( DIMENSION_SEP )
+            .append( "skipRounding:" ).append( skipRounding ).append( DIMENSION_SEP )
+            .append( "completedOnly:" ).append( completedOnly ).append( DIMENSION_SEP )
+            .append( "hierarchyMeta:" ).append( hierarchyMeta ).append( DIMENSION_SEP )
+            .append( "ignoreLimit:" ).append( ignoreLimit ).append( DIMENSION_SEP )
+            .append( "hideEmptyRows:" ).append( hideEmptyRows ).append( DIMENSION_SEP )
+            .append( "hideEmptyColumns:" ).append( hideEmptyColumns ).append( DIMENSION_SEP )
+            .append( "showHierarchy:" ).append( showHierarchy ).append( DIMENSION_SEP )
+            .append( "includeNumDen:" ).append( includeNumDen ).append( DIMENSION_SEP )
+            .append( "displayProperty:" ).append( displayProperty ).append( DIMENSION_SEP )
+            .append( "outputIdScheme:" ).append( outputIdScheme ).append( DIMENSION_SEP )
+            .append( "outputFormat:" ).append( outputFormat ).append( DIMENSION_SEP )
+            .append( "duplicatesOnly:" ).append( duplicatesOnly ).append( DIMENSION_SEP )
+            .append( "approvalLevel:" ).append( approvalLevel ).append( DIMENSION_SEP )
+            .append( "startDate:" ).append( startDate != null ? startDate.getTime() : null ).append( DIMENSION_SEP )
+            .append( "endDate:" ).append( endDate != null ? endDate.getTime() : null ).append( DIMENSION_SEP )
+            .append( "apiVersion:" ).append( apiVersion ).append( DIMENSION_SEP )
+            .append( "program:" ).append( program != null ? program.getUid() : null ).append( DIMENSION_SEP )
+            .append( "programStage:" ).append( programStage != null ? programStage.getUid() : null ).append( DIMENSION_SEP )
+            .append( "dataType:" ).append( dataType ).append( DIMENSION_SEP )
+            .append( "periodType:" ).append( periodType ).append( DIMENSION_SEP )
+            .append( "dataPeriodType:" ).append( dataPeriodType != null ? dataPeriodType.getName() : null ).append( DIMENSION_SEP )
+            .append( "skipPartitioning:" ).append( skipPartitioning ).append( DIMENSION_SEP )
+            .append( "timely:" ).append( timely ).append( DIMENSION_SEP )
+            .append( "restrictByOrgUnitOpeningClosedDate:" ).append( restrictByOrgUnitOpeningClosedDate ).append( DIMENSION_SEP )
+            .append( "restrictByCategoryOptionStartEndDate:" ).append( restrictByCategoryOptionStartEndDate ).append( DIMENSION_SEP )
+            .append( "processingHints:" ).append( processingHints.stream().map( ProcessingHint::name ).sorted().collect( Collectors.toList() ) )
+            .toString();
+    }
+
+    /**
+     * Returns a key for the given dimension.
+     *
+     * @param dimension the dimension.
+     * @param sortItems whether to sort the dimension items.
+     */
+    private static String getDimensionKey( DimensionalObject dimension, boolean sortItems )
+    {
+        List<String> items = dimension.getItems().stream()
+            .map( DimensionalItemObject::getDimensionItem )
+            .collect( Collectors.toList() );
+
+        if ( sortItems )
+        {
+            Collections.sort( items );
+        }
+
+        return dimension.getDimension() + ":" + items +
+            ":" + dimension.getFilter() +
+            ":" + ( dimension.hasLegendSet() ? dimension.getLegendSet().getUid() : null ) +
+            ":" + dimension.getAggregationType();
+    }
+
     /**
      * Indicates whether the filters of this query spans more than one partition.
      * If true it means that a period filter exists and that the periods span
@@ -1418,21 +1508,34 @@ public class DataQueryParams
     {
         MapMap<String, DimensionalItemObject, Double> permutationMap = new MapMap<>();
         
-        for ( String key : aggregatedDataMap.keySet() )
+        getPermutationItemIdValueMap( aggregatedDataMap ).forEach( ( permKey, itemValues ) ->
+            itemValues.forEach( ( dimItem, value ) -> permutationMap.putEntry( permKey, new BaseDimensionalItemObject( dimItem ), value ) ) );
+        
+        return permutationMap;
+    }
+    
+    /**
+     * Creates a mapping of permutation keys and mappings of dimension item
+     * identifiers and values based on the given mapping of dimension option
+     * keys and aggregated values. The data element dimension will be at index 0.
+     * 
+     * @param aggregatedDataMap the aggregated data map.
+     * @return a mapping of permutation keys and mappings of dimension item
+     *         identifiers and values.
+     */
+    public static MapMap<String, String, Double> getPermutationItemIdValueMap( Map<String, Double> aggregatedDataMap )
+    {
+        MapMap<String, String, Double> permutationMap = new MapMap<>();
+        
+        for ( Map.Entry<String, Double> entry : aggregatedDataMap.entrySet() )
         {
-            List<String> keys = Lists.newArrayList( key.split( DIMENSION_SEP ) );
-            
-            String dimItem = keys.get( DX_INDEX );
-                        
-            keys.remove( DX_INDEX );
+            List<String> keys = Lists.newArrayList( entry.getKey().split( DIMENSION_SEP ) );
             
-            BaseDimensionalItemObject dimItemObject = new BaseDimensionalItemObject( dimItem );
+            String dimItem = keys.remove( DX_INDEX );
             
             String permKey = StringUtils.join( keys, DIMENSION_SEP );
             
-            Double value = aggregatedDataMap.get( key );
-            
-            permutationMap.putEntry( permKey, dimItemObject, value );            
+            permutationMap.putEntry( permKey, dimItem, entry.getValue() );
         }
         
         return permutationMap;
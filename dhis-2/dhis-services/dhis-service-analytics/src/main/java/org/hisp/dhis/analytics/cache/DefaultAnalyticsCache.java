@@ -0,0 +1,509 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsCache;
+import org.hisp.dhis.analytics.AnalyticsCacheStatistics;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.table.PartitionUtils;
+import org.hisp.dhis.calendar.Calendar;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.UserContext;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.user.UserSettingKey;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+
+/**
+ * Caffeine based implementation of {@link AnalyticsCache}. Entries are weighed
+ * by the number of values they contain and expire after the number of seconds
+ * given by the {@link SettingKey#ANALYTICS_CACHE_EXPIRATION} system setting.
+ * A setting of 0 disables the cache. Disabled during test phase.
+ * <p>
+ * Entries are stamped with the generation of the cache read before the value
+ * is computed. Each invalidation increments the generation and records it for
+ * the invalidated years. Entries stamped with an older generation than the
+ * last invalidation of any of their years are rejected, so that values which
+ * were computed while an invalidation took place are never served.
+ */
+public class DefaultAnalyticsCache
+    implements AnalyticsCache
+{
+    private static final Log log = LogFactory.getLog( DefaultAnalyticsCache.class );
+
+    private static final String KEY_GRID = "grid";
+    private static final String KEY_VALUE_MAP = "valueMap";
+    private static final String KEY_SEP = "|";
+
+    /**
+     * Max total number of values, i.e. grid cells and value map entries, in
+     * the cache.
+     */
+    private static final long MAX_WEIGHT = 10_000_000;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Generation of the last invalidation of each year.
+     */
+    private final Map<Integer, Long> yearGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Generation of the last invalidation of all entries.
+     */
+    private final AtomicLong allGeneration = new AtomicLong();
+
+    /**
+     * Generation of the last invalidation of any entries.
+     */
+    private final AtomicLong anyGeneration = new AtomicLong();
+
+    private final long maxWeight;
+
+    private final Cache<String, CacheEntry> cache;
+
+    public DefaultAnalyticsCache()
+    {
+        this( null, SystemUtils.isTestRun() ? 0 : MAX_WEIGHT );
+    }
+
+    DefaultAnalyticsCache( SystemSettingManager systemSettingManager, long maxWeight )
+    {
+        this.systemSettingManager = systemSettingManager;
+        this.maxWeight = maxWeight;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight( maxWeight )
+            .weigher( ( String key, CacheEntry entry ) -> entry.getWeight() )
+            .expireAfter( new Expiry<String, CacheEntry>()
+            {
+                @Override
+                public long expireAfterCreate( String key, CacheEntry entry, long currentTime )
+                {
+                    return TimeUnit.SECONDS.toNanos( getExpiration() );
+                }
+
+                @Override
+                public long expireAfterUpdate( String key, CacheEntry entry, long currentTime, long currentDuration )
+                {
+                    return TimeUnit.SECONDS.toNanos( getExpiration() );
+                }
+
+                @Override
+                public long expireAfterRead( String key, CacheEntry entry, long currentTime, long currentDuration )
+                {
+                    return currentDuration;
+                }
+            } )
+            .recordStats()
+            .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsCache implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Grid getGrid( DataQueryParams params, Supplier<Grid> gridSupplier )
+    {
+        if ( !isEnabled() )
+        {
+            return gridSupplier.get();
+        }
+
+        String key = StringUtils.join( KEY_GRID, KEY_SEP, getLocaleKey(), KEY_SEP, params.getKey() );
+
+        CacheEntry entry = getCurrentEntry( key );
+
+        if ( entry == null )
+        {
+            long entryGeneration = generation.get();
+            Grid grid = gridSupplier.get();
+            entry = new CacheEntry( copyGrid( grid ), getYears( params ), getWeight( grid ), entryGeneration );
+            putIfCurrent( key, entry );
+        }
+
+        return copyGrid( (Grid) entry.getValue() );
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public Map<String, Object> getValueMap( DataQueryParams params, String tableName, Set<String> partitions,
+        Supplier<Map<String, Object>> valueMapSupplier )
+    {
+        if ( !isEnabled() )
+        {
+            return valueMapSupplier.get();
+        }
+
+        String key = StringUtils.join( KEY_VALUE_MAP, KEY_SEP, tableName, KEY_SEP, params.getKey() );
+
+        CacheEntry entry = getCurrentEntry( key );
+
+        if ( entry == null )
+        {
+            long entryGeneration = generation.get();
+            Map<String, Object> valueMap = valueMapSupplier.get();
+            entry = new CacheEntry( new HashMap<>( valueMap ), getYears( partitions ), Math.max( 1, valueMap.size() ), entryGeneration );
+            putIfCurrent( key, entry );
+        }
+
+        return new HashMap<>( (Map<String, Object>) entry.getValue() );
+    }
+
+    @Override
+    public void invalidatePartitions( Collection<String> partitions )
+    {
+        if ( partitions == null || partitions.isEmpty() )
+        {
+            return;
+        }
+
+        Set<Integer> years = getYears( partitions );
+
+        if ( years == null )
+        {
+            invalidateAll();
+            return;
+        }
+
+        long invalidationGeneration = generation.incrementAndGet();
+
+        years.forEach( year -> yearGenerations.merge( year, invalidationGeneration, Math::max ) );
+        anyGeneration.accumulateAndGet( invalidationGeneration, Math::max );
+
+        long before = cache.estimatedSize();
+
+        cache.asMap().values().removeIf( entry -> entry.isComputedFrom( years ) );
+
+        long invalidated = Math.max( 0, before - cache.estimatedSize() );
+
+        invalidationCount.addAndGet( invalidated );
+
+        log.info( String.format( "Invalidated analytics cache entries for years: %s, entries: %d", years, invalidated ) );
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        long invalidationGeneration = generation.incrementAndGet();
+
+        allGeneration.accumulateAndGet( invalidationGeneration, Math::max );
+        anyGeneration.accumulateAndGet( invalidationGeneration, Math::max );
+
+        long invalidated = cache.estimatedSize();
+
+        cache.invalidateAll();
+
+        invalidationCount.addAndGet( invalidated );
+
+        log.info( String.format( "Invalidated all analytics cache entries: %d", invalidated ) );
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return getExpiration() > 0 && maxWeight > 0;
+    }
+
+    @Override
+    public AnalyticsCacheStatistics getStatistics()
+    {
+        CacheStats stats = cache.stats();
+
+        long weight = cache.asMap().values().stream().mapToLong( CacheEntry::getWeight ).sum();
+
+        return new AnalyticsCacheStatistics( isEnabled(), cache.estimatedSize(), weight, stats.hitCount(),
+            stats.missCount(), stats.evictionCount(), invalidationCount.get() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the entry for the given key, or null if there is no entry or if
+     * the entry was invalidated after its value was computed.
+     *
+     * @param key the cache key.
+     */
+    private CacheEntry getCurrentEntry( String key )
+    {
+        CacheEntry entry = cache.getIfPresent( key );
+
+        if ( entry != null && !isCurrent( entry ) )
+        {
+            cache.asMap().remove( key, entry );
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Puts the given entry in the cache unless it was invalidated while its
+     * value was computed. An invalidation which happens after the check is
+     * detected when the entry is read.
+     *
+     * @param key the cache key.
+     * @param entry the {@link CacheEntry}.
+     */
+    private void putIfCurrent( String key, CacheEntry entry )
+    {
+        if ( isCurrent( entry ) )
+        {
+            cache.put( key, entry );
+        }
+    }
+
+    /**
+     * Indicates whether no invalidation of any of the years of the given entry
+     * took place after the generation of the entry was read.
+     *
+     * @param entry the {@link CacheEntry}.
+     */
+    private boolean isCurrent( CacheEntry entry )
+    {
+        long entryGeneration = entry.getGeneration();
+
+        if ( entryGeneration < allGeneration.get() )
+        {
+            return false;
+        }
+
+        if ( entry.years == null )
+        {
+            return entryGeneration >= anyGeneration.get();
+        }
+
+        return entry.years.stream().allMatch( year -> entryGeneration >= yearGenerations.getOrDefault( year, 0L ) );
+    }
+
+    /**
+     * Returns the cache expiration in seconds.
+     */
+    private int getExpiration()
+    {
+        Integer expiration = (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_CACHE_EXPIRATION );
+
+        return expiration != null ? expiration : 0;
+    }
+
+    /**
+     * Returns a key for the database locale of the current user, as meta-data
+     * names in the response are translated.
+     */
+    private String getLocaleKey()
+    {
+        Serializable locale = UserContext.getUserSetting( UserSettingKey.DB_LOCALE );
+
+        return locale != null ? locale.toString() : StringUtils.EMPTY;
+    }
+
+    /**
+     * Returns the years spanned by the periods and start and end dates of the
+     * given query. Returns null if the query has no periods nor start and end
+     * date, meaning that the query may be computed from any partition.
+     *
+     * @param params the {@link DataQueryParams}.
+     */
+    private Set<Integer> getYears( DataQueryParams params )
+    {
+        Calendar calendar = PeriodType.getCalendar();
+
+        Set<Integer> years = new HashSet<>();
+
+        List<DimensionalItemObject> periods = params.getDimensionOrFilterItems( PERIOD_DIM_ID );
+
+        for ( DimensionalItemObject item : periods )
+        {
+            Period period = (Period) item;
+
+            addYears( years, calendar.fromIso( period.getStartDate() ).getYear(), calendar.fromIso( period.getEndDate() ).getYear() );
+        }
+
+        if ( params.hasStartEndDate() )
+        {
+            addYears( years, calendar.fromIso( params.getStartDate() ).getYear(), calendar.fromIso( params.getEndDate() ).getYear() );
+        }
+
+        return years.isEmpty() ? null : years;
+    }
+
+    /**
+     * Returns the years of the given partitions. Returns null if the partitions
+     * are null or if any partition does not have a year suffix, meaning that
+     * the entry may be computed from any partition.
+     *
+     * @param partitions the analytics table partition names.
+     */
+    private Set<Integer> getYears( Collection<String> partitions )
+    {
+        if ( partitions == null || partitions.isEmpty() )
+        {
+            return null;
+        }
+
+        Set<Integer> years = new HashSet<>();
+
+        for ( String partition : partitions )
+        {
+            String suffix = StringUtils.substringAfterLast( partition, PartitionUtils.SEP );
+
+            if ( !StringUtils.isNumeric( suffix ) || suffix.isEmpty() )
+            {
+                return null;
+            }
+
+            years.add( Integer.valueOf( suffix ) );
+        }
+
+        return years;
+    }
+
+    private void addYears( Set<Integer> years, int startYear, int endYear )
+    {
+        for ( int year = startYear; year <= endYear; year++ )
+        {
+            years.add( year );
+        }
+    }
+
+    private int getWeight( Grid grid )
+    {
+        return Math.max( 1, grid.getHeight() * Math.max( 1, grid.getWidth() ) );
+    }
+
+    /**
+     * Returns a copy of the given grid. Rows and meta-data maps are copied,
+     * values are not.
+     *
+     * @param grid the grid to copy.
+     */
+    private Grid copyGrid( Grid grid )
+    {
+        Grid copy = new ListGrid( new HashMap<>( grid.getMetaData() ), new HashMap<>( grid.getInternalMetaData() ) )
+            .setTitle( grid.getTitle() )
+            .setSubtitle( grid.getSubtitle() )
+            .setTable( grid.getTable() );
+
+        for ( GridHeader header : grid.getHeaders() )
+        {
+            copy.addHeader( header );
+        }
+
+        for ( List<Object> row : grid.getRows() )
+        {
+            copy.addRow().addValuesAsList( row );
+        }
+
+        return copy;
+    }
+
+    /**
+     * Cache entry which holds a cached value, the years of the partitions
+     * which the value was computed from and the generation of the cache read
+     * before the value was computed.
+     */
+    private static class CacheEntry
+    {
+        private final Object value;
+
+        private final Set<Integer> years;
+
+        private final int weight;
+
+        private final long generation;
+
+        CacheEntry( Object value, Set<Integer> years, int weight, long generation )
+        {
+            this.value = value;
+            this.years = years;
+            this.weight = weight;
+            this.generation = generation;
+        }
+
+        /**
+         * Indicates whether this entry is computed from any of the given years.
+         * Entries for which the years are unknown are considered to be
+         * computed from any year.
+         */
+        boolean isComputedFrom( Set<Integer> partitionYears )
+        {
+            return years == null || years.stream().anyMatch( partitionYears::contains );
+        }
+
+        Object getValue()
+        {
+            return value;
+        }
+
+        int getWeight()
+        {
+            return weight;
+        }
+
+        long getGeneration()
+        {
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Factory bean for the executor which runs analytics data queries. The number
+ * of threads caps the number of analytics queries running concurrently across
+ * all requests, and can be configured with the <code>analytics.query.threads</code>
+ * property. Defaults to the number of available processors.
+ * <p>
+ * The executor is deliberately not a Spring task executor, so that it is
+ * not picked up as the default executor for asynchronous methods.
+ */
+public class AnalyticsQueryExecutorFactoryBean
+    implements FactoryBean<ExecutorService>, DisposableBean
+{
+    private static final Log log = LogFactory.getLog( AnalyticsQueryExecutorFactoryBean.class );
+
+    @Autowired
+    private DhisConfigurationProvider configurationProvider;
+
+    private ExecutorService executor;
+
+    // -------------------------------------------------------------------------
+    // FactoryBean implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public synchronized ExecutorService getObject()
+    {
+        if ( executor == null )
+        {
+            String threads = configurationProvider.getProperty( ConfigurationKey.ANALYTICS_QUERY_THREADS );
+
+            int threadNo = Math.max( 1, NumberUtils.toInt( threads, SystemUtils.getCpuCores() ) );
+
+            ThreadPoolExecutor pool = new ThreadPoolExecutor( threadNo, threadNo, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat( "analytics-query-%d" ).setDaemon( true ).build() );
+
+            pool.allowCoreThreadTimeOut( true );
+
+            executor = pool;
+
+            log.info( "Analytics query executor threads: " + threadNo );
+        }
+
+        return executor;
+    }
+
+    @Override
+    public Class<ExecutorService> getObjectType()
+    {
+        return ExecutorService.class;
+    }
+
+    @Override
+    public boolean isSingleton()
+    {
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // DisposableBean implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void destroy()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Holder of the statement of a running analytics query, which allows the
+ * query to be cancelled from another thread. Interrupting the thread which
+ * runs a query does not stop the statement in the database, hence the
+ * statement itself must be cancelled.
+ */
+public class CancellableStatement
+{
+    private static final Log log = LogFactory.getLog( CancellableStatement.class );
+
+    private Statement statement;
+
+    private boolean cancelled = false;
+
+    /**
+     * Sets the statement which is about to be executed.
+     *
+     * @param statement the statement.
+     * @throws SQLException if the query was cancelled before the statement
+     *         was set.
+     */
+    public synchronized void set( Statement statement )
+        throws SQLException
+    {
+        if ( cancelled )
+        {
+            throw new SQLException( "Analytics query was cancelled" );
+        }
+
+        this.statement = statement;
+    }
+
+    /**
+     * Clears the statement after it was executed.
+     */
+    public synchronized void clear()
+    {
+        this.statement = null;
+    }
+
+    /**
+     * Cancels the statement if it is running, and prevents any statement
+     * from being set later.
+     */
+    public synchronized void cancel()
+    {
+        cancelled = true;
+
+        if ( statement != null )
+        {
+            try
+            {
+                statement.cancel();
+            }
+            catch ( SQLException ex )
+            {
+                log.warn( "Could not cancel analytics query statement", ex );
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
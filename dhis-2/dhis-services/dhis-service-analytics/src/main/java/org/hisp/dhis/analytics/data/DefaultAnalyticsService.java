@@ -33,6 +33,7 @@ import com.google.common.collect.Lists;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsCache;
 import org.hisp.dhis.analytics.AnalyticsManager;
 import org.hisp.dhis.analytics.AnalyticsMetaDataKey;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
@@ -86,6 +87,7 @@ import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -94,6 +96,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -148,6 +152,9 @@ public class DefaultAnalyticsService
     @Autowired
     private DataQueryService dataQueryService;
 
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     // -------------------------------------------------------------------------
     // AnalyticsService implementation
     // -------------------------------------------------------------------------
@@ -166,7 +173,9 @@ public class DefaultAnalyticsService
 
         queryPlanner.validate( params );
 
-        return getAggregatedDataValueGridInternal( params );
+        final DataQueryParams query = params;
+
+        return analyticsCache.getGrid( query, () -> getAggregatedDataValueGridInternal( query ) );
     }
 
     @Override
@@ -381,7 +390,7 @@ public class DefaultAnalyticsService
 
             List<List<DimensionItem>> dimensionItemPermutations = dataSourceParams.getDimensionItemPermutations();
 
-            Map<String, Map<DimensionalItemObject, Double>> permutationDimensionItemValueMap = getPermutationDimensionItemValueMap( dataSourceParams );
+            Map<String, Map<String, Double>> permutationDimensionItemValueMap = getPermutationDimensionItemIdValueMap( dataSourceParams );
 
             for ( Indicator indicator : indicators )
             {
@@ -389,7 +398,7 @@ public class DefaultAnalyticsService
                 {
                     String permKey = DimensionItem.asItemKey( dimensionItems );
 
-                    Map<DimensionalItemObject, Double> valueMap = permutationDimensionItemValueMap.get( permKey );
+                    Map<String, Double> valueMap = permutationDimensionItemValueMap.get( permKey );
 
                     if ( valueMap == null )
                     {
@@ -404,7 +413,7 @@ public class DefaultAnalyticsService
 
                     Map<String, Integer> orgUnitCountMap = permutationOrgUnitTargetMap != null ? permutationOrgUnitTargetMap.get( ou ) : null;
 
-                    IndicatorValue value = expressionService.getIndicatorValueObject( indicator, period, valueMap, constantMap, orgUnitCountMap );
+                    IndicatorValue value = expressionService.getIndicatorValueObjectForItemIds( indicator, period, valueMap, constantMap, orgUnitCountMap );
 
                     if ( value != null )
                     {
@@ -1070,39 +1079,132 @@ public class DefaultAnalyticsService
 
         timer.getSplitTime( "Planned analytics query, got: " + queryGroups.getLargestGroupSize() + " for optimal: " + optimalQueries );
 
-        Map<String, Object> map = new HashMap<>();
+        Map<String, Object> map = analyticsCache.getValueMap( params, tableName, queryGroups.getPartitions(),
+            () -> getAggregatedValueMap( queryGroups, maxLimit, optimalQueries ) );
 
-        for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
-        {
-            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        timer.getTime( "Got analytics values" );
 
-            for ( DataQueryParams query : queries )
-            {
-                futures.add( analyticsManager.getAggregatedDataValues( query, maxLimit ) );
-            }
+        return map;
+    }
+
+    /**
+     * Generates a mapping between a dimension key and the aggregated value for
+     * the given planned query groups. The queries of all groups are submitted
+     * in group order to the analytics query executor, which caps the number of
+     * queries running concurrently across requests. Queries of later groups
+     * may start as soon as queries of earlier groups complete, while at most the
+     * given optimal number of queries are in flight for this request. Remaining
+     * queries are cancelled if a query fails or the calling thread is
+     * interrupted.
+     *
+     * @param queryGroups the {@link DataQueryGroups}.
+     * @param maxLimit the max number of records to retrieve.
+     * @param optimalQueries the max number of queries in flight for this request.
+     * @return a mapping between a dimension key and aggregated values.
+     */
+    Map<String, Object> getAggregatedValueMap( DataQueryGroups queryGroups, int maxLimit, int optimalQueries )
+    {
+        final List<List<DataQueryParams>> groups = queryGroups.getSequentialQueries();
+        final List<List<Future<Map<String, Object>>>> groupFutures = new ArrayList<>();
+        final long[] groupStart = new long[groups.size()];
+        final AtomicLongArray groupEnd = new AtomicLongArray( groups.size() );
+        final Semaphore permits = new Semaphore( optimalQueries );
 
-            for ( Future<Map<String, Object>> future : futures )
+        Map<String, Object> map = null;
+
+        try
+        {
+            for ( int i = 0; i < groups.size(); i++ )
             {
-                try
+                final int group = i;
+
+                List<Future<Map<String, Object>>> futures = new ArrayList<>();
+
+                groupFutures.add( futures );
+
+                groupStart[i] = System.nanoTime();
+
+                for ( DataQueryParams query : groups.get( i ) )
                 {
-                    Map<String, Object> taskValues = future.get();
+                    permits.acquire();
 
-                    if ( taskValues != null )
-                    {
-                        map.putAll( taskValues );
-                    }
+                    ListenableFuture<Map<String, Object>> future = analyticsManager.getAggregatedDataValues( query, maxLimit );
+
+                    future.addCallback( result -> {
+                        groupEnd.accumulateAndGet( group, System.nanoTime(), Math::max );
+                        permits.release();
+                    }, ex -> permits.release() );
+
+                    futures.add( future );
                 }
-                catch ( Exception ex )
-                {
-                    log.error( DebugUtils.getStackTrace( ex ) );
-                    log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+            }
 
-                    throw new RuntimeException( "Error during execution of aggregation query task", ex );
+            for ( int i = 0; i < groupFutures.size(); i++ )
+            {
+                for ( Future<Map<String, Object>> future : groupFutures.get( i ) )
+                {
+                    map = mergeValueMaps( map, future.get() );
                 }
+
+                log.debug( String.format( "Query group %d of %d with %d queries completed in %d ms", ( i + 1 ), groups.size(),
+                    groupFutures.get( i ).size(), Math.max( 0, groupEnd.get( i ) - groupStart[i] ) / 1000000 ) );
             }
         }
+        catch ( InterruptedException ex )
+        {
+            cancel( groupFutures );
 
-        timer.getTime( "Got analytics values" );
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Aggregation query was interrupted", ex );
+        }
+        catch ( Exception ex )
+        {
+            cancel( groupFutures );
+
+            log.error( DebugUtils.getStackTrace( ex ) );
+            log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+
+            throw new RuntimeException( "Error during execution of aggregation query task", ex );
+        }
+
+        return map != null ? map : new HashMap<>();
+    }
+
+    /**
+     * Cancels the given futures which are not yet completed.
+     *
+     * @param groupFutures the futures.
+     */
+    private void cancel( List<List<Future<Map<String, Object>>>> groupFutures )
+    {
+        groupFutures.forEach( futures -> futures.forEach( future -> future.cancel( true ) ) );
+    }
+
+    /**
+     * Merges the given value maps. The larger map is reused as the target in
+     * order to avoid copying and rehashing it. Values in the later map take
+     * precedence over values in the earlier map.
+     *
+     * @param map the earlier map, can be null.
+     * @param taskValues the later map, can be null.
+     * @return the merged map.
+     */
+    private Map<String, Object> mergeValueMaps( Map<String, Object> map, Map<String, Object> taskValues )
+    {
+        if ( map == null || taskValues == null )
+        {
+            return map != null ? map : taskValues;
+        }
+
+        if ( taskValues.size() > map.size() )
+        {
+            map.forEach( taskValues::putIfAbsent );
+
+            return taskValues;
+        }
+
+        map.putAll( taskValues );
 
         return map;
     }
@@ -1152,18 +1254,18 @@ public class DefaultAnalyticsService
     // -------------------------------------------------------------------------
 
     /**
-     * Returns a mapping of permutation keys and mappings of data element operands
-     * and values based on the given query.
+     * Returns a mapping of permutation keys and mappings of dimension item
+     * identifiers and values based on the given query.
      *
      * @param params the {@link DataQueryParams}.
      */
-    private Map<String, Map<DimensionalItemObject, Double>> getPermutationDimensionItemValueMap( DataQueryParams params )
+    private Map<String, Map<String, Double>> getPermutationDimensionItemIdValueMap( DataQueryParams params )
     {
         List<Indicator> indicators = asTypedList( params.getIndicators() );
 
         Map<String, Double> valueMap = getAggregatedDataValueMap( params, indicators );
 
-        return DataQueryParams.getPermutationDimensionalItemValueMap( valueMap );
+        return DataQueryParams.getPermutationItemIdValueMap( valueMap );
     }
 
     /**
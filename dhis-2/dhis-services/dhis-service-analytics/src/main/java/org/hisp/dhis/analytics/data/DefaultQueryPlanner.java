@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.data;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
 import org.hisp.dhis.analytics.DataQueryGroups;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
@@ -39,6 +40,7 @@ import org.hisp.dhis.analytics.Partitions;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.table.AnalyticsTableType;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
@@ -51,6 +53,7 @@ import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.commons.filter.FilterUtils;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.ProgramDataElementDimensionItem;
@@ -65,9 +68,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.analytics.AggregationType.SUM;
 import static org.hisp.dhis.analytics.DataQueryParams.LEVEL_PREFIX;
@@ -274,6 +279,12 @@ public class DefaultQueryPlanner
             }
         }
 
+        // ---------------------------------------------------------------------
+        // Route queries to pre-aggregated rollup tables where possible
+        // ---------------------------------------------------------------------
+
+        routeToRollupTables( queries, plannerParams );
+
         // ---------------------------------------------------------------------
         // Split queries until optimal number
         // ---------------------------------------------------------------------
@@ -304,6 +315,118 @@ public class DefaultQueryPlanner
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Replaces the partitions of each of the given queries which can be answered
+     * by a pre-aggregated rollup table with the partitions of the smallest such
+     * rollup table. A query is routed only if all partitions of the rollup
+     * table exist.
+     * 
+     * @param queries the list of queries, will be modified.
+     * @param plannerParams the query planner parameters.
+     */
+    private void routeToRollupTables( List<DataQueryParams> queries, QueryPlannerParams plannerParams )
+    {
+        if ( !AnalyticsTableType.DATA_VALUE.getTableName().equals( plannerParams.getTableName() ) || plannerParams.getTableSuffix() != null )
+        {
+            return;
+        }
+
+        List<AnalyticsRollup> rollups = AnalyticsRollup.getRollups( 
+            (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_ROLLUPS ) );
+
+        if ( rollups.isEmpty() )
+        {
+            return;
+        }
+
+        rollups.sort( AnalyticsRollup.SIZE_COMPARATOR );
+
+        Set<String> validPartitions = partitionManager.getDataValueAnalyticsPartitions();
+
+        for ( int i = 0; i < queries.size(); i++ )
+        {
+            DataQueryParams query = queries.get( i );
+
+            if ( !isRollupCompatible( query ) )
+            {
+                continue;
+            }
+
+            Set<String> columns = getQueryColumns( query );
+
+            for ( AnalyticsRollup rollup : rollups )
+            {
+                if ( !rollup.getColumns().containsAll( columns ) )
+                {
+                    continue;
+                }
+
+                List<String> partitions = query.getPartitions().getPartitions().stream()
+                    .map( rollup::getPartitionName )
+                    .collect( Collectors.toList() );
+
+                if ( validPartitions.containsAll( partitions ) )
+                {
+                    queries.set( i, DataQueryParams.newBuilder( query )
+                        .withPartitions( new Partitions( partitions ) ).build() );
+
+                    log.debug( String.format( "Routed query to rollup tables: %s", partitions ) );
+
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the given query can be answered by a rollup table,
+     * which holds summed numeric values only and has no date columns.
+     */
+    private boolean isRollupCompatible( DataQueryParams query )
+    {
+        return !query.isSkipPartitioning() && query.getPartitions() != null && query.getPartitions().hasAny() &&
+            query.isDataType( DataType.NUMERIC ) && query.isAggregation() &&
+            ( !query.hasAggregationType() || query.isAggregationType( SUM ) ) &&
+            query.getPreAggregateMeasureCriteria().isEmpty() && !query.hasStartEndDate() && !query.isTimely();
+    }
+
+    /**
+     * Returns the names of the analytics table columns referred to by the
+     * given query.
+     */
+    private Set<String> getQueryColumns( DataQueryParams query )
+    {
+        Set<String> columns = new HashSet<>();
+
+        for ( DimensionalObject dim : query.getDimensions() )
+        {
+            if ( !dim.isFixed() )
+            {
+                columns.add( dim.getDimensionName() );
+            }
+        }
+
+        for ( DimensionalObject filter : query.getFilters() )
+        {
+            if ( !filter.isFixed() )
+            {
+                columns.add( filter.getDimensionName() );
+            }
+        }
+
+        if ( query.isDataApproval() )
+        {
+            columns.add( "approvallevel" );
+
+            for ( OrganisationUnit unit : query.getDataApprovalLevels().keySet() )
+            {
+                columns.add( LEVEL_PREFIX + unit.getLevel() );
+            }
+        }
+
+        return columns;
+    }
+
     /**
      * Splits the given list of queries in sub queries on the given dimension.
      */
@@ -45,15 +45,19 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
 
 import javax.annotation.Resource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
 
 import static org.hisp.dhis.analytics.AggregationType.*;
 import static org.hisp.dhis.analytics.DataQueryParams.LEVEL_PREFIX;
@@ -77,6 +81,8 @@ public class JdbcAnalyticsManager
 
     private static final String COL_APPROVALLEVEL = "approvallevel";
 
+    private static final int FETCH_SIZE = 10000;
+
     private static final Map<MeasureFilter, String> OPERATOR_SQL_MAP = ImmutableMap.<MeasureFilter, String>builder()
         .put( MeasureFilter.EQ, "=" )
         .put( MeasureFilter.GT, ">" )
@@ -88,6 +94,9 @@ public class JdbcAnalyticsManager
     @Resource( name = "readOnlyJdbcTemplate" )
     private JdbcTemplate jdbcTemplate;
 
+    @Resource( name = EXECUTOR )
+    private ExecutorService executor;
+
     @Autowired
     private StatementBuilder statementBuilder;
 
@@ -95,9 +104,38 @@ public class JdbcAnalyticsManager
     // AnalyticsManager implementation
     // -------------------------------------------------------------------------
 
+    /**
+     * Submits the query to the {@link #EXECUTOR} executor. Cancelling the
+     * returned future cancels the statement of the query in the database.
+     */
     @Override
-    @Async
-    public Future<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, int maxLimit )
+    public ListenableFuture<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, int maxLimit )
+    {
+        final CancellableStatement statement = new CancellableStatement();
+
+        ListenableFutureTask<Map<String, Object>> task = new ListenableFutureTask<Map<String, Object>>(
+            () -> getAggregatedDataValueMap( params, maxLimit, statement ) )
+        {
+            @Override
+            public boolean cancel( boolean mayInterruptIfRunning )
+            {
+                boolean cancelled = super.cancel( mayInterruptIfRunning );
+
+                if ( cancelled )
+                {
+                    statement.cancel();
+                }
+
+                return cancelled;
+            }
+        };
+
+        executor.execute( task );
+
+        return task;
+    }
+
+    private Map<String, Object> getAggregatedDataValueMap( DataQueryParams params, int maxLimit, CancellableStatement statement )
     {
         try
         {
@@ -137,21 +175,24 @@ public class JdbcAnalyticsManager
 
             try
             {
-                map = getKeyValueMap( params, sql, maxLimit );
+                map = getKeyValueMap( params, sql, maxLimit, statement );
             }
             catch ( BadSqlGrammarException ex )
             {
                 log.info( "Query failed, likely because the requested analytics table does not exist", ex );
-                return new AsyncResult<>( new HashMap<String, Object>() );
+                return new HashMap<>();
             }
 
             replaceDataPeriodsWithAggregationPeriods( map, params, dataPeriodAggregationPeriodMap );
 
-            return new AsyncResult<>( map );
+            return map;
         }
         catch ( RuntimeException ex )
         {
-            log.error( DebugUtils.getStackTrace( ex ) );
+            if ( !statement.isCancelled() )
+            {
+                log.error( DebugUtils.getStackTrace( ex ) );
+            }
 
             throw ex;
         }
@@ -485,51 +526,142 @@ public class JdbcAnalyticsManager
 
     /**
      * Retrieves data from the database based on the given query and SQL and puts
-     * into a value key and value mapping.
+     * into a value key and value mapping. Rows are read through a forward-only
+     * cursor and put directly into the mapping, without buffering the result
+     * set in memory. The query runs with auto-commit disabled, as the
+     * PostgreSQL driver otherwise ignores the fetch size and reads the full
+     * result set at once. The statement is held by the given cancellable
+     * statement while it runs.
      */
-    private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit )
+    private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit, CancellableStatement cancellable )
     {
-        Map<String, Object> map = new HashMap<>();
-
         log.debug( String.format( "Analytics SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        KeyValueRowHandler handler = new KeyValueRowHandler( params, maxLimit );
 
-        int counter = 0;
-        
-        while ( rowSet.next() )
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( FETCH_SIZE );
+
+                cancellable.set( statement );
+
+                try ( ResultSet rs = statement.executeQuery() )
+                {
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
+                }
+                finally
+                {
+                    cancellable.clear();
+                }
+            }
+            finally
+            {
+
+                if ( autoCommit )
+                {
+                    connection.rollback(); // Read only, nothing to commit
+                    connection.setAutoCommit( true );
+                }
+            }
+
+            return null;
+        } );
+
+        return handler.getMap();
+    }
+
+    /**
+     * Row handler which puts each row into a value key and value mapping. The
+     * result set column indexes of the dimensions are resolved once, and the
+     * fixed dimension names are resolved once per query.
+     */
+    private static class KeyValueRowHandler
+        implements RowCallbackHandler
+    {
+        private final Map<String, Object> map = new HashMap<>();
+
+        private final List<DimensionalObject> dimensions;
+
+        private final boolean text;
+
+        private final int maxLimit;
+
+        private int[] columnIndexes;
+
+        private int valueIndex;
+
+        private int keyLength = 16;
+
+        private int counter = 0;
+
+        KeyValueRowHandler( DataQueryParams params, int maxLimit )
+        {
+            this.dimensions = params.getDimensions();
+            this.text = params.isDataType( TEXT );
+            this.maxLimit = maxLimit;
+        }
+
+        @Override
+        public void processRow( ResultSet rs )
+            throws SQLException
         {
             if ( maxLimit > 0 && ++counter > maxLimit )
             {
                 throw new IllegalQueryException( "Query result set exceeds max limit: " + maxLimit );
             }
-            
-            StringBuilder key = new StringBuilder();
 
-            for ( DimensionalObject dim : params.getDimensions() )
+            if ( columnIndexes == null )
             {
-                String value = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
-                
-                key.append( value ).append( DIMENSION_SEP );
+                columnIndexes = new int[dimensions.size()];
+
+                for ( int i = 0; i < dimensions.size(); i++ )
+                {
+                    DimensionalObject dim = dimensions.get( i );
+                    columnIndexes[i] = dim.isFixed() ? -1 : rs.findColumn( dim.getDimensionName() );
+                }
+
+                valueIndex = rs.findColumn( VALUE_ID );
             }
 
-            key.deleteCharAt( key.length() - 1 );
+            StringBuilder key = new StringBuilder( keyLength );
 
-            if ( params.isDataType( TEXT ) )
+            for ( int i = 0; i < columnIndexes.length; i++ )
             {
-                String value = rowSet.getString( VALUE_ID );
+                if ( i > 0 )
+                {
+                    key.append( DIMENSION_SEP );
+                }
 
-                map.put( key.toString(), value );
+                key.append( columnIndexes[i] == -1 ? dimensions.get( i ).getDimensionName() : rs.getString( columnIndexes[i] ) );
+            }
+
+            keyLength = key.length();
+
+            if ( text )
+            {
+                map.put( key.toString(), rs.getString( valueIndex ) );
             }
             else // NUMERIC
             {
-                Double value = rowSet.getDouble( VALUE_ID );
-
-                map.put( key.toString(), value );
+                map.put( key.toString(), rs.getDouble( valueIndex ) );
             }
         }
 
-        return map;
+        public Map<String, Object> getMap()
+        {
+            return map;
+        }
     }
 
     /**
@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics.event;
  */
 
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.GridStreamWriter;
 
 import org.hisp.dhis.analytics.Rectangle;
 
@@ -41,6 +42,8 @@ public interface EventAnalyticsManager
     
     Grid getEvents( EventQueryParams params, Grid grid, int maxLimit );
     
+    long streamEvents( EventQueryParams params, Grid grid, GridStreamWriter writer );
+    
     Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit );
     
     long getEventCount( EventQueryParams params );
@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics.event;
 
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.GridStreamWriter;
 
 import org.hisp.dhis.analytics.Rectangle;
 
@@ -77,6 +78,21 @@ public interface EventAnalyticsService
      */
     Grid getEvents( EventQueryParams params );
 
+    /**
+     * Writes the events matching the given query to the given writer. Events
+     * are read through a single query with a forward-only cursor and are not
+     * held in memory, hence paging and the maximum limit of events do not
+     * apply. The writer is closed when all events are written. When the query
+     * or writing fails the writer is aborted, which leaves the output
+     * incomplete, and the error is thrown, as events may already have been
+     * written.
+     * 
+     * @param params the event query parameters.
+     * @param writer the {@link GridStreamWriter}.
+     * @return the number of events written.
+     */
+    long streamEvents( EventQueryParams params, GridStreamWriter writer );
+
     /**
      * Returns a list of event clusters matching the given query.
      * 
@@ -0,0 +1,203 @@
+package org.hisp.dhis.analytics.event;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.table.AnalyticsTableType;
+import org.joda.time.DateTime;
+
+/**
+ * Class describing the event cluster pyramid, a set of pre-aggregated event
+ * cluster tables holding the number of events, the sum of coordinates and the
+ * extent of the events per grid cell for a range of zoom levels. There is one
+ * cluster table per event analytics table partition.
+ * <p>
+ * The grid cells are square cells in the spherical mercator projection, where
+ * the cell size is halved for each zoom level. The cells of the finest zoom
+ * level are nested within the cells of the coarser levels. Event clusters for
+ * a cluster size are served from the coarsest level with a cell size of at most
+ * a fourth of the cluster size, where cells are snapped to the cluster grid
+ * by their center.
+ */
+public class EventClusterPyramid
+{
+    public static final String TABLE_NAME = AnalyticsTableType.EVENT.getTableName() + AnalyticsRollup.TABLE_INFIX + "cluster";
+
+    public static final int MAX_LEVEL = 8;
+
+    /**
+     * The ratio between the cluster size and the maximum cell size.
+     */
+    private static final int CELLS_PER_CLUSTER = 4;
+
+    private static final double EARTH_RADIUS = 6378137d;
+
+    private static final double WORLD_SIZE = 2 * Math.PI * EARTH_RADIUS;
+
+    private static final double MAX_LATITUDE = 85.0511287798;
+
+    private EventClusterPyramid()
+    {
+    }
+
+    /**
+     * Returns the cell size in meters for the given level. The cell size of
+     * a level equals the pixel size of web map tiles of the same zoom level.
+     *
+     * @param level the level.
+     */
+    public static double getCellSize( int level )
+    {
+        return WORLD_SIZE / Math.pow( 2, level + 8 );
+    }
+
+    /**
+     * Returns the coarsest level with a cell size of at most a fourth of the
+     * given cluster size, or null if the cluster size is too small to be served
+     * by the pyramid.
+     *
+     * @param clusterSize the cluster size in meters.
+     */
+    public static Integer getLevel( long clusterSize )
+    {
+        double maxCellSize = (double) clusterSize / CELLS_PER_CLUSTER;
+
+        for ( int level = 0; level <= MAX_LEVEL; level++ )
+        {
+            if ( getCellSize( level ) <= maxCellSize )
+            {
+                return level;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the name of the cluster table for the given event analytics table
+     * partition, e.g. <code>analytics_event_rollup_cluster_2017_ebayegv0exc</code>
+     * for <code>analytics_event_2017_ebayegv0exc</code>.
+     *
+     * @param partition the event analytics table partition name.
+     */
+    public static String getTableName( String partition )
+    {
+        return TABLE_NAME + partition.substring( AnalyticsTableType.EVENT.getTableName().length() );
+    }
+
+    /**
+     * Returns the spherical mercator x coordinate for the given longitude.
+     *
+     * @param longitude the longitude.
+     */
+    public static double getX( double longitude )
+    {
+        return EARTH_RADIUS * Math.toRadians( longitude );
+    }
+
+    /**
+     * Returns the spherical mercator y coordinate for the given latitude.
+     *
+     * @param latitude the latitude.
+     */
+    public static double getY( double latitude )
+    {
+        double lat = Math.max( -MAX_LATITUDE, Math.min( MAX_LATITUDE, latitude ) );
+
+        return EARTH_RADIUS * Math.log( Math.tan( Math.PI / 4 + Math.toRadians( lat ) / 2 ) );
+    }
+
+    /**
+     * Returns the index of the cell containing the given mercator coordinate.
+     *
+     * @param coordinate the mercator x or y coordinate.
+     * @param level the level.
+     */
+    public static long getCell( double coordinate, int level )
+    {
+        return (long) Math.floor( coordinate / getCellSize( level ) );
+    }
+
+    /**
+     * Parses the given bounding box on the format <code>min lng, min lat,
+     * max lng, max lat</code>.
+     *
+     * @param bbox the bounding box.
+     * @return an array of four coordinates, or null if the bounding box is not valid.
+     */
+    public static double[] getBbox( String bbox )
+    {
+        String[] parts = StringUtils.split( bbox, "," );
+
+        if ( parts == null || parts.length != 4 )
+        {
+            return null;
+        }
+
+        double[] coordinates = new double[4];
+
+        try
+        {
+            for ( int i = 0; i < 4; i++ )
+            {
+                coordinates[i] = Double.parseDouble( parts[i].trim() );
+            }
+        }
+        catch ( NumberFormatException ex )
+        {
+            return null;
+        }
+
+        return coordinates;
+    }
+
+    /**
+     * Indicates whether the given date range spans whole months, which is the
+     * time granularity of the cluster tables.
+     *
+     * @param startDate the start date.
+     * @param endDate the end date.
+     */
+    public static boolean isMonthAligned( Date startDate, Date endDate )
+    {
+        if ( startDate == null || endDate == null )
+        {
+            return false;
+        }
+
+        DateTime start = new DateTime( startDate );
+        DateTime end = new DateTime( endDate );
+
+        return start.getDayOfMonth() == 1 && start.getMillisOfDay() == 0 &&
+            end.plusDays( 1 ).getDayOfMonth() == 1 && end.getMillisOfDay() == 0;
+    }
+}
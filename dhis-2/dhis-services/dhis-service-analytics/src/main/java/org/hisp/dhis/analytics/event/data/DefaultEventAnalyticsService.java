@@ -35,6 +35,7 @@ import org.hisp.dhis.common.*;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.database.DatabaseInfo;
+import org.hisp.dhis.system.grid.GridStreamWriter;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.Timer;
@@ -227,23 +228,7 @@ public class DefaultEventAnalyticsService
         // Headers
         // ---------------------------------------------------------------------
 
-        grid.addHeader( new GridHeader( ITEM_EVENT, NAME_EVENT, ValueType.TEXT, String.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_PROGRAM_STAGE, NAME_PROGRAM_STAGE, ValueType.TEXT, String.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_EVENT_DATE, NAME_EVENT_DATE, ValueType.DATE, Date.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_LONGITUDE, NAME_LONGITUDE, ValueType.NUMBER, Double.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_LATITUDE, NAME_LATITUDE, ValueType.NUMBER, Double.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_ORG_UNIT_NAME, NAME_ORG_UNIT_NAME, ValueType.TEXT, String.class.getName(), false, true ) )
-            .addHeader( new GridHeader( ITEM_ORG_UNIT_CODE, NAME_ORG_UNIT_CODE, ValueType.TEXT, String.class.getName(), false, true ) );
-
-        for ( DimensionalObject dimension : params.getDimensions() )
-        {
-            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayName(), ValueType.TEXT, String.class.getName(), false, true ) );
-        }
-
-        for ( QueryItem item : params.getItems() )
-        {
-            grid.addHeader( new GridHeader( item.getItem().getUid(), item.getItem().getName(), item.getValueType(), item.getTypeAsString(), false, true, item.getOptionSetUid(), item.getLegendSetUid() ) );
-        }
+        addEventHeaders( params, grid );
 
         // ---------------------------------------------------------------------
         // Data
@@ -289,6 +274,54 @@ public class DefaultEventAnalyticsService
         return grid;
     }
 
+    @Override
+    public long streamEvents( EventQueryParams params, GridStreamWriter writer )
+    {
+        securityManager.decideAccessEventQuery( params );
+        
+        queryPlanner.validate( params );
+        
+        params = new EventQueryParams.Builder( params )
+            .withStartEndDatesForPeriods()
+            .build();
+
+        Grid grid = new ListGrid();
+        
+        addEventHeaders( params, grid );
+
+        Timer timer = new Timer().start().disablePrint();
+
+        params = queryPlanner.planEventQuery( params );
+
+        timer.getSplitTime( "Planned event stream query, got partitions: " + params.getPartitions() );
+
+        addMetadata( params, grid );
+        
+        long count = 0;
+        
+        try
+        {
+            writer.writeHeaders( grid );
+            
+            if ( params.getPartitions().hasAny() )
+            {
+                count = eventAnalyticsManager.streamEvents( params, grid, writer );
+                
+                timer.getTime( "Streamed events " + count );
+            }
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            writer.abort();
+            
+            throw ex;
+        }
+        
+        writer.close();
+        
+        return count;
+    }
+
     @Override
     public Grid getEventClusters( EventQueryParams params )
     {
@@ -354,6 +387,33 @@ public class DefaultEventAnalyticsService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Adds the headers of event queries to the given grid.
+     * 
+     * @param params the event query parameters.
+     * @param grid the grid.
+     */
+    private void addEventHeaders( EventQueryParams params, Grid grid )
+    {
+        grid.addHeader( new GridHeader( ITEM_EVENT, NAME_EVENT, ValueType.TEXT, String.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_PROGRAM_STAGE, NAME_PROGRAM_STAGE, ValueType.TEXT, String.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_EVENT_DATE, NAME_EVENT_DATE, ValueType.DATE, Date.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_LONGITUDE, NAME_LONGITUDE, ValueType.NUMBER, Double.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_LATITUDE, NAME_LATITUDE, ValueType.NUMBER, Double.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_ORG_UNIT_NAME, NAME_ORG_UNIT_NAME, ValueType.TEXT, String.class.getName(), false, true ) )
+            .addHeader( new GridHeader( ITEM_ORG_UNIT_CODE, NAME_ORG_UNIT_CODE, ValueType.TEXT, String.class.getName(), false, true ) );
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayName(), ValueType.TEXT, String.class.getName(), false, true ) );
+        }
+
+        for ( QueryItem item : params.getItems() )
+        {
+            grid.addHeader( new GridHeader( item.getItem().getUid(), item.getItem().getName(), item.getValueType(), item.getTypeAsString(), false, true, item.getOptionSetUid(), item.getLegendSetUid() ) );
+        }
+    }
+
     /**
      * Adds meta data values to the given grid based on the given data query
      * parameters.
@@ -39,7 +39,9 @@ import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsUtils;
 import org.hisp.dhis.analytics.EventOutputType;
 import org.hisp.dhis.analytics.Rectangle;
+import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.analytics.event.EventAnalyticsManager;
+import org.hisp.dhis.analytics.event.EventClusterPyramid;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.collection.ListUtils;
@@ -51,15 +53,24 @@ import org.hisp.dhis.option.Option;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.program.ProgramIndicatorService;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.GridStreamWriter;
 import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.util.Assert;
 
 import javax.annotation.Resource;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -90,6 +101,7 @@ public class JdbcEventAnalyticsManager
     private static final String COL_COUNT = "count";
     private static final String COL_EXTENT = "extent";
     private static final int COORD_DEC = 6;
+    private static final int STREAM_FETCH_SIZE = 10000;
 
     @Resource( name = "readOnlyJdbcTemplate" )
     private JdbcTemplate jdbcTemplate;
@@ -100,6 +112,12 @@ public class JdbcEventAnalyticsManager
     @Autowired
     private ProgramIndicatorService programIndicatorService;
     
+    @Autowired
+    private PartitionManager partitionManager;
+    
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+    
     // -------------------------------------------------------------------------
     // EventAnalyticsManager implementation
     // -------------------------------------------------------------------------
@@ -293,39 +311,173 @@ public class JdbcEventAnalyticsManager
     {
         log.debug( String.format( "Analytics event query SQL: %s", sql ) );
         
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        jdbcTemplate.query( sql, (RowCallbackHandler) rs -> grid.addRow().addValuesAsList( getEventRow( grid.getHeaders(), params, rs ) ) );
+    }
 
-        while ( rowSet.next() )
+    @Override
+    public long streamEvents( EventQueryParams params, Grid grid, GridStreamWriter writer )
+    {
+        List<String> fixedCols = Lists.newArrayList( "psi", "ps", "executiondate", "longitude", "latitude", "ouname", "oucode" );
+        
+        List<String> selectCols = ListUtils.distinctUnion( fixedCols, getSelectColumns( params ) );
+
+        String sql = "select " + StringUtils.join( selectCols, "," ) + " " + getFromWhereClause( params, fixedCols );
+
+        if ( params.isSorting() )
         {
-            grid.addRow();
-            
-            int index = 1;
-            
-            for ( GridHeader header : grid.getHeaders() )
+            sql += "order by ";
+
+            for ( DimensionalItemObject item : params.getAsc() )
             {
-                if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( Precision.round( val, COORD_DEC ) );
-                }
-                else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
+                sql += statementBuilder.columnQuote( item.getUid() ) + " asc,";
+            }
+
+            for ( DimensionalItemObject item : params.getDesc() )
+            {
+                sql += statementBuilder.columnQuote( item.getUid() ) + " desc,";
+            }
+
+            sql = removeLastComma( sql ) + " ";
+        }
+
+        log.debug( String.format( "Analytics event stream SQL: %s", sql ) );
+
+        EventStreamHandler handler = new EventStreamHandler( grid.getHeaders(), params, writer );
+
+        // Errors are not caught, as rows may already have been written
+
+        queryWithCursor( sql, handler );
+
+        return handler.count;
+    }
+
+    /**
+     * Runs the given query once and passes each row to the given handler. Rows
+     * are read through a forward-only cursor, without buffering the result set
+     * in memory. The query runs with auto-commit disabled, as the PostgreSQL
+     * driver otherwise ignores the fetch size and reads the full result set
+     * at once.
+     * 
+     * @param sql the SQL query.
+     * @param handler the {@link RowCallbackHandler}.
+     */
+    private void queryWithCursor( String sql, RowCallbackHandler handler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( STREAM_FETCH_SIZE );
+
+                try ( ResultSet rs = statement.executeQuery() )
                 {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
                 }
-                else
+            }
+            finally
+            {
+                if ( autoCommit )
                 {
-                    grid.addValue( rowSet.getString( index ) );
+                    connection.rollback(); // Read only, nothing to commit
+                    connection.setAutoCommit( true );
                 }
-                
-                index++;
             }
+
+            return null;
+        } );
+    }
+
+    /**
+     * Returns the row of values for the current row of the given result set,
+     * formatted according to the given headers.
+     * 
+     * @param headers the list of {@link GridHeader}.
+     * @param params the {@link EventQueryParams}.
+     * @param rs the {@link ResultSet} positioned at the current row.
+     */
+    private List<Object> getEventRow( List<GridHeader> headers, EventQueryParams params, ResultSet rs )
+        throws SQLException
+    {
+        List<Object> row = new ArrayList<>( headers.size() );
+        
+        int index = 1;
+        
+        for ( GridHeader header : headers )
+        {
+            if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
+            {
+                double val = rs.getDouble( index );
+                row.add( Precision.round( val, COORD_DEC ) );
+            }
+            else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
+            {
+                double val = rs.getDouble( index );
+                row.add( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
+            }
+            else
+            {
+                row.add( rs.getString( index ) );
+            }
+            
+            index++;
+        }
+        
+        return row;
+    }
+
+    /**
+     * Row callback handler which writes events to a {@link GridStreamWriter}.
+     */
+    private class EventStreamHandler
+        implements RowCallbackHandler
+    {
+        private final List<GridHeader> headers;
+        private final EventQueryParams params;
+        private final GridStreamWriter writer;
+        
+        private long count;
+        
+        EventStreamHandler( List<GridHeader> headers, EventQueryParams params, GridStreamWriter writer )
+        {
+            this.headers = headers;
+            this.params = params;
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow( ResultSet rs )
+            throws SQLException
+        {
+            writer.writeRow( getEventRow( headers, params, rs ) );
+            
+            count++;
         }
     }
 
     @Override
     public Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit )
     {
+        if ( isClusterPyramidCompatible( params ) )
+        {
+            try
+            {
+                return getEventClustersFromPyramid( params, grid );
+            }
+            catch ( BadSqlGrammarException ex )
+            {
+                log.info( "Event cluster table query failed, likely because cluster tables are outdated, using event analytics tables", ex );
+            }
+        }
+        
         String clusterField = params.getCoordinateField();
         String quotedClusterField = statementBuilder.columnQuote( clusterField );
         
@@ -358,6 +510,150 @@ public class JdbcEventAnalyticsManager
         return grid;
     }
 
+    /**
+     * Retrieves event clusters from the event cluster tables. The cells of the
+     * pyramid level corresponding to the cluster size are snapped to the cluster
+     * grid by their center.
+     * 
+     * @param params the {@link EventQueryParams}.
+     * @param grid the grid to populate.
+     */
+    private Grid getEventClustersFromPyramid( EventQueryParams params, Grid grid )
+    {
+        final int level = EventClusterPyramid.getLevel( params.getClusterSize() );
+        final double factor = EventClusterPyramid.getCellSize( level ) / params.getClusterSize();
+        
+        final String clusterX = "round((" + statementBuilder.columnQuote( "cx" ) + " + 0.5) * " + factor + ")";
+        final String clusterY = "round((" + statementBuilder.columnQuote( "cy" ) + " + 0.5) * " + factor + ")";
+        
+        String sql = 
+            "select sum(count) as count, " +
+            "'POINT(' || (sum(sumx) / sum(count)) || ' ' || (sum(sumy) / sum(count)) || ')' as center, " +
+            "'BOX(' || min(minx) || ' ' || min(miny) || ',' || max(maxx) || ' ' || max(maxy) || ')' as extent, " +
+            "case when sum(count) = 1 then min(psi) end as points " +
+            "from (";
+        
+        for ( String partition : params.getPartitions().getPartitions() )
+        {
+            sql += "select cx, cy, count, sumx, sumy, minx, miny, maxx, maxy, psi ";
+            
+            sql += getClusterWhereClause( params, EventClusterPyramid.getTableName( partition ), level );
+            
+            sql += "union all ";
+        }
+        
+        sql = trimEnd( sql, "union all ".length() ) + ") as data ";
+        
+        sql += "group by " + clusterX + ", " + clusterY;
+        
+        log.debug( String.format( "Analytics event cluster table SQL: %s", sql ) );
+        
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            grid.addRow()
+                .addValue( rowSet.getLong( "count" ) )
+                .addValue( rowSet.getString( "center" ) )
+                .addValue( rowSet.getString( "extent" ) )
+                .addValue( rowSet.getString( "points" ) );
+        }
+        
+        return grid;
+    }
+    
+    /**
+     * Returns a from and where SQL clause for the given event cluster table.
+     * 
+     * @param params the {@link EventQueryParams}.
+     * @param clusterTable the event cluster table name.
+     * @param level the pyramid level.
+     */
+    private String getClusterWhereClause( EventQueryParams params, String clusterTable, int level )
+    {
+        String sql = "from " + clusterTable + " ";
+        
+        sql += "where " + statementBuilder.columnQuote( "level" ) + " = " + level + " ";
+        sql += "and " + statementBuilder.columnQuote( "month" ) + " >= '" + getMediumDateString( params.getStartDate() ) + "' ";
+        sql += "and " + statementBuilder.columnQuote( "month" ) + " <= '" + getMediumDateString( params.getEndDate() ) + "' ";
+        
+        if ( params.hasProgramStage() )
+        {
+            sql += "and " + statementBuilder.columnQuote( "ps" ) + " = '" + params.getProgramStage().getUid() + "' ";
+        }
+        
+        sql += "and (";
+        
+        for ( DimensionalItemObject object : params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ) )
+        {
+            OrganisationUnit unit = (OrganisationUnit) object;
+            sql += statementBuilder.columnQuote( "uidlevel" + unit.getLevel() ) + " = '" + unit.getUid() + "' or ";
+        }
+        
+        sql = removeLastOr( sql ) + ") ";
+        
+        if ( params.hasBbox() )
+        {
+            double[] bbox = EventClusterPyramid.getBbox( params.getBbox() );
+            
+            sql += "and " + statementBuilder.columnQuote( "cx" ) + " between " + 
+                EventClusterPyramid.getCell( EventClusterPyramid.getX( bbox[0] ), level ) + " and " + 
+                EventClusterPyramid.getCell( EventClusterPyramid.getX( bbox[2] ), level ) + " ";
+            sql += "and " + statementBuilder.columnQuote( "cy" ) + " between " + 
+                EventClusterPyramid.getCell( EventClusterPyramid.getY( bbox[1] ), level ) + " and " + 
+                EventClusterPyramid.getCell( EventClusterPyramid.getY( bbox[3] ), level ) + " ";
+        }
+        
+        return sql;
+    }
+    
+    /**
+     * Indicates whether the given event cluster query can be served from the
+     * event cluster tables. This requires the default event coordinate field,
+     * a cluster size which is covered by the cluster pyramid, a date range of
+     * whole months, organisation units in descendants mode at levels covered
+     * by the cluster tables, no filters other than program stage and bounding
+     * box, and that the cluster tables exist for all partitions.
+     * 
+     * @param params the {@link EventQueryParams}.
+     */
+    private boolean isClusterPyramidCompatible( EventQueryParams params )
+    {
+        Integer orgUnitLevels = (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_ORG_UNIT_LEVELS );
+        
+        if ( orgUnitLevels == null || orgUnitLevels <= 0 || !params.hasClusterSize() || params.isIncludeClusterPoints() ||
+            !"geom".equals( params.getCoordinateField() ) || EventClusterPyramid.getLevel( params.getClusterSize() ) == null ||
+            !EventClusterPyramid.isMonthAligned( params.getStartDate(), params.getEndDate() ) ||
+            ( params.hasBbox() && EventClusterPyramid.getBbox( params.getBbox() ) == null ) )
+        {
+            return false;
+        }
+        
+        if ( params.getOrganisationUnitMode() != null && !params.isOrganisationUnitMode( OrganisationUnitSelectionMode.DESCENDANTS ) )
+        {
+            return false;
+        }
+        
+        boolean orgUnitsCovered = params.getDimensionOrFilterItems( ORGUNIT_DIM_ID ).stream()
+            .allMatch( object -> ( (OrganisationUnit) object ).getLevel() <= orgUnitLevels );
+        
+        boolean hasFilters = params.getItems().stream().anyMatch( QueryItem::hasFilter ) || 
+            params.getItemFilters().stream().anyMatch( QueryItem::hasFilter ) ||
+            !params.getDimensionsAndFilters( Sets.newHashSet( DimensionType.ORGANISATION_UNIT_GROUP_SET, DimensionType.CATEGORY ) ).isEmpty() ||
+            params.hasProgramIndicatorDimension() || params.hasProgramStatus() || params.hasEventStatus() || params.isCompletedOnly();
+        
+        if ( !orgUnitsCovered || hasFilters || !params.getPartitions().hasAny() )
+        {
+            return false;
+        }
+        
+        Set<String> existingTables = partitionManager.getEventAnalyticsPartitions();
+        
+        return params.getPartitions().getPartitions().stream()
+            .map( EventClusterPyramid::getTableName )
+            .allMatch( existingTables::contains );
+    }
+
     @Override
     public long getEventCount( EventQueryParams params )
     {
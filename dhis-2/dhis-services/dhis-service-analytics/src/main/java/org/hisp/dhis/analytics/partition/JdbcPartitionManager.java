@@ -31,8 +31,11 @@ package org.hisp.dhis.analytics.partition;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.google.common.collect.Sets;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsCache;
 import org.hisp.dhis.analytics.table.AnalyticsTableType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -52,6 +55,9 @@ public class JdbcPartitionManager
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private AnalyticsCache analyticsCache;
   
     @Override
     public Set<String> getDataValueAnalyticsPartitions()
@@ -98,7 +104,18 @@ public class JdbcPartitionManager
     @Override
     public void clearCaches()
     {
+        Set<String> previousPartitions = analyticsPartitions;
+        
         analyticsPartitions = null;
         analyticsEventPartitions = null;
+        
+        if ( previousPartitions != null )
+        {
+            // Partitions which were added or removed affect query planning
+            
+            Set<String> currentPartitions = getDataValueAnalyticsPartitions();
+            
+            analyticsCache.invalidatePartitions( Sets.symmetricDifference( previousPartitions, currentPartitions ) );
+        }
     }
 }
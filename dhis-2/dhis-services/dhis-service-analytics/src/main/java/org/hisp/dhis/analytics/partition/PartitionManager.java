@@ -48,7 +48,9 @@ public interface PartitionManager
     Set<String> getEventAnalyticsPartitions();
     
     /**
-     * Clears the partition name caches.
+     * Clears the partition name caches. Invalidates analytics cache entries
+     * for partitions which were added or removed since the partition names
+     * were cached.
      */
     void clearCaches();
 }
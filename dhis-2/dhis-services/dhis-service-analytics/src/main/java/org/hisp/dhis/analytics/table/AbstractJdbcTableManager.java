@@ -35,6 +35,8 @@ import org.hisp.dhis.analytics.AnalyticsIndex;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.CodeGenerator;
@@ -57,6 +59,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.AsyncResult;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -107,6 +110,9 @@ public abstract class AbstractJdbcTableManager
     @Autowired
     protected JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    protected AnalyticsTableMetricService metricService;
+
     // -------------------------------------------------------------------------
     // Abstract methods
     // -------------------------------------------------------------------------
@@ -141,21 +147,27 @@ public abstract class AbstractJdbcTableManager
                 break taskLoop;
             }
             
-            final String indexName = getIndexName( inx );            
-            final String indexType = inx.hasType() ? " using " + inx.getType() : "";
-            
-            final String sql = "create index " + indexName + " on " + inx.getTable() + indexType + " (" + inx.getColumn() + ")";
-            
-            log.debug( "Create index: " + indexName + " SQL: " + sql );
-            
-            jdbcTemplate.execute( sql );
-            
-            log.debug( "Created index: " + indexName );
+            createIndex( inx );
         }
         
         return null;
     }
     
+    @Override
+    public void createIndex( AnalyticsIndex inx )
+    {
+        final String indexName = getIndexName( inx );            
+        final String indexType = inx.hasType() ? " using " + inx.getType() : "";
+        
+        final String sql = "create index " + indexName + " on " + inx.getTable() + indexType + " (" + inx.getColumn() + ")";
+        
+        log.debug( "Create index: " + indexName + " SQL: " + sql );
+        
+        jdbcTemplate.execute( sql );
+        
+        log.debug( "Created index: " + indexName );
+    }
+    
     @Override
     public void swapTable( AnalyticsTable table )
     {
@@ -209,7 +221,104 @@ public abstract class AbstractJdbcTableManager
      * 
      * @param table the analytics table to populate.
      */
-    protected abstract void populateTable( AnalyticsTable table );
+    @Override
+    public abstract void populateTable( AnalyticsTable table );
+
+    @Override
+    @Async
+    public Future<?> processPipelineAsync( AnalyticsTablePipeline pipeline )
+    {
+        pipeline.work();
+
+        return null;
+    }
+
+    /**
+     * Override in order to support aggregation levels.
+     */
+    @Override
+    public void applyAggregationLevels( AnalyticsTable table, Collection<String> dataElements, int aggregationLevel )
+    {
+    }
+
+    /**
+     * Override in order to support vacuum of tables.
+     */
+    @Override
+    public void vacuumTable( AnalyticsTable table )
+    {
+    }
+
+    /**
+     * Override in order to support incremental updates.
+     */
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return false;
+    }
+
+    /**
+     * Override in order to support incremental updates.
+     */
+    @Override
+    public List<AnalyticsTable> getIncrementalTables( Date lastUpdated )
+    {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Override in order to support incremental updates.
+     */
+    @Override
+    public boolean isIncrementalUpdatePossible( Date lastUpdated )
+    {
+        return false;
+    }
+
+    /**
+     * Override in order to support incremental updates. Does nothing by default.
+     */
+    @Override
+    public Future<?> populateTablesIncrementallyAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, Date lastUpdated )
+    {
+        return new AsyncResult<>( null );
+    }
+
+    /**
+     * Override in order to support incremental updates. Does nothing by default.
+     */
+    @Override
+    public void mergeTable( AnalyticsTable table, Date lastUpdated )
+    {
+    }
+
+    /**
+     * Override in order to support rollup tables.
+     */
+    @Override
+    public boolean supportsRollupTables()
+    {
+        return false;
+    }
+
+    /**
+     * Override in order to support rollup tables.
+     */
+    @Override
+    public List<AnalyticsTable> getRollupTables( AnalyticsTable table )
+    {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Override in order to support rollup tables.
+     */
+    @Override
+    public Future<?> populateRollupTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, boolean fromTempTables )
+    {
+        return new AsyncResult<>( null );
+    }
 
     @Override
     public void analyzeTables( List<AnalyticsTable> tables )
@@ -370,14 +479,34 @@ public abstract class AbstractJdbcTableManager
     /**
      * Executes the given table population SQL statement, log and times the operation.
      */
-    protected void populateAndLog( String sql, String tableName )
+    protected void populateAndLog( String sql, AnalyticsTable table )
     {
-        log.debug( String.format( "Populate table: %s with SQL: ", tableName, sql ) );
+        populateAndLog( sql, table, null );
+    }
+
+    /**
+     * Executes the given table population SQL statement, log and times the
+     * operation, and records the duration and number of inserted rows as a
+     * metric of the populate stage.
+     *
+     * @param sql the table population SQL statement.
+     * @param table the analytics table.
+     * @param detail the detail of the population pass, can be null.
+     */
+    protected void populateAndLog( String sql, AnalyticsTable table, String detail )
+    {
+        final String tableName = table.getTempTableName() + ( detail != null ? ( ", " + detail ) : "" );
+
+        log.debug( String.format( "Populate table: %s with SQL: %s", tableName, sql ) );
+
+        Date started = new Date();
 
         Timer timer = new SystemTimer().start();
 
-        jdbcTemplate.execute( sql );
+        int rows = jdbcTemplate.update( sql );
         
-        log.info( String.format( "Populated table in %s: %s", timer.stop().toString(), tableName ) );
+        log.info( String.format( "Populated table in %s: %s, rows: %d", timer.stop().toString(), tableName, rows ) );
+
+        metricService.addMetric( getAnalyticsTableType().getTableName(), table.getTableName(), AnalyticsTableStage.POPULATE, detail, started, rows );
     }
 }
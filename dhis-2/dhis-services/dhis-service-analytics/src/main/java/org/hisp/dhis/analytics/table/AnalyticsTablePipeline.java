@@ -0,0 +1,347 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsIndex;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
+import org.hisp.dhis.commons.timer.SystemTimer;
+import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.scheduling.TaskId;
+import org.hisp.dhis.system.notification.Notifier;
+
+/**
+ * Pipeline which passes each analytics table through the populate, aggregation
+ * level, index and analyze stages independently of the other tables, so that
+ * a large partition does not hold up the processing of the other partitions.
+ * <p>
+ * The pipeline is worked on by a number of workers, see
+ * {@link AnalyticsTableManager#processPipelineAsync(AnalyticsTablePipeline)}.
+ * Each worker runs one stage task at a time, and picks tasks from the later
+ * stages first so that tables are completed as early as possible. The number
+ * of tasks running concurrently is bounded per stage. The indexes of a table
+ * are created as separate tasks, so that the indexes of a single table can
+ * be created in parallel. The duration of each stage of each table is
+ * recorded as an analytics table metric.
+ */
+public class AnalyticsTablePipeline
+{
+    private static final Log log = LogFactory.getLog( AnalyticsTablePipeline.class );
+
+    public enum Stage
+    {
+        POPULATE, AGGREGATION_LEVELS, INDEX, ANALYZE
+    }
+
+    private final AnalyticsTableManager tableManager;
+
+    private final Map<Integer, Collection<String>> aggregationLevels;
+
+    private final Map<Stage, Queue<Runnable>> taskQueues = new EnumMap<>( Stage.class );
+
+    private final Map<Stage, Semaphore> permits = new EnumMap<>( Stage.class );
+
+    private final AnalyticsTableMetricService metricService;
+
+    private final Notifier notifier;
+
+    private final TaskId taskId;
+
+    private final int tableCount;
+
+    private final AtomicInteger remainingTables;
+
+    private final Object lock = new Object();
+
+    private long version = 0;
+
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructor.
+     *
+     * @param tableManager the analytics table manager.
+     * @param tables the analytics tables to process.
+     * @param aggregationLevels mapping between aggregation level and the uids
+     *        of the data elements with that aggregation level, in the order in
+     *        which to apply them.
+     * @param stagePermits mapping between stage and the maximum number of tasks
+     *        of the stage to run concurrently.
+     * @param metricService the analytics table metric service.
+     * @param notifier the notifier.
+     * @param taskId the task identifier, can be null.
+     */
+    public AnalyticsTablePipeline( AnalyticsTableManager tableManager, List<AnalyticsTable> tables,
+        Map<Integer, Collection<String>> aggregationLevels, Map<Stage, Integer> stagePermits, AnalyticsTableMetricService metricService, Notifier notifier, TaskId taskId )
+    {
+        this.tableManager = tableManager;
+        this.aggregationLevels = aggregationLevels;
+        this.metricService = metricService;
+        this.notifier = notifier;
+        this.taskId = taskId;
+        this.tableCount = tables.size();
+        this.remainingTables = new AtomicInteger( tables.size() );
+
+        for ( Stage stage : Stage.values() )
+        {
+            taskQueues.put( stage, new ConcurrentLinkedQueue<>() );
+            permits.put( stage, new Semaphore( Math.max( 1, stagePermits.getOrDefault( stage, 1 ) ) ) );
+        }
+
+        tables.forEach( table -> addTask( Stage.POPULATE, () -> populate( table ) ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Runs stage tasks until all tables have passed through all stages. If a
+     * task fails, the remaining tasks are abandoned by all workers and the
+     * failure is thrown.
+     */
+    public void work()
+    {
+        while ( remainingTables.get() > 0 && failure == null )
+        {
+            long seenVersion = getVersion();
+
+            Stage stage = null;
+            Runnable task = null;
+
+            for ( int i = Stage.values().length - 1; i >= 0 && task == null; i-- )
+            {
+                stage = Stage.values()[i];
+
+                Semaphore permit = permits.get( stage );
+
+                if ( !taskQueues.get( stage ).isEmpty() && permit.tryAcquire() )
+                {
+                    task = taskQueues.get( stage ).poll();
+
+                    if ( task == null )
+                    {
+                        permit.release();
+                    }
+                }
+            }
+
+            if ( task == null )
+            {
+                awaitChange( seenVersion );
+                continue;
+            }
+
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException ex )
+            {
+                failure = ex;
+            }
+            finally
+            {
+                permits.get( stage ).release();
+                signalChange();
+            }
+        }
+
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Stages
+    // -------------------------------------------------------------------------
+
+    private void populate( AnalyticsTable table )
+    {
+        Timer timer = new SystemTimer().start();
+
+        tableManager.populateTable( table );
+
+        log.info( String.format( "Populated table: %s in: %s", table.getTempTableName(), timer.stop().toString() ) );
+
+        if ( aggregationLevels.isEmpty() )
+        {
+            addIndexTasks( table );
+        }
+        else
+        {
+            addTask( Stage.AGGREGATION_LEVELS, () -> applyAggregationLevels( table ) );
+        }
+    }
+
+    private void applyAggregationLevels( AnalyticsTable table )
+    {
+        Date started = new Date();
+
+        aggregationLevels.forEach( ( level, dataElements ) -> tableManager.applyAggregationLevels( table, dataElements, level ) );
+
+        tableManager.vacuumTable( table );
+
+        addMetric( table, AnalyticsTableStage.AGGREGATION_LEVELS, "levels: " + aggregationLevels.size(), started );
+
+        log.info( "Applied aggregation levels to table: " + table.getTempTableName() );
+
+        addIndexTasks( table );
+    }
+
+    private void addIndexTasks( AnalyticsTable table )
+    {
+        List<AnalyticsIndex> indexes = new ArrayList<>();
+
+        for ( AnalyticsTableColumn col : table.getDimensionColumns() )
+        {
+            if ( !col.isSkipIndex() )
+            {
+                indexes.add( new AnalyticsIndex( table.getTempTableName(), col.getName(), col.getIndexType() ) );
+            }
+        }
+
+        if ( indexes.isEmpty() )
+        {
+            addTask( Stage.ANALYZE, () -> analyze( table ) );
+            return;
+        }
+
+        AtomicInteger remainingIndexes = new AtomicInteger( indexes.size() );
+
+        for ( AnalyticsIndex index : indexes )
+        {
+            addTask( Stage.INDEX, () -> {
+                Date started = new Date();
+
+                tableManager.createIndex( index );
+
+                addMetric( table, AnalyticsTableStage.INDEX, index.getColumn(), started );
+
+                if ( remainingIndexes.decrementAndGet() == 0 )
+                {
+                    log.info( String.format( "Created indexes for table: %s, indexes: %d", table.getTempTableName(), indexes.size() ) );
+
+                    addTask( Stage.ANALYZE, () -> analyze( table ) );
+                }
+            } );
+        }
+    }
+
+    private void analyze( AnalyticsTable table )
+    {
+        Date started = new Date();
+
+        tableManager.analyzeTable( table.getTempTableName() );
+
+        addMetric( table, AnalyticsTableStage.ANALYZE, null, started );
+
+        int processed = tableCount - remainingTables.decrementAndGet();
+
+        notifier.notify( taskId, String.format( "Processed table: %s (%d of %d)", table.getTableName(), processed, tableCount ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addMetric( AnalyticsTable table, AnalyticsTableStage stage, String detail, Date started )
+    {
+        metricService.addMetric( tableManager.getAnalyticsTableType().getTableName(), table.getTableName(), stage, detail, started, null );
+    }
+
+    private void addTask( Stage stage, Runnable task )
+    {
+        taskQueues.get( stage ).add( task );
+
+        signalChange();
+    }
+
+    private long getVersion()
+    {
+        synchronized ( lock )
+        {
+            return version;
+        }
+    }
+
+    /**
+     * Signals waiting workers that a task was added or a permit was released.
+     */
+    private void signalChange()
+    {
+        synchronized ( lock )
+        {
+            version++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until a task is added or a permit is released after the given
+     * version was seen, or until the pipeline is done.
+     */
+    private void awaitChange( long seenVersion )
+    {
+        synchronized ( lock )
+        {
+            while ( version == seenVersion && remainingTables.get() > 0 && failure == null )
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch ( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+                    failure = new RuntimeException( "Analytics table pipeline interrupted", ex );
+                    version++;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
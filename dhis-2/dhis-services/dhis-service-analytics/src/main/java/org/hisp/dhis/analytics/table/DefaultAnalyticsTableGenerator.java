@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.table;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.commons.collection.CollectionUtils;
 import org.hisp.dhis.message.MessageService;
@@ -66,6 +67,9 @@ public class DefaultAnalyticsTableGenerator
     @Autowired
     private ResourceTableService resourceTableService;
 
+    @Autowired
+    private AnalyticsTableMetricService metricService;
+
     @Autowired
     private MessageService messageService;
 
@@ -95,6 +99,8 @@ public class DefaultAnalyticsTableGenerator
         {
             notifier.clear( taskId ).notify( taskId, "Analytics table update process started" );
 
+            metricService.deleteExpiredMetrics();
+
             if ( !skipResourceTables )
             {
                 notifier.notify( taskId, "Updating resource tables" );
@@ -130,6 +136,71 @@ public class DefaultAnalyticsTableGenerator
         systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
     }
 
+    @Override
+    public void generateTablesIncrementally( TaskId taskId, Set<AnalyticsTableType> skipTableTypes )
+    {
+        final Date lastUpdated = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+
+        if ( lastUpdated == null )
+        {
+            log.info( "No previous analytics table update, performing full update" );
+
+            generateTables( null, taskId, skipTableTypes, false );
+            return;
+        }
+
+        final Date startTime = new Date();
+        final Clock clock = new Clock( log ).startClock();
+        final Set<AnalyticsTableType> skipTypes = CollectionUtils.emptyIfNull( skipTableTypes );
+
+        boolean resourceTablesGenerated = false;
+
+        try
+        {
+            notifier.clear( taskId ).notify( taskId, "Incremental analytics table update process started, last updated: " +
+                DateUtils.getLongDateString( lastUpdated ) );
+
+            for ( AnalyticsTableService service : analyticsTableServices )
+            {
+                AnalyticsTableType tableType = service.getAnalyticsTableType();
+
+                if ( !skipTypes.contains( tableType ) )
+                {
+                    notifier.notify( taskId, "Updating tables incrementally: " + tableType );
+
+                    if ( !service.updateIncrementally( lastUpdated, taskId ) )
+                    {
+                        if ( !resourceTablesGenerated )
+                        {
+                            notifier.notify( taskId, "Updating resource tables" );
+                            generateResourceTables();
+                            resourceTablesGenerated = true;
+                        }
+
+                        notifier.notify( taskId, "Updating tables: " + tableType );
+
+                        service.update( null, taskId );
+                    }
+                }
+            }
+
+            clock.logTime( "Analytics tables updated incrementally" );
+
+            notifier.notify( taskId, INFO, "Analytics tables updated: " + clock.time(), true );
+        }
+        catch ( RuntimeException ex )
+        {
+            notifier.notify( taskId, ERROR, "Process failed: " + ex.getMessage(), true );
+
+            messageService.sendSystemErrorNotification( "Analytics table process failed", ex );
+
+            throw ex;
+        }
+
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE, startTime );
+        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
+    }
+
     @Override
     public void dropTables()
     {
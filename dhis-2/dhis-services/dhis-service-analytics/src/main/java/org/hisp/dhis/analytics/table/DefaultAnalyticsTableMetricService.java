@@ -0,0 +1,123 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsTableMetric;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableMetricStore;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Transactional
+public class DefaultAnalyticsTableMetricService
+    implements AnalyticsTableMetricService
+{
+    private static final Log log = LogFactory.getLog( DefaultAnalyticsTableMetricService.class );
+
+    @Autowired
+    private AnalyticsTableMetricStore metricStore;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // -------------------------------------------------------------------------
+    // AnalyticsTableMetricService implementation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Saves the metric in a separate transaction which completes before
+     * failures are caught, so that a failure never marks the transaction of
+     * the caller for rollback, and metrics are kept when the transaction of
+     * the caller rolls back.
+     */
+    @Override
+    @Transactional( propagation = Propagation.NOT_SUPPORTED )
+    public void addMetric( AnalyticsTableMetric metric )
+    {
+        TransactionTemplate template = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        template.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+
+        try
+        {
+            template.execute( status -> {
+                metricStore.save( metric );
+                return null;
+            } );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Failed to save analytics table metric: " + metric, ex );
+        }
+    }
+
+    @Override
+    @Transactional( propagation = Propagation.NOT_SUPPORTED )
+    public void addMetric( String tableType, String tableName, AnalyticsTableStage stage, String detail, Date started, Integer rows )
+    {
+        long duration = System.currentTimeMillis() - started.getTime();
+
+        addMetric( new AnalyticsTableMetric( tableType, tableName, stage, detail, started, duration, rows ) );
+    }
+
+    @Override
+    public List<AnalyticsTableMetric> getMetrics( String tableType, String tableName, AnalyticsTableStage stage, Date startDate, Date endDate, int max )
+    {
+        return metricStore.getMetrics( tableType, tableName, stage, startDate, endDate, max );
+    }
+
+    @Override
+    public void deleteExpiredMetrics()
+    {
+        Integer retentionDays = (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_METRICS_RETENTION_DAYS );
+
+        if ( retentionDays == null || retentionDays <= 0 )
+        {
+            return;
+        }
+
+        int deleted = metricStore.deleteMetrics( DateUtils.getDateAfterAddition( new Date(), -retentionDays ) );
+
+        log.info( String.format( "Deleted analytics table metrics older than %d days: %d", retentionDays, deleted ) );
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.table.AnalyticsTablePipeline.Stage;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
@@ -45,9 +46,13 @@ import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.ImmutableMap;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * @author Lars Helge Overland
@@ -57,6 +62,8 @@ public class DefaultAnalyticsTableService
 {
     private static final Log log = LogFactory.getLog( DefaultAnalyticsTableService.class );
     
+    private static final Pattern PARTITION_SUFFIX = Pattern.compile( "_\\d{4}(_[a-z0-9]{11})?" );
+    
     private AnalyticsTableManager tableManager;
     
     public void setTableManager( AnalyticsTableManager tableManager )
@@ -76,6 +83,12 @@ public class DefaultAnalyticsTableService
     @Autowired
     private PartitionManager partitionManager;
     
+    @Autowired
+    private AnalyticsCache analyticsCache;
+    
+    @Autowired
+    private AnalyticsTableMetricService metricService;
+    
     @Autowired
     private Notifier notifier;
     
@@ -127,29 +140,31 @@ public class DefaultAnalyticsTableService
         createTables( tables );
         
         clock.logTime( "Created analytics tables" );
-        notifier.notify( taskId, "Populating analytics tables" );
+        notifier.notify( taskId, "Populating, indexing and analyzing analytics tables" );
         
-        populateTables( tables );
+        processTables( tables, taskId );
         
-        clock.logTime( "Populated analytics tables" );
-        notifier.notify( taskId, "Applying aggregation levels" );
+        clock.logTime( "Populated, indexed and analyzed tables" );
         
-        applyAggregationLevels( tables );
-        
-        clock.logTime( "Applied aggregation levels" );
-        notifier.notify( taskId, "Creating indexes" );
+        final List<AnalyticsTable> rollupTables = getRollupTables( tables );
         
-        createIndexes( tables );
+        if ( !rollupTables.isEmpty() )
+        {
+            notifier.notify( taskId, "Populating rollup tables" );
+            
+            populateRollupTables( tables, rollupTables, true );
+            
+            clock.logTime( "Populated rollup tables: " + rollupTables.size() );
+        }
         
-        clock.logTime( "Created indexes" );
-        notifier.notify( taskId, "Analyzing analytics tables" );
+        notifier.notify( taskId, "Swapping analytics tables" );
         
-        tableManager.analyzeTables( tables );
+        List<AnalyticsTable> allTables = new ArrayList<>( tables );
+        allTables.addAll( rollupTables );
         
-        clock.logTime( "Analyzed tables" );
-        notifier.notify( taskId, "Swapping analytics tables" );
+        swapTables( allTables, clock, taskId );
         
-        swapTables( tables, clock, taskId );
+        dropObsoleteRollupTables( rollupTables );
         
         clock.logTime( "Swapped tables" );
         notifier.notify( taskId, "Clearing caches" );
@@ -160,6 +175,110 @@ public class DefaultAnalyticsTableService
         notifier.notify( taskId, "Table update done" );
     }
 
+    @Override
+    public boolean updateIncrementally( Date lastUpdated, TaskId taskId )
+    {
+        String tableName = tableManager.getAnalyticsTableType().getTableName();
+
+        Clock clock = new Clock( log )
+            .startClock()
+            .logTime( String.format( "Starting incremental update: %s, last updated: %s", tableName, lastUpdated ) );
+
+        if ( !tableManager.supportsIncrementalUpdate() || !tableManager.isIncrementalUpdatePossible( lastUpdated ) )
+        {
+            clock.logTime( "Incremental update not possible: " + tableName );
+            return false;
+        }
+
+        String validState = tableManager.validState();
+
+        if ( validState != null )
+        {
+            notifier.notify( taskId, validState );
+            return true;
+        }
+
+        final List<AnalyticsTable> tables = tableManager.getIncrementalTables( lastUpdated );
+
+        if ( tables.isEmpty() )
+        {
+            clock.logTime( "No data changed since last update: " + tableName );
+            notifier.notify( taskId, "No data changed since last update" );
+            return true;
+        }
+
+        Set<String> existingTables = tableManager.getExistingDatabaseTables();
+
+        for ( AnalyticsTable table : tables )
+        {
+            if ( !existingTables.contains( table.getTableName() ) )
+            {
+                clock.logTime( "Incremental update not possible, partition does not exist: " + table.getTableName() );
+                return false;
+            }
+        }
+
+        clock.logTime( "Incremental update start: " + tableName + ", partitions: " + tables );
+        notifier.notify( taskId, "Performing pre-create table work" );
+
+        tableManager.preCreateTables();
+
+        clock.logTime( "Performed pre-create table work" );
+        notifier.notify( taskId, "Creating analytics tables" );
+
+        createTables( tables );
+
+        clock.logTime( "Created analytics tables" );
+        notifier.notify( taskId, "Populating analytics tables with changed data" );
+
+        populateTablesIncrementally( tables, lastUpdated );
+
+        clock.logTime( "Populated analytics tables" );
+        notifier.notify( taskId, "Applying aggregation levels" );
+
+        applyAggregationLevels( tables );
+
+        clock.logTime( "Applied aggregation levels" );
+        notifier.notify( taskId, "Merging analytics tables" );
+
+        for ( AnalyticsTable table : tables )
+        {
+            Date started = new Date();
+            
+            tableManager.mergeTable( table, lastUpdated );
+            
+            addMetric( table.getTableName(), AnalyticsTableStage.MERGE, null, started );
+        }
+
+        clock.logTime( "Merged tables" );
+        notifier.notify( taskId, "Analyzing analytics tables" );
+
+        tables.forEach( table -> tableManager.analyzeTable( table.getTableName() ) );
+
+        final List<AnalyticsTable> rollupTables = getRollupTables( tables );
+
+        if ( !rollupTables.isEmpty() )
+        {
+            clock.logTime( "Analyzed tables" );
+            notifier.notify( taskId, "Populating rollup tables" );
+
+            populateRollupTables( tables, rollupTables, false );
+
+            rollupTables.forEach( table -> tableManager.swapTable( table ) );
+
+            partitionManager.clearCaches();
+
+            clock.logTime( "Populated rollup tables: " + rollupTables.size() );
+        }
+
+        analyticsCache.invalidatePartitions( tables.stream().map( AnalyticsTable::getTableName ).collect( Collectors.toList() ) );
+
+        clock.logTime( "Incremental update done: " + tableName );
+        notifier.notify( taskId, "Incremental update done" );
+
+        return true;
+    }
+
     @Override
     public void dropTables()
     {
@@ -167,6 +286,8 @@ public class DefaultAnalyticsTableService
 
         tables.forEach( table -> tableManager.dropTable( table ) );
         
+        analyticsCache.invalidateAll();
+        
         log.info( "Analytics tables dropped" );
     }
 
@@ -188,15 +309,86 @@ public class DefaultAnalyticsTableService
     {
         for ( AnalyticsTable table : tables )
         {
+            Date started = new Date();
+            
             tableManager.createTable( table );
+            
+            addMetric( table.getTableName(), AnalyticsTableStage.CREATE, null, started );
         }
     }
     
-    private void populateTables( List<AnalyticsTable> tables )
+    /**
+     * Populates, applies aggregation levels to, indexes and analyzes the given
+     * tables through a pipeline, where each table passes through the stages
+     * independently of the other tables. Populating is bounded to one task less
+     * than the number of workers, so that completed tables are indexed and
+     * analyzed while large tables are still being populated.
+     */
+    private void processTables( List<AnalyticsTable> tables, TaskId taskId )
+    {
+        int processNo = getProcessNo();
+        
+        Map<Stage, Integer> stagePermits = ImmutableMap.of( 
+            Stage.POPULATE, Math.max( 1, processNo - 1 ),
+            Stage.AGGREGATION_LEVELS, processNo,
+            Stage.INDEX, processNo,
+            Stage.ANALYZE, processNo );
+        
+        log.info( String.format( "Table pipeline workers: %d, stage permits: %s", processNo, stagePermits ) );
+        
+        AnalyticsTablePipeline pipeline = new AnalyticsTablePipeline( tableManager, tables, 
+            getAggregationLevels(), stagePermits, metricService, notifier, taskId );
+        
+        List<Future<?>> futures = new ArrayList<>();
+        
+        for ( int i = 0; i < processNo; i++ )
+        {
+            futures.add( tableManager.processPipelineAsync( pipeline ) );
+        }
+        
+        ConcurrentUtils.waitForCompletion( futures );
+    }
+    
+    private void populateTablesIncrementally( List<AnalyticsTable> tables, Date lastUpdated )
     {
         int taskNo = Math.min( getProcessNo(), tables.size() );
+
+        ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for ( int i = 0; i < taskNo; i++ )
+        {
+            futures.add( tableManager.populateTablesIncrementallyAsync( tableQ, lastUpdated ) );
+        }
+
+        ConcurrentUtils.waitForCompletion( futures );
+    }
+
+    private List<AnalyticsTable> getRollupTables( List<AnalyticsTable> tables )
+    {
+        if ( !tableManager.supportsRollupTables() )
+        {
+            return new ArrayList<>();
+        }
         
-        log.info( "Populate table task number: " + taskNo );
+        return tables.stream()
+            .flatMap( table -> tableManager.getRollupTables( table ).stream() )
+            .collect( Collectors.toList() );
+    }
+    
+    /**
+     * Populates, indexes and analyzes the temporary rollup tables for the given
+     * analytics tables.
+     * 
+     * @param tables the analytics tables.
+     * @param rollupTables the rollup tables of the analytics tables.
+     * @param fromTempTables whether to aggregate from the temporary analytics
+     *        tables or from the live analytics tables.
+     */
+    private void populateRollupTables( List<AnalyticsTable> tables, List<AnalyticsTable> rollupTables, boolean fromTempTables )
+    {
+        int taskNo = Math.min( getProcessNo(), tables.size() );
         
         ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
         
@@ -204,31 +396,86 @@ public class DefaultAnalyticsTableService
         
         for ( int i = 0; i < taskNo; i++ )
         {
-            futures.add( tableManager.populateTablesAsync( tableQ ) );
+            futures.add( tableManager.populateRollupTablesAsync( tableQ, fromTempTables ) );
         }
         
         ConcurrentUtils.waitForCompletion( futures );
+        
+        createIndexes( rollupTables );
+        
+        tableManager.analyzeTables( rollupTables );
     }
     
-    private void applyAggregationLevels( List<AnalyticsTable> tables )
+    /**
+     * Drops existing rollup tables for rollup shapes which are no longer
+     * configured, so that queries are never routed to stale rollup tables.
+     * 
+     * @param rollupTables the current rollup tables.
+     */
+    private void dropObsoleteRollupTables( List<AnalyticsTable> rollupTables )
+    {
+        if ( !tableManager.supportsRollupTables() )
+        {
+            return;
+        }
+        
+        final String prefix = tableManager.getAnalyticsTableType().getTableName() + AnalyticsRollup.TABLE_INFIX;
+        
+        final Set<String> baseNames = rollupTables.stream()
+            .map( AnalyticsTable::getBaseName )
+            .collect( Collectors.toSet() );
+        
+        tableManager.getExistingDatabaseTables().stream()
+            .filter( table -> table.startsWith( prefix ) )
+            .filter( table -> baseNames.stream().noneMatch( baseName -> isPartitionOf( table, baseName ) ) )
+            .forEach( table -> tableManager.dropTable( table ) );
+    }
+
+    /**
+     * Indicates whether the given table is a partition of the table with the
+     * given base name, i.e. whether the table name is the base name followed
+     * by a year and optionally a program identifier.
+     */
+    private boolean isPartitionOf( String table, String baseName )
+    {
+        return table.startsWith( baseName ) && PARTITION_SUFFIX.matcher( table.substring( baseName.length() ) ).matches();
+    }
+
+    /**
+     * Returns a mapping between aggregation level and the uids of the data
+     * elements with that aggregation level, ordered from the highest level number.
+     */
+    private Map<Integer, Collection<String>> getAggregationLevels()
     {
         int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
         
-        boolean hasAggLevels = false;
+        Map<Integer, Collection<String>> aggregationLevels = new LinkedHashMap<>();
         
-        levelLoop : for ( int i = 0; i < maxLevels; i++ )
+        for ( int i = 0; i < maxLevels; i++ )
         {
             int level = maxLevels - i;
             
             Collection<String> dataElements = IdentifiableObjectUtils.getUids( 
                 dataElementService.getDataElementsByAggregationLevel( level ) );
             
-            if ( dataElements.isEmpty() )
+            if ( !dataElements.isEmpty() )
             {
-                continue levelLoop;
+                aggregationLevels.put( level, dataElements );
             }
-
-            hasAggLevels = true;
+        }
+        
+        return aggregationLevels;
+    }
+    
+    private void applyAggregationLevels( List<AnalyticsTable> tables )
+    {
+        Map<Integer, Collection<String>> aggregationLevels = getAggregationLevels();
+        
+        for ( Map.Entry<Integer, Collection<String>> entry : aggregationLevels.entrySet() )
+        {
+            int level = entry.getKey();
+            
+            Collection<String> dataElements = entry.getValue();
             
             ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
 
@@ -242,7 +489,7 @@ public class DefaultAnalyticsTableService
             ConcurrentUtils.waitForCompletion( futures );
         }
         
-        if ( hasAggLevels )
+        if ( !aggregationLevels.isEmpty() )
         {
             vacuumTables( tables );
 
@@ -300,10 +547,16 @@ public class DefaultAnalyticsTableService
         clock.logTime( "Dropped SQL views"  );
         notifier.notify( taskId, "Swapping tables" );
         
+        Date started = new Date();
+        
         for ( AnalyticsTable table : tables )
         {
             tableManager.swapTable( table );
         }
+        
+        addMetric( null, AnalyticsTableStage.SWAP, "tables: " + tables.size(), started );
+        
+        analyticsCache.invalidatePartitions( tables.stream().map( AnalyticsTable::getTableName ).collect( Collectors.toList() ) );
 
         clock.logTime( "Swapped tables"  );
         notifier.notify( taskId, "Creating SQL views" );
@@ -311,6 +564,15 @@ public class DefaultAnalyticsTableService
         resourceTableService.createAllSqlViews();
     }
     
+    /**
+     * Records a metric for the given stage of the analytics table type of this
+     * service, which started at the given time and ends now.
+     */
+    private void addMetric( String tableName, AnalyticsTableStage stage, String detail, Date started )
+    {
+        metricService.addMetric( tableManager.getAnalyticsTableType().getTableName(), tableName, stage, detail, started, null );
+    }
+    
     /**
      * Gets the number of available cores. Uses explicit number from system
      * setting if available. Detects number of cores from current server runtime
@@ -53,6 +53,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 import static org.hisp.dhis.dataapproval.DataApprovalLevelService.APPROVAL_LEVEL_UNAPPROVED;
@@ -98,6 +99,78 @@ public class JdbcAnalyticsTableManager
         return getTables( getDataYears( earliest ) );
     }
     
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public List<AnalyticsTable> getIncrementalTables( Date lastUpdated )
+    {
+        log.info( "Get incremental tables using last updated: " + lastUpdated );
+
+        String sql =
+            "select distinct(extract(year from pe.startdate)) " +
+            "from datavalue dv " +
+            "inner join period pe on dv.periodid=pe.periodid " +
+            "where pe.startdate is not null " +
+            "and dv.lastupdatedatserver >= '" + DateUtils.getLongDateString( lastUpdated ) + "'";
+
+        return getTables( jdbcTemplate.queryForList( sql, Integer.class ) );
+    }
+
+    @Override
+    public boolean isIncrementalUpdatePossible( Date lastUpdated )
+    {
+        final String since = DateUtils.getLongDateString( lastUpdated );
+
+        // Meta-data which the resource tables and analytics table columns are based on
+
+        final List<String> metaDataTables = Lists.newArrayList( "organisationunit", "orgunitgroup", "orgunitgroupset",
+            "dataelement", "dataelementgroup", "dataelementgroupset", "dataelementcategory", "dataelementcategoryoption",
+            "categorycombo", "categoryoptioncombo", "categoryoptiongroup", "categoryoptiongroupset", "dataset" );
+
+        for ( String table : metaDataTables )
+        {
+            if ( jdbcTemplate.queryForRowSet( "select 1 from " + table + " where lastupdated >= '" + since + "' limit 1" ).next() )
+            {
+                log.info( "Meta-data changed since last update in table: " + table );
+                return false;
+            }
+        }
+
+        // Periods not present in the period structure resource table
+
+        final String periodSql =
+            "select 1 from period pe " +
+            "where not exists (select 1 from _periodstructure ps where ps.periodid=pe.periodid) limit 1";
+
+        if ( jdbcTemplate.queryForRowSet( periodSql ).next() )
+        {
+            log.info( "Periods missing from period structure resource table" );
+            return false;
+        }
+
+        // Data approvals which were changed affect the approval level column
+
+        if ( isApprovalEnabled( null ) )
+        {
+            final String approvalSql =
+                "select 1 from dataapproval where created >= '" + since + "' " +
+                "union all select 1 from dataapprovalaudit where created >= '" + since + "' limit 1";
+
+            if ( jdbcTemplate.queryForRowSet( approvalSql ).next() )
+            {
+                log.info( "Data approvals changed since last update" );
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public Set<String> getExistingDatabaseTables()
     {
@@ -165,7 +238,186 @@ public class JdbcAnalyticsTableManager
     }
 
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
+    {
+        populateTable( table, null );
+    }
+
+    @Override
+    @Async
+    public Future<?> populateTablesIncrementallyAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, Date lastUpdated )
+    {
+        taskLoop:
+        while ( true )
+        {
+            AnalyticsTable table = tables.poll();
+
+            if ( table == null )
+            {
+                break taskLoop;
+            }
+
+            populateTable( table, lastUpdated );
+        }
+
+        return null;
+    }
+
+    @Override
+    @Transactional
+    public void mergeTable( AnalyticsTable table, Date lastUpdated )
+    {
+        final String start = DateUtils.getMediumDateString( table.getPeriod().getStartDate() );
+        final String end = DateUtils.getMediumDateString( table.getPeriod().getEndDate() );
+        final String tableName = table.getTableName();
+        final String tempTableName = table.getTempTableName();
+
+        final String sqlDelete =
+            "delete from " + tableName + " ax " +
+            "using datavalue dv " +
+            "inner join dataelement de on dv.dataelementid=de.dataelementid " +
+            "inner join categoryoptioncombo co on dv.categoryoptioncomboid=co.categoryoptioncomboid " +
+            "inner join categoryoptioncombo ao on dv.attributeoptioncomboid=ao.categoryoptioncomboid " +
+            "inner join period pe on dv.periodid=pe.periodid " +
+            "inner join _periodstructure ps on dv.periodid=ps.periodid " +
+            "inner join organisationunit ou on dv.sourceid=ou.organisationunitid " +
+            "where dv.lastupdatedatserver >= '" + DateUtils.getLongDateString( lastUpdated ) + "' " +
+            "and pe.startdate >= '" + start + "' " +
+            "and pe.startdate <= '" + end + "' " +
+            "and ax." + quote( "dx" ) + "=de.uid " +
+            "and ax." + quote( "co" ) + "=co.uid " +
+            "and ax." + quote( "ao" ) + "=ao.uid " +
+            "and ax." + quote( "pe" ) + "=ps.iso " +
+            "and ax." + quote( "ou" ) + "=ou.uid";
+
+        log.debug( "Incremental delete SQL: " + sqlDelete );
+
+        int deleted = jdbcTemplate.update( sqlDelete );
+
+        List<String> columns = getDimensionColumns( table ).stream()
+            .map( AnalyticsTableColumn::getName )
+            .collect( Collectors.toList() );
+
+        columns.addAll( Lists.newArrayList( "daysxvalue", "daysno", "value", "textvalue" ) );
+
+        final String columnNames = StringUtils.join( columns, "," );
+
+        final String sqlInsert = "insert into " + tableName + " (" + columnNames + ") select " + columnNames + " from " + tempTableName;
+
+        log.debug( "Incremental insert SQL: " + sqlInsert );
+
+        int inserted = jdbcTemplate.update( sqlInsert );
+
+        jdbcTemplate.execute( "drop table " + tempTableName );
+
+        log.info( String.format( "Merged table: %s, deleted rows: %d, inserted rows: %d", tableName, deleted, inserted ) );
+    }
+
+    @Override
+    public boolean supportsRollupTables()
+    {
+        return true;
+    }
+
+    @Override
+    public List<AnalyticsTable> getRollupTables( AnalyticsTable table )
+    {
+        List<AnalyticsRollup> rollups = AnalyticsRollup.getRollups(
+            (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_ROLLUPS ) );
+
+        List<AnalyticsTable> rollupTables = new ArrayList<>();
+
+        if ( rollups.isEmpty() )
+        {
+            return rollupTables;
+        }
+
+        List<AnalyticsTableColumn> columns = getDimensionColumns( table );
+
+        for ( AnalyticsRollup rollup : rollups )
+        {
+            Set<String> rollupColumns = rollup.getColumns().stream()
+                .map( this::quote )
+                .collect( Collectors.toSet() );
+
+            List<AnalyticsTableColumn> dimensionColumns = columns.stream()
+                .filter( col -> rollupColumns.contains( col.getName() ) )
+                .collect( Collectors.toList() );
+
+            rollupTables.add( new AnalyticsTable( rollup.getTableBaseName( table.getBaseName() ), dimensionColumns, table.getPeriod() ) );
+        }
+
+        return rollupTables;
+    }
+
+    @Override
+    @Async
+    public Future<?> populateRollupTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, boolean fromTempTables )
+    {
+        taskLoop:
+        while ( true )
+        {
+            AnalyticsTable table = tables.poll();
+
+            if ( table == null )
+            {
+                break taskLoop;
+            }
+
+            final String sourceTable = fromTempTables ? table.getTempTableName() : table.getTableName();
+
+            for ( AnalyticsTable rollupTable : getRollupTables( table ) )
+            {
+                populateRollupTable( rollupTable, sourceTable );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates the temporary rollup table and populates it with the sum of the
+     * numeric values of the given source table grouped by the rollup columns.
+     *
+     * @param rollupTable the rollup table.
+     * @param sourceTable the name of the analytics table to aggregate.
+     */
+    private void populateRollupTable( AnalyticsTable rollupTable, String sourceTable )
+    {
+        final String tableName = rollupTable.getTempTableName();
+
+        final String columns = rollupTable.getDimensionColumns().stream()
+            .map( AnalyticsTableColumn::getName )
+            .collect( Collectors.joining( "," ) );
+
+        executeSilently( "drop table " + tableName );
+
+        final String sql =
+            "create table " + tableName + " as " +
+            "select " + columns + ", sum(value) as value " +
+            "from " + sourceTable + " " +
+            "where value is not null " +
+            "group by " + columns;
+
+        log.info( String.format( "Populating rollup table: %s from: %s", tableName, sourceTable ) );
+
+        log.debug( "Rollup SQL: " + sql );
+
+        Date started = new Date();
+
+        jdbcTemplate.execute( sql );
+
+        metricService.addMetric( getAnalyticsTableType().getTableName(), rollupTable.getTableName(), AnalyticsTableStage.ROLLUP, sourceTable, started, null );
+    }
+
+    /**
+     * Populates the given analytics table.
+     *
+     * @param table       analytics table to populate.
+     * @param lastUpdated include only data values updated since this date,
+     *                    null if all data values should be included.
+     */
+    private void populateTable( AnalyticsTable table, Date lastUpdated )
     {
         final String dbl = statementBuilder.getDoubleColumnType();
         final boolean skipDataTypeValidation = (Boolean) systemSettingManager.getSystemSetting( SettingKey.SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT );
@@ -173,17 +425,19 @@ public class JdbcAnalyticsTableManager
         final String approvalClause = getApprovalJoinClause( table );
         final String numericClause = skipDataTypeValidation ? "" : ( "and dv.value " + statementBuilder.getRegexpMatch() + " '" + MathUtils.NUMERIC_LENIENT_REGEXP + "' " );
 
+        final String lastUpdatedClause = lastUpdated != null ? ( "and dv.lastupdatedatserver >= '" + DateUtils.getLongDateString( lastUpdated ) + "' " ) : "";
+
         String intClause =
             "( dv.value != '0' or de.aggregationtype in ('" + AggregationType.AVERAGE + ',' + AggregationType.AVERAGE_SUM_ORG_UNIT + "') or de.zeroissignificant = true ) " +
             numericClause;
 
-        populateTable( table, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause, approvalClause );
+        populateTable( table, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause, approvalClause, lastUpdatedClause );
 
-        populateTable( table, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'", approvalClause );
+        populateTable( table, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'", approvalClause, lastUpdatedClause );
 
-        populateTable( table, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'", approvalClause );
+        populateTable( table, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'", approvalClause, lastUpdatedClause );
 
-        populateTable( table, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null, approvalClause );
+        populateTable( table, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null, approvalClause, lastUpdatedClause );
     }
 
     /**
@@ -194,9 +448,12 @@ public class JdbcAnalyticsTableManager
      * @param textValueExpression textual value expression.
      * @param valueTypes          data element value types to include data for.
      * @param whereClause         where clause to constrain data query.
+     * @param approvalClause      join clause for data approval levels.
+     * @param lastUpdatedClause   where clause to constrain data query on last
+     *                            updated, empty if none.
      */
     private void populateTable( AnalyticsTable table, String valueExpression,
-        String textValueExpression, Set<ValueType> valueTypes, String whereClause, String approvalClause )
+        String textValueExpression, Set<ValueType> valueTypes, String whereClause, String approvalClause, String lastUpdatedClause )
     {
         final String start = DateUtils.getMediumDateString( table.getPeriod().getStartDate() );
         final String end = DateUtils.getMediumDateString( table.getPeriod().getEndDate() );
@@ -249,7 +506,8 @@ public class JdbcAnalyticsTableManager
                 "and pe.startdate >= '" + start + "' " +
                 "and pe.startdate <= '" + end + "' " +
                 "and dv.value is not null " +
-                "and dv.deleted is false ";
+                "and dv.deleted is false " +
+                lastUpdatedClause;
 
         if ( respectStartEndDates )
         {
@@ -265,7 +523,7 @@ public class JdbcAnalyticsTableManager
             sql += "and " + whereClause;
         }
 
-        populateAndLog( sql, tableName + ", " + valueTypes );
+        populateAndLog( sql, table, valueTypes.toString() );
     }
 
     /**
@@ -422,28 +680,34 @@ public class JdbcAnalyticsTableManager
                 break taskLoop;
             }
 
-            StringBuilder sql = new StringBuilder( "update " + table.getTempTableName() + " set " );
+            applyAggregationLevels( table, dataElements, aggregationLevel );
+        }
 
-            for ( int i = 0; i < aggregationLevel; i++ )
-            {
-                int level = i + 1;
+        return null;
+    }
 
-                String column = quote( DataQueryParams.LEVEL_PREFIX + level );
+    @Override
+    public void applyAggregationLevels( AnalyticsTable table, Collection<String> dataElements, int aggregationLevel )
+    {
+        StringBuilder sql = new StringBuilder( "update " + table.getTempTableName() + " set " );
 
-                sql.append( column + " = null," );
-            }
+        for ( int i = 0; i < aggregationLevel; i++ )
+        {
+            int level = i + 1;
 
-            sql.deleteCharAt( sql.length() - ",".length() );
+            String column = quote( DataQueryParams.LEVEL_PREFIX + level );
 
-            sql.append( " where level > " + aggregationLevel );
-            sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
+            sql.append( column + " = null," );
+        }
 
-            log.debug( "Aggregation level SQL: " + sql.toString() );
+        sql.deleteCharAt( sql.length() - ",".length() );
 
-            jdbcTemplate.execute( sql.toString() );
-        }
+        sql.append( " where level > " + aggregationLevel );
+        sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
 
-        return null;
+        log.debug( "Aggregation level SQL: " + sql.toString() );
+
+        jdbcTemplate.execute( sql.toString() );
     }
 
     @Override
@@ -460,16 +724,22 @@ public class JdbcAnalyticsTableManager
                 break taskLoop;
             }
 
-            final String sql = statementBuilder.getVacuum( table.getTempTableName() );
-
-            log.debug( "Vacuum SQL: " + sql );
-
-            jdbcTemplate.execute( sql );
+            vacuumTable( table );
         }
 
         return null;
     }
 
+    @Override
+    public void vacuumTable( AnalyticsTable table )
+    {
+        final String sql = statementBuilder.getVacuum( table.getTempTableName() );
+
+        log.debug( "Vacuum SQL: " + sql );
+
+        jdbcTemplate.execute( sql );
+    }
+
     /**
      * Indicates whether the system should ignore data which has not been approved
      * in analytics tables.
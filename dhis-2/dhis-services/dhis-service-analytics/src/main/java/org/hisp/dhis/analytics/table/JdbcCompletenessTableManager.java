@@ -115,11 +115,10 @@ public class JdbcCompletenessTableManager
     }
     
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
         final String start = DateUtils.getMediumDateString( table.getPeriod().getStartDate() );
         final String end = DateUtils.getMediumDateString( table.getPeriod().getEndDate() );
-        final String tableName = table.getTempTableName();
 
         String insert = "insert into " + table.getTempTableName() + " (";
 
@@ -158,7 +157,7 @@ public class JdbcCompletenessTableManager
 
         final String sql = insert + select;
         
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
     }
     
     @Override
@@ -111,10 +111,8 @@ public class JdbcCompletenessTargetTableManager
     }
 
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
-        final String tableName = table.getTempTableName();
-
         String sql = "insert into " + table.getTempTableName() + " (";
 
         List<AnalyticsTableColumn> columns = getDimensionColumns( table );
@@ -143,7 +141,7 @@ public class JdbcCompletenessTargetTableManager
             "left join categoryoptioncombo ao on doc.attributeoptioncomboid=ao.categoryoptioncomboid " +
             "left join _categorystructure acs on doc.attributeoptioncomboid=acs.categoryoptioncomboid ";
 
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
     }
     
     @Override
@@ -97,9 +97,8 @@ public class JdbcEnrollmentAnalyticsTableManager
     }
     
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
-        final String tableName = table.getTempTableName();
         final String piEnrollmentDate = statementBuilder.getCastToDate( "pi.enrollmentdate" );
 
         String sql = "insert into " + table.getTempTableName() + " (";
@@ -134,7 +133,7 @@ public class JdbcEnrollmentAnalyticsTableManager
             "and pi.incidentdate is not null " +
             "and pi.deleted is false ";
 
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
     }
 
     @Override
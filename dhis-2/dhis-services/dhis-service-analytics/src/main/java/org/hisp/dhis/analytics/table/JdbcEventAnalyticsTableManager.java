@@ -30,8 +30,11 @@ package org.hisp.dhis.analytics.table;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
+import org.hisp.dhis.analytics.event.EventClusterPyramid;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.commons.collection.UniqueArrayList;
@@ -44,11 +47,16 @@ import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.Program;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.system.util.DateUtils;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.commons.util.TextUtils.removeLast;
 import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
@@ -107,11 +115,10 @@ public class JdbcEventAnalyticsTableManager
     }
     
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
         final String start = DateUtils.getMediumDateString( table.getPeriod().getStartDate() );
         final String end = DateUtils.getMediumDateString( table.getPeriod().getEndDate() );
-        final String tableName = table.getTempTableName();
         final String psiExecutionDate = statementBuilder.getCastToDate( "psi.executiondate" );
 
         String sql = "insert into " + table.getTempTableName() + " (";
@@ -152,7 +159,151 @@ public class JdbcEventAnalyticsTableManager
             "and psi.executiondate is not null " +
             "and psi.deleted is false ";
 
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
+    }
+
+    @Override
+    public boolean supportsRollupTables()
+    {
+        return true;
+    }
+
+    /**
+     * Returns the event cluster table of the given table if spatial support is
+     * enabled and the cluster tables are enabled through the
+     * {@link SettingKey#ANALYTICS_EVENT_CLUSTER_ORG_UNIT_LEVELS} system setting.
+     */
+    @Override
+    public List<AnalyticsTable> getRollupTables( AnalyticsTable table )
+    {
+        List<AnalyticsTable> tables = new ArrayList<>();
+        
+        Integer orgUnitLevels = (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_EVENT_CLUSTER_ORG_UNIT_LEVELS );
+        
+        if ( !databaseInfo.isSpatialSupport() || orgUnitLevels == null || orgUnitLevels <= 0 )
+        {
+            return tables;
+        }
+        
+        List<AnalyticsTableColumn> columns = Lists.newArrayList( 
+            new AnalyticsTableColumn( quote( "level" ), "integer", "level" ),
+            new AnalyticsTableColumn( quote( "cx" ), "integer", "cx", true ),
+            new AnalyticsTableColumn( quote( "cy" ), "integer", "cy", true ),
+            new AnalyticsTableColumn( quote( "ps" ), "character(11)", "ps", true ),
+            new AnalyticsTableColumn( quote( "month" ), "date", "cast(date_trunc('month', executiondate) as date)" ) );
+        
+        for ( OrganisationUnitLevel level : organisationUnitService.getFilledOrganisationUnitLevels() )
+        {
+            if ( level.getLevel() <= orgUnitLevels )
+            {
+                String column = quote( PREFIX_ORGUNITLEVEL + level.getLevel() );
+                columns.add( new AnalyticsTableColumn( column, "character(11)", column, true ) );
+            }
+        }
+        
+        tables.add( new AnalyticsTable( EventClusterPyramid.TABLE_NAME, columns, table.getPeriod(), table.getProgram() ) );
+        
+        return tables;
+    }
+
+    @Override
+    @Async
+    public Future<?> populateRollupTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables, boolean fromTempTables )
+    {
+        taskLoop:
+        while ( true )
+        {
+            AnalyticsTable table = tables.poll();
+
+            if ( table == null )
+            {
+                break taskLoop;
+            }
+
+            final String sourceTable = fromTempTables ? table.getTempTableName() : table.getTableName();
+
+            for ( AnalyticsTable clusterTable : getRollupTables( table ) )
+            {
+                populateClusterTable( clusterTable, sourceTable );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates the temporary event cluster table and populates it with the
+     * number of events, the sum of coordinates and the extent of the events
+     * per grid cell, program stage, month and organisation unit for each level
+     * of the cluster pyramid. The finest level is aggregated from the given
+     * source table, and each coarser level is aggregated from the finest level
+     * as the cells of the coarser levels are unions of the finer cells.
+     *
+     * @param clusterTable the cluster table.
+     * @param sourceTable the name of the event analytics table to aggregate.
+     */
+    private void populateClusterTable( AnalyticsTable clusterTable, String sourceTable )
+    {
+        final String tableName = clusterTable.getTempTableName();
+        final String geom = quote( "geom" );
+        final int maxLevel = EventClusterPyramid.MAX_LEVEL;
+        final double cellSize = EventClusterPyramid.getCellSize( maxLevel );
+        
+        final List<String> groupColumns = clusterTable.getDimensionColumns().stream()
+            .map( AnalyticsTableColumn::getName )
+            .filter( col -> !col.equals( quote( "level" ) ) && !col.equals( quote( "cx" ) ) && !col.equals( quote( "cy" ) ) )
+            .collect( Collectors.toList() );
+        
+        final List<String> groupAliases = clusterTable.getDimensionColumns().stream()
+            .filter( col -> groupColumns.contains( col.getName() ) )
+            .map( col -> col.getAlias() + " as " + col.getName() )
+            .collect( Collectors.toList() );
+        
+        final String groupBy = StringUtils.join( groupColumns, "," );
+        
+        executeSilently( "drop table " + tableName );
+        
+        final String sqlCreate = 
+            "create table " + tableName + " as " +
+            "select " + maxLevel + " as " + quote( "level" ) + ", " +
+            "cast(floor(ST_X(ST_Transform(" + geom + ", 3785)) / " + cellSize + ") as integer) as " + quote( "cx" ) + ", " +
+            "cast(floor(ST_Y(ST_Transform(" + geom + ", 3785)) / " + cellSize + ") as integer) as " + quote( "cy" ) + ", " +
+            StringUtils.join( groupAliases, "," ) + ", " +
+            "count(psi) as count, sum(ST_X(" + geom + ")) as sumx, sum(ST_Y(" + geom + ")) as sumy, " +
+            "min(ST_X(" + geom + ")) as minx, min(ST_Y(" + geom + ")) as miny, " + 
+            "max(ST_X(" + geom + ")) as maxx, max(ST_Y(" + geom + ")) as maxy, min(psi) as psi " +
+            "from " + sourceTable + " " +
+            "where " + geom + " is not null " +
+            "group by " + quote( "cx" ) + "," + quote( "cy" ) + "," + groupBy;
+        
+        log.info( String.format( "Populating event cluster table: %s from: %s", tableName, sourceTable ) );
+        
+        log.debug( "Event cluster SQL: " + sqlCreate );
+        
+        Date started = new Date();
+        
+        jdbcTemplate.execute( sqlCreate );
+        
+        for ( int level = maxLevel - 1; level >= 0; level-- )
+        {
+            final double factor = Math.pow( 2, maxLevel - level );
+            final String cx = "cast(floor(" + quote( "cx" ) + " / " + factor + ") as integer)";
+            final String cy = "cast(floor(" + quote( "cy" ) + " / " + factor + ") as integer)";
+            
+            final String sqlInsert = 
+                "insert into " + tableName + " " +
+                "select " + level + ", " + cx + ", " + cy + ", " + groupBy + ", " +
+                "sum(count), sum(sumx), sum(sumy), min(minx), min(miny), max(maxx), max(maxy), min(psi) " +
+                "from " + tableName + " " +
+                "where " + quote( "level" ) + " = " + maxLevel + " " +
+                "group by " + cx + "," + cy + "," + groupBy;
+            
+            log.debug( "Event cluster level SQL: " + sqlInsert );
+            
+            jdbcTemplate.execute( sqlInsert );
+        }
+        
+        metricService.addMetric( getAnalyticsTableType().getTableName(), clusterTable.getTableName(), AnalyticsTableStage.ROLLUP, sourceTable, started, null );
     }
 
     @Override
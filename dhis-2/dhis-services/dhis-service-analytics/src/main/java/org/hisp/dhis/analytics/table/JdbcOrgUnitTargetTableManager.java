@@ -107,10 +107,8 @@ public class JdbcOrgUnitTargetTableManager
     }
 
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
-        final String tableName = table.getTempTableName();
-
         String sql = "insert into " + table.getTempTableName() + " (";
 
         List<AnalyticsTableColumn> columns = getDimensionColumns( table );
@@ -136,7 +134,7 @@ public class JdbcOrgUnitTargetTableManager
             "left join _orgunitstructure ous on ougm.organisationunitid=ous.organisationunitid " +
             "left join _organisationunitgroupsetstructure ougs on ougm.organisationunitid=ougs.organisationunitid";            
 
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
     }
 
     @Override
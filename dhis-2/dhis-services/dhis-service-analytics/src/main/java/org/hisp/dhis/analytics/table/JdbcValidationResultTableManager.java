@@ -20,11 +20,10 @@ public class JdbcValidationResultTableManager
     extends AbstractJdbcTableManager
 {
     @Override
-    protected void populateTable( AnalyticsTable table )
+    public void populateTable( AnalyticsTable table )
     {
         final String start = DateUtils.getMediumDateString( table.getPeriod().getStartDate() );
         final String end = DateUtils.getMediumDateString( table.getPeriod().getEndDate() );
-        final String tableName = table.getTempTableName();
 
         String insert = "insert into " + table.getTempTableName() + " (";
 
@@ -63,7 +62,7 @@ public class JdbcValidationResultTableManager
 
         final String sql = insert + select;
 
-        populateAndLog( sql, tableName );
+        populateAndLog( sql, table );
     }
 
     @Override
@@ -0,0 +1,90 @@
+package org.hisp.dhis.analytics.table.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hisp.dhis.analytics.AnalyticsTableMetric;
+import org.hisp.dhis.analytics.AnalyticsTableMetricStore;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
+import org.hisp.dhis.hibernate.HibernateGenericStore;
+
+public class HibernateAnalyticsTableMetricStore
+    extends HibernateGenericStore<AnalyticsTableMetric>
+    implements AnalyticsTableMetricStore
+{
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public List<AnalyticsTableMetric> getMetrics( String tableType, String tableName, AnalyticsTableStage stage, Date startDate, Date endDate, int max )
+    {
+        Criteria criteria = getCriteria();
+
+        if ( tableType != null )
+        {
+            criteria.add( Restrictions.eq( "tableType", tableType ) );
+        }
+
+        if ( tableName != null )
+        {
+            criteria.add( Restrictions.eq( "tableName", tableName ) );
+        }
+
+        if ( stage != null )
+        {
+            criteria.add( Restrictions.eq( "stage", stage ) );
+        }
+
+        if ( startDate != null )
+        {
+            criteria.add( Restrictions.ge( "started", startDate ) );
+        }
+
+        if ( endDate != null )
+        {
+            criteria.add( Restrictions.le( "started", endDate ) );
+        }
+
+        criteria.addOrder( Order.desc( "started" ) );
+        criteria.setMaxResults( max );
+
+        return criteria.list();
+    }
+
+    @Override
+    public int deleteMetrics( Date before )
+    {
+        String hql = "delete from AnalyticsTableMetric m where m.started < :before";
+
+        return getQuery( hql ).setParameter( "before", before ).executeUpdate();
+    }
+}
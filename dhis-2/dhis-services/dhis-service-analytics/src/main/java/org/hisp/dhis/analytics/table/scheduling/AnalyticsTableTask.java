@@ -51,6 +51,13 @@ public class AnalyticsTableTask
         this.lastYears = lastYears;
     }
 
+    private boolean incremental;
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
     private TaskId taskId;
 
     public void setTaskId( TaskId taskId )
@@ -65,6 +72,13 @@ public class AnalyticsTableTask
     @Override
     public void call()
     {
-        analyticsTableGenerator.generateTables( lastYears, taskId, new HashSet<>(), false );
+        if ( incremental )
+        {
+            analyticsTableGenerator.generateTablesIncrementally( taskId, new HashSet<>() );
+        }
+        else
+        {
+            analyticsTableGenerator.generateTables( lastYears, taskId, new HashSet<>(), false );
+        }
     }
 }
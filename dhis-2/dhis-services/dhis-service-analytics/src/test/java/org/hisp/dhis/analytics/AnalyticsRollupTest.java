@@ -0,0 +1,94 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsRollupTest
+{
+    @Test
+    public void testGetRollups()
+    {
+        List<AnalyticsRollup> rollups = AnalyticsRollup.getRollups( "Monthly:2; yearly:1:disaggregated;Weekly;Monthly:x;Monthly:2" );
+
+        assertEquals( 2, rollups.size() );
+        assertEquals( "monthly_2", rollups.get( 0 ).getName() );
+        assertEquals( "yearly_1_co", rollups.get( 1 ).getName() );
+        assertTrue( rollups.get( 1 ).isDisaggregated() );
+
+        assertTrue( AnalyticsRollup.getRollups( null ).isEmpty() );
+        assertTrue( AnalyticsRollup.getRollups( " " ).isEmpty() );
+    }
+
+    @Test
+    public void testGetPartitionName()
+    {
+        AnalyticsRollup rollup = new AnalyticsRollup( new MonthlyPeriodType(), 2, false );
+
+        assertEquals( "analytics_rollup_monthly_2", rollup.getTableBaseName( "analytics" ) );
+        assertEquals( "analytics_rollup_monthly_2_2017", rollup.getPartitionName( "analytics_2017" ) );
+    }
+
+    @Test
+    public void testGetColumns()
+    {
+        List<String> columns = new AnalyticsRollup( new MonthlyPeriodType(), 2, false ).getColumns();
+
+        assertTrue( columns.contains( "dx" ) );
+        assertTrue( columns.contains( "monthly" ) );
+        assertTrue( columns.contains( "quarterly" ) );
+        assertTrue( columns.contains( "yearly" ) );
+        assertTrue( columns.contains( "uidlevel1" ) );
+        assertTrue( columns.contains( "uidlevel2" ) );
+        assertTrue( columns.contains( "approvallevel" ) );
+        assertFalse( columns.contains( "weekly" ) );
+        assertFalse( columns.contains( "uidlevel3" ) );
+        assertFalse( columns.contains( "co" ) );
+    }
+
+    @Test
+    public void testSizeComparator()
+    {
+        List<AnalyticsRollup> rollups = AnalyticsRollup.getRollups( "Monthly:2:disaggregated;Monthly:3;Yearly:2;Monthly:2" );
+
+        rollups.sort( AnalyticsRollup.SIZE_COMPARATOR );
+
+        assertEquals( "yearly_2", rollups.get( 0 ).getName() );
+        assertEquals( "monthly_2", rollups.get( 1 ).getName() );
+        assertEquals( "monthly_3", rollups.get( 2 ).getName() );
+        assertEquals( "monthly_2_co", rollups.get( 3 ).getName() );
+    }
+}
@@ -368,4 +368,37 @@ public class DataQueryParamsTest
         assertEquals( q1_2016.getEndDate(), dqp2.getLatestEndDate() );
         assertEquals( q2_2016.getEndDate(), dqp3.getLatestEndDate() );
     }
+
+    @Test
+    public void testGetKey()
+    {
+        DataQueryParams paramsA = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( deA, deB ) )
+            .withPeriods( Lists.newArrayList( peA ) )
+            .withFilterOrganisationUnits( Lists.newArrayList( ouA, ouB ) )
+            .build();
+
+        DataQueryParams paramsB = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( deA, deB ) )
+            .withPeriods( Lists.newArrayList( peA ) )
+            .withFilterOrganisationUnits( Lists.newArrayList( ouB, ouA ) )
+            .build();
+
+        DataQueryParams paramsC = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( deA, deB ) )
+            .withPeriods( Lists.newArrayList( peA ) )
+            .withFilterOrganisationUnits( Lists.newArrayList( ouA ) )
+            .build();
+
+        DataQueryParams paramsD = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( deA, deB ) )
+            .withPeriods( Lists.newArrayList( peA ) )
+            .withFilterOrganisationUnits( Lists.newArrayList( ouA, ouB ) )
+            .withSkipMeta( true )
+            .build();
+
+        assertEquals( paramsA.getKey(), paramsB.getKey() );
+        assertNotEquals( paramsA.getKey(), paramsC.getKey() );
+        assertNotEquals( paramsA.getKey(), paramsD.getKey() );
+    }
 }
@@ -0,0 +1,317 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsCacheStatistics;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DefaultAnalyticsCache}.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class DefaultAnalyticsCacheTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    private DefaultAnalyticsCache analyticsCache;
+
+    private DataQueryParams paramsA;
+
+    private DataQueryParams paramsB;
+
+    @Before
+    public void setUp()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_CACHE_EXPIRATION ) ).thenReturn( 3600 );
+
+        analyticsCache = new DefaultAnalyticsCache( systemSettingManager, 1000 );
+
+        paramsA = DataQueryParams.newBuilder()
+            .withPeriods( Lists.newArrayList( createPeriod( "201701" ) ) )
+            .build();
+
+        paramsB = DataQueryParams.newBuilder()
+            .withPeriods( Lists.newArrayList( createPeriod( "201601" ) ) )
+            .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testGetGridHit()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Grid gridA = analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+        Grid gridB = analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+
+        assertEquals( 1, computed.get() );
+        assertEquals( 2, gridA.getHeight() );
+        assertEquals( gridA.getRows(), gridB.getRows() );
+
+        AnalyticsCacheStatistics statistics = analyticsCache.getStatistics();
+
+        assertEquals( 1, statistics.getHitCount() );
+        assertEquals( 1, statistics.getMissCount() );
+    }
+
+    @Test
+    public void testGetGridMiss()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+        analyticsCache.getGrid( paramsB, getGridSupplier( computed, 2 ) );
+
+        assertEquals( 2, computed.get() );
+        assertEquals( 2, analyticsCache.getStatistics().getMissCount() );
+    }
+
+    @Test
+    public void testGetGridReturnsCopy()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Grid gridA = analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+        gridA.addRow().addValue( "C" ).addValue( 3 );
+
+        Grid gridB = analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+
+        assertEquals( 2, gridB.getHeight() );
+    }
+
+    @Test
+    public void testGetValueMapHit()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Map<String, Object> mapA = analyticsCache.getValueMap( paramsA, "analytics", null, getValueMapSupplier( computed, 3 ) );
+        Map<String, Object> mapB = analyticsCache.getValueMap( paramsA, "analytics", null, getValueMapSupplier( computed, 3 ) );
+
+        assertEquals( 1, computed.get() );
+        assertEquals( mapA, mapB );
+
+        analyticsCache.getValueMap( paramsA, "analytics_event", null, getValueMapSupplier( computed, 3 ) );
+
+        assertEquals( 2, computed.get() );
+    }
+
+    @Test
+    public void testInvalidatePartitions()
+    {
+        AtomicInteger computedA = new AtomicInteger();
+        AtomicInteger computedB = new AtomicInteger();
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computedA, 2 ) );
+        analyticsCache.getGrid( paramsB, getGridSupplier( computedB, 2 ) );
+
+        analyticsCache.invalidatePartitions( Lists.newArrayList( "analytics_2017" ) );
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computedA, 2 ) );
+        analyticsCache.getGrid( paramsB, getGridSupplier( computedB, 2 ) );
+
+        assertEquals( 2, computedA.get() );
+        assertEquals( 1, computedB.get() );
+        assertEquals( 1, analyticsCache.getStatistics().getInvalidationCount() );
+    }
+
+    @Test
+    public void testInvalidatePartitionsWithoutYear()
+    {
+        AtomicInteger computedA = new AtomicInteger();
+        AtomicInteger computedB = new AtomicInteger();
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computedA, 2 ) );
+        analyticsCache.getGrid( paramsB, getGridSupplier( computedB, 2 ) );
+
+        analyticsCache.invalidatePartitions( Lists.newArrayList( "analytics" ) );
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computedA, 2 ) );
+        analyticsCache.getGrid( paramsB, getGridSupplier( computedB, 2 ) );
+
+        assertEquals( 2, computedA.get() );
+        assertEquals( 2, computedB.get() );
+    }
+
+    @Test
+    public void testInvalidatePartitionsDuringComputation()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Supplier<Grid> supplier = getGridSupplier( computed, 2 );
+
+        // Invalidation while the value is computed, e.g. from a table swap
+
+        analyticsCache.getGrid( paramsA, () -> {
+            Grid grid = supplier.get();
+            analyticsCache.invalidatePartitions( Lists.newArrayList( "analytics_2017" ) );
+            return grid;
+        } );
+
+        analyticsCache.getGrid( paramsA, supplier );
+
+        assertEquals( 2, computed.get() );
+
+        analyticsCache.getGrid( paramsA, supplier );
+
+        assertEquals( 2, computed.get() );
+    }
+
+    @Test
+    public void testInvalidateOtherPartitionsDuringComputation()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Supplier<Grid> supplier = getGridSupplier( computed, 2 );
+
+        analyticsCache.getGrid( paramsA, () -> {
+            Grid grid = supplier.get();
+            analyticsCache.invalidatePartitions( Lists.newArrayList( "analytics_2016" ) );
+            return grid;
+        } );
+
+        analyticsCache.getGrid( paramsA, supplier );
+
+        assertEquals( 1, computed.get() );
+    }
+
+    @Test
+    public void testInvalidateAllDuringComputation()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        Supplier<Map<String, Object>> supplier = getValueMapSupplier( computed, 2 );
+
+        analyticsCache.getValueMap( paramsA, "analytics", null, () -> {
+            Map<String, Object> map = supplier.get();
+            analyticsCache.invalidateAll();
+            return map;
+        } );
+
+        analyticsCache.getValueMap( paramsA, "analytics", null, supplier );
+
+        assertEquals( 2, computed.get() );
+    }
+
+    @Test
+    public void testWeight()
+    {
+        AtomicInteger computed = new AtomicInteger();
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computed, 3 ) );
+        analyticsCache.getValueMap( paramsA, "analytics", null, getValueMapSupplier( computed, 4 ) );
+
+        AnalyticsCacheStatistics statistics = analyticsCache.getStatistics();
+
+        assertEquals( 2, statistics.getSize() );
+        assertEquals( 3 * 2 + 4, statistics.getWeight() );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        assertTrue( analyticsCache.isEnabled() );
+
+        analyticsCache = new DefaultAnalyticsCache( systemSettingManager, 0 );
+
+        assertFalse( analyticsCache.isEnabled() );
+
+        AtomicInteger computed = new AtomicInteger();
+
+        analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+        analyticsCache.getGrid( paramsA, getGridSupplier( computed, 2 ) );
+
+        assertEquals( 2, computed.get() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Supplier<Grid> getGridSupplier( AtomicInteger computed, int height )
+    {
+        return () -> {
+            computed.incrementAndGet();
+
+            Grid grid = new ListGrid();
+            grid.addHeader( new GridHeader( "dx", "Data" ) );
+            grid.addHeader( new GridHeader( "value", "Value" ) );
+
+            for ( int i = 0; i < height; i++ )
+            {
+                grid.addRow().addValue( "dx" + i ).addValue( i );
+            }
+
+            return grid;
+        };
+    }
+
+    private Supplier<Map<String, Object>> getValueMapSupplier( AtomicInteger computed, int size )
+    {
+        return () -> {
+            computed.incrementAndGet();
+
+            Map<String, Object> map = new HashMap<>();
+
+            for ( int i = 0; i < size; i++ )
+            {
+                map.put( "key" + i, i );
+            }
+
+            return map;
+        };
+    }
+}
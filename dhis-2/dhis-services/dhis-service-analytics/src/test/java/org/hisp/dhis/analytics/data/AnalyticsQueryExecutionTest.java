@@ -0,0 +1,313 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.hisp.dhis.analytics.AnalyticsManager;
+import org.hisp.dhis.analytics.DataQueryGroups;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the execution of planned analytics queries on the analytics query
+ * executor against a stub analytics manager.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class AnalyticsQueryExecutionTest
+{
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Mock
+    private AnalyticsManager analyticsManager;
+
+    @Mock
+    private DataQueryGroups queryGroups;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @InjectMocks
+    private DefaultAnalyticsService analyticsService;
+
+    @InjectMocks
+    private AnalyticsQueryExecutorFactoryBean executorFactoryBean;
+
+    private final List<SettableListenableFuture<Map<String, Object>>> futures = Collections.synchronizedList( new ArrayList<>() );
+
+    @Before
+    public void setUp()
+    {
+        doAnswer( invocation -> {
+            SettableListenableFuture<Map<String, Object>> future = new SettableListenableFuture<>();
+            futures.add( future );
+            return future;
+        } ).when( analyticsManager ).getAggregatedDataValues( any( DataQueryParams.class ), anyInt() );
+    }
+
+    @Test
+    public void testQueriesInFlightPerRequest()
+        throws Exception
+    {
+        setQueryGroups( 3, 1 );
+
+        AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+
+        Thread request = start( () -> result.set( analyticsService.getAggregatedValueMap( queryGroups, 0, 2 ) ) );
+
+        await( () -> futures.size() == 2 );
+
+        Thread.sleep( 50 );
+
+        assertEquals( 2, futures.size() );
+
+        futures.get( 0 ).set( getValueMap( "a", 1d ) );
+
+        await( () -> futures.size() == 3 );
+
+        futures.get( 1 ).set( getValueMap( "b", 2d ) );
+
+        await( () -> futures.size() == 4 );
+
+        futures.get( 2 ).set( getValueMap( "c", 3d ) );
+        futures.get( 3 ).set( getValueMap( "d", 4d ) );
+
+        request.join( TIMEOUT_MILLIS );
+
+        assertEquals( ImmutableMap.of( "a", 1d, "b", 2d, "c", 3d, "d", 4d ), result.get() );
+    }
+
+    @Test
+    public void testMergeInGroupOrder()
+        throws Exception
+    {
+        setQueryGroups( 1, 1 );
+
+        AtomicReference<Map<String, Object>> result = new AtomicReference<>();
+
+        Thread request = start( () -> result.set( analyticsService.getAggregatedValueMap( queryGroups, 0, 4 ) ) );
+
+        await( () -> futures.size() == 2 );
+
+        futures.get( 1 ).set( getValueMap( "a", 2d ) );
+        futures.get( 0 ).set( getValueMap( "a", 1d, "b", 1d ) );
+
+        request.join( TIMEOUT_MILLIS );
+
+        assertEquals( ImmutableMap.of( "a", 2d, "b", 1d ), result.get() );
+    }
+
+    @Test
+    public void testFailureCancelsQueries()
+        throws Exception
+    {
+        setQueryGroups( 3 );
+
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Thread request = start( () -> {
+            try
+            {
+                analyticsService.getAggregatedValueMap( queryGroups, 0, 3 );
+            }
+            catch ( RuntimeException ex )
+            {
+                failure.set( ex );
+            }
+        } );
+
+        await( () -> futures.size() == 3 );
+
+        futures.get( 0 ).setException( new IllegalStateException( "Query failed" ) );
+
+        request.join( TIMEOUT_MILLIS );
+
+        assertTrue( failure.get() != null );
+        assertTrue( futures.get( 1 ).isCancelled() );
+        assertTrue( futures.get( 2 ).isCancelled() );
+    }
+
+    @Test
+    public void testInterruptCancelsQueries()
+        throws Exception
+    {
+        setQueryGroups( 2 );
+
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Thread request = start( () -> {
+            try
+            {
+                analyticsService.getAggregatedValueMap( queryGroups, 0, 1 );
+            }
+            catch ( RuntimeException ex )
+            {
+                failure.set( ex );
+            }
+        } );
+
+        await( () -> futures.size() == 1 );
+
+        request.interrupt();
+        request.join( TIMEOUT_MILLIS );
+
+        assertTrue( failure.get() != null );
+        assertTrue( futures.get( 0 ).isCancelled() );
+        assertEquals( 1, futures.size() );
+    }
+
+    @Test
+    public void testExecutorThreads()
+    {
+        when( configurationProvider.getProperty( ConfigurationKey.ANALYTICS_QUERY_THREADS ) ).thenReturn( "3" );
+
+        ExecutorService executor = executorFactoryBean.getObject();
+
+        assertEquals( 3, ( (ThreadPoolExecutor) executor ).getMaximumPoolSize() );
+        assertTrue( executor == executorFactoryBean.getObject() );
+
+        executorFactoryBean.destroy();
+
+        assertTrue( executor.isShutdown() );
+    }
+
+    @Test
+    public void testCancelStatement()
+        throws Exception
+    {
+        Statement statement = mock( Statement.class );
+
+        CancellableStatement cancellable = new CancellableStatement();
+        cancellable.set( statement );
+        cancellable.cancel();
+
+        verify( statement ).cancel();
+        assertTrue( cancellable.isCancelled() );
+
+        try
+        {
+            cancellable.set( mock( Statement.class ) );
+            fail( "Statement set after cancellation" );
+        }
+        catch ( SQLException ex )
+        {
+            // Expected
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void setQueryGroups( int... groupSizes )
+    {
+        List<List<DataQueryParams>> groups = new ArrayList<>();
+
+        for ( int size : groupSizes )
+        {
+            List<DataQueryParams> group = Lists.newArrayList();
+
+            for ( int i = 0; i < size; i++ )
+            {
+                group.add( DataQueryParams.newBuilder().build() );
+            }
+
+            groups.add( group );
+        }
+
+        when( queryGroups.getSequentialQueries() ).thenReturn( groups );
+    }
+
+    private Map<String, Object> getValueMap( Object... keysAndValues )
+    {
+        Map<String, Object> map = new HashMap<>();
+
+        for ( int i = 0; i < keysAndValues.length; i += 2 )
+        {
+            map.put( (String) keysAndValues[i], keysAndValues[i + 1] );
+        }
+
+        return map;
+    }
+
+    private Thread start( Runnable runnable )
+    {
+        Thread thread = new Thread( runnable );
+        thread.start();
+        return thread;
+    }
+
+    private void await( BooleanSupplier condition )
+        throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while ( !condition.getAsBoolean() )
+        {
+            if ( System.currentTimeMillis() > deadline )
+            {
+                fail( "Condition not met in time" );
+            }
+
+            Thread.sleep( 5 );
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests reading of aggregated analytics values against a stub connection.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class JdbcAnalyticsManagerTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private StatementBuilder statementBuilder;
+
+    @Mock
+    private ExecutorService executor;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @InjectMocks
+    private JdbcAnalyticsManager analyticsManager;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    private OrganisationUnit ouA;
+
+    private DataQueryParams params;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+        ouA = createOrganisationUnit( 'A' );
+
+        params = DataQueryParams.newBuilder()
+            .withDataElements( getList( deA, deB ) )
+            .withPeriods( getList( createPeriod( "2017" ) ) )
+            .withOrganisationUnits( getList( ouA ) )
+            .withPartitions( new Partitions( Lists.newArrayList( "analytics_2017" ) ) )
+            .withAggregationType( AggregationType.SUM ).build();
+
+        when( statementBuilder.columnQuote( anyString() ) ).then( invocation -> "\"" + invocation.getArguments()[0] + "\"" );
+
+        doAnswer( invocation -> {
+            ( (Runnable) invocation.getArguments()[0] ).run();
+            return null;
+        } ).when( executor ).execute( any( Runnable.class ) );
+
+        doAnswer( invocation -> ( (ConnectionCallback<?>) invocation.getArguments()[0] ).doInConnection( connection ) )
+            .when( jdbcTemplate ).execute( any( ConnectionCallback.class ) );
+
+        when( connection.getAutoCommit() ).thenReturn( true );
+        when( connection.prepareStatement( anyString(), eq( ResultSet.TYPE_FORWARD_ONLY ), eq( ResultSet.CONCUR_READ_ONLY ) ) ).thenReturn( statement );
+        when( statement.executeQuery() ).thenReturn( resultSet );
+
+        when( resultSet.findColumn( "dx" ) ).thenReturn( 1 );
+        when( resultSet.findColumn( "pe" ) ).thenReturn( 2 );
+        when( resultSet.findColumn( "ou" ) ).thenReturn( 3 );
+        when( resultSet.findColumn( "value" ) ).thenReturn( 4 );
+
+        when( resultSet.getString( 1 ) ).thenReturn( deA.getUid(), deB.getUid(), deA.getUid() );
+        when( resultSet.getString( 2 ) ).thenReturn( "2017" );
+        when( resultSet.getString( 3 ) ).thenReturn( ouA.getUid() );
+        when( resultSet.getDouble( 4 ) ).thenReturn( 3d, 5d, 7d );
+    }
+
+    @Test
+    public void testGetAggregatedDataValues()
+        throws Exception
+    {
+        when( resultSet.next() ).thenReturn( true, true, false );
+
+        Map<String, Object> map = analyticsManager.getAggregatedDataValues( params, 0 ).get();
+
+        assertEquals( ImmutableMap.of(
+            deA.getUid() + "-2017-" + ouA.getUid(), 3d,
+            deB.getUid() + "-2017-" + ouA.getUid(), 5d ), map );
+
+        InOrder order = inOrder( connection, statement );
+        order.verify( connection ).setAutoCommit( false );
+        order.verify( statement ).setFetchSize( 10000 );
+        order.verify( statement ).executeQuery();
+        order.verify( statement ).close();
+        order.verify( connection ).rollback();
+        order.verify( connection ).setAutoCommit( true );
+    }
+
+    @Test
+    public void testGetAggregatedDataValuesWithoutAutoCommit()
+        throws Exception
+    {
+        when( connection.getAutoCommit() ).thenReturn( false );
+        when( resultSet.next() ).thenReturn( true, false );
+
+        Map<String, Object> map = analyticsManager.getAggregatedDataValues( params, 0 ).get();
+
+        assertEquals( 1, map.size() );
+
+        verify( connection, never() ).setAutoCommit( anyBoolean() );
+        verify( connection, never() ).rollback();
+    }
+
+    @Test
+    public void testGetAggregatedDataValuesExceedsMaxLimit()
+        throws Exception
+    {
+        when( resultSet.next() ).thenReturn( true, true, true, false );
+
+        try
+        {
+            analyticsManager.getAggregatedDataValues( params, 2 ).get();
+            fail( "Max limit was not enforced" );
+        }
+        catch ( ExecutionException ex )
+        {
+            assertTrue( ex.getCause() instanceof IllegalQueryException );
+        }
+
+        verify( resultSet ).close();
+        verify( connection ).rollback();
+        verify( connection ).setAutoCommit( true );
+    }
+}
@@ -0,0 +1,97 @@
+package org.hisp.dhis.analytics.event;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.junit.Test;
+
+public class EventClusterPyramidTest
+    extends DhisConvenienceTest
+{
+    private static final double DELTA = 0.01;
+
+    @Test
+    public void testGetLevel()
+    {
+        assertEquals( Integer.valueOf( 0 ), EventClusterPyramid.getLevel( 1000000 ) );
+        assertEquals( Integer.valueOf( 3 ), EventClusterPyramid.getLevel( 100000 ) );
+        assertEquals( Integer.valueOf( EventClusterPyramid.MAX_LEVEL ), EventClusterPyramid.getLevel( 2500 ) );
+        assertNull( EventClusterPyramid.getLevel( 2000 ) );
+    }
+
+    @Test
+    public void testGetCellSize()
+    {
+        assertEquals( 156543.03, EventClusterPyramid.getCellSize( 0 ), DELTA );
+        assertEquals( 78271.52, EventClusterPyramid.getCellSize( 1 ), DELTA );
+    }
+
+    @Test
+    public void testGetTableName()
+    {
+        assertEquals( "analytics_event_rollup_cluster_2017_ebayegv0exc", EventClusterPyramid.getTableName( "analytics_event_2017_ebayegv0exc" ) );
+    }
+
+    @Test
+    public void testGetMercatorCoordinates()
+    {
+        assertEquals( 0d, EventClusterPyramid.getX( 0 ), DELTA );
+        assertEquals( 0d, EventClusterPyramid.getY( 0 ), DELTA );
+        assertEquals( 20037508.34, EventClusterPyramid.getX( 180 ), DELTA );
+        assertEquals( 20037508.34, EventClusterPyramid.getY( 90 ), DELTA );
+        assertEquals( -1, EventClusterPyramid.getCell( EventClusterPyramid.getX( -0.001 ), 0 ) );
+    }
+
+    @Test
+    public void testGetBbox()
+    {
+        double[] bbox = EventClusterPyramid.getBbox( "-13.2, 7.1,-10.3,9.9" );
+
+        assertEquals( 4, bbox.length );
+        assertEquals( -13.2, bbox[0], DELTA );
+        assertEquals( 9.9, bbox[3], DELTA );
+        assertNull( EventClusterPyramid.getBbox( "-13.2,7.1,-10.3" ) );
+        assertNull( EventClusterPyramid.getBbox( "-13.2,7.1,-10.3,x" ) );
+    }
+
+    @Test
+    public void testIsMonthAligned()
+    {
+        assertTrue( EventClusterPyramid.isMonthAligned( getDate( 2017, 1, 1 ), getDate( 2017, 3, 31 ) ) );
+        assertTrue( EventClusterPyramid.isMonthAligned( getDate( 2017, 2, 1 ), getDate( 2017, 2, 28 ) ) );
+        assertFalse( EventClusterPyramid.isMonthAligned( getDate( 2017, 1, 2 ), getDate( 2017, 3, 31 ) ) );
+        assertFalse( EventClusterPyramid.isMonthAligned( getDate( 2017, 1, 1 ), getDate( 2017, 3, 30 ) ) );
+        assertFalse( EventClusterPyramid.isMonthAligned( null, getDate( 2017, 3, 31 ) ) );
+    }
+}
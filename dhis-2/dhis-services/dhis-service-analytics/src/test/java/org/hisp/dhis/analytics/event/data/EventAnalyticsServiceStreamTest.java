@@ -0,0 +1,125 @@
+package org.hisp.dhis.analytics.event.data;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.analytics.AnalyticsSecurityManager;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.event.EventAnalyticsManager;
+import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.event.EventQueryPlanner;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.GridStreamWriter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.dao.QueryTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that streamed events complete the output on success and abort the
+ * output on failure.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class EventAnalyticsServiceStreamTest
+{
+    @Mock
+    private EventAnalyticsManager eventAnalyticsManager;
+
+    @Mock
+    private AnalyticsSecurityManager securityManager;
+
+    @Mock
+    private EventQueryPlanner queryPlanner;
+
+    @Mock
+    private GridStreamWriter writer;
+
+    @InjectMocks
+    private DefaultEventAnalyticsService eventAnalyticsService;
+
+    private EventQueryParams params;
+
+    @Before
+    public void setUp()
+    {
+        params = new EventQueryParams.Builder()
+            .withSkipMeta( true )
+            .build();
+
+        EventQueryParams plannedParams = new EventQueryParams.Builder( params )
+            .withPartitions( new Partitions( Lists.newArrayList( "analytics_event_2017_prabcdefgha" ) ) )
+            .build();
+
+        when( queryPlanner.planEventQuery( any( EventQueryParams.class ) ) ).thenReturn( plannedParams );
+    }
+
+    @Test
+    public void testStreamEvents()
+    {
+        when( eventAnalyticsManager.streamEvents( any( EventQueryParams.class ), any( Grid.class ), eq( writer ) ) ).thenReturn( 2L );
+
+        assertEquals( 2L, eventAnalyticsService.streamEvents( params, writer ) );
+
+        verify( writer ).writeHeaders( any( Grid.class ) );
+        verify( writer ).close();
+        verify( writer, never() ).abort();
+    }
+
+    @Test
+    public void testStreamEventsQueryFailure()
+    {
+        when( eventAnalyticsManager.streamEvents( any( EventQueryParams.class ), any( Grid.class ), eq( writer ) ) )
+            .thenThrow( new QueryTimeoutException( "Query timed out" ) );
+
+        try
+        {
+            eventAnalyticsService.streamEvents( params, writer );
+            fail( "Expected the query failure to be thrown" );
+        }
+        catch ( QueryTimeoutException ex )
+        {
+            // Expected
+        }
+
+        verify( writer ).abort();
+        verify( writer, never() ).close();
+    }
+}
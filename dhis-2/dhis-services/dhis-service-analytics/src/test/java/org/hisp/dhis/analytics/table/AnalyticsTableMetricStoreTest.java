@@ -0,0 +1,97 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.analytics.AnalyticsTableMetric;
+import org.hisp.dhis.analytics.AnalyticsTableMetricStore;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class AnalyticsTableMetricStoreTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private AnalyticsTableMetricStore metricStore;
+
+    private AnalyticsTableMetric mA;
+    private AnalyticsTableMetric mB;
+    private AnalyticsTableMetric mC;
+    private AnalyticsTableMetric mD;
+
+    @Override
+    public void setUpTest()
+    {
+        mA = new AnalyticsTableMetric( "analytics", "analytics_2016", AnalyticsTableStage.POPULATE, "[NUMBER]", getDate( 2017, 3, 1 ), 1200, 5000 );
+        mB = new AnalyticsTableMetric( "analytics", "analytics_2016", AnalyticsTableStage.INDEX, "\"dx\"", getDate( 2017, 3, 1 ), 300, null );
+        mC = new AnalyticsTableMetric( "analytics", "analytics_2016", AnalyticsTableStage.POPULATE, "[NUMBER]", getDate( 2017, 3, 2 ), 1400, 5100 );
+        mD = new AnalyticsTableMetric( "analytics_event", "analytics_event_2016_ebayegv0exc", AnalyticsTableStage.POPULATE, null, getDate( 2017, 3, 2 ), 800, 2000 );
+
+        metricStore.save( mA );
+        metricStore.save( mB );
+        metricStore.save( mC );
+        metricStore.save( mD );
+    }
+
+    @Test
+    public void testGetMetrics()
+    {
+        assertEquals( 4, metricStore.getMetrics( null, null, null, null, null, 100 ).size() );
+        assertEquals( 3, metricStore.getMetrics( "analytics", null, null, null, null, 100 ).size() );
+        assertEquals( 1, metricStore.getMetrics( null, null, AnalyticsTableStage.INDEX, null, null, 100 ).size() );
+        assertEquals( 2, metricStore.getMetrics( null, null, null, getDate( 2017, 3, 2 ), null, 100 ).size() );
+        assertEquals( 1, metricStore.getMetrics( null, null, null, null, null, 1 ).size() );
+
+        List<AnalyticsTableMetric> metrics = metricStore.getMetrics( null, "analytics_2016", AnalyticsTableStage.POPULATE, null, null, 100 );
+
+        assertEquals( 2, metrics.size() );
+        assertEquals( mC, metrics.get( 0 ) );
+        assertEquals( mA, metrics.get( 1 ) );
+        assertEquals( Integer.valueOf( 5100 ), metrics.get( 0 ).getRows() );
+    }
+
+    @Test
+    public void testDeleteMetrics()
+    {
+        assertEquals( 2, metricStore.deleteMetrics( getDate( 2017, 3, 2 ) ) );
+
+        List<AnalyticsTableMetric> metrics = metricStore.getMetrics( null, null, null, null, null, 100 );
+
+        assertEquals( 2, metrics.size() );
+        assertTrue( metrics.contains( mC ) );
+        assertTrue( metrics.contains( mD ) );
+    }
+}
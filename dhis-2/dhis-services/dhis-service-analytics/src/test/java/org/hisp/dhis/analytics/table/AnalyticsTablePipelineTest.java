@@ -0,0 +1,361 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hisp.dhis.analytics.AnalyticsIndex;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.table.AnalyticsTablePipeline.Stage;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the analytics table pipeline against stub stages of a table manager.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class AnalyticsTablePipelineTest
+{
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Mock
+    private AnalyticsTableManager tableManager;
+
+    @Mock
+    private AnalyticsTableMetricService metricService;
+
+    @Mock
+    private Notifier notifier;
+
+    private final List<String> events = Collections.synchronizedList( new ArrayList<>() );
+
+    private final Map<String, AtomicInteger> running = new HashMap<>();
+
+    private final Map<String, AtomicInteger> maxRunning = new HashMap<>();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp()
+    {
+        for ( String stage : Lists.newArrayList( "populate", "levels", "index", "analyze" ) )
+        {
+            running.put( stage, new AtomicInteger() );
+            maxRunning.put( stage, new AtomicInteger() );
+        }
+
+        when( tableManager.getAnalyticsTableType() ).thenReturn( AnalyticsTableType.DATA_VALUE );
+
+        doAnswer( invocation -> {
+            runStage( "populate", ( (AnalyticsTable) invocation.getArguments()[0] ).getTableName() );
+            return null;
+        } ).when( tableManager ).populateTable( any( AnalyticsTable.class ) );
+
+        doAnswer( invocation -> {
+            runStage( "levels", ( (AnalyticsTable) invocation.getArguments()[0] ).getTableName() );
+            return null;
+        } ).when( tableManager ).applyAggregationLevels( any( AnalyticsTable.class ), anyCollection(), anyInt() );
+
+        doAnswer( invocation -> {
+            AnalyticsIndex index = (AnalyticsIndex) invocation.getArguments()[0];
+            runStage( "index", index.getTable() + ":" + index.getColumn() );
+            return null;
+        } ).when( tableManager ).createIndex( any( AnalyticsIndex.class ) );
+
+        doAnswer( invocation -> {
+            runStage( "analyze", (String) invocation.getArguments()[0] );
+            return null;
+        } ).when( tableManager ).analyzeTable( anyString() );
+
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStageOrder()
+        throws Exception
+    {
+        List<AnalyticsTable> tables = getTables( 4 );
+
+        AnalyticsTablePipeline pipeline = getPipeline( tables, ImmutableMap.of( 1, Lists.newArrayList( "deabcdefghA" ) ),
+            ImmutableMap.of( Stage.POPULATE, 2, Stage.INDEX, 2 ) );
+
+        awaitAll( startWorkers( pipeline, 3 ) );
+
+        assertEquals( 4 * 5, events.size() );
+
+        for ( AnalyticsTable table : tables )
+        {
+            int populate = events.indexOf( "populate " + table.getTableName() );
+            int levels = events.indexOf( "levels " + table.getTableName() );
+            int indexA = events.indexOf( "index " + table.getTempTableName() + ":colA" );
+            int indexB = events.indexOf( "index " + table.getTempTableName() + ":colB" );
+            int analyze = events.indexOf( "analyze " + table.getTempTableName() );
+
+            assertTrue( populate >= 0 );
+            assertTrue( populate < levels );
+            assertTrue( levels < indexA && levels < indexB );
+            assertTrue( indexA < analyze && indexB < analyze );
+        }
+
+        verify( notifier, times( 4 ) ).notify( any(), anyString() );
+    }
+
+    @Test
+    public void testStageWithoutAggregationLevels()
+        throws Exception
+    {
+        List<AnalyticsTable> tables = getTables( 2 );
+
+        awaitAll( startWorkers( getPipeline( tables, new HashMap<>(), new HashMap<>() ), 2 ) );
+
+        assertEquals( 2 * 4, events.size() );
+        verify( tableManager, never() ).applyAggregationLevels( any( AnalyticsTable.class ), anyCollection(), anyInt() );
+        verify( tableManager, never() ).vacuumTable( any( AnalyticsTable.class ) );
+    }
+
+    @Test
+    public void testStagePermits()
+        throws Exception
+    {
+        List<AnalyticsTable> tables = getTables( 6 );
+
+        AnalyticsTablePipeline pipeline = getPipeline( tables, ImmutableMap.of( 1, Lists.newArrayList( "deabcdefghA" ) ),
+            ImmutableMap.of( Stage.POPULATE, 1, Stage.AGGREGATION_LEVELS, 1, Stage.INDEX, 2, Stage.ANALYZE, 1 ) );
+
+        awaitAll( startWorkers( pipeline, 6 ) );
+
+        assertEquals( 6 * 5, events.size() );
+        assertEquals( 1, maxRunning.get( "populate" ).get() );
+        assertEquals( 1, maxRunning.get( "levels" ).get() );
+        assertTrue( maxRunning.get( "index" ).get() <= 2 );
+        assertEquals( 1, maxRunning.get( "analyze" ).get() );
+    }
+
+    @Test
+    public void testFailure()
+        throws Exception
+    {
+        List<AnalyticsTable> tables = getTables( 4 );
+
+        RuntimeException failure = new IllegalStateException( "Populate failed" );
+
+        doThrow( failure ).when( tableManager ).populateTable( tables.get( 1 ) );
+
+        AnalyticsTablePipeline pipeline = getPipeline( tables, new HashMap<>(), ImmutableMap.of( Stage.POPULATE, 1 ) );
+
+        for ( Future<?> future : startWorkers( pipeline, 3 ) )
+        {
+            try
+            {
+                future.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+                fail( "Worker did not propagate failure" );
+            }
+            catch ( ExecutionException ex )
+            {
+                assertSame( failure, ex.getCause() );
+            }
+        }
+
+        assertTrue( events.stream().noneMatch( event -> event.startsWith( "analyze " + tables.get( 1 ).getTempTableName() ) ) );
+    }
+
+    @Test
+    public void testCancellation()
+        throws Exception
+    {
+        List<AnalyticsTable> tables = getTables( 2 );
+
+        CountDownLatch populating = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        doAnswer( invocation -> {
+            populating.countDown();
+            release.await();
+            return null;
+        } ).when( tableManager ).populateTable( tables.get( 0 ) );
+
+        AnalyticsTablePipeline pipeline = getPipeline( tables, new HashMap<>(), ImmutableMap.of( Stage.POPULATE, 1 ) );
+
+        Future<?> busyWorker = executor.submit( pipeline::work );
+
+        assertTrue( populating.await( TIMEOUT_SECONDS, TimeUnit.SECONDS ) );
+
+        AtomicReference<RuntimeException> waitingFailure = new AtomicReference<>();
+
+        Thread waitingWorker = new Thread( () -> {
+            try
+            {
+                pipeline.work();
+            }
+            catch ( RuntimeException ex )
+            {
+                waitingFailure.set( ex );
+            }
+        } );
+
+        waitingWorker.start();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( TIMEOUT_SECONDS );
+
+        while ( waitingWorker.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 5 );
+        }
+
+        assertEquals( Thread.State.WAITING, waitingWorker.getState() );
+
+        waitingWorker.interrupt();
+        waitingWorker.join( TimeUnit.SECONDS.toMillis( TIMEOUT_SECONDS ) );
+
+        assertTrue( waitingFailure.get().getMessage().contains( "interrupted" ) );
+
+        release.countDown();
+
+        try
+        {
+            busyWorker.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+            fail( "Busy worker did not stop on cancellation" );
+        }
+        catch ( ExecutionException ex )
+        {
+            assertSame( waitingFailure.get(), ex.getCause() );
+        }
+
+        verify( tableManager, never() ).analyzeTable( anyString() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<AnalyticsTable> getTables( int count )
+    {
+        List<AnalyticsTable> tables = new ArrayList<>();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            List<AnalyticsTableColumn> columns = Lists.newArrayList(
+                new AnalyticsTableColumn( "colA", "character(11)", "colA" ),
+                new AnalyticsTableColumn( "colB", "character(11)", "colB" ),
+                new AnalyticsTableColumn( "colC", "double precision", "colC", true ) );
+
+            tables.add( new AnalyticsTable( "analytics_" + i, columns ) );
+        }
+
+        return tables;
+    }
+
+    private AnalyticsTablePipeline getPipeline( List<AnalyticsTable> tables, Map<Integer, Collection<String>> aggregationLevels,
+        Map<Stage, Integer> stagePermits )
+    {
+        return new AnalyticsTablePipeline( tableManager, tables, aggregationLevels, stagePermits, metricService, notifier, null );
+    }
+
+    private List<Future<?>> startWorkers( AnalyticsTablePipeline pipeline, int workers )
+    {
+        List<Future<?>> futures = new ArrayList<>();
+
+        for ( int i = 0; i < workers; i++ )
+        {
+            futures.add( executor.submit( pipeline::work ) );
+        }
+
+        return futures;
+    }
+
+    private void awaitAll( List<Future<?>> futures )
+        throws Exception
+    {
+        for ( Future<?> future : futures )
+        {
+            future.get( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+    }
+
+    private void runStage( String stage, String name )
+        throws InterruptedException
+    {
+        int current = running.get( stage ).incrementAndGet();
+
+        maxRunning.get( stage ).accumulateAndGet( current, Math::max );
+
+        Thread.sleep( 5 );
+
+        events.add( stage + " " + name );
+
+        running.get( stage ).decrementAndGet();
+    }
+}
@@ -0,0 +1,194 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsCache;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.notification.Notifier;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.scheduling.annotation.AsyncResult;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the incremental update of analytics tables against a stub table
+ * manager.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class DefaultAnalyticsTableServiceTest
+{
+    @Mock
+    private AnalyticsTableManager tableManager;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private DataElementService dataElementService;
+
+    @Mock
+    private ResourceTableService resourceTableService;
+
+    @Mock
+    private PartitionManager partitionManager;
+
+    @Mock
+    private AnalyticsCache analyticsCache;
+
+    @Mock
+    private AnalyticsTableMetricService metricService;
+
+    @Mock
+    private Notifier notifier;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @InjectMocks
+    private DefaultAnalyticsTableService service;
+
+    private Date lastUpdated;
+
+    private AnalyticsTable tableA;
+
+    private AnalyticsTable tableB;
+
+    @Before
+    public void setUp()
+    {
+        service.setTableManager( tableManager );
+
+        lastUpdated = new DateTime( 2017, 6, 1, 0, 0 ).toDate();
+
+        Period periodA = new YearlyPeriodType().createPeriod( new DateTime( 2016, 1, 1, 0, 0 ).toDate() );
+        Period periodB = new YearlyPeriodType().createPeriod( new DateTime( 2017, 1, 1, 0, 0 ).toDate() );
+
+        tableA = new AnalyticsTable( "analytics", Lists.newArrayList(), periodA );
+        tableB = new AnalyticsTable( "analytics", Lists.newArrayList(), periodB );
+
+        when( tableManager.getAnalyticsTableType() ).thenReturn( AnalyticsTableType.DATA_VALUE );
+        when( tableManager.supportsIncrementalUpdate() ).thenReturn( true );
+        when( tableManager.isIncrementalUpdatePossible( lastUpdated ) ).thenReturn( true );
+        doReturn( new AsyncResult<>( null ) ).when( tableManager ).populateTablesIncrementallyAsync( any(), eq( lastUpdated ) );
+        when( systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS ) ).thenReturn( 2 );
+    }
+
+    @Test
+    public void testUpdateIncrementally()
+    {
+        when( tableManager.getIncrementalTables( lastUpdated ) ).thenReturn( Lists.newArrayList( tableA, tableB ) );
+        when( tableManager.getExistingDatabaseTables() ).thenReturn( Sets.newHashSet( "analytics_2016", "analytics_2017" ) );
+
+        assertTrue( service.updateIncrementally( lastUpdated, null ) );
+
+        verify( tableManager ).createTable( tableA );
+        verify( tableManager ).createTable( tableB );
+        verify( tableManager ).mergeTable( tableA, lastUpdated );
+        verify( tableManager ).mergeTable( tableB, lastUpdated );
+        verify( analyticsCache ).invalidatePartitions( Lists.newArrayList( "analytics_2016", "analytics_2017" ) );
+    }
+
+    @Test
+    public void testUpdateIncrementallyNoChanges()
+    {
+        when( tableManager.getIncrementalTables( lastUpdated ) ).thenReturn( Lists.newArrayList() );
+
+        assertTrue( service.updateIncrementally( lastUpdated, null ) );
+
+        verify( tableManager, never() ).createTable( any() );
+        verify( tableManager, never() ).mergeTable( any(), any() );
+        verify( analyticsCache, never() ).invalidatePartitions( anyListOf( String.class ) );
+    }
+
+    @Test
+    public void testUpdateIncrementallyNotSupported()
+    {
+        when( tableManager.supportsIncrementalUpdate() ).thenReturn( false );
+
+        assertFalse( service.updateIncrementally( lastUpdated, null ) );
+
+        verify( tableManager, never() ).getIncrementalTables( any() );
+        verify( tableManager, never() ).mergeTable( any(), any() );
+    }
+
+    @Test
+    public void testUpdateIncrementallyNotPossible()
+    {
+        when( tableManager.isIncrementalUpdatePossible( lastUpdated ) ).thenReturn( false );
+
+        assertFalse( service.updateIncrementally( lastUpdated, null ) );
+
+        verify( tableManager, never() ).getIncrementalTables( any() );
+    }
+
+    @Test
+    public void testUpdateIncrementallyMissingPartition()
+    {
+        List<AnalyticsTable> tables = Lists.newArrayList( tableA, tableB );
+
+        when( tableManager.getIncrementalTables( lastUpdated ) ).thenReturn( tables );
+        when( tableManager.getExistingDatabaseTables() ).thenReturn( Sets.newHashSet( "analytics_2016" ) );
+
+        assertFalse( service.updateIncrementally( lastUpdated, null ) );
+
+        verify( tableManager, never() ).createTable( any() );
+        verify( tableManager, never() ).mergeTable( any(), any() );
+    }
+}
@@ -32,8 +32,8 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
@@ -48,11 +48,13 @@ import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.jdbc.batchhandler.MinMaxDataElementBatchHandler;
 import org.hisp.dhis.minmax.MinMaxDataElement;
 import org.hisp.dhis.minmax.MinMaxDataElementService;
+import org.hisp.dhis.minmax.MinMaxStatistics;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.system.filter.DataElementValueTypesFilter;
 import org.hisp.dhis.system.util.MathUtils;
-import org.joda.time.DateTime;
+
+import com.google.common.collect.Lists;
 
 /**
  * @author Lars Helge Overland
@@ -64,6 +66,8 @@ public class MinMaxOutlierAnalysisService
 
     private static final Filter<DataElement> DE_NUMERIC_FILTER = new DataElementValueTypesFilter( ValueType.NUMERIC_TYPES );
 
+    private static final int DATA_ELEMENT_PAGE_SIZE = 100;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -119,57 +123,50 @@ public class MinMaxOutlierAnalysisService
     {
         log.info( "Starting min-max value generation, no of data elements: " + dataElements.size() + ", no of org units: " + parents.size() );
 
-        //Set<Integer> orgUnitIds = new HashSet<>( IdentifiableObjectUtils.getIdentifiers( organisationUnits ) );
-
-        Date from = new DateTime( 1, 1, 1, 1, 1 ).toDate();
-
         minMaxDataElementService.removeMinMaxDataElements( dataElements, parents );
 
         log.debug( "Deleted existing min-max values" );
 
         BatchHandler<MinMaxDataElement> batchHandler = batchHandlerFactory.createBatchHandler( MinMaxDataElementBatchHandler.class ).init();
 
-        for ( DataElement dataElement : dataElements )
+        List<DataElement> numericDataElements = dataElements.stream()
+            .filter( dataElement -> dataElement.getValueType().isNumeric() )
+            .collect( Collectors.toList() );
+
+        for ( List<DataElement> dataElementPage : Lists.partition( numericDataElements, DATA_ELEMENT_PAGE_SIZE ) )
         {
-            ValueType valueType = dataElement.getValueType();
+            List<MinMaxStatistics> statisticsList = minMaxDataElementService.getMinMaxStatistics( dataElementPage, parents );
 
-            if ( valueType.isNumeric() )
+            for ( MinMaxStatistics statistics : statisticsList )
             {
-                Collection<DataElementCategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
+                DataElement dataElement = statistics.getDataElement();
+                DataElementCategoryOptionCombo categoryOptionCombo = statistics.getOptionCombo();
+                ValueType valueType = dataElement.getValueType();
 
-                for ( DataElementCategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
+                if ( statistics.getValueCount() <= 0 || !dataElement.getCategoryOptionCombos().contains( categoryOptionCombo ) )
                 {
-                    Map<Integer, Double> standardDeviations = dataAnalysisStore.getStandardDeviation( dataElement, categoryOptionCombo, parents, from );
-
-                    Map<Integer, Double> averages = dataAnalysisStore.getAverage( dataElement, categoryOptionCombo, parents, from );
-
-                    for ( Integer unit : averages.keySet() )
-                    {
-                        Double stdDev = standardDeviations.get( unit );
-                        Double avg = averages.get( unit );
-
-                        if ( stdDev != null && avg != null )
-                        {
-                            int min = (int) MathUtils.getLowBound( stdDev, stdDevFactor, avg );
-                            int max = (int) MathUtils.getHighBound( stdDev, stdDevFactor, avg );
+                    continue;
+                }
 
-                            if ( ValueType.INTEGER_POSITIVE == valueType || ValueType.INTEGER_ZERO_OR_POSITIVE == valueType )
-                            {
-                                min = Math.max( 0, min ); // Cannot be < 0
-                            }
+                if ( MathUtils.isZero( statistics.getStandardDeviation() ) )
+                {
+                    continue; // No bounds for values which never vary
+                }
 
-                            if ( ValueType.INTEGER_NEGATIVE == valueType )
-                            {
-                                max = Math.min( 0, max ); // Cannot be > 0
-                            }
+                int min = statistics.getLowBound( stdDevFactor );
+                int max = statistics.getHighBound( stdDevFactor );
 
-                            OrganisationUnit source = new OrganisationUnit();
-                            source.setId( unit );
+                if ( ValueType.INTEGER_POSITIVE == valueType || ValueType.INTEGER_ZERO_OR_POSITIVE == valueType )
+                {
+                    min = Math.max( 0, min ); // Cannot be < 0
+                }
 
-                            batchHandler.addObject( new MinMaxDataElement( source, dataElement, categoryOptionCombo, min, max, true ) );
-                        }
-                    }
+                if ( ValueType.INTEGER_NEGATIVE == valueType )
+                {
+                    max = Math.min( 0, max ); // Cannot be > 0
                 }
+
+                batchHandler.addObject( new MinMaxDataElement( statistics.getSource(), dataElement, categoryOptionCombo, min, max, true ) );
             }
         }
 
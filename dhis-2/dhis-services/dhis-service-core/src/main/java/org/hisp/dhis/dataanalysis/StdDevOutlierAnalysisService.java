@@ -31,19 +31,17 @@ package org.hisp.dhis.dataanalysis;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.dataelement.DataElement;
-import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
-import org.hisp.dhis.system.util.MathUtils;
+
+import com.google.common.collect.Lists;
 
 /**
  * @author Lars Helge Overland
@@ -53,6 +51,8 @@ public class StdDevOutlierAnalysisService
 {
     private static final Log log = LogFactory.getLog( StdDevOutlierAnalysisService.class );
 
+    private static final int DATA_ELEMENT_PAGE_SIZE = 100;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -76,43 +76,29 @@ public class StdDevOutlierAnalysisService
 
         List<DeflatedDataValue> outlierCollection = new ArrayList<>();
 
-        loop : for ( DataElement dataElement : dataElements )
+        if ( stdDevFactor == null )
         {
-            // TODO filter periods with data element period type
-
-            if ( dataElement.getValueType().isNumeric() )
-            {
-                Set<DataElementCategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
-
-                for ( DataElementCategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
-                {
-                    Map<Integer, Double> standardDeviations = dataAnalysisStore.getStandardDeviation( dataElement, categoryOptionCombo, parents, from );
+            return outlierCollection;
+        }
 
-                    Map<Integer, Double> averages = dataAnalysisStore.getAverage( dataElement, categoryOptionCombo, parents, from );
+        // TODO filter periods with data element period type
 
-                    Map<Integer, Integer> lowBoundMap = new HashMap<>();
-                    Map<Integer, Integer> highBoundMap = new HashMap<>();
+        List<DataElement> numericDataElements = dataElements.stream()
+            .filter( dataElement -> dataElement.getValueType().isNumeric() )
+            .collect( Collectors.toList() );
 
-                    for ( Integer unit : averages.keySet() )
-                    {
-                        Double stdDev = standardDeviations.get( unit );
-                        Double avg = averages.get( unit );
+        for ( List<DataElement> dataElementPage : Lists.partition( numericDataElements, DATA_ELEMENT_PAGE_SIZE ) )
+        {
+            // Fetch one more than max to indicate that the max is exceeded
 
-                        if ( stdDev != null && stdDevFactor != null && avg != null )
-                        {
-                            lowBoundMap.put( unit, (int) MathUtils.getLowBound( stdDev, stdDevFactor, avg ) );
-                            highBoundMap.put( unit, (int) MathUtils.getHighBound( stdDev, stdDevFactor, avg ) );
-                        }
-                    }
+            int limit = MAX_OUTLIERS + 1 - outlierCollection.size();
 
-                    outlierCollection.addAll( dataAnalysisStore.getDeflatedDataValues( dataElement, categoryOptionCombo, periods,
-                        lowBoundMap, highBoundMap ) );
+            outlierCollection.addAll( dataAnalysisStore.getStdDevOutliers( dataElementPage, periods, parents,
+                stdDevFactor, from, limit ) );
 
-                    if ( outlierCollection.size() > MAX_OUTLIERS )
-                    {
-                        break loop;
-                    }
-                }
+            if ( outlierCollection.size() > MAX_OUTLIERS )
+            {
+                break;
             }
         }
 
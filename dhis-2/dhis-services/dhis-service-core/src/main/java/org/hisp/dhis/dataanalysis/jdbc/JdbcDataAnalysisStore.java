@@ -32,6 +32,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.dataanalysis.DataAnalysisMeasures;
 import org.hisp.dhis.dataanalysis.DataAnalysisStore;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
@@ -181,6 +182,96 @@ public class JdbcDataAnalysisStore
         return map;        
     }
     
+    @Override
+    public List<DataAnalysisMeasures> getDataAnalysisMeasures( Collection<DataElement> dataElements,
+        Collection<OrganisationUnit> parents, Date from )
+    {
+        List<DataAnalysisMeasures> measures = new ArrayList<>();
+
+        if ( dataElements.isEmpty() || parents.isEmpty() )
+        {
+            return measures;
+        }
+
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        String sql =
+            "select dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid, " +
+            "avg( " + value + " ) as average, stddev_pop( " + value + " ) as deviation " +
+            "from datavalue dv " +
+            "inner join period pe on dv.periodid = pe.periodid " +
+            "inner join organisationunit ou on dv.sourceid = ou.organisationunitid " +
+            "where dv.dataelementid in (" + getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") " +
+            "and pe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' " +
+            "and dv.deleted is false " +
+            "and (" + getPathRestriction( "ou", parents ) + ") " +
+            "group by dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid";
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            Object avg = rowSet.getObject( "average" );
+            Object stdDev = rowSet.getObject( "deviation" );
+
+            if ( avg != null && stdDev != null )
+            {
+                measures.add( new DataAnalysisMeasures( rowSet.getInt( "sourceid" ), rowSet.getInt( "dataelementid" ),
+                    rowSet.getInt( "categoryoptioncomboid" ), (Double) avg, (Double) stdDev ) );
+            }
+        }
+
+        return measures;
+    }
+
+    @Override
+    public List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements, Collection<Period> periods,
+        Collection<OrganisationUnit> parents, double stdDevFactor, Date from, int limit )
+    {
+        if ( dataElements.isEmpty() || periods.isEmpty() || parents.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+        String statsValue = "cast( sdv.value as " + statementBuilder.getDoubleColumnType() + " )";
+        String deviation = "stddev_pop( " + statsValue + " ) * " + stdDevFactor;
+
+        // Bounds are truncated towards zero to be consistent with min-max values
+
+        String sql =
+            "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.value, dv.storedby, dv.lastupdated, " +
+            "dv.created, dv.comment, dv.followup, ou.name as sourcename, de.name as dataelementname, " +
+            "pt.name as periodtypename, pe.startdate, pe.enddate, coc.name as categoryoptioncomboname, mm.minimumvalue, mm.maximumvalue " +
+            "from datavalue dv " +
+            "join (" +
+                "select sdv.sourceid, sdv.dataelementid, sdv.categoryoptioncomboid, " +
+                getTruncated( "avg( " + statsValue + " ) - " + deviation ) + " as minimumvalue, " +
+                getTruncated( "avg( " + statsValue + " ) + " + deviation ) + " as maximumvalue " +
+                "from datavalue sdv " +
+                "join period spe on sdv.periodid = spe.periodid " +
+                "join organisationunit sou on sdv.sourceid = sou.organisationunitid " +
+                "where sdv.dataelementid in (" + getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") " +
+                "and spe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' " +
+                "and sdv.deleted is false " +
+                "and (" + getPathRestriction( "sou", parents ) + ") " +
+                "group by sdv.sourceid, sdv.dataelementid, sdv.categoryoptioncomboid " +
+                "having stddev_pop( " + statsValue + " ) <> 0" +
+            ") as mm on ( dv.dataelementid = mm.dataelementid and dv.categoryoptioncomboid = mm.categoryoptioncomboid and dv.sourceid = mm.sourceid ) " +
+            "join dataelement de on dv.dataelementid = de.dataelementid " +
+            "join period pe on dv.periodid = pe.periodid " +
+            "join periodtype pt on pe.periodtypeid = pt.periodtypeid " +
+            "join organisationunit ou on dv.sourceid = ou.organisationunitid " +
+            "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid " +
+            "where dv.periodid in (" + getCommaDelimitedString( getIdentifiers( periods ) ) + ") " +
+            "and ( " + value + " < mm.minimumvalue or " + value + " > mm.maximumvalue ) " +
+            "and dv.deleted is false ";
+
+        sql += statementBuilder.limitRecord( 0, limit );
+
+        return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
+    }
+
     @Override
     public List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements, Collection<DataElementCategoryOptionCombo> categoryOptionCombos,
         Collection<Period> periods, Collection<OrganisationUnit> parents, int limit )
@@ -306,4 +397,36 @@ public class JdbcDataAnalysisStore
         
         return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper() );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a SQL restriction on organisation unit paths which matches the
+     * given parents and their descendants, without surrounding parentheses.
+     *
+     * @param alias the alias of the organisation unit table.
+     * @param parents the parent organisation units.
+     */
+    private String getPathRestriction( String alias, Collection<OrganisationUnit> parents )
+    {
+        String sql = "";
+
+        for ( OrganisationUnit parent : parents )
+        {
+            sql += alias + ".path like '" + parent.getPath() + "%' or ";
+        }
+
+        return TextUtils.removeLastOr( sql );
+    }
+
+    /**
+     * Returns a SQL expression which truncates the given numeric expression
+     * towards zero.
+     */
+    private String getTruncated( String expression )
+    {
+        return "case when " + expression + " < 0 then ceil( " + expression + " ) else floor( " + expression + " ) end";
+    }
 }
@@ -43,6 +43,7 @@ import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.dataelement.DataElementCategoryService;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.fileresource.FileResourceService;
+import org.hisp.dhis.minmax.MinMaxDataElementService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
@@ -54,6 +55,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsValid;
@@ -111,6 +113,13 @@ public class DefaultDataValueService
         this.fileResourceService = fileResourceService;
     }
 
+    private MinMaxDataElementService minMaxDataElementService;
+
+    public void setMinMaxDataElementService( MinMaxDataElementService minMaxDataElementService )
+    {
+        this.minMaxDataElementService = minMaxDataElementService;
+    }
+
     // -------------------------------------------------------------------------
     // Basic DataValue
     // -------------------------------------------------------------------------
@@ -179,6 +188,9 @@ public class DefaultDataValueService
             dataValueStore.addDataValue( dataValue );
         }
 
+        minMaxDataElementService.updateMinMaxStatistics( dataValue.getSource(), dataValue.getDataElement(),
+            dataValue.getCategoryOptionCombo(), null, dataValue.getValue() );
+
         return true;
     }
 
@@ -198,6 +210,9 @@ public class DefaultDataValueService
 
             dataValueAuditService.addDataValueAudit( dataValueAudit );
             dataValueStore.updateDataValue( dataValue );
+
+            minMaxDataElementService.updateMinMaxStatistics( dataValue.getSource(), dataValue.getDataElement(),
+                dataValue.getCategoryOptionCombo(), dataValue.getAuditValue(), dataValue.getValue() );
         }
     }
 
@@ -214,6 +229,12 @@ public class DefaultDataValueService
             fileResourceService.deleteFileResource( dataValue.getValue() );
         }
 
+        if ( !dataValue.isDeleted() )
+        {
+            minMaxDataElementService.updateMinMaxStatistics( dataValue.getSource(), dataValue.getDataElement(),
+                dataValue.getCategoryOptionCombo(), dataValue.getValue(), null );
+        }
+
         dataValue.setLastUpdated( new Date() );
         dataValue.setDeleted( true );
         
@@ -335,6 +356,14 @@ public class DefaultDataValueService
             periods, orgUnit );
     }
 
+    @Override
+    public Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> getDataElementOperandValues(
+        Collection<DataElementOperand> dataElementOperands, Collection<Period> periods,
+        Collection<OrganisationUnit> orgUnits )
+    {
+        return dataValueStore.getDataElementOperandValues( dataElementOperands, periods, orgUnits );
+    }
+
     @Override
     public int getDataValueCount( int days )
     {
@@ -366,4 +395,21 @@ public class DefaultDataValueService
         return dataValueStore.getDataValueMapByAttributeCombo( dataElementOperandsToGet, date, source,
             periodTypes, attributeCombo, cogDimensionConstraints, coDimensionConstraints, lastUpdatedMap );
     }
+
+    @Override
+    public MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> getDataValueMapByAttributeCombo(
+        SetMap<String, DataElementOperand> dataElementOperandsToGet, Collection<Period> periods,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints )
+    {
+        return dataValueStore.getDataValueMapByAttributeCombo( dataElementOperandsToGet, periods, sources,
+            periodTypes, attributeCombo, cogDimensionConstraints, coDimensionConstraints );
+    }
+
+    @Override
+    public MapMap<Integer, Period, Set<String>> getDataElementsLastUpdatedAfter( Collection<String> dataElements,
+        Collection<Period> periods, Collection<PeriodType> periodTypes, Date lastUpdated )
+    {
+        return dataValueStore.getDataElementsLastUpdatedAfter( dataElements, periods, periodTypes, lastUpdated );
+    }
 }
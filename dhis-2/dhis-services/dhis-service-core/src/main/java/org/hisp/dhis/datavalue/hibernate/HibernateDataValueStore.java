@@ -28,6 +28,7 @@ package org.hisp.dhis.datavalue.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 
 import org.apache.commons.logging.Log;
@@ -65,6 +66,7 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -121,6 +123,7 @@ public class HibernateDataValueStore
     public void addDataValue( DataValue dataValue )
     {
         dataValue.setPeriod( periodStore.reloadForceAddPeriod( dataValue.getPeriod() ) );
+        dataValue.setLastUpdatedAtServer( new Date() );
 
         sessionFactory.getCurrentSession().save( dataValue );
     }
@@ -129,6 +132,7 @@ public class HibernateDataValueStore
     public void updateDataValue( DataValue dataValue )
     {
         dataValue.setPeriod( periodStore.reloadForceAddPeriod( dataValue.getPeriod() ) );
+        dataValue.setLastUpdatedAtServer( new Date() );
 
         sessionFactory.getCurrentSession().update( dataValue );
     }
@@ -346,23 +350,38 @@ public class HibernateDataValueStore
         Collection<DataElementOperand> dataElementOperands, Collection<Period> periods,
         OrganisationUnit orgUnit )
     {
-        MapMapMap<Period, String, DimensionalItemObject, Double> result = new MapMapMap<>();
+        MapMapMap<Period, String, DimensionalItemObject, Double> result = getDataElementOperandValues(
+            dataElementOperands, periods, Lists.newArrayList( orgUnit ) ).get( orgUnit.getId() );
+
+        return result != null ? result : new MapMapMap<>();
+    }
+
+    @Override
+    public Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> getDataElementOperandValues(
+        Collection<DataElementOperand> dataElementOperands, Collection<Period> periods,
+        Collection<OrganisationUnit> orgUnits )
+    {
+        Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> orgUnitResults = new HashMap<>();
 
         Collection<Integer> periodIdList = IdentifiableObjectUtils.getIdentifiers( periods );
 
         SetMap<DataElement, DataElementOperand> deosByDataElement = getDeosByDataElement( dataElementOperands );
 
-        if ( periods.size() == 0 || dataElementOperands.size() == 0 )
+        if ( periods.size() == 0 || dataElementOperands.size() == 0 || orgUnits.size() == 0 )
         {
-            return result;
+            return orgUnitResults;
         }
 
-        String sql = "select dv.dataelementid, coc.uid, dv.attributeoptioncomboid, dv.periodid, " +
+        String pathRestriction = orgUnits.stream()
+            .map( orgUnit -> "o.path like '" + orgUnit.getPath() + "%'" )
+            .collect( Collectors.joining( " or " ) );
+
+        String sql = "select dv.dataelementid, coc.uid, dv.attributeoptioncomboid, dv.periodid, o.path, " +
             "sum( cast( dv.value as " + statementBuilder.getDoubleColumnType() + " ) ) as value " +
             "from datavalue dv " +
             "join organisationunit o on o.organisationunitid = dv.sourceid " +
             "join categoryoptioncombo coc on coc.categoryoptioncomboid = dv.categoryoptioncomboid " +
-            "where o.path like '" + orgUnit.getPath() + "%' " +
+            "where ( " + pathRestriction + " ) " +
             "and dv.periodid in (" + TextUtils.getCommaDelimitedString( periodIdList ) + ") " +
             "and dv.value is not null " +
             "and dv.deleted is false " +
@@ -379,42 +398,55 @@ public class HibernateDataValueStore
                 snippit = "or ";
             }
 
-            sql += ") group by dv.dataelementid, coc.uid, dv.attributeoptioncomboid, dv.periodid";
+            sql += ") group by dv.dataelementid, coc.uid, dv.attributeoptioncomboid, dv.periodid, o.path";
 
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
         Map<Integer, DataElement> dataElementsById = IdentifiableObjectUtils.getIdentifierMap( deosByDataElement.keySet() );
         Map<Integer, Period> periodsById = IdentifiableObjectUtils.getIdentifierMap( periods );
+        Map<String, OrganisationUnit> orgUnitsByUid = IdentifiableObjectUtils.getUidObjectMap( orgUnits );
 
         while ( rowSet.next() )
         {
             Integer dataElementId = rowSet.getInt( 1 );
             String categoryOptionComboUid = rowSet.getString( 2 );
             Integer periodId = rowSet.getInt( 4 );
-            Double value = rowSet.getDouble( 5 );
+            String path = rowSet.getString( 5 );
 
             DataElement dataElement = dataElementsById.get ( dataElementId );
             Period period = periodsById.get( periodId );
 
             Set<DataElementOperand> deos = deosByDataElement.get( dataElement );
 
-            for ( DataElementOperand deo : deos )
+            // Add the value to each of the org units which are ancestors of (or equal to) the source
+
+            for ( String uid : path.split( "/" ) )
             {
-                if ( deo.getCategoryOptionCombo() == null || deo.getCategoryOptionCombo().getUid() == categoryOptionComboUid )
+                OrganisationUnit orgUnit = orgUnitsByUid.get( uid );
+
+                if ( orgUnit == null )
                 {
-                    Double existingValue = result.getValue(period, categoryOptionComboUid, deo );
+                    continue;
+                }
+
+                MapMapMap<Period, String, DimensionalItemObject, Double> result = orgUnitResults
+                    .computeIfAbsent( orgUnit.getId(), id -> new MapMapMap<>() );
 
-                    if ( existingValue != null )
+                Double value = rowSet.getDouble( 6 );
+
+                for ( DataElementOperand deo : deos )
+                {
+                    if ( deo.getCategoryOptionCombo() == null || deo.getCategoryOptionCombo().getUid().equals( categoryOptionComboUid ) )
                     {
-                        value += existingValue;
-                    }
+                        Double existingValue = result.getValue( period, categoryOptionComboUid, deo );
 
-                    result.putEntry( period, categoryOptionComboUid, deo, value );
+                        result.putEntry( period, categoryOptionComboUid, deo, existingValue != null ? existingValue + value : value );
+                    }
                 }
             }
         }
 
-        return result;
+        return orgUnitResults;
     }
 
     /**
@@ -514,6 +546,191 @@ public class HibernateDataValueStore
             return map;
         }
 
+        String sql = "select de.uid, coc.uid, aoc.uid, dv.value, dv.lastupdated, p.startdate, p.enddate " +
+            getDataValueMapSql( dataElementOperandsToGet, periodTypes, attributeCombo, cogDimensionConstraints, coDimensionConstraints ) +
+            "and dv.sourceid = " + source.getId() + " " +
+            "and p.startdate <= '" + DateUtils.getMediumDateString( date ) + "' " +
+            "and p.enddate >= '" + DateUtils.getMediumDateString( date ) + "' ";
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        MapMap<String, DataElementOperand, Long> checkForDuplicates = new MapMap<>();
+
+        int rowCount = 0;
+
+        while ( rowSet.next() )
+        {
+            rowCount++;
+            Double value = MathUtils.parseDouble( rowSet.getString( 4 ) );
+            Date periodStartDate = rowSet.getDate( 6 );
+            Date periodEndDate = rowSet.getDate( 7 );
+            long periodInterval = periodEndDate.getTime() - periodStartDate.getTime();
+
+            if ( value != null )
+            {
+                addDataValue( dataElementOperandsToGet, map, checkForDuplicates, lastUpdatedMap, rowSet.getString( 1 ),
+                    rowSet.getString( 2 ), rowSet.getString( 3 ), value, rowSet.getDate( 5 ), periodInterval );
+            }
+        }
+
+        log.trace( "getDataValueMapByAttributeCombo: " + rowCount + " rows into " + map.size() + " map entries from \"" + sql + "\"" );
+
+        return map;
+    }
+
+    @Override
+    public MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> getDataValueMapByAttributeCombo(
+        SetMap<String, DataElementOperand> dataElementOperandsToGet, Collection<Period> periods,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints )
+    {
+        MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> map = new MapMap<>();
+
+        if ( dataElementOperandsToGet.isEmpty() || periods.isEmpty() || sources.isEmpty() || periodTypes.isEmpty()
+            || ( cogDimensionConstraints != null && cogDimensionConstraints.isEmpty() )
+            || ( coDimensionConstraints != null && coDimensionConstraints.isEmpty() ) )
+        {
+            return map;
+        }
+
+        Map<Period, String> periodDates = getPeriodStartDates( periods );
+
+        String minDate = periodDates.values().stream().min( String::compareTo ).get();
+        String maxDate = periodDates.values().stream().max( String::compareTo ).get();
+
+        String sql = "select de.uid, coc.uid, aoc.uid, dv.value, dv.lastupdated, p.startdate, p.enddate, dv.sourceid " +
+            getDataValueMapSql( dataElementOperandsToGet, periodTypes, attributeCombo, cogDimensionConstraints, coDimensionConstraints ) +
+            "and dv.sourceid in (" + TextUtils.getCommaDelimitedString( getIdentifiers( sources ) ) + ") " +
+            "and p.startdate <= '" + maxDate + "' " +
+            "and p.enddate >= '" + minDate + "' ";
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        MapMap<Integer, Period, MapMap<String, DataElementOperand, Long>> checkForDuplicates = new MapMap<>();
+
+        int rowCount = 0;
+
+        while ( rowSet.next() )
+        {
+            rowCount++;
+            Double value = MathUtils.parseDouble( rowSet.getString( 4 ) );
+
+            if ( value == null )
+            {
+                continue;
+            }
+
+            Date periodStartDate = rowSet.getDate( 6 );
+            Date periodEndDate = rowSet.getDate( 7 );
+            long periodInterval = periodEndDate.getTime() - periodStartDate.getTime();
+            Integer sourceId = rowSet.getInt( 8 );
+
+            for ( Period period : getPeriodsContaining( periodDates, periodStartDate, periodEndDate ) )
+            {
+                MapMap<String, DimensionalItemObject, Double> valueMap = map.getValue( sourceId, period );
+
+                if ( valueMap == null )
+                {
+                    valueMap = new MapMap<>();
+                    map.putEntry( sourceId, period, valueMap );
+                    checkForDuplicates.putEntry( sourceId, period, new MapMap<>() );
+                }
+
+                addDataValue( dataElementOperandsToGet, valueMap, checkForDuplicates.getValue( sourceId, period ), null,
+                    rowSet.getString( 1 ), rowSet.getString( 2 ), rowSet.getString( 3 ), value, rowSet.getDate( 5 ), periodInterval );
+            }
+        }
+
+        log.trace( "getDataValueMapByAttributeCombo: " + rowCount + " rows for " + sources.size() + " org units and " +
+            periods.size() + " periods from \"" + sql + "\"" );
+
+        return map;
+    }
+
+    @Override
+    public MapMap<Integer, Period, Set<String>> getDataElementsLastUpdatedAfter( Collection<String> dataElements,
+        Collection<Period> periods, Collection<PeriodType> periodTypes, Date lastUpdated )
+    {
+        MapMap<Integer, Period, Set<String>> map = new MapMap<>();
+
+        if ( dataElements.isEmpty() || periods.isEmpty() || periodTypes.isEmpty() )
+        {
+            return map;
+        }
+
+        Map<Period, String> periodDates = getPeriodStartDates( periods );
+
+        String minDate = periodDates.values().stream().min( String::compareTo ).get();
+        String maxDate = periodDates.values().stream().max( String::compareTo ).get();
+
+        String sql = "select distinct dv.sourceid, de.uid, p.startdate, p.enddate " +
+            "from datavalue dv " +
+            "inner join dataelement de on dv.dataelementid = de.dataelementid " +
+            "inner join period p on p.periodid = dv.periodid " +
+            "where de.uid in (" + TextUtils.getQuotedCommaDelimitedString( dataElements ) + ") " +
+            "and p.periodtypeid in (" + TextUtils.getCommaDelimitedString( getIds( periodTypes ) ) + ") " +
+            "and p.startdate <= '" + maxDate + "' " +
+            "and p.enddate >= '" + minDate + "' " +
+            "and dv.lastupdatedatserver > '" + DateUtils.getLongDateString( lastUpdated ) + "'";
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            Integer sourceId = rowSet.getInt( 1 );
+            String dataElement = rowSet.getString( 2 );
+
+            for ( Period period : getPeriodsContaining( periodDates, rowSet.getDate( 3 ), rowSet.getDate( 4 ) ) )
+            {
+                Set<String> updated = map.getValue( sourceId, period );
+
+                if ( updated == null )
+                {
+                    updated = new HashSet<>();
+                    map.putEntry( sourceId, period, updated );
+                }
+
+                updated.add( dataElement );
+            }
+        }
+
+        log.debug( "Found updated data elements for " + map.size() + " org units from \"" + sql + "\"" );
+
+        return map;
+    }
+
+    /**
+     * Returns the start date of each of the given periods as medium date string.
+     */
+    private Map<Period, String> getPeriodStartDates( Collection<Period> periods )
+    {
+        return periods.stream().distinct().collect(
+            Collectors.toMap( p -> p, p -> DateUtils.getMediumDateString( p.getStartDate() ) ) );
+    }
+
+    /**
+     * Returns the periods with a start date between the given start and end
+     * date, inclusive.
+     */
+    private List<Period> getPeriodsContaining( Map<Period, String> periodDates, Date startDate, Date endDate )
+    {
+        String start = DateUtils.getMediumDateString( startDate );
+        String end = DateUtils.getMediumDateString( endDate );
+
+        return periodDates.entrySet().stream()
+            .filter( periodDate -> start.compareTo( periodDate.getValue() ) <= 0 && end.compareTo( periodDate.getValue() ) >= 0 )
+            .map( Map.Entry::getKey )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the from and where clauses for fetching data values of the given
+     * data element operands, period types and dimension constraints.
+     */
+    private String getDataValueMapSql( SetMap<String, DataElementOperand> dataElementOperandsToGet,
+        Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints )
+    {
         String joinCo = coDimensionConstraints == null && cogDimensionConstraints == null ? StringUtils.EMPTY :
             "join categoryoptioncombos_categoryoptions c_c on dv.attributeoptioncomboid = c_c.categoryoptioncomboid ";
 
@@ -529,93 +746,74 @@ public class HibernateDataValueStore
         String whereCombo = attributeCombo == null ? StringUtils.EMPTY :
             "and dv.attributeoptioncomboid = " + attributeCombo.getId() + " ";
 
-        String sql = "select de.uid, coc.uid, aoc.uid, dv.value, dv.lastupdated, p.startdate, p.enddate " +
-            "from datavalue dv " +
+        return "from datavalue dv " +
             "inner join dataelement de on dv.dataelementid = de.dataelementid " +
             "inner join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid " +
             "inner join categoryoptioncombo aoc on dv.attributeoptioncomboid = aoc.categoryoptioncomboid " +
             "inner join period p on p.periodid = dv.periodid " + joinCo + joinCog +
             "where de.uid in (" + TextUtils.getQuotedCommaDelimitedString( dataElementOperandsToGet.keySet() ) + ") " +
-            "and dv.sourceid = " + source.getId() + " " +
-            "and p.startdate <= '" + DateUtils.getMediumDateString( date ) + "' " +
-            "and p.enddate >= '" + DateUtils.getMediumDateString( date ) + "' " +
             "and p.periodtypeid in (" + TextUtils.getCommaDelimitedString( getIds( periodTypes ) ) + ") " +
             "and dv.deleted is false " +
             whereCo + whereCog + whereCombo;
+    }
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
-        MapMap<String, DataElementOperand, Long> checkForDuplicates = new MapMap<>();
-
-        int rowCount = 0;
+    /**
+     * Adds a data value to the given map of values by attribute option combo
+     * for each matching data element operand. Values of the shortest period
+     * are retained where values are found in more than one period.
+     */
+    private void addDataValue( SetMap<String, DataElementOperand> dataElementOperandsToGet,
+        MapMap<String, DimensionalItemObject, Double> map, MapMap<String, DataElementOperand, Long> checkForDuplicates,
+        MapMap<String, DataElementOperand, Date> lastUpdatedMap, String dataElement, String categoryOptionCombo,
+        String attributeOptionCombo, Double value, Date lastUpdated, long periodInterval )
+    {
+        Set<DataElementOperand> deos = dataElementOperandsToGet.get( dataElement );
 
-        while ( rowSet.next() )
+        for ( DataElementOperand deo : deos )
         {
-            rowCount++;
-            String dataElement = rowSet.getString( 1 );
-            String categoryOptionCombo = rowSet.getString( 2 );
-            String attributeOptionCombo = rowSet.getString( 3 );
-            Double value = MathUtils.parseDouble( rowSet.getString( 4 ) );
-            Date lastUpdated = rowSet.getDate( 5 );
-            Date periodStartDate = rowSet.getDate( 6 );
-            Date periodEndDate = rowSet.getDate( 7 );
-            long periodInterval = periodEndDate.getTime() - periodStartDate.getTime();
-
-            if ( value != null )
+            if ( deo.getCategoryOptionCombo() == null || deo.getCategoryOptionCombo().getUid().equals( categoryOptionCombo ) )
             {
-                Set<DataElementOperand> deos = dataElementOperandsToGet.get( dataElement );
+                Double existingValue = map.getValue(attributeOptionCombo, deo);
 
-                for ( DataElementOperand deo : deos )
+                Long existingPeriodInterval = checkForDuplicates.getValue( attributeOptionCombo, deo );
+
+                if ( existingPeriodInterval != null )
                 {
-                    if ( deo.getCategoryOptionCombo() == null || deo.getCategoryOptionCombo().getUid().equals( categoryOptionCombo ) )
+                    if ( existingPeriodInterval < periodInterval )
                     {
-                        Double existingValue = map.getValue(attributeOptionCombo, deo);
-
-                        Long existingPeriodInterval = checkForDuplicates.getValue( attributeOptionCombo, deo );
-
-                        if ( existingPeriodInterval != null )
-                        {
-                            if ( existingPeriodInterval < periodInterval )
-                            {
-                                continue; // Do not overwrite the previous value if for a shorter interval
-                            }
-                            else if ( existingPeriodInterval > periodInterval )
-                            {
-                                existingValue = null; // Overwrite previous value if for a longer interval
-
-                                if ( lastUpdatedMap != null )
-                                {
-                                    lastUpdatedMap.putEntry( attributeOptionCombo, deo, lastUpdated );
-                                }
-                            }
-                        }
+                        continue; // Do not overwrite the previous value if for a shorter interval
+                    }
+                    else if ( existingPeriodInterval > periodInterval )
+                    {
+                        existingValue = null; // Overwrite previous value if for a longer interval
 
-                        if ( existingValue != null )
+                        if ( lastUpdatedMap != null )
                         {
-                            value += existingValue;
+                            lastUpdatedMap.putEntry( attributeOptionCombo, deo, lastUpdated );
                         }
+                    }
+                }
 
-                        map.putEntry( attributeOptionCombo, deo, value );
+                if ( existingValue != null )
+                {
+                    value += existingValue;
+                }
 
-                        if ( lastUpdatedMap != null && lastUpdated != null )
-                        {
-                            Date existingLastUpdated = lastUpdatedMap.getValue( attributeOptionCombo, deo );
+                map.putEntry( attributeOptionCombo, deo, value );
 
-                            if ( existingLastUpdated == null || lastUpdated.after( existingLastUpdated ) )
-                            {
-                                lastUpdatedMap.putEntry( attributeOptionCombo, deo, lastUpdated );
-                            }
-                        }
+                if ( lastUpdatedMap != null && lastUpdated != null )
+                {
+                    Date existingLastUpdated = lastUpdatedMap.getValue( attributeOptionCombo, deo );
 
-                        checkForDuplicates.putEntry( attributeOptionCombo, deo, periodInterval );
+                    if ( existingLastUpdated == null || lastUpdated.after( existingLastUpdated ) )
+                    {
+                        lastUpdatedMap.putEntry( attributeOptionCombo, deo, lastUpdated );
                     }
                 }
+
+                checkForDuplicates.putEntry( attributeOptionCombo, deo, periodInterval );
             }
         }
-
-        log.trace( "getDataValueMapByAttributeCombo: " + rowCount + " rows into " + map.size() + " map entries from \"" + sql + "\"" );
-
-        return map;
     }
     
     private Set<Integer> getIds( Collection<PeriodType> periodTypes )
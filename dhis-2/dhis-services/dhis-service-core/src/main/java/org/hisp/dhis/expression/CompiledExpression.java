@@ -0,0 +1,406 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hisp.dhis.system.util.ExpressionUtils;
+
+import static org.hisp.dhis.expression.ExpressionService.*;
+
+/**
+ * Arithmetic expression which is parsed once into an immutable evaluation
+ * tree, and which can be evaluated repeatedly against value maps without
+ * string substitution and re-parsing. Supports numbers, the operators
+ * <code>+ - * / % ^</code>, unary plus and minus, parentheses, dimensional
+ * items, constants, organisation unit groups and days. Operator precedence
+ * and associativity are the same as for the JEP parser. Missing values are
+ * evaluated as zero, which corresponds to the {@link MissingValueStrategy#NEVER_SKIP}
+ * strategy.
+ * <p>
+ * Expressions containing other elements, such as functions, logical operators
+ * and aggregates, are not supported and must be evaluated with JEP.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public class CompiledExpression
+{
+    private static final Pattern NUMBER_PATTERN = Pattern.compile( "(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?" );
+
+    private static final String DAYS_TOKEN = "[days]";
+
+    private final String expression;
+
+    private final Node root;
+
+    private CompiledExpression( String expression, Node root )
+    {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression the expression.
+     * @return a compiled expression, or null if the expression is null, empty
+     *         or contains elements which are not supported.
+     */
+    public static CompiledExpression compile( String expression )
+    {
+        if ( expression == null || expression.trim().isEmpty() )
+        {
+            return null;
+        }
+
+        try
+        {
+            Parser parser = new Parser( ExpressionUtils.normalizeExpression( expression ) );
+
+            Node root = parser.parse();
+
+            return root != null ? new CompiledExpression( expression, root ) : null;
+        }
+        catch ( RuntimeException ex )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates this expression.
+     *
+     * @param itemValueMap mapping between dimension item identifiers and values.
+     * @param constantMap mapping between constant identifiers and values, can
+     *        be null.
+     * @param orgUnitCountMap mapping between organisation unit group identifiers
+     *        and counts of organisation units, can be null.
+     * @param days the number of days in the period, can be null.
+     * @return the value of the expression.
+     */
+    public double evaluate( Map<String, Double> itemValueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        return root.evaluate( itemValueMap, constantMap, orgUnitCountMap, days );
+    }
+
+    public String getExpression()
+    {
+        return expression;
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+
+    // -------------------------------------------------------------------------
+    // Evaluation tree
+    // -------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface Node
+    {
+        double evaluate( Map<String, Double> itemValueMap, Map<String, Double> constantMap,
+            Map<String, Integer> orgUnitCountMap, Integer days );
+    }
+
+    private static double valueOf( Number number )
+    {
+        return number != null ? number.doubleValue() : 0d;
+    }
+
+    // -------------------------------------------------------------------------
+    // Parser
+    // -------------------------------------------------------------------------
+
+    /**
+     * Recursive descent parser with the following grammar, which corresponds
+     * to the arithmetic subset of the JEP grammar:
+     *
+     * <pre>
+     * additive       := multiplicative ( ( '+' | '-' ) multiplicative )*
+     * multiplicative := unary ( ( '*' | '/' | '%' ) unary )*
+     * unary          := ( '+' | '-' ) unary | power
+     * power          := primary ( '^' unary )?
+     * primary        := number | operand | '(' additive ')'
+     * </pre>
+     */
+    private static class Parser
+    {
+        private final String input;
+
+        private int pos = 0;
+
+        Parser( String input )
+        {
+            this.input = input;
+        }
+
+        /**
+         * Returns the root node, or null if the expression is not supported.
+         */
+        Node parse()
+        {
+            Node node = additive();
+
+            skipWhitespace();
+
+            return node != null && pos == input.length() ? node : null;
+        }
+
+        private Node additive()
+        {
+            Node node = multiplicative();
+
+            while ( node != null )
+            {
+                char op = peek();
+
+                if ( op != '+' && op != '-' )
+                {
+                    break;
+                }
+
+                pos++;
+
+                final Node left = node;
+                final Node right = multiplicative();
+
+                if ( right == null )
+                {
+                    return null;
+                }
+
+                node = op == '+' ?
+                    ( v, c, o, d ) -> left.evaluate( v, c, o, d ) + right.evaluate( v, c, o, d ) :
+                    ( v, c, o, d ) -> left.evaluate( v, c, o, d ) - right.evaluate( v, c, o, d );
+            }
+
+            return node;
+        }
+
+        private Node multiplicative()
+        {
+            Node node = unary();
+
+            while ( node != null )
+            {
+                char op = peek();
+
+                if ( op != '*' && op != '/' && op != '%' )
+                {
+                    break;
+                }
+
+                pos++;
+
+                final Node left = node;
+                final Node right = unary();
+
+                if ( right == null )
+                {
+                    return null;
+                }
+
+                if ( op == '*' )
+                {
+                    node = ( v, c, o, d ) -> left.evaluate( v, c, o, d ) * right.evaluate( v, c, o, d );
+                }
+                else if ( op == '/' )
+                {
+                    node = ( v, c, o, d ) -> left.evaluate( v, c, o, d ) / right.evaluate( v, c, o, d );
+                }
+                else
+                {
+                    node = ( v, c, o, d ) -> left.evaluate( v, c, o, d ) % right.evaluate( v, c, o, d );
+                }
+            }
+
+            return node;
+        }
+
+        private Node unary()
+        {
+            char op = peek();
+
+            if ( op == '+' )
+            {
+                pos++;
+
+                return unary();
+            }
+            else if ( op == '-' )
+            {
+                pos++;
+
+                final Node operand = unary();
+
+                return operand != null ? ( v, c, o, d ) -> -operand.evaluate( v, c, o, d ) : null;
+            }
+
+            return power();
+        }
+
+        private Node power()
+        {
+            final Node base = primary();
+
+            if ( base != null && peek() == '^' )
+            {
+                pos++;
+
+                final Node exponent = unary();
+
+                return exponent != null ? ( v, c, o, d ) -> Math.pow( base.evaluate( v, c, o, d ), exponent.evaluate( v, c, o, d ) ) : null;
+            }
+
+            return base;
+        }
+
+        private Node primary()
+        {
+            char ch = peek();
+
+            if ( ch == '(' )
+            {
+                pos++;
+
+                Node node = additive();
+
+                if ( node == null || peek() != ')' )
+                {
+                    return null;
+                }
+
+                pos++;
+
+                return node;
+            }
+            else if ( Character.isDigit( ch ) || ch == '.' )
+            {
+                return number();
+            }
+            else if ( input.startsWith( DAYS_TOKEN, pos ) )
+            {
+                pos += DAYS_TOKEN.length();
+
+                return ( v, c, o, d ) -> valueOf( d );
+            }
+
+            return operand();
+        }
+
+        private Node number()
+        {
+            Matcher matcher = NUMBER_PATTERN.matcher( input ).region( pos, input.length() );
+
+            if ( !matcher.lookingAt() )
+            {
+                return null;
+            }
+
+            pos = matcher.end();
+
+            final double value = Double.parseDouble( matcher.group() );
+
+            return ( v, c, o, d ) -> value;
+        }
+
+        /**
+         * Parses dimensional item, constant and organisation unit group operands.
+         */
+        private Node operand()
+        {
+            int end = input.indexOf( '}', pos );
+
+            if ( end < 0 )
+            {
+                return null;
+            }
+
+            String token = input.substring( pos, end + 1 );
+
+            Matcher matcher;
+
+            if ( ( matcher = VARIABLE_PATTERN.matcher( token ) ).matches() )
+            {
+                final String id = matcher.group( GROUP_ID );
+
+                pos = end + 1;
+
+                return ( v, c, o, d ) -> valueOf( v.get( id ) );
+            }
+            else if ( ( matcher = CONSTANT_PATTERN.matcher( token ) ).matches() )
+            {
+                final String id = matcher.group( GROUP_ID );
+
+                pos = end + 1;
+
+                return ( v, c, o, d ) -> c != null ? valueOf( c.get( id ) ) : 0d;
+            }
+            else if ( ( matcher = OU_GROUP_PATTERN.matcher( token ) ).matches() )
+            {
+                final String id = matcher.group( GROUP_ID );
+
+                pos = end + 1;
+
+                return ( v, c, o, d ) -> o != null ? valueOf( o.get( id ) ) : 0d;
+            }
+
+            return null;
+        }
+
+        /**
+         * Skips whitespace and returns the current character, or 0 if at the
+         * end of the input.
+         */
+        private char peek()
+        {
+            skipWhitespace();
+
+            return pos < input.length() ? input.charAt( pos ) : 0;
+        }
+
+        private void skipWhitespace()
+        {
+            while ( pos < input.length() && Character.isWhitespace( input.charAt( pos ) ) )
+            {
+                pos++;
+            }
+        }
+    }
+}
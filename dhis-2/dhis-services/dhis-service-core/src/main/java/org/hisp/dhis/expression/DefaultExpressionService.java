@@ -28,6 +28,8 @@ package org.hisp.dhis.expression;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -66,7 +68,9 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -88,6 +92,16 @@ public class DefaultExpressionService
 {
     private static final Log log = LogFactory.getLog( DefaultExpressionService.class );
 
+    /**
+     * Cache for compiled indicator expressions. Holds an empty value for
+     * expressions which cannot be compiled.
+     */
+    private static final Cache<String, Optional<CompiledExpression>> COMPILED_EXPRESSION_CACHE = Caffeine.newBuilder()
+        .expireAfterAccess( 1, TimeUnit.HOURS )
+        .initialCapacity( 200 )
+        .maximumSize( 10000 )
+        .build();
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -200,6 +214,14 @@ public class DefaultExpressionService
     public IndicatorValue getIndicatorValueObject( Indicator indicator, Period period,
         Map<? extends DimensionalItemObject, Double> valueMap, Map<String, Double> constantMap,
         Map<String, Integer> orgUnitCountMap )
+    {
+        return getIndicatorValueObjectForItemIds( indicator, period, getDimensionItemValueMap( valueMap ), constantMap, orgUnitCountMap );
+    }
+
+    @Override
+    public IndicatorValue getIndicatorValueObjectForItemIds( Indicator indicator, Period period,
+        Map<String, Double> itemValueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap )
     {
         if ( indicator == null || indicator.getNumerator() == null || indicator.getDenominator() == null )
         {
@@ -208,28 +230,24 @@ public class DefaultExpressionService
 
         Integer days = period != null ? period.getDaysInPeriod() : null;
 
-        final String denominatorExpression = generateExpression( indicator.getDenominator(), valueMap,
-            constantMap, orgUnitCountMap, days, NEVER_SKIP );
+        final Double denominatorValue = getIndicatorExpressionValue( indicator.getDenominator(), itemValueMap,
+            constantMap, orgUnitCountMap, days );
 
-        if ( denominatorExpression == null )
+        if ( denominatorValue == null )
         {
             return null;
         }
 
-        final double denominatorValue = calculateExpression( denominatorExpression );
-
         if ( !isEqual( denominatorValue, 0d ) )
         {
-            final String numeratorExpression = generateExpression( indicator.getNumerator(), valueMap,
-                constantMap, orgUnitCountMap, days, NEVER_SKIP );
+            final Double numeratorValue = getIndicatorExpressionValue( indicator.getNumerator(), itemValueMap,
+                constantMap, orgUnitCountMap, days );
 
-            if ( numeratorExpression == null )
+            if ( numeratorValue == null )
             {
                 return null;
             }
 
-            final double numeratorValue = calculateExpression( numeratorExpression );
-
             final double annualizationFactor = period != null ?
                 DateUtils.getAnnualizationFactor( indicator, period.getStartDate(), period.getEndDate() ) : 1d;
             final int factor = indicator.getIndicatorType().getFactor();
@@ -257,8 +275,8 @@ public class DefaultExpressionService
         ListMap<String, Double> aggregateMap )
     {
         String expressionString = generateExpression( expression.getExpression(),
-            valueMap, constantMap, orgUnitCountMap, days, expression.getMissingValueStrategy(),
-            aggregateMap );
+            getDimensionItemValueMap( valueMap ), constantMap, orgUnitCountMap, days,
+            expression.getMissingValueStrategy(), aggregateMap );
 
         return expressionString != null ? calculateExpression( expressionString ) : null;
     }
@@ -764,14 +782,80 @@ public class DefaultExpressionService
         Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
         MissingValueStrategy missingValueStrategy )
     {
-        return generateExpression( expression, valueMap, constantMap, orgUnitCountMap, days, missingValueStrategy, null );
+        return generateExpression( expression, getDimensionItemValueMap( valueMap ), constantMap, orgUnitCountMap,
+            days, missingValueStrategy, null );
+    }
+
+    /**
+     * Returns the value of the given indicator expression. Uses the compiled
+     * form of the expression if the expression can be compiled, and falls back
+     * to generating and calculating the expression with JEP if not.
+     *
+     * @param expression the indicator numerator or denominator expression.
+     * @param itemValueMap the mapping between dimension item identifiers and values.
+     * @param constantMap the constant map.
+     * @param orgUnitCountMap the organisation unit count map.
+     * @param days the number of days.
+     * @return the value of the expression, null if the expression is empty.
+     */
+    private Double getIndicatorExpressionValue( String expression, Map<String, Double> itemValueMap,
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days )
+    {
+        if ( expression == null || expression.isEmpty() )
+        {
+            return null;
+        }
+
+        CompiledExpression compiled = COMPILED_EXPRESSION_CACHE.get( expression,
+            c -> Optional.ofNullable( CompiledExpression.compile( expression ) ) ).orElse( null );
+
+        if ( compiled != null )
+        {
+            return compiled.evaluate( itemValueMap, constantMap, orgUnitCountMap, days );
+        }
+
+        String expressionString = generateExpression( expression, itemValueMap, constantMap,
+            orgUnitCountMap, days, NEVER_SKIP, null );
+
+        return expressionString != null ? calculateExpression( expressionString ) : null;
+    }
+
+    /**
+     * Returns a mapping between dimension item identifiers and values for the
+     * given mapping between dimensional item objects and values. Null values
+     * are omitted.
+     *
+     * @param valueMap the mapping between dimensional item objects and values.
+     * @return a mapping between dimension item identifiers and values.
+     */
+    private static Map<String, Double> getDimensionItemValueMap( Map<? extends DimensionalItemObject, Double> valueMap )
+    {
+        return valueMap.entrySet().stream().
+            filter( e -> e.getValue() != null ).
+            collect( Collectors.toMap( e -> e.getKey().getDimensionItem(), e -> e.getValue() ) );
+    }
+
+    /**
+     * Returns the literal to substitute into an expression for the given value.
+     * Negative values are parenthesised so that they are negated as a unit,
+     * as in the compiled form, and -3 squared gives 9 rather than -9.
+     *
+     * @param value the value.
+     * @return the literal of the value.
+     */
+    private static String getOperandLiteral( double value )
+    {
+        String literal = String.valueOf( value );
+
+        return value < 0 ? "(" + literal + ")" : literal;
     }
 
     /**
      * Generates an expression based on the given data maps.
      * 
      * @param expression the expression.
-     * @param valueMap the value map.
+     * @param dimensionItemValueMap the mapping between dimension item identifiers
+     *        and values.
      * @param constantMap the constant map.
      * @param orgUnitCountMap the organisation unit count map.
      * @param days the number of days.
@@ -779,7 +863,7 @@ public class DefaultExpressionService
      * @param aggregateMap the aggregate map.
      * @return an expression.
      */
-    private String generateExpression( String expression, Map<? extends DimensionalItemObject, Double> valueMap,
+    private String generateExpression( String expression, Map<String, Double> dimensionItemValueMap,
         Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days,
         MissingValueStrategy missingValueStrategy, 
         Map<String, List<Double>> aggregateMap )
@@ -791,10 +875,6 @@ public class DefaultExpressionService
         
         expression = ExpressionUtils.normalizeExpression( expression );
 
-        Map<String, Double> dimensionItemValueMap = valueMap.entrySet().stream().
-            filter( e -> e.getValue() != null ).
-            collect( Collectors.toMap( e -> e.getKey().getDimensionItem(), e -> e.getValue() ) );
-
         missingValueStrategy = ObjectUtils.firstNonNull( missingValueStrategy, NEVER_SKIP );
 
         // ---------------------------------------------------------------------
@@ -883,7 +963,7 @@ public class DefaultExpressionService
                 valueCount++;
             }
 
-            String replacement = value != null ? String.valueOf( value ) : NULL_REPLACEMENT;
+            String replacement = value != null ? getOperandLiteral( value ) : NULL_REPLACEMENT;
 
             matcher.appendReplacement( sb, Matcher.quoteReplacement( replacement ) );
         }
@@ -906,7 +986,7 @@ public class DefaultExpressionService
         {
             final Double constant = constantMap != null ? constantMap.get( matcher.group( GROUP_ID ) ) : null;
 
-            String replacement = constant != null ? String.valueOf( constant ) : NULL_REPLACEMENT;
+            String replacement = constant != null ? getOperandLiteral( constant ) : NULL_REPLACEMENT;
 
             matcher.appendReplacement( sb, replacement );
         }
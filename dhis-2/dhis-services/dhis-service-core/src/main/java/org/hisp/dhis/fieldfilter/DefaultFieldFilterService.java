@@ -42,13 +42,13 @@ import org.hisp.dhis.node.NodeTransformer;
 import org.hisp.dhis.node.Preset;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
+import org.hisp.dhis.node.types.LazyCollectionNode;
 import org.hisp.dhis.node.types.SimpleNode;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.UserCredentials;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
@@ -58,9 +58,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -130,49 +132,120 @@ public class DefaultFieldFilterService implements FieldFilterService
     @Override
     public CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params )
     {
-        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
-
         Schema rootSchema = schemaService.getDynamicSchema( wrapper );
 
         CollectionNode collectionNode = new CollectionNode( rootSchema.getCollectionName() );
         collectionNode.setNamespace( rootSchema.getNamespace() );
 
-        List<?> objects = params.getObjects();
-
         if ( params.getObjects().isEmpty() )
         {
             return collectionNode;
         }
 
-        FieldMap fieldMap = new FieldMap();
-        Schema schema = schemaService.getDynamicSchema( objects.get( 0 ).getClass() );
+        FieldMap fieldMap = getFieldMap( params );
 
-        if ( StringUtils.isEmpty( fields ) )
-        {
-            for ( Property property : schema.getProperties() )
+        params.getObjects().forEach( object -> {
+            AbstractNode node = buildNode( fieldMap, wrapper, object, params.getDefaults() );
+
+            if ( node != null )
             {
-                fieldMap.put( property.getName(), new FieldMap() );
+                collectionNode.addChild( node );
             }
-        }
-        else
+        } );
+
+        return collectionNode;
+    }
+
+    @Override
+    public CollectionNode toLazyCollectionNode( Class<?> wrapper, FieldFilterParams params )
+    {
+        if ( params.getObjects().isEmpty() )
         {
-            fieldMap = fieldParser.parse( fields );
+            return toCollectionNode( wrapper, params );
         }
 
-        final FieldMap finalFieldMap = fieldMap;
+        Schema rootSchema = schemaService.getDynamicSchema( wrapper );
 
-        objects.forEach( object -> {
-            AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getDefaults() );
+        FieldMap fieldMap = getFieldMap( params );
 
-            if ( node != null )
+        // Excluded objects are removed up front as nodes cannot be skipped while iterating
+
+        List<?> objects = params.getObjects().stream()
+            .filter( object -> !shouldExclude( object, params.getDefaults() ) )
+            .collect( Collectors.toList() );
+
+        CollectionNode collectionNode = new LazyCollectionNode( rootSchema.getCollectionName(), objects,
+            object -> buildNode( fieldMap, wrapper, object, params.getDefaults() ) );
+        collectionNode.setNamespace( rootSchema.getNamespace() );
+
+        return collectionNode;
+    }
+
+    @Override
+    public FieldMap getFieldMap( Class<?> klass, List<String> fields )
+    {
+        FieldMap fieldMap = fieldParser.parse( fields == null ? "" : Joiner.on( "," ).join( fields ) );
+        updateFields( fieldMap, klass );
+
+        return fieldMap;
+    }
+
+    @Override
+    public CollectionNode toCollectionNode( Class<?> wrapper, FieldMap fieldMap, List<Map<String, Object>> values )
+    {
+        Schema schema = schemaService.getDynamicSchema( wrapper );
+
+        CollectionNode collectionNode = new CollectionNode( schema.getCollectionName() );
+        collectionNode.setNamespace( schema.getNamespace() );
+
+        for ( Map<String, Object> objectValues : values )
+        {
+            ComplexNode complexNode = new ComplexNode( schema.getName() );
+            complexNode.setNamespace( schema.getNamespace() );
+
+            for ( String fieldKey : fieldMap.keySet() )
             {
-                collectionNode.addChild( node );
+                Property property = schema.getProperty( fieldKey );
+
+                if ( property == null || !property.isReadable() )
+                {
+                    continue;
+                }
+
+                SimpleNode simpleNode = new SimpleNode( fieldKey, objectValues.get( fieldKey ) );
+                simpleNode.setAttribute( property.isAttribute() );
+                simpleNode.setNamespace( property.getNamespace() );
+                simpleNode.setProperty( property );
+
+                complexNode.addChild( fieldMap.get( fieldKey ).getPipeline().process( simpleNode ) );
             }
-        } );
+
+            collectionNode.addChild( complexNode );
+        }
 
         return collectionNode;
     }
 
+    private FieldMap getFieldMap( FieldFilterParams params )
+    {
+        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
+
+        if ( StringUtils.isEmpty( fields ) )
+        {
+            FieldMap fieldMap = new FieldMap();
+            Schema schema = schemaService.getDynamicSchema( params.getObjects().get( 0 ).getClass() );
+
+            for ( Property property : schema.getProperties() )
+            {
+                fieldMap.put( property.getName(), new FieldMap() );
+            }
+
+            return fieldMap;
+        }
+
+        return fieldParser.parse( fields );
+    }
+
     private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, Defaults defaults )
     {
         Schema schema = schemaService.getDynamicSchema( klass );
@@ -218,7 +291,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
             Schema propertySchema = schemaService.getDynamicSchema( property.getKlass() );
 
             FieldMap fieldValue = fieldMap.get( fieldKey );
@@ -350,9 +423,18 @@ public class DefaultFieldFilterService implements FieldFilterService
 
     private void updateFields( FieldMap fieldMap, Class<?> klass )
     {
+        // field maps are shared between objects of a collection, only expand once per class
+
+        if ( fieldMap.isExpanded( klass ) )
+        {
+            return;
+        }
+
         // we need two run this (at least) two times, since some of the presets might contain other presets
         updateFields( fieldMap, klass, true );
         updateFields( fieldMap, klass, false );
+
+        fieldMap.setExpanded( klass );
     }
 
     private void updateFields( FieldMap fieldMap, Class<?> klass, boolean expandOnly )
@@ -506,7 +588,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
 
             SimpleNode simpleNode = new SimpleNode( field, returnValue );
             simpleNode.setAttribute( property.isAttribute() );
@@ -31,6 +31,9 @@ package org.hisp.dhis.fieldfilter;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
@@ -45,4 +48,25 @@ public interface FieldFilterService
      * Perform inclusion/exclusion on a list of objects.
      */
     CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params );
+
+    /**
+     * Perform inclusion/exclusion on a list of objects. The node of each object
+     * is built first when the collection node is serialized and is discarded
+     * once written, so that the full node tree is never held in memory. The
+     * returned collection node should be serialized only, not modified.
+     */
+    CollectionNode toLazyCollectionNode( Class<?> wrapper, FieldFilterParams params );
+
+    /**
+     * Parses the given fields for the given class, with presets, exclusions
+     * and transformers of the top level fields expanded.
+     */
+    FieldMap getFieldMap( Class<?> klass, List<String> fields );
+
+    /**
+     * Creates a collection node from property values of objects, keyed on the
+     * fields of the given expanded field map. Only simple properties are
+     * supported, as returned by QueryService.queryProjection.
+     */
+    CollectionNode toCollectionNode( Class<?> wrapper, FieldMap fieldMap, List<Map<String, Object>> values );
 }
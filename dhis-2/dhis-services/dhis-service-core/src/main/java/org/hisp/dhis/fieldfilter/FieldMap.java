@@ -44,6 +44,12 @@ public class FieldMap extends ForwardingMap<String, FieldMap>
 
     private final LinearNodePipeline pipeline = new LinearNodePipeline();
 
+    /**
+     * Class for which presets, exclusions and transformers of this field map
+     * have been expanded, or null if not expanded.
+     */
+    private Class<?> expandedKlass;
+
     @Override
     protected Map<String, FieldMap> delegate()
     {
@@ -55,6 +61,16 @@ public class FieldMap extends ForwardingMap<String, FieldMap>
         return pipeline;
     }
 
+    public boolean isExpanded( Class<?> klass )
+    {
+        return klass != null && klass.equals( expandedKlass );
+    }
+
+    public void setExpanded( Class<?> klass )
+    {
+        this.expandedKlass = klass;
+    }
+
     @Override
     public String toString()
     {
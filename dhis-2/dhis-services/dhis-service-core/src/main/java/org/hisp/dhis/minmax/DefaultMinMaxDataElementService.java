@@ -35,6 +35,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hisp.dhis.system.util.MathUtils.parseDouble;
 
 /**
  * @author Lars Helge Overland
@@ -55,6 +59,13 @@ public class DefaultMinMaxDataElementService
         this.minMaxDataElementStore = minMaxDataElementStore;
     }
 
+    private MinMaxStatisticsStore minMaxStatisticsStore;
+
+    public void setMinMaxStatisticsStore( MinMaxStatisticsStore minMaxStatisticsStore )
+    {
+        this.minMaxStatisticsStore = minMaxStatisticsStore;
+    }
+
     // -------------------------------------------------------------------------
     // MinMaxDataElementService implementation
     // -------------------------------------------------------------------------
@@ -144,6 +155,85 @@ public class DefaultMinMaxDataElementService
     {
         minMaxDataElementStore.delete( dataElements, organisationUnits );
     }
+
+    // -------------------------------------------------------------------------
+    // MinMaxStatistics
+    // -------------------------------------------------------------------------
+
+    @Override
+    public MinMaxStatistics getMinMaxStatistics( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo )
+    {
+        return minMaxStatisticsStore.get( source, dataElement, optionCombo );
+    }
+
+    @Override
+    public List<MinMaxStatistics> getMinMaxStatistics( Collection<DataElement> dataElements, Collection<OrganisationUnit> parents )
+    {
+        return minMaxStatisticsStore.get( dataElements, parents );
+    }
+
+    @Override
+    public void updateMinMaxStatistics( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        String previousValue, String value )
+    {
+        if ( !dataElement.getValueType().isNumeric() )
+        {
+            return;
+        }
+
+        Double previous = parseDouble( previousValue );
+        Double current = parseDouble( value );
+
+        if ( previous == null && current == null )
+        {
+            return;
+        }
+
+        long valueCount = ( current != null ? 1 : 0 ) - ( previous != null ? 1 : 0 );
+        double valueSum = ( current != null ? current : 0d ) - ( previous != null ? previous : 0d );
+        double valueSumOfSquares = ( current != null ? current * current : 0d ) - ( previous != null ? previous * previous : 0d );
+
+        if ( valueCount == 0 && valueSum == 0d && valueSumOfSquares == 0d )
+        {
+            return; // Value did not change
+        }
+
+        minMaxStatisticsStore.update( source, dataElement, optionCombo, valueCount, valueSum, valueSumOfSquares );
+    }
+
+    @Override
+    public void refreshMinMaxStatistics( Collection<DataElement> dataElements, Collection<OrganisationUnit> sources )
+    {
+        Set<DataElement> numericDataElements = dataElements.stream()
+            .filter( dataElement -> dataElement.getValueType().isNumeric() )
+            .collect( Collectors.toSet() );
+
+        minMaxStatisticsStore.refresh( numericDataElements, sources );
+    }
+
+    @Override
+    public int populateMinMaxStatistics()
+    {
+        return minMaxStatisticsStore.populate();
+    }
+
+    @Override
+    public void removeMinMaxStatistics( OrganisationUnit organisationUnit )
+    {
+        minMaxStatisticsStore.delete( organisationUnit );
+    }
+
+    @Override
+    public void removeMinMaxStatistics( DataElement dataElement )
+    {
+        minMaxStatisticsStore.delete( dataElement );
+    }
+
+    @Override
+    public void removeMinMaxStatistics( DataElementCategoryOptionCombo optionCombo )
+    {
+        minMaxStatisticsStore.delete( optionCombo );
+    }
 }
 
 
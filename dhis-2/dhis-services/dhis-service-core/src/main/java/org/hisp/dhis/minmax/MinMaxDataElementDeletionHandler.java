@@ -65,17 +65,20 @@ public class MinMaxDataElementDeletionHandler
     public void deleteDataElement( DataElement dataElement )
     {
         minMaxDataElementService.removeMinMaxDataElements( dataElement );
+        minMaxDataElementService.removeMinMaxStatistics( dataElement );
     }
     
     @Override
     public void deleteOrganisationUnit( OrganisationUnit source )
     {
         minMaxDataElementService.removeMinMaxDataElements( source );
+        minMaxDataElementService.removeMinMaxStatistics( source );
     }
     
     @Override
     public void deleteDataElementCategoryOptionCombo( DataElementCategoryOptionCombo optionCombo )
     {
         minMaxDataElementService.removeMinMaxDataElements( optionCombo );
+        minMaxDataElementService.removeMinMaxStatistics( optionCombo );
     }
 }
@@ -0,0 +1,298 @@
+package org.hisp.dhis.minmax.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Restrictions;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.minmax.MinMaxStatistics;
+import org.hisp.dhis.minmax.MinMaxStatisticsStore;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
+import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
+import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
+import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
+
+/**
+ * Statistics are written through the current session, so that they are
+ * maintained in the same transaction as the data values.
+ */
+public class HibernateMinMaxStatisticsStore
+    implements MinMaxStatisticsStore
+{
+    private static final Log log = LogFactory.getLog( HibernateMinMaxStatisticsStore.class );
+
+    private static final int SOURCE_PAGE_SIZE = 1000;
+
+    private static final List<String> KEY_COLUMNS = ImmutableList.of( "sourceid", "dataelementid", "categoryoptioncomboid" );
+
+    private static final List<String> VALUE_COLUMNS = ImmutableList.of( "valuecount", "valuesum", "valuesumofsquares" );
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory( SessionFactory sessionFactory )
+    {
+        this.sessionFactory = sessionFactory;
+    }
+
+    private StatementBuilder statementBuilder;
+
+    public void setStatementBuilder( StatementBuilder statementBuilder )
+    {
+        this.statementBuilder = statementBuilder;
+    }
+
+    // -------------------------------------------------------------------------
+    // MinMaxStatisticsStore implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public MinMaxStatistics get( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo )
+    {
+        return (MinMaxStatistics) getSession().createCriteria( MinMaxStatistics.class )
+            .add( Restrictions.eq( "source", source ) )
+            .add( Restrictions.eq( "dataElement", dataElement ) )
+            .add( Restrictions.eq( "optionCombo", optionCombo ) ).uniqueResult();
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public List<MinMaxStatistics> get( Collection<DataElement> dataElements, Collection<OrganisationUnit> parents )
+    {
+        if ( dataElements.isEmpty() || parents.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        String hql = "select s from MinMaxStatistics s inner join s.source ou " +
+            "where s.dataElement in (:dataElements) and (";
+
+        for ( OrganisationUnit parent : parents )
+        {
+            hql += "ou.path like '" + parent.getPath() + "%' or ";
+        }
+
+        hql = TextUtils.removeLastOr( hql ) + ")";
+
+        return getSession().createQuery( hql )
+            .setParameterList( "dataElements", dataElements ).list();
+    }
+
+    @Override
+    public void update( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        long valueCount, double valueSum, double valueSumOfSquares )
+    {
+        String upsert = statementBuilder.getUpsertIncrement( "minmaxstatistics", KEY_COLUMNS, VALUE_COLUMNS );
+
+        // Upsert in a single statement where supported, as concurrent writers
+        // could otherwise both find no row to update and insert the same key
+
+        if ( upsert != null )
+        {
+            if ( valueCount > 0 )
+            {
+                insert( source, dataElement, optionCombo, valueCount, valueSum, valueSumOfSquares, upsert );
+            }
+            else
+            {
+                updateExisting( source, dataElement, optionCombo, valueCount, valueSum, valueSumOfSquares );
+            }
+
+            return;
+        }
+
+        int updated = updateExisting( source, dataElement, optionCombo, valueCount, valueSum, valueSumOfSquares );
+
+        if ( updated == 0 && valueCount > 0 )
+        {
+            insert( source, dataElement, optionCombo, valueCount, valueSum, valueSumOfSquares, "" );
+        }
+    }
+
+    @Override
+    public void refresh( Collection<DataElement> dataElements, Collection<OrganisationUnit> sources )
+    {
+        if ( dataElements.isEmpty() || sources.isEmpty() )
+        {
+            return;
+        }
+
+        String dataElementIds = getCommaDelimitedString( getIdentifiers( dataElements ) );
+
+        for ( List<Integer> sourcePage : Lists.partition( getIdentifiers( sources ), SOURCE_PAGE_SIZE ) )
+        {
+            String sourceIds = getCommaDelimitedString( sourcePage );
+
+            String sql = "delete from minmaxstatistics " +
+                "where dataelementid in (" + dataElementIds + ") " +
+                "and sourceid in (" + sourceIds + ")";
+
+            getSession().createSQLQuery( sql ).executeUpdate();
+
+            sql = getInsertSql( "dv.dataelementid in (" + dataElementIds + ") and dv.sourceid in (" + sourceIds + ")" );
+
+            getSession().createSQLQuery( sql ).executeUpdate();
+        }
+    }
+
+    @Override
+    public int populate()
+    {
+        List<?> existing = getSession().createSQLQuery( "select 1 from minmaxstatistics" ).setMaxResults( 1 ).list();
+
+        if ( !existing.isEmpty() )
+        {
+            return 0;
+        }
+
+        String sql = getInsertSql( "dv.dataelementid in (" +
+            "select de.dataelementid from dataelement de " +
+            "where de.valuetype in (" + getQuotedCommaDelimitedString( ValueType.NUMERIC_TYPES.stream()
+                .map( ValueType::name ).collect( Collectors.toList() ) ) + "))" );
+
+        int count = getSession().createSQLQuery( sql ).executeUpdate();
+
+        log.info( "Populated min-max statistics: " + count );
+
+        return count;
+    }
+
+    @Override
+    public void delete( OrganisationUnit organisationUnit )
+    {
+        String hql = "delete from MinMaxStatistics s where s.source = :source";
+
+        getSession().createQuery( hql ).setEntity( "source", organisationUnit ).executeUpdate();
+    }
+
+    @Override
+    public void delete( DataElement dataElement )
+    {
+        String hql = "delete from MinMaxStatistics s where s.dataElement = :dataElement";
+
+        getSession().createQuery( hql ).setEntity( "dataElement", dataElement ).executeUpdate();
+    }
+
+    @Override
+    public void delete( DataElementCategoryOptionCombo optionCombo )
+    {
+        String hql = "delete from MinMaxStatistics s where s.optionCombo = :optionCombo";
+
+        getSession().createQuery( hql ).setEntity( "optionCombo", optionCombo ).executeUpdate();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Session getSession()
+    {
+        return sessionFactory.getCurrentSession();
+    }
+
+    private int updateExisting( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        long valueCount, double valueSum, double valueSumOfSquares )
+    {
+        String hql = "update MinMaxStatistics s set s.valueCount = s.valueCount + :valueCount, " +
+            "s.valueSum = s.valueSum + :valueSum, s.valueSumOfSquares = s.valueSumOfSquares + :valueSumOfSquares " +
+            "where s.source = :source and s.dataElement = :dataElement and s.optionCombo = :optionCombo";
+
+        return getSession().createQuery( hql )
+            .setLong( "valueCount", valueCount )
+            .setDouble( "valueSum", valueSum )
+            .setDouble( "valueSumOfSquares", valueSumOfSquares )
+            .setEntity( "source", source )
+            .setEntity( "dataElement", dataElement )
+            .setEntity( "optionCombo", optionCombo )
+            .executeUpdate();
+    }
+
+    /**
+     * Inserts through SQL to keep the session free of statistics entities
+     * which would go stale with subsequent bulk updates.
+     */
+    private void insert( OrganisationUnit source, DataElement dataElement, DataElementCategoryOptionCombo optionCombo,
+        long valueCount, double valueSum, double valueSumOfSquares, String conflictClause )
+    {
+        String sql = "insert into minmaxstatistics (sourceid, dataelementid, categoryoptioncomboid, " +
+            "valuecount, valuesum, valuesumofsquares) values (:source, :dataElement, :optionCombo, " +
+            ":valueCount, :valueSum, :valueSumOfSquares) " + conflictClause;
+
+        getSession().createSQLQuery( sql )
+            .setInteger( "source", source.getId() )
+            .setInteger( "dataElement", dataElement.getId() )
+            .setInteger( "optionCombo", optionCombo.getId() )
+            .setLong( "valueCount", valueCount )
+            .setDouble( "valueSum", valueSum )
+            .setDouble( "valueSumOfSquares", valueSumOfSquares )
+            .executeUpdate();
+    }
+
+    /**
+     * Returns SQL which inserts statistics calculated from the non-deleted
+     * numeric data values matching the given restriction on the datavalue
+     * table aliased as dv. Values which are not numeric are skipped, as they
+     * would fail the cast.
+     */
+    private String getInsertSql( String restriction )
+    {
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        return "insert into minmaxstatistics (sourceid, dataelementid, categoryoptioncomboid, " +
+            "valuecount, valuesum, valuesumofsquares) " +
+            "select dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid, " +
+            "count(*), sum( " + value + " ), sum( " + value + " * " + value + " ) " +
+            "from datavalue dv " +
+            "where " + restriction + " " +
+            "and dv.value is not null " +
+            "and dv.value " + statementBuilder.getRegexpMatch() + " '" + NUMERIC_LENIENT_REGEXP + "' " +
+            "and dv.deleted is false " +
+            "group by dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid";
+    }
+}
@@ -48,6 +48,7 @@ import org.hisp.dhis.commons.timer.Timer;
 import org.hisp.dhis.dataelement.CategoryDimension;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSetElement;
+import org.hisp.dhis.fieldfilter.FieldMap;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodStore;
@@ -112,6 +113,9 @@ public class DefaultPreheatService implements PreheatService
     @Autowired
     private MergeService mergeService;
 
+    @Autowired
+    private PreheatCache preheatCache;
+
     @Override
     @SuppressWarnings( "unchecked" )
     public Preheat preheat( PreheatParams params )
@@ -138,6 +142,7 @@ public class DefaultPreheatService implements PreheatService
         }
 
         Map<Class<? extends IdentifiableObject>, List<IdentifiableObject>> uniqueCollectionMap = new HashMap<>();
+        Map<Class<? extends IdentifiableObject>, Map<String, Map<Object, String>>> projectedUniquenessMap = new HashMap<>();
         Set<Class<? extends IdentifiableObject>> klasses = new HashSet<>( params.getObjects().keySet() );
 
         if ( PreheatMode.ALL == params.getPreheatMode() )
@@ -221,6 +226,18 @@ public class DefaultPreheatService implements PreheatService
             {
                 Query query = Query.from( schemaService.getDynamicSchema( klass ) );
                 query.setUser( preheat.getUser() );
+
+                // only the unique values of existing objects are needed, select them without loading the objects
+
+                Map<String, Map<Object, String>> uniqueValues = preheatCache.get( "uniqueValues", klass, preheat.getUser(),
+                    () -> getUniqueValues( query ) );
+
+                if ( uniqueValues != null )
+                {
+                    projectedUniquenessMap.put( klass, copyOf( uniqueValues ) );
+                    continue;
+                }
+
                 List<? extends IdentifiableObject> objects = queryService.query( query );
 
                 if ( !objects.isEmpty() )
@@ -248,6 +265,7 @@ public class DefaultPreheatService implements PreheatService
         }
 
         preheat.setUniquenessMap( collectUniqueness( uniqueCollectionMap ) );
+        preheat.getUniquenessMap().putAll( projectedUniquenessMap );
 
         // add preheat placeholders for objects that will be created and set mandatory/unique attributes
         for ( Class<? extends IdentifiableObject> klass : params.getObjects().keySet() )
@@ -349,8 +367,13 @@ public class DefaultPreheatService implements PreheatService
 
             uniqueAttributes.forEach( attribute -> preheat.getUniqueAttributes().get( klass ).add( attribute.getUid() ) );
 
-            List<? extends IdentifiableObject> uniqueAttributeValues = manager.getAllByAttributes( klass, uniqueAttributes );
-            handleUniqueAttributeValues( klass, uniqueAttributeValues, preheat );
+            Map<String, Map<String, String>> uniqueAttributeValues = preheatCache.get( "uniqueAttributeValues", klass, preheat.getUser(),
+                () -> getUniqueAttributeValues( klass, uniqueAttributes ) );
+
+            if ( !uniqueAttributeValues.isEmpty() )
+            {
+                preheat.getUniqueAttributeValues().put( klass, copyOf( uniqueAttributeValues ) );
+            }
         }
 
         if ( objects.containsKey( Attribute.class ) )
@@ -382,33 +405,51 @@ public class DefaultPreheatService implements PreheatService
         }
     }
 
-    private void handleUniqueAttributeValues( Class<? extends IdentifiableObject> klass, List<? extends IdentifiableObject> objects, Preheat preheat )
+    /**
+     * Returns the values of the given unique attributes of objects of the given
+     * type, keyed on attribute uid and value.
+     */
+    private Map<String, Map<String, String>> getUniqueAttributeValues( Class<? extends IdentifiableObject> klass, List<Attribute> uniqueAttributes )
     {
-        if ( objects.isEmpty() )
+        Map<String, Map<String, String>> uniqueAttributeValues = new HashMap<>();
+
+        if ( uniqueAttributes.isEmpty() )
         {
-            return;
+            return uniqueAttributeValues;
         }
 
-        preheat.getUniqueAttributeValues().put( klass, new HashMap<>() );
+        Set<String> uids = uniqueAttributes.stream().map( Attribute::getUid ).collect( Collectors.toSet() );
+        List<? extends IdentifiableObject> objects = manager.getAllByAttributes( klass, uniqueAttributes );
 
         objects.forEach( object ->
         {
             object.getAttributeValues().forEach( attributeValue ->
             {
-                Set<String> uids = preheat.getUniqueAttributes().get( klass );
-
-                if ( uids != null && uids.contains( attributeValue.getAttribute().getUid() ) )
+                if ( uids.contains( attributeValue.getAttribute().getUid() ) )
                 {
-                    if ( !preheat.getUniqueAttributeValues().get( klass ).containsKey( attributeValue.getAttribute().getUid() ) )
+                    if ( !uniqueAttributeValues.containsKey( attributeValue.getAttribute().getUid() ) )
                     {
-                        preheat.getUniqueAttributeValues().get( klass ).put( attributeValue.getAttribute().getUid(), new HashMap<>() );
+                        uniqueAttributeValues.put( attributeValue.getAttribute().getUid(), new HashMap<>() );
                     }
 
-                    preheat.getUniqueAttributeValues().get( klass ).get( attributeValue.getAttribute().getUid() )
+                    uniqueAttributeValues.get( attributeValue.getAttribute().getUid() )
                         .put( attributeValue.getValue(), object.getUid() );
                 }
             } );
         } );
+
+        return uniqueAttributeValues;
+    }
+
+    /**
+     * Returns a copy of the given cached value map, which can be modified
+     * during validation.
+     */
+    private <K> Map<String, Map<K, String>> copyOf( Map<String, Map<K, String>> map )
+    {
+        Map<String, Map<K, String>> copy = new HashMap<>();
+        map.forEach( ( key, values ) -> copy.put( key, new HashMap<>( values ) ) );
+        return copy;
     }
 
     @Override
@@ -517,7 +558,7 @@ public class DefaultPreheatService implements PreheatService
                         if ( !uidMap.containsKey( itemKlass ) ) uidMap.put( itemKlass, new HashSet<>() );
                         if ( !codeMap.containsKey( itemKlass ) ) codeMap.put( itemKlass, new HashSet<>() );
 
-                        Object reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Object reference = p.getValue( object );
 
                         if ( reference != null )
                         {
@@ -527,7 +568,7 @@ public class DefaultPreheatService implements PreheatService
                     }
                     else
                     {
-                        Collection<IdentifiableObject> reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> reference = p.getValue( object );
                         reference.forEach( identifiableObject -> addIdentifiers( map, identifiableObject ) );
 
                         if ( DataElementOperand.class.isAssignableFrom( p.getItemKlass() ) )
@@ -688,7 +729,7 @@ public class DefaultPreheatService implements PreheatService
                 {
                     if ( !p.isCollection() )
                     {
-                        IdentifiableObject reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        IdentifiableObject reference = p.getValue( object );
 
                         if ( reference != null )
                         {
@@ -706,7 +747,7 @@ public class DefaultPreheatService implements PreheatService
                     else
                     {
                         Collection<IdentifiableObject> refObjects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                        Collection<IdentifiableObject> references = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> references = p.getValue( object );
 
                         if ( references != null )
                         {
@@ -776,7 +817,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getItemKlass() ) );
                     }
 
-                    objects.forEach( o -> list.addAll( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.addAll( property.getValue( o ) ) );
                     targets.put( property.getItemKlass(), list );
                 }
                 else
@@ -788,7 +829,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getKlass() ) );
                     }
 
-                    objects.forEach( o -> list.add( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.add( property.getValue( o ) ) );
                     targets.put( property.getKlass(), list );
                 }
             }
@@ -838,24 +879,24 @@ public class DefaultPreheatService implements PreheatService
 
             if ( !property.isCollection() )
             {
-                IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                IdentifiableObject refObject = property.getValue( object );
                 IdentifiableObject ref = getPersistedObject( preheat, identifier, refObject );
 
                 ref = connectDefaults( preheat, property, object, refObject, ref );
 
                 if ( ref != null && ref.getId() == 0 )
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                    property.setValue( object, null );
                 }
                 else
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), ref );
+                    property.setValue( object, ref );
                 }
             }
             else
             {
                 Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( property.getKlass() );
-                Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<IdentifiableObject> refObjects = property.getValue( object );
 
                 for ( IdentifiableObject refObject : refObjects )
                 {
@@ -863,7 +904,7 @@ public class DefaultPreheatService implements PreheatService
                     if ( ref != null && ref.getId() != 0 ) objects.add( ref );
                 }
 
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), objects );
+                property.setValue( object, objects );
             }
         }
     }
@@ -946,7 +987,7 @@ public class DefaultPreheatService implements PreheatService
             uniqueProperties.forEach( property ->
             {
                 if ( !map.containsKey( property.getName() ) ) map.put( property.getName(), new HashMap<>() );
-                Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object value = property.getValue( object );
                 if ( value != null ) map.get( property.getName() ).put( value, object.getUid() );
             } );
         }
@@ -954,6 +995,53 @@ public class DefaultPreheatService implements PreheatService
         return map;
     }
 
+    /**
+     * Selects the values of the unique properties of the objects matching the
+     * given query, keyed on property name and value, or returns null if the
+     * query can not be run as a projection. Users are not projected, as the
+     * unique properties of their user credentials are needed as well.
+     */
+    private Map<String, Map<Object, String>> getUniqueValues( Query query )
+    {
+        Schema schema = query.getSchema();
+
+        if ( User.class.equals( schema.getKlass() ) )
+        {
+            return null;
+        }
+
+        List<Property> uniqueProperties = schema.getProperties().stream()
+            .filter( p -> p.isPersisted() && p.isOwner() && p.isUnique() && p.isSimple() )
+            .collect( Collectors.toList() );
+
+        FieldMap fieldMap = new FieldMap();
+        fieldMap.put( "id", new FieldMap() );
+        uniqueProperties.forEach( property -> fieldMap.put( property.getName(), new FieldMap() ) );
+        fieldMap.setExpanded( schema.getKlass() );
+
+        List<Map<String, Object>> values = queryService.queryProjection( query, fieldMap );
+
+        if ( values == null )
+        {
+            return null;
+        }
+
+        Map<String, Map<Object, String>> map = new HashMap<>();
+
+        for ( Property property : uniqueProperties )
+        {
+            Map<Object, String> propertyValues = new HashMap<>();
+
+            values.stream()
+                .filter( objectValues -> objectValues.get( property.getName() ) != null )
+                .forEach( objectValues -> propertyValues.put( objectValues.get( property.getName() ), (String) objectValues.get( "id" ) ) );
+
+            map.put( property.getName(), propertyValues );
+        }
+
+        return map;
+    }
+
     private IdentifiableObject getPersistedObject( Preheat preheat, PreheatIdentifier identifier, IdentifiableObject ref )
     {
         if ( Period.class.isInstance( ref ) )
@@ -0,0 +1,112 @@
+package org.hisp.dhis.preheat;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hisp.dhis.hibernate.AbstractGenerationCache;
+import org.hisp.dhis.user.User;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache of values which are loaded by the preheat of every metadata import,
+ * like the unique property values and unique attribute values of existing
+ * objects, by object type and user. Objects themselves are not cached, as
+ * they are attached to and modified in the session of an import.
+ * <p>
+ * Entries are keyed on the generation of the object type, which is
+ * incremented by {@link PreheatCacheEventListener} after transactions which
+ * change metadata complete.
+ */
+public class PreheatCache
+    extends AbstractGenerationCache<Object>
+{
+    public PreheatCache()
+    {
+        super( 200, 2000 );
+    }
+
+    @Override
+    protected void registerListeners( EventListenerRegistry registry )
+    {
+        PreheatCacheEventListener listener = new PreheatCacheEventListener( this );
+
+        registry.appendListeners( EventType.POST_INSERT, listener );
+        registry.appendListeners( EventType.POST_UPDATE, listener );
+        registry.appendListeners( EventType.POST_DELETE, listener );
+        registry.appendListeners( EventType.POST_COLLECTION_RECREATE, listener );
+        registry.appendListeners( EventType.POST_COLLECTION_UPDATE, listener );
+        registry.appendListeners( EventType.POST_COLLECTION_REMOVE, listener );
+    }
+
+    // -------------------------------------------------------------------------
+    // Cache
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the cached value with the given name for the given object type
+     * and user. Loads the value with the given loader if not cached, or if the
+     * current session has pending changes. Values are shared between imports
+     * and must not be modified by callers.
+     *
+     * @param name   the name of the value.
+     * @param klass  the object type.
+     * @param user   the user, can be null.
+     * @param loader the loader of the value, can return null.
+     * @return the value, or null if the loader returns null.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T get( String name, Class<?> klass, User user, Supplier<T> loader )
+    {
+        String key = name + "-" + klass.getName() + "-" + getGeneration( klass.getName() ) + "-" +
+            (user != null ? user.getId() : 0);
+
+        return (T) get( key, loader::get );
+    }
+
+    /**
+     * Invalidates cached values of the object type with the given entity name,
+     * which is the class name.
+     */
+    public void invalidateType( String entityName )
+    {
+        invalidateGeneration( entityName );
+    }
+
+    /**
+     * Invalidates cached values of the object type with the given entity name
+     * after the transaction of the given session completes.
+     */
+    public void invalidateTypeAfterCompletion( EventSource session, String entityName )
+    {
+        invalidateAfterCompletion( session, entityName );
+    }
+}
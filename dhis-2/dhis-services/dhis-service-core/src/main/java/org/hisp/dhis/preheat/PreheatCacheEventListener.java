@@ -0,0 +1,169 @@
+package org.hisp.dhis.preheat;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableSet;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.attribute.Attribute;
+import org.hisp.dhis.attribute.AttributeValue;
+import org.hisp.dhis.common.MetadataObject;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserCredentials;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+
+import java.util.Set;
+
+/**
+ * Invalidates the {@link PreheatCache} after transactions which change
+ * metadata complete.
+ */
+public class PreheatCacheEventListener
+    implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+    PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener
+{
+    /**
+     * Types of which changes affect cached values of other types, like
+     * attributes and sharing.
+     */
+    private static final Set<String> GLOBAL_TYPES = ImmutableSet.of(
+        Attribute.class.getName(), AttributeValue.class.getName(), UserAccess.class.getName(), UserGroupAccess.class.getName() );
+
+    /**
+     * Types of which collection changes affect which objects users can access,
+     * like user group members and user roles.
+     */
+    private static final Set<String> GLOBAL_COLLECTION_OWNER_TYPES = ImmutableSet.of(
+        User.class.getName(), UserCredentials.class.getName(), UserGroup.class.getName(), UserAuthorityGroup.class.getName() );
+
+    private final PreheatCache preheatCache;
+
+    public PreheatCacheEventListener( PreheatCache preheatCache )
+    {
+        this.preheatCache = preheatCache;
+    }
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        handleEntityEvent( event.getSession(), event.getEntity(), event.getPersister() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        handleEntityEvent( event.getSession(), event.getEntity(), event.getPersister() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        handleEntityEvent( event.getSession(), event.getEntity(), event.getPersister() );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void handleEntityEvent( EventSource session, Object entity, EntityPersister persister )
+    {
+        if ( GLOBAL_TYPES.contains( persister.getEntityName() ) )
+        {
+            preheatCache.invalidateAllAfterCompletion( session );
+        }
+        else if ( isMetadata( entity ) )
+        {
+            preheatCache.invalidateTypeAfterCompletion( session, persister.getEntityName() );
+        }
+    }
+
+    private void handleCollectionEvent( AbstractCollectionEvent event )
+    {
+        Object owner = event.getAffectedOwnerOrNull();
+
+        if ( owner == null )
+        {
+            return;
+        }
+
+        if ( GLOBAL_COLLECTION_OWNER_TYPES.contains( event.getAffectedOwnerEntityName() ) )
+        {
+            preheatCache.invalidateAllAfterCompletion( event.getSession() );
+        }
+        else if ( isMetadata( owner ) )
+        {
+            preheatCache.invalidateTypeAfterCompletion( event.getSession(), event.getAffectedOwnerEntityName() );
+        }
+    }
+
+    private boolean isMetadata( Object entity )
+    {
+        return entity instanceof MetadataObject || entity instanceof UserCredentials;
+    }
+}
@@ -31,6 +31,7 @@ package org.hisp.dhis.query;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
@@ -38,12 +39,14 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.hibernate.InternalHibernateGenericStore;
 import org.hisp.dhis.query.planner.QueryPlan;
 import org.hisp.dhis.query.planner.QueryPlanner;
+import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -115,6 +118,82 @@ public class CriteriaQueryEngine<T extends IdentifiableObject>
         return criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) ).list();
     }
 
+    /**
+     * Returns the values of the given persisted properties of objects matching
+     * the given query, without loading the objects.
+     *
+     * @param query      the query.
+     * @param projection the simple persisted properties to select, keyed on
+     *                   the name under which to return their values.
+     * @return property values keyed on name, one map per matching object.
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<Map<String, Object>> query( Query query, Map<String, Property> projection )
+    {
+        Schema schema = query.getSchema();
+        InternalHibernateGenericStore<?> store = getStore( (Class<? extends IdentifiableObject>) schema.getKlass() );
+
+        List<Map<String, Object>> values = new ArrayList<>();
+
+        if ( store == null )
+        {
+            return values;
+        }
+
+        if ( query.getUser() == null )
+        {
+            query.setUser( currentUserService.getCurrentUser() );
+        }
+
+        if ( !query.isPlannedQuery() )
+        {
+            QueryPlan queryPlan = queryPlanner.planQuery( query, true );
+            query = queryPlan.getPersistedQuery();
+        }
+
+        DetachedCriteria detachedCriteria = buildCriteria( store.getSharingDetachedCriteria( query.getUser() ), query );
+        Criteria criteria = store.getCriteria();
+
+        if ( criteria == null )
+        {
+            return values;
+        }
+
+        criteria.setFirstResult( query.getFirstResult() );
+        criteria.setMaxResults( query.getMaxResults() );
+
+        for ( Order order : query.getOrders() )
+        {
+            criteria.addOrder( getHibernateOrder( order ) );
+        }
+
+        ProjectionList projectionList = Projections.projectionList();
+        projection.values().forEach( property -> projectionList.add( Projections.property( property.getFieldName() ) ) );
+
+        List<?> rows = criteria.add( Subqueries.propertyIn( "id", detachedCriteria ) )
+            .setProjection( projectionList )
+            .list();
+
+        for ( Object row : rows )
+        {
+            // a single projected property is returned as a value, not an array
+
+            Object[] columns = projection.size() == 1 ? new Object[]{ row } : (Object[]) row;
+            Map<String, Object> objectValues = new LinkedHashMap<>();
+
+            int i = 0;
+
+            for ( String name : projection.keySet() )
+            {
+                objectValues.put( name, columns[i++] );
+            }
+
+            values.add( objectValues );
+        }
+
+        return values;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     public int count( Query query )
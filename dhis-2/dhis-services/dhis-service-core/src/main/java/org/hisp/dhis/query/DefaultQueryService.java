@@ -28,16 +28,26 @@ package org.hisp.dhis.query;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.ImmutableMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.common.BaseNameableObject;
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.UserContext;
 import org.hisp.dhis.fieldfilter.Defaults;
+import org.hisp.dhis.fieldfilter.FieldMap;
 import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.query.planner.QueryPlan;
 import org.hisp.dhis.query.planner.QueryPlanner;
+import org.hisp.dhis.schema.Property;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.user.UserSettingKey;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Default implementation of QueryService which works with IdObjects.
@@ -49,6 +59,14 @@ public class DefaultQueryService
 {
     private static final Log log = LogFactory.getLog( DefaultQueryService.class );
 
+    /**
+     * Display properties which equal a persisted property when no translation
+     * locale is set, by display property name.
+     */
+    private static final Map<String, String> DISPLAY_PROPERTIES = ImmutableMap.of(
+        "displayName", "name",
+        "displayShortName", "shortName" );
+
     private final QueryParser queryParser;
 
     private final QueryPlanner queryPlanner;
@@ -94,9 +112,43 @@ public class DefaultQueryService
         query.setFirstResult( 0 );
         query.setMaxResults( Integer.MAX_VALUE );
 
+        if ( isPersistedQuery( query ) )
+        {
+            return criteriaQueryEngine.count( queryPlanner.planQuery( query ).getPersistedQuery() );
+        }
+
         return queryObjects( query ).size();
     }
 
+    @Override
+    public boolean isProjectable( Query query, FieldMap fieldMap )
+    {
+        return getProjection( query.getSchema(), fieldMap ) != null && isPersistedQuery( query );
+    }
+
+    @Override
+    public List<Map<String, Object>> queryProjection( Query query, FieldMap fieldMap )
+    {
+        Map<String, Property> projection = getProjection( query.getSchema(), fieldMap );
+
+        if ( projection == null || !isPersistedQuery( query ) )
+        {
+            return null;
+        }
+
+        List<Map<String, Object>> values = criteriaQueryEngine.query( queryPlanner.planQuery( query ).getPersistedQuery(), projection );
+
+        // display properties are trimmed like untranslated values of objects
+
+        projection.keySet().stream()
+            .filter( DISPLAY_PROPERTIES::containsKey )
+            .forEach( field -> values.stream()
+                .filter( objectValues -> objectValues.get( field ) != null )
+                .forEach( objectValues -> objectValues.put( field, ((String) objectValues.get( field )).trim() ) ) );
+
+        return values;
+    }
+
     @Override
     public Query getQueryFromUrl( Class<?> klass, List<String> filters, List<Order> orders ) throws QueryParserException
     {
@@ -153,6 +205,87 @@ public class DefaultQueryService
         return objects;
     }
 
+    /**
+     * Indicates whether the given query can be run in the database only. Default
+     * objects are cleared in memory, hence queries which exclude them are not.
+     */
+    private boolean isPersistedQuery( Query query )
+    {
+        if ( query.getObjects() != null ||
+            (Defaults.EXCLUDE == query.getDefaults() && Preheat.isDefaultClass( query.getSchema().getKlass() )) )
+        {
+            return false;
+        }
+
+        return queryPlanner.planQuery( query ).getNonPersistedQuery().isEmpty();
+    }
+
+    /**
+     * Returns the persisted properties to select for the fields of the given
+     * field map, keyed on field name, or null if any field is not a simple
+     * persisted property.
+     */
+    private Map<String, Property> getProjection( Schema schema, FieldMap fieldMap )
+    {
+        if ( fieldMap == null || !fieldMap.isExpanded( schema.getKlass() ) )
+        {
+            return null;
+        }
+
+        Map<String, Property> projection = new LinkedHashMap<>();
+
+        for ( Map.Entry<String, FieldMap> field : fieldMap.entrySet() )
+        {
+            Property property = schema.getProperty( field.getKey() );
+
+            if ( property == null || !property.isReadable() )
+            {
+                continue;
+            }
+
+            if ( !field.getValue().isEmpty() )
+            {
+                return null;
+            }
+
+            Property persistedProperty = getPersistedProperty( schema, property );
+
+            if ( persistedProperty == null )
+            {
+                return null;
+            }
+
+            projection.put( field.getKey(), persistedProperty );
+        }
+
+        return projection.isEmpty() ? null : projection;
+    }
+
+    private Property getPersistedProperty( Schema schema, Property property )
+    {
+        if ( property.isPersisted() && property.isSimple() && !property.isCollection() )
+        {
+            return property;
+        }
+
+        if ( !DISPLAY_PROPERTIES.containsKey( property.getName() ) || property.getGetterMethod() == null ||
+            UserContext.haveUserSetting( UserSettingKey.DB_LOCALE ) )
+        {
+            return null;
+        }
+
+        Class<?> declaringClass = property.getGetterMethod().getDeclaringClass();
+
+        if ( !BaseIdentifiableObject.class.equals( declaringClass ) && !BaseNameableObject.class.equals( declaringClass ) )
+        {
+            return null;
+        }
+
+        Property persistedProperty = schema.getPersistedProperty( DISPLAY_PROPERTIES.get( property.getName() ) );
+
+        return persistedProperty != null && persistedProperty.isSimple() ? persistedProperty : null;
+    }
+
     private void clearDefaults( Class<?> klass, List<? extends IdentifiableObject> objects, Defaults defaults )
     {
         if ( Defaults.INCLUDE == defaults || !Preheat.isDefaultClass( klass ) )
@@ -30,7 +30,6 @@ package org.hisp.dhis.query;
 
 import com.google.common.base.MoreObjects;
 import org.hisp.dhis.schema.Property;
-import org.hisp.dhis.system.util.ReflectionUtils;
 
 import java.util.Date;
 import java.util.Objects;
@@ -85,8 +84,8 @@ public class Order
 
     public int compare( Object lside, Object rside )
     {
-        Object o1 = ReflectionUtils.invokeMethod( lside, property.getGetterMethod() );
-        Object o2 = ReflectionUtils.invokeMethod( rside, property.getGetterMethod() );
+        Object o1 = property.getValue( lside );
+        Object o2 = property.getValue( rside );
 
         if ( o1 == null || o2 == null )
         {
@@ -29,8 +29,10 @@ package org.hisp.dhis.query;
  */
 
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.fieldfilter.FieldMap;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -65,6 +67,30 @@ public interface QueryService
      */
     int count( Query query );
 
+    /**
+     * Indicates whether the given query can be run as a projection of the
+     * fields of the given expanded field map, which is the case when all
+     * criterions and orders of the query and all fields are simple persisted
+     * properties.
+     *
+     * @param query    Query instance to use
+     * @param fieldMap Field map expanded for the query type
+     * @return true if the query can be run by queryProjection
+     */
+    boolean isProjectable( Query query, FieldMap fieldMap );
+
+    /**
+     * Returns the values of the fields of the given expanded field map for
+     * objects matching the given query, fetched by a single projection query
+     * without loading the objects.
+     *
+     * @param query    Query instance to use
+     * @param fieldMap Field map expanded for the query type
+     * @return Field values keyed on field name, one map per matching object,
+     *         or null if the query is not projectable
+     */
+    List<Map<String, Object>> queryProjection( Query query, FieldMap fieldMap );
+
     /**
      * Create a query instance from a given set of filters (property:operator:value), and
      * a list of orders.
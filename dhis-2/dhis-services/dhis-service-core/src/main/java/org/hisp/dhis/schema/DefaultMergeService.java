@@ -76,8 +76,8 @@ public class DefaultMergeService implements MergeService
 
             if ( property.isCollection() )
             {
-                Collection sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-                Collection targetObject = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+                Collection sourceObject = property.getValue( source );
+                Collection targetObject = property.getValue( target );
 
                 if ( sourceObject == null )
                 {
@@ -92,19 +92,19 @@ public class DefaultMergeService implements MergeService
                 targetObject.clear();
                 targetObject.addAll( sourceObject );
 
-                ReflectionUtils.invokeMethod( target, property.getSetterMethod(), targetObject );
+                property.setValue( target, targetObject );
             }
             else
             {
-                Object sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
+                Object sourceObject = property.getValue( source );
 
                 if ( mergeParams.getMergeMode().isReplace() )
                 {
-                    ReflectionUtils.invokeMethod( target, property.getSetterMethod(), sourceObject );
+                    property.setValue( target, sourceObject );
                 }
                 else if ( mergeParams.getMergeMode().isMerge() && sourceObject != null )
                 {
-                    ReflectionUtils.invokeMethod( target, property.getSetterMethod(), sourceObject );
+                    property.setValue( target, sourceObject );
                 }
             }
         }
@@ -213,6 +213,8 @@ public class DefaultSchemaService
 
             updateSelf( schema );
 
+            schema.getPropertyMap().values().forEach( PropertyAccessorUtils::generateAccessors );
+
             schema.getPersistedProperties();
             schema.getNonPersistedProperties();
             schema.getReadableProperties();
@@ -268,6 +270,8 @@ public class DefaultSchemaService
 
         updateSelf( schema );
 
+        schema.getPropertyMap().values().forEach( PropertyAccessorUtils::generateAccessors );
+
         dynamicClassSchemaMap.put( klass, schema );
 
         return schema;
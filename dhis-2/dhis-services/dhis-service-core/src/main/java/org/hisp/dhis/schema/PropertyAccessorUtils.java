@@ -0,0 +1,150 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.system.util.ReflectionUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Utility for generating getter and setter functions for properties through
+ * {@link LambdaMetafactory}. Generated functions are invoked like regular
+ * lambdas and avoid the overhead of reflective method invocation.
+ */
+public class PropertyAccessorUtils
+{
+    private static final Log log = LogFactory.getLog( PropertyAccessorUtils.class );
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Generates getter and setter functions for the given property, unless
+     * already generated. Methods for which functions cannot be generated are
+     * invoked through {@link ReflectionUtils#invokeMethod(Object, Method, Object...)}.
+     *
+     * @param property the property.
+     */
+    public static void generateAccessors( Property property )
+    {
+        Method getter = property.getGetterMethod();
+        Method setter = property.getSetterMethod();
+
+        if ( property.getGetterFunction() == null && getter != null )
+        {
+            Function<Object, Object> function = isAccessible( getter ) ? createGetter( getter ) : null;
+
+            property.setGetterFunction( function != null ? function : object -> ReflectionUtils.invokeMethod( object, getter ) );
+        }
+
+        if ( property.getSetterFunction() == null && setter != null )
+        {
+            BiConsumer<Object, Object> function = isAccessible( setter ) ? createSetter( setter ) : null;
+
+            property.setSetterFunction( function != null ? function : ( object, value ) -> ReflectionUtils.invokeMethod( object, setter, value ) );
+        }
+    }
+
+    /**
+     * Creates a function invoking the given getter method, or null if the
+     * function could not be created.
+     *
+     * @param method the getter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Function<Object, Object> createGetter( Method method )
+    {
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite callSite = LambdaMetafactory.metafactory( LOOKUP, "apply",
+                MethodType.methodType( Function.class ),
+                MethodType.methodType( Object.class, Object.class ),
+                handle, handle.type().wrap() );
+
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        }
+        catch ( Throwable ex )
+        {
+            log.debug( "Could not generate getter function for method: " + method, ex );
+            return null;
+        }
+    }
+
+    /**
+     * Creates a function invoking the given setter method, or null if the
+     * function could not be created.
+     *
+     * @param method the setter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static BiConsumer<Object, Object> createSetter( Method method )
+    {
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite callSite = LambdaMetafactory.metafactory( LOOKUP, "accept",
+                MethodType.methodType( BiConsumer.class ),
+                MethodType.methodType( void.class, Object.class, Object.class ),
+                handle, handle.type().wrap().changeReturnType( void.class ) );
+
+            return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+        }
+        catch ( Throwable ex )
+        {
+            log.debug( "Could not generate setter function for method: " + method, ex );
+            return null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether a function can be generated for the given method,
+     * which requires a public, non-static method of a public class.
+     */
+    private static boolean isAccessible( Method method )
+    {
+        return method != null && Modifier.isPublic( method.getModifiers() ) &&
+            !Modifier.isStatic( method.getModifiers() ) && Modifier.isPublic( method.getDeclaringClass().getModifiers() );
+    }
+}
@@ -33,13 +33,28 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.system.startup.AbstractStartupRoutine;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
+
 /**
+ * Creates indexes which are not mapped by Hibernate.
+ * <p>
+ * Free-text search of tracked entity instances is backed by a trigram index
+ * on attribute values on PostgreSQL. The index requires the pg_trgm extension,
+ * which must be installed by a database administrator as a prerequisite, as
+ * creating extensions requires superuser privileges before PostgreSQL 13:
+ * <pre>
+ * create extension if not exists pg_trgm;
+ * </pre>
+ * A warning is logged on startup when the extension or the index is missing.
+ *
  * @author Lars Helge Overland
  */
 public class TableCreator
     extends AbstractStartupRoutine
 {
     private static final Log log = LogFactory.getLog( TableCreator.class );
+
+    private static final String TRGM_INDEX = "in_trackedentityattributevalue_value_trgm";
     
     // -------------------------------------------------------------------------
     // Dependencies
@@ -62,6 +77,62 @@ public class TableCreator
         createSilently( "create unique index dataapproval_unique on dataapproval(datasetid,periodid,organisationunitid,attributeoptioncomboid,dataapprovallevelid)", "dataapproval_unique" );
         createSilently( "create index in_datavalueaudit on datavalueaudit(dataelementid,periodid,organisationunitid,categoryoptioncomboid,attributeoptioncomboid)", "in_datavalueaudit" );
         createSilently( "create index in_trackedentityattributevalue_attributeid on trackedentityattributevalue(trackedentityattributeid)", "in_trackedentityattributevalue_attributeid" );
+
+        createTrigramIndex();
+    }
+
+    /**
+     * Creates the trigram index on attribute values if the pg_trgm extension
+     * is installed and the index does not exist. The index is created
+     * concurrently so that writes of attribute values are not blocked while
+     * it is built.
+     */
+    private void createTrigramIndex()
+    {
+        Integer extensions;
+
+        try
+        {
+            extensions = jdbcTemplate.queryForObject( "select count(*) from pg_extension where extname = 'pg_trgm'", Integer.class );
+        }
+        catch ( Exception ex )
+        {
+            log.debug( "Database does not support trigram indexes" );
+            return;
+        }
+
+        if ( extensions == null || extensions == 0 )
+        {
+            log.warn( "Extension pg_trgm is not installed, free-text search of tracked entity instances will not use an index. " +
+                "Install it as a database superuser with: create extension if not exists pg_trgm;" );
+            return;
+        }
+
+        List<Boolean> valid = jdbcTemplate.queryForList( "select i.indisvalid from pg_index i " +
+            "inner join pg_class c on i.indexrelid = c.oid where c.relname = '" + TRGM_INDEX + "'", Boolean.class );
+
+        if ( !valid.isEmpty() )
+        {
+            if ( !valid.get( 0 ) )
+            {
+                log.warn( "Index " + TRGM_INDEX + " is invalid, as a previous build failed. Drop it to have it created on next startup." );
+            }
+
+            return;
+        }
+
+        log.info( "Creating index " + TRGM_INDEX + ", this may take a while" );
+
+        try
+        {
+            jdbcTemplate.execute( "create index concurrently " + TRGM_INDEX + " on trackedentityattributevalue using gin (lower(value) gin_trgm_ops)" );
+
+            log.info( "Created index " + TRGM_INDEX );
+        }
+        catch ( Exception ex )
+        {
+            log.warn( "Could not create index " + TRGM_INDEX + ", free-text search of tracked entity instances will not use an index", ex );
+        }
     }
     
     private void createSilently( final String sql, final String name )
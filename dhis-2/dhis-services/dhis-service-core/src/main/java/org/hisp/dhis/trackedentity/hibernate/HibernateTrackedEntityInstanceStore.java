@@ -495,7 +495,14 @@ public class HibernateTrackedEntityInstanceStore
             final String start = params.getQuery().isOperator( QueryOperator.LIKE ) ? anyChar : wordStart;
             final String end = params.getQuery().isOperator( QueryOperator.LIKE ) ? anyChar : wordEnd;
 
-            sql += hlp.whereAnd() + " (";
+            // Match each token against the values of any of the attributes in one subquery, which can use the trigram index on values
+
+            Set<Integer> attributeIds = new HashSet<>();
+
+            for ( QueryItem item : params.getAttributesAndFilters() )
+            {
+                attributeIds.add( item.getItem().getId() );
+            }
 
             List<String> queryTokens = getTokens( params.getQuery().getFilter() );
 
@@ -503,19 +510,11 @@ public class HibernateTrackedEntityInstanceStore
             {
                 final String query = statementBuilder.encode( queryToken, false );
 
-                sql += "(";
-
-                for ( QueryItem item : params.getAttributesAndFilters() )
-                {
-                    final String col = statementBuilder.columnQuote( item.getItemId() );
-
-                    sql += col + ".value " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
-                }
-
-                sql = removeLastOr( sql ) + ") and ";
+                sql += hlp.whereAnd() + " tei.trackedentityinstanceid in ("
+                    + "select teav.trackedentityinstanceid from trackedentityattributevalue teav "
+                    + "where teav.trackedentityattributeid in (" + getCommaDelimitedString( attributeIds ) + ") "
+                    + "and lower(teav.value) " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "') ";
             }
-
-            sql = removeLastAnd( sql ) + ") ";
         }
 
         if ( !params.isIncludeDeleted() )
@@ -33,6 +33,7 @@ import static org.junit.Assert.assertNull;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.hisp.dhis.DhisSpringTest;
@@ -49,6 +50,8 @@ import org.hisp.dhis.period.Period;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Sets;
+
 /**
  * @author Lars Helge Overland
  */
@@ -173,4 +176,45 @@ public class DataAnalysisStoreTest
         assertEquals( 12.78, dataAnalysisStore.getAverage( dataElementA, categoryOptionCombo, organisationUnits, from ).get( organisationUnitA.getId() ), DELTA );
         assertNull( dataAnalysisStore.getAverage( dataElementA, categoryOptionCombo, organisationUnits, from ).get( organisationUnitB.getId() ) );
     }
+
+    @Test
+    public void testGetDataAnalysisMeasures()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, organisationUnitA, "5", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, organisationUnitA, "2", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, organisationUnitA, "1", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodD, organisationUnitA, "12", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodE, organisationUnitA, "10", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodF, organisationUnitA, "7", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodG, organisationUnitA, "52", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodH, organisationUnitA, "23", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodI, organisationUnitA, "3", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodJ, organisationUnitA, "15", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementB, periodA, organisationUnitB, "4", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementB, periodB, organisationUnitB, "8", categoryOptionCombo ) );
+
+        List<DataAnalysisMeasures> measures = dataAnalysisStore.getDataAnalysisMeasures(
+            Sets.newHashSet( dataElementA, dataElementB ), organisationUnits, from );
+
+        assertEquals( 2, measures.size() );
+
+        for ( DataAnalysisMeasures measure : measures )
+        {
+            assertEquals( categoryOptionCombo.getId(), measure.getCategoryOptionComboId() );
+
+            if ( measure.getDataElementId() == dataElementA.getId() )
+            {
+                assertEquals( organisationUnitA.getId(), measure.getOrgUnitId() );
+                assertEquals( 12.78, measure.getAverage(), DELTA );
+                assertEquals( 15.26, measure.getStandardDeviation(), DELTA );
+            }
+            else
+            {
+                assertEquals( dataElementB.getId(), measure.getDataElementId() );
+                assertEquals( organisationUnitB.getId(), measure.getOrgUnitId() );
+                assertEquals( 6.0, measure.getAverage(), DELTA );
+                assertEquals( 2.0, measure.getStandardDeviation(), DELTA );
+            }
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryCombo;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.jdbc.batchhandler.MinMaxDataElementBatchHandler;
+import org.hisp.dhis.minmax.MinMaxDataElement;
+import org.hisp.dhis.minmax.MinMaxDataElementService;
+import org.hisp.dhis.minmax.MinMaxStatistics;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests generation of min-max values from min-max statistics.
+ */
+@RunWith( MockitoJUnitRunner.class )
+public class MinMaxValueGenerationTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private MinMaxDataElementService minMaxDataElementService;
+
+    @Mock
+    private BatchHandlerFactory batchHandlerFactory;
+
+    @Mock
+    private BatchHandler<MinMaxDataElement> batchHandler;
+
+    private MinMaxOutlierAnalysisService minMaxOutlierAnalysisService;
+
+    private DataElement dataElementA;
+
+    private DataElementCategoryOptionCombo optionCombo;
+
+    private OrganisationUnit sourceA;
+
+    private OrganisationUnit sourceB;
+
+    @Before
+    public void setUp()
+    {
+        minMaxOutlierAnalysisService = new MinMaxOutlierAnalysisService();
+        minMaxOutlierAnalysisService.setMinMaxDataElementService( minMaxDataElementService );
+        minMaxOutlierAnalysisService.setBatchHandlerFactory( batchHandlerFactory );
+
+        when( batchHandler.init() ).thenReturn( batchHandler );
+        doReturn( batchHandler ).when( batchHandlerFactory ).createBatchHandler( MinMaxDataElementBatchHandler.class );
+
+        DataElementCategoryCombo categoryCombo = createCategoryCombo( 'A' );
+        optionCombo = createCategoryOptionCombo( categoryCombo );
+        categoryCombo.getOptionCombos().add( optionCombo );
+
+        dataElementA = createDataElement( 'A', categoryCombo );
+        dataElementA.setValueType( ValueType.INTEGER );
+
+        sourceA = createOrganisationUnit( 'A' );
+        sourceB = createOrganisationUnit( 'B', sourceA );
+    }
+
+    @Test
+    public void testGenerateMinMaxValues()
+    {
+        // Values 10, 20 and 30 give average 20 and standard deviation 8.16
+
+        List<MinMaxStatistics> statistics = Lists.newArrayList(
+            new MinMaxStatistics( sourceB, dataElementA, optionCombo, 3, 60, 1400 ) );
+
+        when( minMaxDataElementService.getMinMaxStatistics( anyCollection(), anyCollection() ) ).thenReturn( statistics );
+
+        minMaxOutlierAnalysisService.generateMinMaxValues( Sets.newHashSet( sourceA ), Sets.newHashSet( dataElementA ), 2d );
+
+        ArgumentCaptor<MinMaxDataElement> captor = ArgumentCaptor.forClass( MinMaxDataElement.class );
+
+        verify( batchHandler ).addObject( captor.capture() );
+        verify( batchHandler ).flush();
+
+        MinMaxDataElement minMax = captor.getValue();
+
+        assertEquals( sourceB, minMax.getSource() );
+        assertEquals( 3, minMax.getMin() );
+        assertEquals( 36, minMax.getMax() );
+    }
+
+    @Test
+    public void testGenerateMinMaxValuesSkipsZeroStandardDeviation()
+    {
+        // Values 5, 5 and 5 give average 5 and standard deviation 0
+
+        List<MinMaxStatistics> statistics = Lists.newArrayList(
+            new MinMaxStatistics( sourceB, dataElementA, optionCombo, 3, 15, 75 ) );
+
+        when( minMaxDataElementService.getMinMaxStatistics( anyCollection(), anyCollection() ) ).thenReturn( statistics );
+
+        minMaxOutlierAnalysisService.generateMinMaxValues( Sets.newHashSet( sourceA ), Sets.newHashSet( dataElementA ), 2d );
+
+        verify( batchHandler, never() ).addObject( any( MinMaxDataElement.class ) );
+        verify( batchHandler ).flush();
+    }
+}
@@ -33,6 +33,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Date;
 import java.util.List;
 
 import org.hisp.dhis.DhisSpringTest;
@@ -189,6 +190,26 @@ public class DataValueServiceTest
         assertEquals( "2", dataValueB.getValue() );
     }
 
+    @Test
+    public void testLastUpdatedAtServer()
+    {
+        Date past = getDate( 2012, 1, 1 );
+
+        DataValue dataValueA = new DataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo, "1" );
+        dataValueA.setLastUpdatedAtServer( past );
+
+        dataValueService.addDataValue( dataValueA );
+
+        assertTrue( dataValueA.getLastUpdatedAtServer().after( past ) );
+
+        dataValueA.setValue( "2" );
+        dataValueA.setLastUpdatedAtServer( past );
+
+        dataValueService.updateDataValue( dataValueA );
+
+        assertTrue( dataValueA.getLastUpdatedAtServer().after( past ) );
+    }
+
     @Test
     public void testDeleteAndGetDataValue()
     {
@@ -0,0 +1,115 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hisp.dhis.system.util.MathUtils;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class CompiledExpressionTest
+{
+    private static final double DELTA = 0.0001;
+
+    private final Map<String, Double> valueMap = ImmutableMap.of(
+        "s46m5MS0hxu", 12d,
+        "s46m5MS0hxu.Prlt0C1RF0s", 4d,
+        "cYeuwXTCPkU.Prlt0C1RF0s.HllvX50cXC0", 6d,
+        "Uvn6LCg7dVU", 2d,
+        "fbfJHSPpUQD", -3d );
+
+    private final Map<String, Double> constantMap = ImmutableMap.of( "xxxxxxxxxx1", 2.5 );
+
+    private final Map<String, Integer> orgUnitCountMap = ImmutableMap.of( "oug0000000A", 10 );
+
+    private double evaluate( String expression, Integer days )
+    {
+        CompiledExpression compiled = CompiledExpression.compile( expression );
+
+        assertNotNull( compiled );
+
+        return compiled.evaluate( valueMap, constantMap, orgUnitCountMap, days );
+    }
+
+    @Test
+    public void testArithmetic()
+    {
+        String[] expressions = { "1+2*3", "(1+2)*3", "10/4-1", "7%3", "2^3^2", "-2^2", "2^-1", "-(3-5)*-2",
+            "1.5e2/3", ".5+1.", "10 - 2 - 3", "2 * ( 3 + ( 4 - 1 ) ) / 3", "+4--2" };
+
+        for ( String expression : expressions )
+        {
+            assertEquals( expression, MathUtils.calculateExpression( expression ), evaluate( expression, null ), DELTA );
+        }
+    }
+
+    @Test
+    public void testOperands()
+    {
+        assertEquals( 16d, evaluate( "#{s46m5MS0hxu}+#{s46m5MS0hxu.Prlt0C1RF0s}", null ), DELTA );
+        assertEquals( 12d, evaluate( "#{s46m5MS0hxu.*}", null ), DELTA );
+        assertEquals( 12d, evaluate( "#{cYeuwXTCPkU.Prlt0C1RF0s.HllvX50cXC0} * 2", null ), DELTA );
+        assertEquals( 5d, evaluate( "D{Uvn6LCg7dVU} - #{fbfJHSPpUQD}", null ), DELTA );
+        assertEquals( 25d, evaluate( "C{xxxxxxxxxx1} * OUG{oug0000000A}", null ), DELTA );
+        assertEquals( 365d, evaluate( "[days]", 365 ), DELTA );
+    }
+
+    @Test
+    public void testMissingValues()
+    {
+        assertEquals( 12d, evaluate( "#{s46m5MS0hxu} + #{Z0000000000}", null ), DELTA );
+        assertEquals( 0d, evaluate( "C{Z0000000000} + OUG{Z0000000000}", null ), DELTA );
+        assertEquals( 0d, evaluate( "[days]", null ), DELTA );
+
+        CompiledExpression compiled = CompiledExpression.compile( "#{s46m5MS0hxu} + C{xxxxxxxxxx1}" );
+
+        assertEquals( 0d, compiled.evaluate( new HashMap<>(), null, null, null ), DELTA );
+    }
+
+    @Test
+    public void testUnsupported()
+    {
+        assertNull( CompiledExpression.compile( null ) );
+        assertNull( CompiledExpression.compile( " " ) );
+        assertNull( CompiledExpression.compile( "abs(-2)" ) );
+        assertNull( CompiledExpression.compile( "1 > 2" ) );
+        assertNull( CompiledExpression.compile( "AVG(#{s46m5MS0hxu})" ) );
+        assertNull( CompiledExpression.compile( "(1+2" ) );
+        assertNull( CompiledExpression.compile( "1+" ) );
+        assertNull( CompiledExpression.compile( "#{s46m5}" ) );
+        assertNull( CompiledExpression.compile( "1.2.3" ) );
+    }
+}
@@ -629,6 +629,31 @@ public class ExpressionServiceTest
         assertEquals( 300d, expressionService.getIndicatorValue( indicatorB, period, valueMap, constantMap, null ), DELTA );
     }
 
+    @Test
+    public void testGetValueWithNegativeOperand()
+    {
+        String expression = "#{" + opA.getDimensionItem() + "}^2";
+
+        Map<DimensionalItemObject, Double> valueMap = new HashMap<>();
+        valueMap.put( opA, -3d );
+
+        assertEquals( "(-3.0)^2", expressionService.generateExpression( expression, valueMap, null, null, null, null ) );
+        assertEquals( 9d, expressionService.getExpressionValue( new Expression( expression, null ), valueMap, null, null, null ), DELTA );
+
+        IndicatorType indicatorType = new IndicatorType( "A", 1, false );
+
+        Indicator indicatorA = createIndicator( 'A', indicatorType );
+        indicatorA.setNumerator( expression );
+        indicatorA.setDenominator( "1" );
+
+        Indicator indicatorB = createIndicator( 'B', indicatorType );
+        indicatorB.setNumerator( "abs(1)*" + expression );
+        indicatorB.setDenominator( "1" );
+
+        assertEquals( 9d, expressionService.getIndicatorValue( indicatorA, period, valueMap, null, null ), DELTA );
+        assertEquals( 9d, expressionService.getIndicatorValue( indicatorB, period, valueMap, null, null ), DELTA );
+    }
+
     @Test
     public void testGetIndicatorValueObject()
     {
@@ -0,0 +1,120 @@
+package org.hisp.dhis.fieldfilter;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.DataDimensionType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryCombo;
+import org.hisp.dhis.node.Node;
+import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.SimpleNode;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FieldFilterServiceTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private FieldFilterService fieldFilterService;
+
+    @Test
+    public void testToLazyCollectionNode()
+    {
+        DataElement deA = createDataElement( 'A' );
+        DataElement deB = createDataElement( 'B' );
+        DataElement deC = createDataElement( 'C' );
+
+        FieldFilterParams params = new FieldFilterParams( Lists.newArrayList( deA, deB, deC ), Lists.newArrayList( "id", "name" ) );
+
+        CollectionNode lazyNode = fieldFilterService.toLazyCollectionNode( DataElement.class, params );
+        CollectionNode node = fieldFilterService.toCollectionNode( DataElement.class, params );
+
+        assertEquals( node.getName(), lazyNode.getName() );
+        assertEquals( node.getNamespace(), lazyNode.getNamespace() );
+        assertEquals( 3, lazyNode.getChildren().size() );
+        assertEquals( getValues( node, "name" ), getValues( lazyNode, "name" ) );
+        assertEquals( Lists.newArrayList( deA.getUid(), deB.getUid(), deC.getUid() ), getValues( lazyNode, "id" ) );
+
+        for ( Node child : lazyNode.getChildren() )
+        {
+            assertEquals( lazyNode, child.getParent() );
+            assertEquals( 2, child.getChildren().size() );
+        }
+    }
+
+    @Test
+    public void testToLazyCollectionNodeExcludeDefaults()
+    {
+        DataElementCategoryCombo ccDefault = new DataElementCategoryCombo( "default", DataDimensionType.DISAGGREGATION );
+        DataElementCategoryCombo ccA = new DataElementCategoryCombo( "CategoryComboA", DataDimensionType.DISAGGREGATION );
+
+        FieldFilterParams params = new FieldFilterParams( Lists.newArrayList( ccDefault, ccA ), Lists.newArrayList( "name" ) );
+
+        assertEquals( Lists.newArrayList( "default", "CategoryComboA" ),
+            getValues( fieldFilterService.toLazyCollectionNode( DataElementCategoryCombo.class, params ), "name" ) );
+
+        params.setDefaults( Defaults.EXCLUDE );
+
+        assertEquals( Lists.newArrayList( "CategoryComboA" ),
+            getValues( fieldFilterService.toLazyCollectionNode( DataElementCategoryCombo.class, params ), "name" ) );
+    }
+
+    @Test
+    public void testToLazyCollectionNodeEmpty()
+    {
+        FieldFilterParams params = new FieldFilterParams( new ArrayList<>(), Lists.newArrayList( "id", "name" ) );
+
+        assertTrue( fieldFilterService.toLazyCollectionNode( DataElement.class, params ).getChildren().isEmpty() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<Object> getValues( CollectionNode collectionNode, String property )
+    {
+        List<Object> values = new ArrayList<>();
+
+        for ( Node child : collectionNode.getChildren() )
+        {
+            child.getChildren().stream()
+                .filter( node -> property.equals( node.getName() ) )
+                .forEach( node -> values.add( ((SimpleNode) node).getValue() ) );
+        }
+
+        return values;
+    }
+}
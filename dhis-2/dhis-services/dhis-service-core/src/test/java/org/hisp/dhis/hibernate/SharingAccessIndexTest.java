@@ -0,0 +1,247 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.security.acl.AccessStringHelper;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.hisp.dhis.user.UserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SharingAccessIndexTest
+    extends DhisTest
+{
+    @Autowired
+    private SharingAccessIndex sharingAccessIndex;
+
+    @Autowired
+    private IdentifiableObjectManager identifiableObjectManager;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserService _userService;
+
+    private long maximumSize;
+
+    private User loginUser;
+
+    private UserGroup userGroup;
+
+    private List<UserGroupAccess> userGroupAccesses = new ArrayList<>();
+
+    @Override
+    protected void setUpTest()
+    {
+        userService = _userService;
+
+        // the index is disabled in tests by default
+
+        maximumSize = sharingAccessIndex.getMaximumSize();
+        sharingAccessIndex.setMaximumSize( 1000 );
+
+        loginUser = createUserAndInjectSecurityContext( false, "F_DATAELEMENT_PUBLIC_ADD", "F_USER_ADD", "F_USERGROUP_PUBLIC_ADD" );
+
+        User owner = createUser( 'B' );
+        identifiableObjectManager.save( owner );
+
+        userGroup = createUserGroup( 'A', new HashSet<>() );
+        identifiableObjectManager.save( userGroup );
+
+        DataElement dataElementA = createDataElement( 'A' );
+        DataElement dataElementB = createDataElement( 'B' );
+
+        identifiableObjectManager.save( dataElementA );
+        identifiableObjectManager.save( dataElementB );
+
+        inTransaction( () -> {
+            for ( DataElement dataElement : Sets.newHashSet( dataElementA, dataElementB ) )
+            {
+                UserGroupAccess userGroupAccess = new UserGroupAccess( userGroup, AccessStringHelper.READ );
+                sessionFactory.getCurrentSession().save( userGroupAccess );
+                userGroupAccesses.add( userGroupAccess );
+
+                dataElement.setUser( owner );
+                dataElement.setPublicAccess( AccessStringHelper.DEFAULT );
+                dataElement.getUserGroupAccesses().add( userGroupAccess );
+                sessionFactory.getCurrentSession().update( dataElement );
+            }
+        } );
+    }
+
+    @Override
+    protected void tearDownTest()
+    {
+        sharingAccessIndex.setMaximumSize( maximumSize );
+        sharingAccessIndex.setMaxIds( SharingAccessIndex.MAX_IDS );
+    }
+
+    @Override
+    protected boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testGetIdsCachedUntilInvalidated()
+    {
+        AtomicInteger loads = new AtomicInteger();
+        Set<Integer> ids = Sets.newHashSet( 2, 1 );
+
+        assertArrayEquals( new int[]{ 1, 2 }, getIds( 1, loads, ids ) );
+        assertArrayEquals( new int[]{ 1, 2 }, getIds( 1, loads, ids ) );
+        assertEquals( 1, loads.get() );
+
+        getIds( 2, loads, ids );
+        assertEquals( 2, loads.get() );
+
+        sharingAccessIndex.invalidateUser( 1 );
+        getIds( 1, loads, ids );
+        getIds( 2, loads, ids );
+        assertEquals( 3, loads.get() );
+
+        sharingAccessIndex.invalidateType( DataElement.class.getName() );
+        getIds( 1, loads, ids );
+        assertEquals( 4, loads.get() );
+
+        sharingAccessIndex.invalidateAll();
+        getIds( 1, loads, ids );
+        assertEquals( 5, loads.get() );
+    }
+
+    @Test
+    public void testUserGroupMembersChanged()
+    {
+        assertEquals( 0, getDataElementCount() );
+
+        inTransaction( () -> {
+            userGroup.addUser( loginUser );
+            sessionFactory.getCurrentSession().update( userGroup );
+        } );
+
+        assertEquals( 2, getDataElementCount() );
+
+        inTransaction( () -> {
+            userGroup.removeUser( loginUser );
+            sessionFactory.getCurrentSession().update( userGroup );
+        } );
+
+        assertEquals( 0, getDataElementCount() );
+    }
+
+    @Test
+    public void testUserGroupAccessChanged()
+    {
+        inTransaction( () -> {
+            userGroup.addUser( loginUser );
+            sessionFactory.getCurrentSession().update( userGroup );
+        } );
+
+        assertEquals( 2, getDataElementCount() );
+
+        inTransaction( () -> userGroupAccesses.forEach( userGroupAccess -> {
+            userGroupAccess.setAccess( AccessStringHelper.DEFAULT );
+            sessionFactory.getCurrentSession().update( userGroupAccess );
+        } ) );
+
+        assertEquals( 0, getDataElementCount() );
+    }
+
+    @Test
+    public void testPendingChangesInSession()
+    {
+        inTransaction( () -> {
+            assertEquals( 0, getDataElementCount() );
+
+            userGroup.addUser( loginUser );
+            sessionFactory.getCurrentSession().update( userGroup );
+
+            assertEquals( 2, getDataElementCount() );
+        } );
+    }
+
+    @Test
+    public void testFallbackAboveMaxIds()
+    {
+        sharingAccessIndex.setMaxIds( 1 );
+
+        inTransaction( () -> {
+            userGroup.addUser( loginUser );
+            sessionFactory.getCurrentSession().update( userGroup );
+        } );
+
+        assertEquals( 2, getDataElementCount() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int[] getIds( int userId, AtomicInteger loads, Set<Integer> ids )
+    {
+        return sharingAccessIndex.getIds( userId, DataElement.class, "r%", () -> {
+            loads.incrementAndGet();
+            return ids;
+        } );
+    }
+
+    private int getDataElementCount()
+    {
+        return identifiableObjectManager.getAll( DataElement.class ).size();
+    }
+
+    private void inTransaction( Runnable runnable )
+    {
+        transactionTemplate.execute( status -> {
+            runnable.run();
+            return null;
+        } );
+    }
+}
@@ -0,0 +1,212 @@
+package org.hisp.dhis.minmax;
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dbms.DbmsManager;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MinMaxStatisticsServiceTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private MinMaxDataElementService minMaxDataElementService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private DataElementCategoryService categoryService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DbmsManager dbmsManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DataElement dataElementA;
+    private DataElement dataElementB;
+
+    private DataElementCategoryOptionCombo optionCombo;
+
+    private Period periodA;
+    private Period periodB;
+    private Period periodC;
+
+    private OrganisationUnit sourceA;
+    private OrganisationUnit sourceB;
+
+    @Override
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A', ValueType.INTEGER, null );
+        dataElementB = createDataElement( 'B', ValueType.TEXT, null );
+
+        dataElementService.addDataElement( dataElementA );
+        dataElementService.addDataElement( dataElementB );
+
+        optionCombo = categoryService.getDefaultDataElementCategoryOptionCombo();
+
+        periodA = createPeriod( new MonthlyPeriodType(), getDate( 2017, 1, 1 ), getDate( 2017, 1, 31 ) );
+        periodB = createPeriod( new MonthlyPeriodType(), getDate( 2017, 2, 1 ), getDate( 2017, 2, 28 ) );
+        periodC = createPeriod( new MonthlyPeriodType(), getDate( 2017, 3, 1 ), getDate( 2017, 3, 31 ) );
+
+        sourceA = createOrganisationUnit( 'A' );
+        sourceB = createOrganisationUnit( 'B', sourceA );
+
+        organisationUnitService.addOrganisationUnit( sourceA );
+        organisationUnitService.addOrganisationUnit( sourceB );
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testAddUpdateDeleteDataValues()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, sourceB, "10", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, sourceB, "20", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, sourceB, "30", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementB, periodA, sourceB, "Text", optionCombo ) );
+
+        dbmsManager.clearSession();
+
+        MinMaxStatistics statistics = minMaxDataElementService.getMinMaxStatistics( sourceB, dataElementA, optionCombo );
+
+        assertNotNull( statistics );
+        assertEquals( 3, statistics.getValueCount() );
+        assertEquals( 20d, statistics.getAverage(), DELTA );
+        assertEquals( 8.16, statistics.getStandardDeviation(), DELTA );
+        assertEquals( Integer.valueOf( 3 ), statistics.getLowBound( 2d ) );
+        assertEquals( Integer.valueOf( 36 ), statistics.getHighBound( 2d ) );
+
+        assertNull( minMaxDataElementService.getMinMaxStatistics( sourceB, dataElementB, optionCombo ) );
+
+        DataValue dataValue = dataValueService.getDataValue( dataElementA, periodC, sourceB, optionCombo );
+        dataValue.setValue( "60" );
+        dataValueService.updateDataValue( dataValue );
+
+        dbmsManager.clearSession();
+
+        statistics = minMaxDataElementService.getMinMaxStatistics( sourceB, dataElementA, optionCombo );
+
+        assertEquals( 3, statistics.getValueCount() );
+        assertEquals( 30d, statistics.getAverage(), DELTA );
+        assertEquals( 21.6, statistics.getStandardDeviation(), DELTA );
+
+        dataValue = dataValueService.getDataValue( dataElementA, periodB, sourceB, optionCombo );
+        dataValueService.deleteDataValue( dataValue );
+
+        dbmsManager.clearSession();
+
+        statistics = minMaxDataElementService.getMinMaxStatistics( sourceB, dataElementA, optionCombo );
+
+        assertEquals( 2, statistics.getValueCount() );
+        assertEquals( 35d, statistics.getAverage(), DELTA );
+        assertEquals( 25d, statistics.getStandardDeviation(), DELTA );
+    }
+
+    @Test
+    public void testRefreshMinMaxStatistics()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, sourceB, "10", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, sourceB, "20", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, sourceB, "30", optionCombo ) );
+
+        minMaxDataElementService.refreshMinMaxStatistics( Sets.newHashSet( dataElementA, dataElementB ), Sets.newHashSet( sourceB ) );
+
+        dbmsManager.clearSession();
+
+        List<MinMaxStatistics> statisticsList = minMaxDataElementService.getMinMaxStatistics(
+            Sets.newHashSet( dataElementA, dataElementB ), Sets.newHashSet( sourceA ) );
+
+        assertEquals( 1, statisticsList.size() );
+
+        MinMaxStatistics statistics = statisticsList.get( 0 );
+
+        assertEquals( sourceB, statistics.getSource() );
+        assertEquals( dataElementA, statistics.getDataElement() );
+        assertEquals( 3, statistics.getValueCount() );
+        assertEquals( 20d, statistics.getAverage(), DELTA );
+    }
+
+    @Test
+    public void testPopulateMinMaxStatisticsSkipsNonNumericValues()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, sourceB, "10", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, sourceB, "20", optionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, sourceB, "30", optionCombo ) );
+
+        assertEquals( 0, minMaxDataElementService.populateMinMaxStatistics() );
+
+        minMaxDataElementService.removeMinMaxStatistics( sourceB );
+
+        dbmsManager.flushSession();
+
+        jdbcTemplate.update( "update datavalue set value = 'Ten' where periodid = " + periodA.getId() );
+
+        assertEquals( 1, minMaxDataElementService.populateMinMaxStatistics() );
+
+        dbmsManager.clearSession();
+
+        List<MinMaxStatistics> statisticsList = minMaxDataElementService.getMinMaxStatistics(
+            Sets.newHashSet( dataElementA, dataElementB ), Sets.newHashSet( sourceA ) );
+
+        assertEquals( 1, statisticsList.size() );
+
+        MinMaxStatistics statistics = statisticsList.get( 0 );
+
+        assertEquals( 2, statistics.getValueCount() );
+        assertEquals( 25d, statistics.getAverage(), DELTA );
+    }
+}
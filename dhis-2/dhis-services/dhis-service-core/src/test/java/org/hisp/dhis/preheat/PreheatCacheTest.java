@@ -0,0 +1,216 @@
+package org.hisp.dhis.preheat;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.attribute.Attribute;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.security.acl.AccessStringHelper;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreheatCacheTest
+    extends DhisTest
+{
+    @Autowired
+    private PreheatCache preheatCache;
+
+    @Autowired
+    private IdentifiableObjectManager identifiableObjectManager;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long maximumSize;
+
+    private AtomicInteger loads = new AtomicInteger();
+
+    private DataElement dataElementA;
+
+    @Override
+    protected void setUpTest()
+    {
+        // the cache is disabled in tests by default
+
+        maximumSize = preheatCache.getMaximumSize();
+        preheatCache.setMaximumSize( 1000 );
+
+        dataElementA = createDataElement( 'A' );
+        identifiableObjectManager.save( dataElementA );
+    }
+
+    @Override
+    protected void tearDownTest()
+    {
+        preheatCache.setMaximumSize( maximumSize );
+    }
+
+    @Override
+    protected boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testGetCached()
+    {
+        assertEquals( "A", get( DataElement.class ) );
+        assertEquals( "A", get( DataElement.class ) );
+        assertEquals( 1, loads.get() );
+
+        get( OrganisationUnit.class );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testInvalidateOnInsert()
+    {
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+
+        identifiableObjectManager.save( createDataElement( 'B' ) );
+
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+        assertEquals( 3, loads.get() );
+    }
+
+    @Test
+    public void testInvalidateOnUpdate()
+    {
+        get( DataElement.class );
+
+        dataElementA.setName( "DataElementUpdated" );
+        identifiableObjectManager.update( dataElementA );
+
+        get( DataElement.class );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testInvalidateOnDelete()
+    {
+        get( DataElement.class );
+
+        identifiableObjectManager.delete( dataElementA );
+
+        get( DataElement.class );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testInvalidateAllOnAttributeChange()
+    {
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+
+        identifiableObjectManager.save( createAttribute( 'A' ) );
+
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+        assertEquals( 4, loads.get() );
+    }
+
+    @Test
+    public void testInvalidateAllOnSharingChange()
+    {
+        UserGroup userGroup = createUserGroup( 'A', new HashSet<>() );
+        identifiableObjectManager.save( userGroup );
+
+        UserGroupAccess userGroupAccess = new UserGroupAccess( userGroup, AccessStringHelper.READ );
+
+        inTransaction( () -> sessionFactory.getCurrentSession().save( userGroupAccess ) );
+
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+
+        inTransaction( () -> {
+            userGroupAccess.setAccess( AccessStringHelper.READ_WRITE );
+            sessionFactory.getCurrentSession().update( userGroupAccess );
+        } );
+
+        get( DataElement.class );
+        get( OrganisationUnit.class );
+        assertEquals( 4, loads.get() );
+    }
+
+    @Test
+    public void testPendingChangesBypassCache()
+    {
+        get( DataElement.class );
+
+        inTransaction( () -> {
+            dataElementA.setName( "DataElementUpdated" );
+            sessionFactory.getCurrentSession().update( dataElementA );
+            sessionFactory.getCurrentSession().flush();
+
+            get( DataElement.class );
+            get( DataElement.class );
+            assertEquals( 3, loads.get() );
+        } );
+
+        get( DataElement.class );
+        get( DataElement.class );
+        assertEquals( 4, loads.get() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String get( Class<?> klass )
+    {
+        return preheatCache.get( "test", klass, null, () -> {
+            loads.incrementAndGet();
+            return "A";
+        } );
+    }
+
+    private void inTransaction( Runnable runnable )
+    {
+        transactionTemplate.execute( status -> {
+            runnable.run();
+            return null;
+        } );
+    }
+}
@@ -34,6 +34,8 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.fieldfilter.FieldFilterService;
+import org.hisp.dhis.fieldfilter.FieldMap;
 import org.hisp.dhis.query.operators.MatchMode;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
@@ -45,6 +47,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -63,6 +66,9 @@ public class QueryServiceTest
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
 
+    @Autowired
+    private FieldFilterService fieldFilterService;
+
     @Before
     public void createDataElements()
     {
@@ -543,4 +549,62 @@ public class QueryServiceTest
         assertTrue( collectionContainsUid( objects, "deabcdefghE" ) );
         assertTrue( collectionContainsUid( objects, "deabcdefghF" ) );
     }
+
+    @Test
+    public void testCountUrl() throws QueryParserException
+    {
+        Query query = queryService.getQueryFromUrl( DataElement.class, Lists.newArrayList( "valueType:eq:NUMBER" ), Lists.<Order>newArrayList() );
+
+        assertEquals( 2, queryService.count( query ) );
+    }
+
+    @Test
+    public void testQueryProjection() throws QueryParserException
+    {
+        FieldMap fieldMap = fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( "id", "displayName", "valueType" ) );
+        Query query = queryService.getQueryFromUrl( DataElement.class, Lists.newArrayList( "valueType:eq:NUMBER" ), Lists.<Order>newArrayList() );
+        query.setDefaultOrder();
+
+        assertTrue( queryService.isProjectable( query, fieldMap ) );
+
+        List<Map<String, Object>> values = queryService.queryProjection( query, fieldMap );
+
+        assertEquals( 2, values.size() );
+        assertEquals( "deabcdefghA", values.get( 0 ).get( "id" ) );
+        assertEquals( "DataElementA", values.get( 0 ).get( "displayName" ) );
+        assertEquals( ValueType.NUMBER, values.get( 0 ).get( "valueType" ) );
+        assertEquals( "deabcdefghD", values.get( 1 ).get( "id" ) );
+        assertEquals( "DataElementD", values.get( 1 ).get( "displayName" ) );
+    }
+
+    @Test
+    public void testQueryProjectionPaging() throws QueryParserException
+    {
+        FieldMap fieldMap = fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( "id" ) );
+        Query query = queryService.getQueryFromUrl( DataElement.class, Lists.<String>newArrayList(), Lists.<Order>newArrayList() );
+        query.setDefaultOrder();
+        query.setFirstResult( 2 );
+        query.setMaxResults( 2 );
+
+        List<Map<String, Object>> values = queryService.queryProjection( query, fieldMap );
+
+        assertEquals( 2, values.size() );
+        assertEquals( "deabcdefghC", values.get( 0 ).get( "id" ) );
+        assertEquals( "deabcdefghD", values.get( 1 ).get( "id" ) );
+    }
+
+    @Test
+    public void testQueryNotProjectable() throws QueryParserException
+    {
+        Query query = queryService.getQueryFromUrl( DataElement.class, Lists.<String>newArrayList(), Lists.<Order>newArrayList() );
+
+        assertFalse( queryService.isProjectable( query,
+            fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( "id", "categoryCombo" ) ) ) );
+        assertFalse( queryService.isProjectable( query,
+            fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( "id", "href" ) ) ) );
+        assertFalse( queryService.isProjectable( query,
+            fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( ":all" ) ) ) );
+        assertNull( queryService.queryProjection( query,
+            fieldFilterService.getFieldMap( DataElement.class, Lists.newArrayList( "id", "dataSetElements" ) ) ) );
+    }
 }
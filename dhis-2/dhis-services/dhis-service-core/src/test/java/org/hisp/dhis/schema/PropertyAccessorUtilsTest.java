@@ -0,0 +1,117 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+public class PropertyAccessorUtilsTest
+{
+    public static class Item
+    {
+        private String name;
+
+        private int count;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public Item setName( String name )
+        {
+            this.name = name;
+            return this;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public void setCount( int count )
+        {
+            this.count = count;
+        }
+    }
+
+    static class HiddenItem
+    {
+        public String getName()
+        {
+            return "hidden";
+        }
+    }
+
+    @Test
+    public void testGenerateAccessors()
+        throws Exception
+    {
+        Property name = new Property( String.class, Item.class.getMethod( "getName" ), Item.class.getMethod( "setName", String.class ) );
+        Property count = new Property( Integer.class, Item.class.getMethod( "getCount" ), Item.class.getMethod( "setCount", int.class ) );
+
+        PropertyAccessorUtils.generateAccessors( name );
+        PropertyAccessorUtils.generateAccessors( count );
+
+        assertNotNull( name.getGetterFunction() );
+        assertNotNull( name.getSetterFunction() );
+        assertNotNull( count.getGetterFunction() );
+        assertNotNull( count.getSetterFunction() );
+
+        Item item = new Item();
+
+        name.setValue( item, "ItemA" );
+        count.setValue( item, 42 );
+
+        assertEquals( "ItemA", item.getName() );
+        assertEquals( 42, item.getCount() );
+        assertEquals( "ItemA", name.getValue( item ) );
+        assertEquals( Integer.valueOf( 42 ), count.getValue( item ) );
+        assertNull( name.getValue( null ) );
+    }
+
+    @Test
+    public void testReflectionFallback()
+        throws Exception
+    {
+        Method getter = HiddenItem.class.getMethod( "getName" );
+        getter.setAccessible( true );
+
+        Property name = new Property( String.class, getter, null );
+
+        PropertyAccessorUtils.generateAccessors( name );
+
+        assertNotNull( name.getGetterFunction() );
+        assertNull( name.getSetterFunction() );
+        assertEquals( "hidden", name.getValue( new HiddenItem() ) );
+    }
+}
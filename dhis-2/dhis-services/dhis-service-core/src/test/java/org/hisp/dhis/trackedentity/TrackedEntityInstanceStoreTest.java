@@ -28,10 +28,14 @@ package org.hisp.dhis.trackedentity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.QueryOperator;
 import org.hisp.dhis.common.ValueType;
@@ -46,6 +50,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -70,6 +76,9 @@ public class TrackedEntityInstanceStoreTest
     @Autowired
     private ProgramInstanceService programInstanceService;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     private TrackedEntityInstance teiA;
     private TrackedEntityInstance teiB;
     private TrackedEntityInstance teiC;
@@ -270,4 +279,55 @@ public class TrackedEntityInstanceStoreTest
         assertTrue( teis.contains( teiB ) );
         assertTrue( teis.contains( teiE ) );
     }
+
+    @Test
+    public void testQueryTokensAcrossAttributes()
+    {
+        TrackedEntity teA = createTrackedEntity( 'A' );
+        idObjectManager.save( teA );
+
+        for ( TrackedEntityInstance tei : Lists.newArrayList( teiA, teiB, teiC, teiD ) )
+        {
+            tei.setTrackedEntity( teA );
+            teiStore.save( tei );
+        }
+
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiA, "John" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiA, "Smith" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiB, "John" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiB, "Doe" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiC, "Jane" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiC, "Smith" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiD, "Smithson" ) );
+
+        sessionFactory.getCurrentSession().flush();
+
+        // All tokens must match, each in any of the attributes
+
+        assertEquals( Sets.newHashSet( teiA.getUid() ), getQueryUids( "john smith" ) );
+        assertEquals( Sets.newHashSet( teiA.getUid() ), getQueryUids( "SMITH John" ) );
+        assertEquals( Sets.newHashSet( teiB.getUid() ), getQueryUids( "doe john" ) );
+        assertEquals( Sets.newHashSet( teiA.getUid(), teiB.getUid() ), getQueryUids( "john" ) );
+        assertEquals( Sets.newHashSet( teiA.getUid(), teiC.getUid(), teiD.getUid() ), getQueryUids( "smith" ) );
+        assertEquals( Sets.newHashSet(), getQueryUids( "jane doe" ) );
+
+        assertEquals( 1, teiStore.getTrackedEntityInstanceCount( getQueryParams( "john smith" ) ) );
+        assertEquals( 3, teiStore.getTrackedEntityInstanceCount( getQueryParams( "smith" ) ) );
+    }
+
+    private Set<String> getQueryUids( String query )
+    {
+        return teiStore.getTrackedEntityInstancesGrid( getQueryParams( query ) ).stream()
+            .map( row -> row.get( TrackedEntityInstanceQueryParams.TRACKED_ENTITY_INSTANCE_ID ) )
+            .collect( Collectors.toSet() );
+    }
+
+    private TrackedEntityInstanceQueryParams getQueryParams( String query )
+    {
+        return new TrackedEntityInstanceQueryParams()
+            .setQuery( new QueryFilter( QueryOperator.LIKE, query ) )
+            .addAttribute( new QueryItem( atA, null, ValueType.TEXT, AggregationType.NONE, null ) )
+            .addAttribute( new QueryItem( atB, null, ValueType.TEXT, AggregationType.NONE, null ) )
+            .setOrganisationUnitMode( OrganisationUnitSelectionMode.ALL );
+    }
 }
@@ -65,6 +65,8 @@ public class ImportOptions
 
     private boolean skipExistingCheck;
 
+    private boolean bulkImport;
+
     private boolean sharing;
 
     private boolean skipNotifications;
@@ -110,6 +112,7 @@ public class ImportOptions
         options.importStrategy = this.importStrategy;
         options.mergeMode = this.mergeMode;
         options.skipExistingCheck = this.skipExistingCheck;
+        options.bulkImport = this.bulkImport;
         options.sharing = this.sharing;
         options.skipNotifications = this.skipNotifications;
         options.datasetAllowsPeriods = this.datasetAllowsPeriods;
@@ -235,6 +238,17 @@ public class ImportOptions
         return skipExistingCheck;
     }
 
+    /**
+     * Indicates whether to import data values with a set-based merge through a
+     * staging table instead of one lookup and write per data value.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isBulkImport()
+    {
+        return bulkImport;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public boolean isSharing()
@@ -417,6 +431,12 @@ public class ImportOptions
         return this;
     }
 
+    public ImportOptions setBulkImport( boolean bulkImport )
+    {
+        this.bulkImport = bulkImport;
+        return this;
+    }
+
     public ImportOptions setSharing( boolean sharing )
     {
         this.sharing = sharing;
@@ -488,6 +508,7 @@ public class ImportOptions
             .add( "importStrategy", importStrategy )
             .add( "mergeMode", mergeMode )
             .add( "skipExistingCheck", skipExistingCheck )
+            .add( "bulkImport", bulkImport )
             .add( "sharing", sharing )
             .add( "skipNotifications", skipNotifications )
             .add( "datasetAllowsPeriods", datasetAllowsPeriods )
@@ -31,9 +31,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Date;
+import java.util.List;
 
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.importexport.ImportStrategy;
 
 /**
  * @author Lars Helge Overland
@@ -47,4 +51,24 @@ public interface DataValueSetStore
     void writeDataValueSetCsv( DataExportParams params, Date completeDate, Writer writer );
 
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes );
+
+    /**
+     * Indicates whether the database supports merging data values through
+     * {@link #mergeDataValues(List, ImportStrategy, boolean)}.
+     */
+    boolean isMergeDataValuesSupported();
+
+    /**
+     * Merges the given data values into the data value table in a set-based
+     * manner. The data values are copied into a staging table, after which
+     * inserts, updates, deletes and restores of soft deleted data values and
+     * the corresponding audits are done in a few statements. The given data
+     * values must be valid and must have distinct unique keys.
+     * 
+     * @param dataValues the data values.
+     * @param strategy the import strategy.
+     * @param dryRun whether to only count and not persist data values.
+     * @return the import count, where ignored is always zero.
+     */
+    ImportCount mergeDataValues( List<DataValue> dataValues, ImportStrategy strategy, boolean dryRun );
 }
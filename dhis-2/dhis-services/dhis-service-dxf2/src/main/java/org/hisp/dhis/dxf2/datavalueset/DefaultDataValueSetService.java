@@ -65,6 +65,7 @@ import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.minmax.MinMaxDataElementService;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
@@ -117,6 +118,8 @@ public class DefaultDataValueSetService
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
 
+    private static final int BULK_IMPORT_BATCH_SIZE = 50000;
+
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
 
@@ -165,6 +168,9 @@ public class DefaultDataValueSetService
     @Autowired
     private FileResourceService fileResourceService;
 
+    @Autowired
+    private MinMaxDataElementService minMaxDataElementService;
+
     // Set methods for test purposes
 
     public void setBatchHandlerFactory( BatchHandlerFactory batchHandlerFactory )
@@ -513,7 +519,7 @@ public class DefaultDataValueSetService
         try
         {
             in = StreamUtils.wrapAndCheckCompressionFormat( in );
-            DataValueSet dataValueSet = new StreamingXmlDataValueSet( XMLFactory.getXMLReader( in ) );
+            DataValueSet dataValueSet = new PipelinedDataValueSet( new StreamingXmlDataValueSet( XMLFactory.getXMLReader( in ) ) );
             return saveDataValueSet( importOptions, id, dataValueSet );
         }
         catch ( Exception ex )
@@ -547,7 +553,7 @@ public class DefaultDataValueSetService
         try
         {
             in = StreamUtils.wrapAndCheckCompressionFormat( in );
-            DataValueSet dataValueSet = new StreamingCsvDataValueSet( new CsvReader( in, Charset.forName( "UTF-8" ) ) );
+            DataValueSet dataValueSet = new PipelinedDataValueSet( new StreamingCsvDataValueSet( new CsvReader( in, Charset.forName( "UTF-8" ) ) ) );
             return saveDataValueSet( importOptions, id, dataValueSet );
         }
         catch ( Exception ex )
@@ -589,7 +595,8 @@ public class DefaultDataValueSetService
      * <ul>
      * <p>
      * If id scheme is specific in the data value set, any id schemes in the import
-     * options will be ignored.
+     * options will be ignored. The data value set is closed when the import is
+     * done, also if it fails.
      *
      * @param importOptions
      * @param id
@@ -597,6 +604,18 @@ public class DefaultDataValueSetService
      * @return
      */
     private ImportSummary saveDataValueSet( ImportOptions importOptions, TaskId id, DataValueSet dataValueSet )
+    {
+        try
+        {
+            return importDataValueSet( importOptions, id, dataValueSet );
+        }
+        finally
+        {
+            dataValueSet.close();
+        }
+    }
+
+    private ImportSummary importDataValueSet( ImportOptions importOptions, TaskId id, DataValueSet dataValueSet )
     {
         importOptions = ObjectUtils.firstNonNull( importOptions, ImportOptions.getDefaultImportOptions() );
 
@@ -643,6 +662,7 @@ public class DefaultDataValueSetService
 
         boolean dryRun = dataValueSet.getDryRun() != null ? dataValueSet.getDryRun() : importOptions.isDryRun();
         boolean skipExistingCheck = importOptions.isSkipExistingCheck();
+        boolean bulkImport = importOptions.isBulkImport() && dataValueSetStore.isMergeDataValuesSupported();
         boolean strictPeriods = importOptions.isStrictPeriods() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_PERIODS );
         boolean strictCategoryOptionCombos = importOptions.isStrictCategoryOptionCombos() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_CATEGORY_OPTION_COMBOS );
         boolean strictAttrOptionCombos = importOptions.isStrictAttributeOptionCombos() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_ATTRIBUTE_OPTION_COMBOS );
@@ -749,7 +769,6 @@ public class DefaultDataValueSetService
         {
             summary.setDescription( "Import process was aborted" );
             notifier.notify( id, WARN, "Import process aborted", true ).addTaskSummary( id, summary );
-            dataValueSet.close();
             return summary;
         }
 
@@ -774,6 +793,17 @@ public class DefaultDataValueSetService
         int deleteCount = 0;
         int totalCount = 0;
 
+        List<DataValue> bulkValues = new ArrayList<>();
+        Set<String> bulkKeys = new HashSet<>();
+
+        Set<DataElement> importedDataElements = new HashSet<>();
+        Set<OrganisationUnit> importedOrgUnits = new HashSet<>();
+
+        if ( importOptions.isBulkImport() && !bulkImport )
+        {
+            log.warn( "Bulk import is not supported by the database, importing data values one by one" );
+        }
+
         // ---------------------------------------------------------------------
         // Data values
         // ---------------------------------------------------------------------
@@ -1073,6 +1103,35 @@ public class DefaultDataValueSetService
             internalValue.setFollowup( dataValue.getFollowup() );
             internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
 
+            importedDataElements.add( dataElement );
+            importedOrgUnits.add( orgUnit );
+
+            // -----------------------------------------------------------------
+            // Stage data value for bulk merge, merge staged values first if
+            // the data value is already staged to retain the order of values.
+            // File resources are assigned per data value and are not staged.
+            // -----------------------------------------------------------------
+
+            if ( bulkImport && !dataElement.isFileType() )
+            {
+                String key = dataElement.getId() + "-" + period.getId() + "-" + orgUnit.getId() + "-" +
+                    categoryOptionCombo.getId() + "-" + attrOptionCombo.getId();
+
+                if ( bulkValues.size() >= BULK_IMPORT_BATCH_SIZE || bulkKeys.contains( key ) )
+                {
+                    ImportCount bulkCount = mergeDataValues( bulkValues, bulkKeys, strategy, dryRun );
+
+                    importCount += bulkCount.getImported();
+                    updateCount += bulkCount.getUpdated();
+                    deleteCount += bulkCount.getDeleted();
+                }
+
+                bulkValues.add( internalValue );
+                bulkKeys.add( key );
+
+                continue;
+            }
+
             // -----------------------------------------------------------------
             // Save, update or delete data value
             // -----------------------------------------------------------------
@@ -1196,9 +1255,29 @@ public class DefaultDataValueSetService
             }
         }
 
+        if ( !bulkValues.isEmpty() )
+        {
+            ImportCount bulkCount = mergeDataValues( bulkValues, bulkKeys, strategy, dryRun );
+
+            importCount += bulkCount.getImported();
+            updateCount += bulkCount.getUpdated();
+            deleteCount += bulkCount.getDeleted();
+        }
+
         dataValueBatchHandler.flush();
         auditBatchHandler.flush();
 
+        // ---------------------------------------------------------------------
+        // Refresh min-max statistics as values bypassed the data value service
+        // ---------------------------------------------------------------------
+
+        if ( !dryRun )
+        {
+            minMaxDataElementService.refreshMinMaxStatistics( importedDataElements, importedOrgUnits );
+
+            clock.logTime( "Refreshed min-max statistics" );
+        }
+
         int ignores = totalCount - importCount - updateCount - deleteCount;
 
         summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
@@ -1208,8 +1287,6 @@ public class DefaultDataValueSetService
         clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
         notifier.notify( id, notificationLevel, "Import done", true ).addTaskSummary( id, notificationLevel, summary );
 
-        dataValueSet.close();
-
         return summary;
     }
 
@@ -1257,6 +1334,27 @@ public class DefaultDataValueSetService
         summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
     }
 
+    /**
+     * Merges the given staged data values and clears the staged values and keys.
+     *
+     * @param bulkValues the staged data values.
+     * @param bulkKeys   the unique keys of the staged data values.
+     * @param strategy   the import strategy.
+     * @param dryRun     whether to only count data values.
+     */
+    private ImportCount mergeDataValues( List<DataValue> bulkValues, Set<String> bulkKeys, ImportStrategy strategy, boolean dryRun )
+    {
+        ImportCount count = dataValueSetStore.mergeDataValues( bulkValues, strategy, dryRun );
+
+        log.info( String.format( "Merged %d staged data values, import: %d, update: %d, delete: %d",
+            bulkValues.size(), count.getImported(), count.getUpdated(), count.getDeleted() ) );
+
+        bulkValues.clear();
+        bulkKeys.clear();
+
+        return count;
+    }
+
     /**
      * Checks whether the given data set is locked.
      *
@@ -0,0 +1,343 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data value set which reads the data values of a streaming data value set
+ * in a separate thread. Data values are copied and handed over through a
+ * bounded queue, so that parsing of the input overlaps with validation and
+ * persistence of data values in the importing thread. The order of data
+ * values is retained.
+ * <p>
+ * The header properties of the data value set are read when this object is
+ * constructed. Reading of data values starts at the first call to
+ * {@link #hasNextDataValue()}. Errors in the reading thread are rethrown in
+ * the importing thread. If either thread waits for the other for longer than
+ * the max wait time, reading is abandoned and an exception is thrown in the
+ * importing thread.
+ */
+public class PipelinedDataValueSet
+    extends DataValueSet
+{
+    private static final Log log = LogFactory.getLog( PipelinedDataValueSet.class );
+
+    private static final int DEFAULT_CAPACITY = 5000;
+
+    private static final long DEFAULT_MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis( 30 );
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final DataValue END_OF_STREAM = new DataValue();
+
+    private final DataValueSet dataValueSet;
+
+    private final BlockingQueue<DataValue> queue;
+
+    private final long maxWaitMillis;
+
+    private ExecutorService executor;
+
+    private volatile Throwable failure;
+
+    private volatile boolean closed;
+
+    private volatile boolean done;
+
+    private DataValue next;
+
+    private boolean exhausted;
+
+    //--------------------------------------------------------------------------
+    // Constructors
+    //--------------------------------------------------------------------------
+
+    public PipelinedDataValueSet( DataValueSet dataValueSet )
+    {
+        this( dataValueSet, DEFAULT_CAPACITY );
+    }
+
+    public PipelinedDataValueSet( DataValueSet dataValueSet, int capacity )
+    {
+        this( dataValueSet, capacity, DEFAULT_MAX_WAIT_MILLIS );
+    }
+
+    /**
+     * @param dataValueSet the data value set to read.
+     * @param capacity the max number of data values held in the queue.
+     * @param maxWaitMillis the max time in milliseconds either thread waits
+     *        for the other before reading is abandoned.
+     */
+    public PipelinedDataValueSet( DataValueSet dataValueSet, int capacity, long maxWaitMillis )
+    {
+        this.dataValueSet = dataValueSet;
+        this.queue = new ArrayBlockingQueue<>( capacity );
+        this.maxWaitMillis = maxWaitMillis;
+
+        this.idScheme = dataValueSet.getIdScheme();
+        this.dataElementIdScheme = dataValueSet.getDataElementIdScheme();
+        this.orgUnitIdScheme = dataValueSet.getOrgUnitIdScheme();
+        this.categoryOptionComboIdScheme = dataValueSet.getCategoryOptionComboIdScheme();
+        this.dataSetIdScheme = dataValueSet.getDataSetIdScheme();
+        this.dryRun = dataValueSet.getDryRun();
+        this.strategy = dataValueSet.getStrategy();
+        this.dataSet = dataValueSet.getDataSet();
+        this.completeDate = dataValueSet.getCompleteDate();
+        this.period = dataValueSet.getPeriod();
+        this.orgUnit = dataValueSet.getOrgUnit();
+        this.attributeOptionCombo = dataValueSet.getAttributeOptionCombo();
+        this.attributeCategoryOptions = dataValueSet.getAttributeCategoryOptions();
+    }
+
+    //--------------------------------------------------------------------------
+    // Logic
+    //--------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+
+        if ( next != null )
+        {
+            return true;
+        }
+
+        if ( executor == null )
+        {
+            start();
+        }
+
+        try
+        {
+            next = take();
+        }
+        catch ( InterruptedException ex )
+        {
+            exhausted = true;
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while waiting for data values", ex );
+        }
+
+        if ( next == END_OF_STREAM )
+        {
+            next = null;
+            exhausted = true;
+
+            rethrowFailure();
+
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        if ( !hasNextDataValue() )
+        {
+            return null;
+        }
+
+        DataValue dataValue = next;
+        next = null;
+        return dataValue;
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+            queue.clear();
+
+            try
+            {
+                executor.awaitTermination( 1, TimeUnit.MINUTES );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        dataValueSet.close();
+    }
+
+    //--------------------------------------------------------------------------
+    // Supportive methods
+    //--------------------------------------------------------------------------
+
+    private void start()
+    {
+        executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat( "data-value-set-reader-%d" ).setDaemon( true ).build() );
+
+        executor.submit( this::read );
+        executor.shutdown();
+    }
+
+    /**
+     * Takes the next data value from the queue. Returns the end of stream
+     * marker if the reading thread is done and the queue is drained, also
+     * when the reading thread could not enqueue the marker.
+     *
+     * @throws IllegalStateException if no data value was read within the
+     *         max wait time.
+     */
+    private DataValue take()
+        throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+
+        while ( true )
+        {
+            DataValue dataValue = queue.poll( POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+
+            if ( dataValue != null )
+            {
+                return dataValue;
+            }
+
+            if ( done && queue.isEmpty() )
+            {
+                return END_OF_STREAM;
+            }
+
+            if ( System.currentTimeMillis() > deadline )
+            {
+                exhausted = true;
+                throw new IllegalStateException( "Data values not read within " + maxWaitMillis + " ms" );
+            }
+        }
+    }
+
+    /**
+     * Reads all data values of the underlying data value set into the queue,
+     * followed by the end of stream marker. Reading is abandoned with a
+     * failure if the importing thread stops taking data values. The reading
+     * thread is always marked as done, so that the importing thread does not
+     * wait for data values which never arrive.
+     */
+    private void read()
+    {
+        int count = 0;
+
+        try
+        {
+            while ( !closed && dataValueSet.hasNextDataValue() )
+            {
+                enqueue( copy( dataValueSet.getNextDataValue() ) );
+
+                count++;
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            log.debug( "Data value reader interrupted after data values: " + count );
+
+            if ( !closed )
+            {
+                failure = new IllegalStateException( "Data value reader interrupted after data values: " + count, ex );
+            }
+        }
+        catch ( RuntimeException | Error ex )
+        {
+            failure = ex;
+        }
+        finally
+        {
+            queue.offer( END_OF_STREAM );
+            done = true;
+        }
+    }
+
+    private void enqueue( DataValue dataValue )
+        throws InterruptedException
+    {
+        if ( !queue.offer( dataValue, maxWaitMillis, TimeUnit.MILLISECONDS ) )
+        {
+            log.warn( "Data values not consumed within " + maxWaitMillis + " ms, stopped reading data values" );
+
+            throw new IllegalStateException( "Data values not consumed within " + maxWaitMillis + " ms" );
+        }
+    }
+
+    private void rethrowFailure()
+    {
+        if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        else if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Copies the given data value. Streaming data values read their properties
+     * lazily from the underlying reader, and must be copied before the reader
+     * moves on to the next data value.
+     */
+    private static DataValue copy( DataValue dataValue )
+    {
+        DataValue copy = new DataValue();
+        copy.setDataElement( dataValue.getDataElement() );
+        copy.setPeriod( dataValue.getPeriod() );
+        copy.setOrgUnit( dataValue.getOrgUnit() );
+        copy.setCategoryOptionCombo( dataValue.getCategoryOptionCombo() );
+        copy.setAttributeOptionCombo( dataValue.getAttributeOptionCombo() );
+        copy.setValue( dataValue.getValue() );
+        copy.setStoredBy( dataValue.getStoredBy() );
+        copy.setCreated( dataValue.getCreated() );
+        copy.setLastUpdated( dataValue.getLastUpdated() );
+        copy.setComment( dataValue.getComment() );
+        copy.setFollowup( dataValue.getFollowup() );
+        copy.setDeleted( dataValue.getDeleted() );
+        return copy;
+    }
+}
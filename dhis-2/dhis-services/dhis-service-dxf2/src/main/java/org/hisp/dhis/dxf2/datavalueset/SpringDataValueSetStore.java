@@ -37,23 +37,35 @@ import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Date;
+import java.util.List;
 
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
+import static org.hisp.dhis.system.util.DateUtils.getLongDateString;
 import static org.hisp.dhis.system.util.DateUtils.getLongGmtDateString;
 import static org.hisp.dhis.system.util.DateUtils.getMediumDateString;
 
@@ -67,9 +79,21 @@ public class SpringDataValueSetStore
 
     private static final char CSV_DELIM = ',';
 
+    private static final String STAGING_TABLE = "datavalue_staging";
+
+    private static final String STAGING_COLUMNS = "dataelementid,periodid,sourceid,categoryoptioncomboid," +
+        "attributeoptioncomboid,value,storedby,created,lastupdated,comment,followup,deleted";
+
+    private static final String KEY_JOIN = "s.dataelementid = dv.dataelementid and s.periodid = dv.periodid " +
+        "and s.sourceid = dv.sourceid and s.categoryoptioncomboid = dv.categoryoptioncomboid " +
+        "and s.attributeoptioncomboid = dv.attributeoptioncomboid";
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatementBuilder statementBuilder;
+
     //--------------------------------------------------------------------------
     // DataValueSetStore implementation
     //--------------------------------------------------------------------------
@@ -135,6 +159,234 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public boolean isMergeDataValuesSupported()
+    {
+        return jdbcTemplate.execute( (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor( PGConnection.class ) );
+    }
+
+    @Override
+    public ImportCount mergeDataValues( List<org.hisp.dhis.datavalue.DataValue> dataValues, ImportStrategy strategy, boolean dryRun )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return new ImportCount();
+        }
+
+        return jdbcTemplate.execute( (ConnectionCallback<ImportCount>) connection -> {
+
+            boolean autoCommit = connection.getAutoCommit();
+
+            try
+            {
+                connection.setAutoCommit( false );
+
+                ImportCount count = mergeDataValues( connection, dataValues, strategy, dryRun );
+
+                if ( autoCommit )
+                {
+                    connection.commit();
+                }
+
+                return count;
+            }
+            catch ( SQLException | RuntimeException ex )
+            {
+                if ( autoCommit )
+                {
+                    connection.rollback();
+                }
+
+                throw ex;
+            }
+            finally
+            {
+                connection.setAutoCommit( autoCommit );
+            }
+        } );
+    }
+
+    private ImportCount mergeDataValues( Connection connection, List<org.hisp.dhis.datavalue.DataValue> dataValues, ImportStrategy strategy, boolean dryRun )
+        throws SQLException
+    {
+        boolean update = strategy.isCreateAndUpdate() || strategy.isUpdate();
+        boolean create = strategy.isCreateAndUpdate() || strategy.isCreate();
+
+        // ---------------------------------------------------------------------
+        // Conditions on staged value s and existing value dv, must be mutually
+        // exclusive and match the per value logic of the data value set service
+        // ---------------------------------------------------------------------
+
+        String deleteCond = update ? "(dv.deleted = false and (s.nullvalue or s.deleted))" : strategy.isDelete() ? "(dv.deleted = false)" : "false";
+        String updateCond = update ? "(dv.deleted = false and not s.nullvalue and not s.deleted)" : "false";
+        String restoreCond = create ? "(dv.deleted = true and not s.nullvalue)" : "false";
+        String insertCond = create ? "(dv.dataelementid is null and not s.nullvalue)" : "false";
+
+        // ---------------------------------------------------------------------
+        // Staging table is dropped at the end of the merge, and otherwise at
+        // the end of the transaction, so it never outlives a pooled connection
+        // ---------------------------------------------------------------------
+
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.execute( "create temp table " + STAGING_TABLE + " (" +
+                "dataelementid integer not null, periodid integer not null, sourceid integer not null, " +
+                "categoryoptioncomboid integer not null, attributeoptioncomboid integer not null, " +
+                "value text, storedby text, created timestamp, lastupdated timestamp, comment text, " +
+                "followup boolean, deleted boolean, nullvalue boolean) on commit drop" );
+
+            copyDataValues( connection, dataValues );
+
+            statement.execute( "analyze " + STAGING_TABLE );
+
+            String sql =
+                "select sum(case when " + insertCond + " or " + restoreCond + " then 1 else 0 end) as imported, " +
+                "sum(case when " + updateCond + " then 1 else 0 end) as updated, " +
+                "sum(case when " + deleteCond + " then 1 else 0 end) as deleted " +
+                "from " + STAGING_TABLE + " s " +
+                "left join datavalue dv on " + KEY_JOIN;
+
+            log.debug( "Data value merge count SQL: " + sql );
+
+            ImportCount count = new ImportCount();
+
+            try ( ResultSet rs = statement.executeQuery( sql ) )
+            {
+                rs.next();
+
+                count.setImported( rs.getInt( "imported" ) );
+                count.setUpdated( rs.getInt( "updated" ) );
+                count.setDeleted( rs.getInt( "deleted" ) );
+            }
+
+            if ( !dryRun )
+            {
+                // -------------------------------------------------------------
+                // Audits must be written before updates to get previous values
+                // -------------------------------------------------------------
+
+                sql =
+                    "insert into datavalueaudit (datavalueauditid, dataelementid, periodid, organisationunitid, " +
+                    "categoryoptioncomboid, attributeoptioncomboid, value, modifiedby, created, audittype) " +
+                    "select " + statementBuilder.getAutoIncrementValue() + ", s.dataelementid, s.periodid, s.sourceid, " +
+                    "s.categoryoptioncomboid, s.attributeoptioncomboid, dv.value, s.storedby, now(), " +
+                    "case when " + deleteCond + " then '" + AuditType.DELETE + "' else '" + AuditType.UPDATE + "' end " +
+                    "from " + STAGING_TABLE + " s " +
+                    "inner join datavalue dv on " + KEY_JOIN + " " +
+                    "where " + deleteCond + " or " + updateCond;
+
+                int audits = statement.executeUpdate( sql );
+
+                sql =
+                    "update datavalue dv set value = s.value, storedby = s.storedby, created = s.created, " +
+                    "lastupdated = s.lastupdated, lastupdatedatserver = now(), comment = s.comment, followup = s.followup, " +
+                    "deleted = case when " + deleteCond + " then true else s.deleted end " +
+                    "from " + STAGING_TABLE + " s " +
+                    "where " + KEY_JOIN + " " +
+                    "and (" + deleteCond + " or " + updateCond + " or " + restoreCond + ")";
+
+                int updates = statement.executeUpdate( sql );
+
+                int inserts = 0;
+
+                if ( create )
+                {
+                    sql =
+                        "insert into datavalue (" + STAGING_COLUMNS + ",lastupdatedatserver) " +
+                        "select " + STAGING_COLUMNS + ",now() " +
+                        "from " + STAGING_TABLE + " s " +
+                        "where not s.nullvalue " +
+                        "and not exists (select 1 from datavalue dv where " + KEY_JOIN + ")";
+
+                    inserts = statement.executeUpdate( sql );
+                }
+
+                log.debug( String.format( "Merged data values, staged: %d, audits: %d, updates: %d, inserts: %d",
+                    dataValues.size(), audits, updates, inserts ) );
+            }
+
+            statement.execute( "drop table " + STAGING_TABLE );
+
+            return count;
+        }
+    }
+
+    /**
+     * Writes the given data values to the staging table using COPY in text
+     * format.
+     */
+    private void copyDataValues( Connection connection, List<org.hisp.dhis.datavalue.DataValue> dataValues )
+        throws SQLException
+    {
+        CopyIn copyIn = connection.unwrap( PGConnection.class ).getCopyAPI()
+            .copyIn( "copy " + STAGING_TABLE + " (" + STAGING_COLUMNS + ",nullvalue) from stdin" );
+
+        try
+        {
+            for ( org.hisp.dhis.datavalue.DataValue dv : dataValues )
+            {
+                String row = getCopyRow(
+                    dv.getDataElement().getId(),
+                    dv.getPeriod().getId(),
+                    dv.getSource().getId(),
+                    dv.getCategoryOptionCombo().getId(),
+                    dv.getAttributeOptionCombo().getId(),
+                    dv.getValue(),
+                    dv.getStoredBy(),
+                    getLongDateString( dv.getCreated() ),
+                    getLongDateString( dv.getLastUpdated() ),
+                    dv.getComment(),
+                    dv.isFollowup(),
+                    dv.isDeleted(),
+                    dv.isNullValue() );
+
+                byte[] bytes = row.getBytes( StandardCharsets.UTF_8 );
+
+                copyIn.writeToCopy( bytes, 0, bytes.length );
+            }
+
+            copyIn.endCopy();
+        }
+        finally
+        {
+            if ( copyIn.isActive() )
+            {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Returns a row in COPY text format for the given values.
+     */
+    private String getCopyRow( Object... values )
+    {
+        StringBuilder row = new StringBuilder();
+
+        for ( Object value : values )
+        {
+            if ( value == null )
+            {
+                row.append( "\\N" );
+            }
+            else if ( value instanceof Boolean )
+            {
+                row.append( (Boolean) value ? "t" : "f" );
+            }
+            else
+            {
+                row.append( String.valueOf( value ).replace( "\\", "\\\\" ).replace( "\t", "\\t" )
+                    .replace( "\n", "\\n" ).replace( "\r", "\\r" ) );
+            }
+
+            row.append( '\t' );
+        }
+
+        row.setCharAt( row.length() - 1, '\n' );
+
+        return row.toString();
+    }
+
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
     {
         if ( params.isSingleDataValueSet() )
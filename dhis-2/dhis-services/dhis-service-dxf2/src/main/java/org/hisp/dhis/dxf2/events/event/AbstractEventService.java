@@ -42,7 +42,9 @@ import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
 import org.hisp.dhis.common.Pager;
@@ -101,10 +103,13 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
 import java.io.IOException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -195,8 +200,15 @@ public abstract class AbstractEventService
     @Autowired
     protected FileResourceService fileResourceService;
 
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
     protected static final int FLUSH_FREQUENCY = 50;
 
+    private static final String DATA_VALUE_INSERT_SQL = "insert into trackedentitydatavalue " +
+        "(programstageinstanceid, dataelementid, value, providedelsewhere, storedby, created, lastupdated) " +
+        "values (?, ?, ?, ?, ?, ?, ?)";
+
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     // -------------------------------------------------------------------------
@@ -221,20 +233,29 @@ public abstract class AbstractEventService
     public ImportSummaries addEvents( List<Event> events, ImportOptions importOptions )
     {
         ImportSummaries importSummaries = new ImportSummaries();
-        int counter = 0;
+
+        if ( importOptions == null )
+        {
+            importOptions = new ImportOptions();
+        }
 
         User user = currentUserService.getCurrentUser();
 
-        for ( Event event : events )
+        EventImportContext context = new EventImportContext( true );
+
+        for ( List<Event> batch : Lists.partition( events, FLUSH_FREQUENCY ) )
         {
-            importSummaries.addImportSummary( addEvent( event, user, importOptions ) );
+            preheatCaches( batch, importOptions.getIdSchemes(), context );
 
-            if ( counter % FLUSH_FREQUENCY == 0 )
+            for ( Event event : batch )
             {
-                clearSession();
+                importSummaries.addImportSummary( addEvent( event, user, importOptions, context ) );
             }
 
-            counter++;
+            flushBatches( context );
+
+            context.clearCaches();
+            clearSession();
         }
 
         return importSummaries;
@@ -273,6 +294,11 @@ public abstract class AbstractEventService
     }
 
     protected ImportSummary addEvent( Event event, User user, ImportOptions importOptions )
+    {
+        return addEvent( event, user, importOptions, new EventImportContext( false ) );
+    }
+
+    protected ImportSummary addEvent( Event event, User user, ImportOptions importOptions, EventImportContext context )
     {
         if ( importOptions == null )
         {
@@ -319,8 +345,7 @@ public abstract class AbstractEventService
                     "No Event.trackedEntityInstance was provided for registration based program" ).setReference( event.getEvent() ).incrementIgnored();
             }
 
-            org.hisp.dhis.trackedentity.TrackedEntityInstance entityInstance = entityInstanceService
-                .getTrackedEntityInstance( event.getTrackedEntityInstance() );
+            TrackedEntityInstance entityInstance = getTrackedEntityInstance( event.getTrackedEntityInstance(), context );
 
             if ( entityInstance == null )
             {
@@ -360,7 +385,7 @@ public abstract class AbstractEventService
             {
                 if ( StringUtils.isNotEmpty( event.getEvent() ) )
                 {
-                    programStageInstance = manager.getObject( ProgramStageInstance.class, importOptions.getIdSchemes().getProgramStageInstanceIdScheme(), event.getEvent() );
+                    programStageInstance = getProgramStageInstance( importOptions.getIdSchemes().getProgramStageInstanceIdScheme(), event.getEvent(), context );
                     
                     if ( programStageInstance == null )
                     {
@@ -375,8 +400,10 @@ public abstract class AbstractEventService
         }
         else
         {
-            List<ProgramInstance> programInstances = new ArrayList<>(
-                programInstanceService.getProgramInstances( program, ProgramStatus.ACTIVE ) );
+            final Program eventProgram = program;
+
+            List<ProgramInstance> programInstances = context.getActiveProgramInstanceCache().get( program.getUid(),
+                () -> new ArrayList<>( programInstanceService.getProgramInstances( eventProgram, ProgramStatus.ACTIVE ) ) );
 
             if ( programInstances.isEmpty() )
             {
@@ -401,7 +428,7 @@ public abstract class AbstractEventService
 
             if ( StringUtils.isNotEmpty( event.getEvent() ) )
             {
-                programStageInstance = manager.getObject( ProgramStageInstance.class, importOptions.getIdSchemes().getProgramStageInstanceIdScheme(), event.getEvent() );
+                programStageInstance = getProgramStageInstance( importOptions.getIdSchemes().getProgramStageInstanceIdScheme(), event.getEvent(), context );
 
                 if ( programStageInstance == null )
                 {
@@ -438,7 +465,7 @@ public abstract class AbstractEventService
         validateExpiryDays( event, program, null );
 
         return saveEvent( program, programInstance, programStage, programStageInstance, organisationUnit, event, user,
-            importOptions );
+            importOptions, context );
     }
 
     // -------------------------------------------------------------------------
@@ -1252,7 +1279,7 @@ public abstract class AbstractEventService
 
     private ImportSummary saveEvent( Program program, ProgramInstance programInstance, ProgramStage programStage,
         ProgramStageInstance programStageInstance, OrganisationUnit organisationUnit, Event event, User user,
-        ImportOptions importOptions )
+        ImportOptions importOptions, EventImportContext context )
     {
         Assert.notNull( program, "Program cannot be null" );
         Assert.notNull( programInstance, "Program instance cannot be null" );
@@ -1268,6 +1295,13 @@ public abstract class AbstractEventService
         boolean existingEvent = programStageInstance != null;
         boolean dryRun = importOptions.isDryRun();
 
+        if ( existingEvent && context.isBatched() && context.getProgramStageInstanceBatch().contains( programStageInstance ) )
+        {
+            // Event was created earlier in this batch, write pending data values first
+
+            flushBatches( context );
+        }
+
         Date executionDate = null; // = new Date();
 
         if ( event.getEventDate() != null )
@@ -1314,6 +1348,11 @@ public abstract class AbstractEventService
                 programStageInstance = createProgramStageInstance( event, programStage, programInstance, organisationUnit,
                     dueDate, executionDate, event.getStatus().getValue(), event.getCoordinate(), completedBy,
                     event.getEvent(), aoc, importOptions );
+
+                if ( event.getEvent() != null )
+                {
+                    context.getProgramStageInstanceCache().put( event.getEvent(), programStageInstance );
+                }
             }
             else
             {
@@ -1322,7 +1361,15 @@ public abstract class AbstractEventService
                     importOptions );
             }
 
-            updateTrackedEntityInstance( programStageInstance );
+            if ( context.isBatched() )
+            {
+                context.getProgramStageInstanceBatch().add( programStageInstance );
+            }
+            else
+            {
+                updateTrackedEntityInstance( programStageInstance );
+            }
+
             saveTrackedEntityComment( programStageInstance, event, storedBy );
 
             importSummary.setReference( programStageInstance.getUid() );
@@ -1356,7 +1403,12 @@ public abstract class AbstractEventService
                 {
                     String dataValueStoredBy = dataValue.getStoredBy() != null ? dataValue.getStoredBy() : storedBy;
 
-                    if ( !dryRun )
+                    if ( !dryRun && context.isBatched() && !existingEvent && !dataElement.isFileType() )
+                    {
+                        addDataValueToBatch( programStageInstance, dataValueStoredBy, dataElement, dataValue.getValue(),
+                            dataValue.getProvidedElsewhere(), importSummary, context );
+                    }
+                    else if ( !dryRun )
                     {
                         TrackedEntityDataValue existingDataValue = dataElementValueMap
                             .get( dataValue.getDataElement() );
@@ -1427,6 +1479,64 @@ public abstract class AbstractEventService
         }
     }
 
+    /**
+     * Adds a data value of a new event to the data value batch. Values are
+     * validated up front and are inserted when the batch is flushed.
+     */
+    private void addDataValueToBatch( ProgramStageInstance programStageInstance, String storedBy, DataElement dataElement,
+        String value, Boolean providedElsewhere, ImportSummary importSummary, EventImportContext context )
+    {
+        if ( value != null && value.trim().length() == 0 )
+        {
+            value = null;
+        }
+
+        if ( value != null )
+        {
+            TrackedEntityDataValue dataValue = new TrackedEntityDataValue( programStageInstance, dataElement, value );
+            dataValue.setStoredBy( StringUtils.isEmpty( storedBy ) ? currentUserService.getCurrentUsername() : storedBy );
+            dataValue.setProvidedElsewhere( providedElsewhere );
+            dataValue.setAutoFields();
+
+            context.getDataValueBatch().add( dataValue );
+
+            importSummary.getImportCount().incrementImported();
+        }
+    }
+
+    /**
+     * Updates program instances and tracked entity instances of the batch of
+     * events once, and inserts the batch of data values using JDBC batches.
+     * The session is flushed first as data values refer to new events.
+     */
+    protected void flushBatches( EventImportContext context )
+    {
+        List<TrackedEntityDataValue> dataValueBatch = context.getDataValueBatch();
+        List<ProgramStageInstance> programStageInstanceBatch = context.getProgramStageInstanceBatch();
+
+        updateTrackedEntityInstance( programStageInstanceBatch );
+
+        if ( !dataValueBatch.isEmpty() )
+        {
+            sessionFactory.getCurrentSession().flush();
+
+            jdbcTemplate.batchUpdate( DATA_VALUE_INSERT_SQL, dataValueBatch, dataValueBatch.size(), ( ps, dv ) -> {
+                ps.setInt( 1, dv.getProgramStageInstance().getId() );
+                ps.setInt( 2, dv.getDataElement().getId() );
+                ps.setString( 3, dv.getValue() );
+                ps.setObject( 4, dv.getProvidedElsewhere(), Types.BOOLEAN );
+                ps.setString( 5, dv.getStoredBy() );
+                ps.setTimestamp( 6, new Timestamp( dv.getCreated().getTime() ) );
+                ps.setTimestamp( 7, new Timestamp( dv.getLastUpdated().getTime() ) );
+            } );
+
+            log.debug( "Inserted batch of event data values: " + dataValueBatch.size() );
+        }
+
+        dataValueBatch.clear();
+        programStageInstanceBatch.clear();
+    }
+
     private ProgramStageInstance createProgramStageInstance( Event event, ProgramStage programStage, ProgramInstance programInstance,
         OrganisationUnit organisationUnit, Date dueDate, Date executionDate, int status, Coordinate coordinate,
         String completedBy, String programStageInstanceIdentifier, DataElementCategoryOptionCombo aoc,
@@ -1501,6 +1611,11 @@ public abstract class AbstractEventService
 
     private void saveTrackedEntityComment( ProgramStageInstance programStageInstance, Event event, String storedBy )
     {
+        if ( event.getNotes().isEmpty() )
+        {
+            return;
+        }
+
         for ( Note note : event.getNotes() )
         {
             TrackedEntityComment comment = new TrackedEntityComment();
@@ -1511,9 +1626,9 @@ public abstract class AbstractEventService
             commentService.addTrackedEntityComment( comment );
 
             programStageInstance.getComments().add( comment );
-
-            programStageInstanceService.updateProgramStageInstance( programStageInstance );
         }
+
+        programStageInstanceService.updateProgramStageInstance( programStageInstance );
     }
 
     private String getCompletedBy( Event event, ImportSummary importSummary, User fallbackUser )
@@ -1587,6 +1702,63 @@ public abstract class AbstractEventService
         return dataElementCache.get( id, () -> manager.getObject( DataElement.class, idScheme, id ) );
     }
 
+    private ProgramStageInstance getProgramStageInstance( IdScheme idScheme, String id, EventImportContext context )
+    {
+        return context.getProgramStageInstanceCache().get( id, () -> manager.getObject( ProgramStageInstance.class, idScheme, id ) );
+    }
+
+    private TrackedEntityInstance getTrackedEntityInstance( String uid, EventImportContext context )
+    {
+        return context.getTrackedEntityInstanceCache().get( uid, () -> entityInstanceService.getTrackedEntityInstance( uid ) );
+    }
+
+    /**
+     * Loads the programs, program stages, organisation units, data elements,
+     * existing events and tracked entity instances referred to by the given
+     * events into the caches with one query per type.
+     */
+    private void preheatCaches( List<Event> events, IdSchemes idSchemes, EventImportContext context )
+    {
+        preheatCache( programCache, Program.class, idSchemes.getProgramIdScheme(),
+            events.stream().map( Event::getProgram ).collect( Collectors.toSet() ) );
+        preheatCache( programStageCache, ProgramStage.class, idSchemes.getProgramStageIdScheme(),
+            events.stream().map( Event::getProgramStage ).collect( Collectors.toSet() ) );
+        preheatCache( organisationUnitCache, OrganisationUnit.class, idSchemes.getOrgUnitIdScheme(),
+            events.stream().map( Event::getOrgUnit ).collect( Collectors.toSet() ) );
+        preheatCache( dataElementCache, DataElement.class, idSchemes.getDataElementIdScheme(),
+            events.stream().flatMap( e -> e.getDataValues().stream() ).map( DataValue::getDataElement ).collect( Collectors.toSet() ) );
+        preheatCache( context.getProgramStageInstanceCache(), ProgramStageInstance.class, idSchemes.getProgramStageInstanceIdScheme(),
+            events.stream().map( Event::getEvent ).collect( Collectors.toSet() ) );
+        preheatCache( context.getTrackedEntityInstanceCache(), TrackedEntityInstance.class, IdScheme.UID,
+            events.stream().map( Event::getTrackedEntityInstance ).collect( Collectors.toSet() ) );
+    }
+
+    /**
+     * Loads the objects with the given identifiers into the given cache. Missing
+     * identifiers are cached as null to avoid lookups per event. Only UID and
+     * code identifier schemes are preheated.
+     */
+    private <T extends IdentifiableObject> void preheatCache( CachingMap<String, T> cache, Class<T> klass, IdScheme idScheme, Set<String> ids )
+    {
+        if ( !idScheme.is( IdentifiableProperty.UID ) && !idScheme.is( IdentifiableProperty.CODE ) )
+        {
+            return;
+        }
+
+        Set<String> identifiers = ids.stream().filter( id -> id != null && !cache.containsKey( id ) ).collect( Collectors.toSet() );
+
+        if ( identifiers.isEmpty() )
+        {
+            return;
+        }
+
+        List<T> objects = manager.getObjects( klass, idScheme.getIdentifiableProperty(), identifiers );
+
+        cache.load( objects, o -> o.getPropertyValue( idScheme ) );
+
+        identifiers.forEach( id -> cache.putIfAbsent( id, null ) );
+    }
+
     @Override
     public void validate( EventSearchParams params )
         throws IllegalQueryException
@@ -0,0 +1,118 @@
+package org.hisp.dhis.dxf2.events.event;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.commons.collection.CachingMap;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.trackedentitydatavalue.TrackedEntityDataValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a single event import. Holds the events, tracked entity instances
+ * and active program instances resolved during the import, and the batches of
+ * events and data values which are written when the batch is flushed. A new
+ * context is created for each import and is never shared between imports.
+ */
+class EventImportContext
+{
+    private final CachingMap<String, ProgramStageInstance> programStageInstanceCache = new CachingMap<>();
+
+    private final CachingMap<String, TrackedEntityInstance> trackedEntityInstanceCache = new CachingMap<>();
+
+    private final CachingMap<String, List<ProgramInstance>> activeProgramInstanceCache = new CachingMap<>();
+
+    /**
+     * Batches, null when events are not imported in batches.
+     */
+    private final List<TrackedEntityDataValue> dataValueBatch;
+
+    private final List<ProgramStageInstance> programStageInstanceBatch;
+
+    /**
+     * @param batched whether events and data values are written in batches.
+     */
+    EventImportContext( boolean batched )
+    {
+        this.dataValueBatch = batched ? new ArrayList<>() : null;
+        this.programStageInstanceBatch = batched ? new ArrayList<>() : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    boolean isBatched()
+    {
+        return dataValueBatch != null;
+    }
+
+    /**
+     * Clears the caches. Called when the session is cleared, as the cached
+     * objects are then detached.
+     */
+    void clearCaches()
+    {
+        programStageInstanceCache.clear();
+        trackedEntityInstanceCache.clear();
+        activeProgramInstanceCache.clear();
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    CachingMap<String, ProgramStageInstance> getProgramStageInstanceCache()
+    {
+        return programStageInstanceCache;
+    }
+
+    CachingMap<String, TrackedEntityInstance> getTrackedEntityInstanceCache()
+    {
+        return trackedEntityInstanceCache;
+    }
+
+    CachingMap<String, List<ProgramInstance>> getActiveProgramInstanceCache()
+    {
+        return activeProgramInstanceCache;
+    }
+
+    List<TrackedEntityDataValue> getDataValueBatch()
+    {
+        return dataValueBatch;
+    }
+
+    List<ProgramStageInstance> getProgramStageInstanceBatch()
+    {
+        return programStageInstanceBatch;
+    }
+}
@@ -81,6 +81,12 @@ public class DefaultObjectBundleService implements ObjectBundleService
 {
     private static final Log log = LogFactory.getLog( DefaultObjectBundleService.class );
 
+    /**
+     * JDBC batch size of the session during commit, so that the inserts and
+     * updates of each type are sent to the database in batches when flushed.
+     */
+    private static final int JDBC_BATCH_SIZE = 50;
+
     @Autowired
     private CurrentUserService currentUserService;
 
@@ -165,37 +171,47 @@ public class DefaultObjectBundleService implements ObjectBundleService
 
         objectBundleHooks.forEach( hook -> hook.preCommit( bundle ) );
 
-        for ( Class<? extends IdentifiableObject> klass : klasses )
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize( JDBC_BATCH_SIZE );
+
+        try
         {
-            List<IdentifiableObject> nonPersistedObjects = bundle.getObjects( klass, false );
-            List<IdentifiableObject> persistedObjects = bundle.getObjects( klass, true );
+            for ( Class<? extends IdentifiableObject> klass : klasses )
+            {
+                List<IdentifiableObject> nonPersistedObjects = bundle.getObjects( klass, false );
+                List<IdentifiableObject> persistedObjects = bundle.getObjects( klass, true );
 
-            objectBundleHooks.forEach( hook -> hook.preTypeImport( klass, nonPersistedObjects, bundle ) );
+                objectBundleHooks.forEach( hook -> hook.preTypeImport( klass, nonPersistedObjects, bundle ) );
 
-            if ( bundle.getImportMode().isCreateAndUpdate() )
-            {
-                TypeReport typeReport = new TypeReport( klass );
-                typeReport.merge( handleCreates( session, klass, nonPersistedObjects, bundle ) );
-                typeReport.merge( handleUpdates( session, klass, persistedObjects, bundle ) );
+                if ( bundle.getImportMode().isCreateAndUpdate() )
+                {
+                    TypeReport typeReport = new TypeReport( klass );
+                    typeReport.merge( handleCreates( session, klass, nonPersistedObjects, bundle ) );
+                    typeReport.merge( handleUpdates( session, klass, persistedObjects, bundle ) );
 
-                typeReports.put( klass, typeReport );
-            }
-            else if ( bundle.getImportMode().isCreate() )
-            {
-                typeReports.put( klass, handleCreates( session, klass, nonPersistedObjects, bundle ) );
-            }
-            else if ( bundle.getImportMode().isUpdate() )
-            {
-                typeReports.put( klass, handleUpdates( session, klass, persistedObjects, bundle ) );
-            }
-            else if ( bundle.getImportMode().isDelete() )
-            {
-                typeReports.put( klass, handleDeletes( session, klass, persistedObjects, bundle ) );
-            }
+                    typeReports.put( klass, typeReport );
+                }
+                else if ( bundle.getImportMode().isCreate() )
+                {
+                    typeReports.put( klass, handleCreates( session, klass, nonPersistedObjects, bundle ) );
+                }
+                else if ( bundle.getImportMode().isUpdate() )
+                {
+                    typeReports.put( klass, handleUpdates( session, klass, persistedObjects, bundle ) );
+                }
+                else if ( bundle.getImportMode().isDelete() )
+                {
+                    typeReports.put( klass, handleDeletes( session, klass, persistedObjects, bundle ) );
+                }
 
-            objectBundleHooks.forEach( hook -> hook.postTypeImport( klass, persistedObjects, bundle ) );
+                objectBundleHooks.forEach( hook -> hook.postTypeImport( klass, persistedObjects, bundle ) );
 
-            if ( FlushMode.AUTO == bundle.getFlushMode() ) session.flush();
+                if ( FlushMode.AUTO == bundle.getFlushMode() ) session.flush();
+            }
+        }
+        finally
+        {
+            session.setJdbcBatchSize( jdbcBatchSize );
         }
 
         if ( !bundle.getImportMode().isDelete() )
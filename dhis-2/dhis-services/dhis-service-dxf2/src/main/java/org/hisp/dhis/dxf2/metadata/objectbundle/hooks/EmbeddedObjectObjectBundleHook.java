@@ -34,7 +34,6 @@ import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundle;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
-import org.hisp.dhis.system.util.ReflectionUtils;
 
 import java.util.Collection;
 
@@ -79,11 +78,11 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( property.isCollection() )
             {
-                ((Collection<?>) ReflectionUtils.invokeMethod( object, property.getGetterMethod() )).clear();
+                ((Collection<?>) property.getValue( object )).clear();
             }
             else
             {
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                property.setValue( object, null );
             }
         }
     }
@@ -94,7 +93,7 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( property.isCollection() )
             {
-                Collection<?> objects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<?> objects = property.getValue( object );
                 objects.forEach( o ->
                 {
                     if ( property.isIdentifiableObject() )
@@ -107,7 +106,7 @@ public class EmbeddedObjectObjectBundleHook
             }
             else
             {
-                Object o = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object o = property.getValue( object );
 
                 if ( property.isIdentifiableObject() )
                 {
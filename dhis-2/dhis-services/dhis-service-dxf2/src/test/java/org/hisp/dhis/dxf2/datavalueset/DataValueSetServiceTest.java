@@ -308,6 +308,30 @@ public class DataValueSetServiceTest
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValueSetXmlLastUpdatedAtServer()
+        throws Exception
+    {
+        Date started = new Date();
+
+        in = new ClassPathResource( "datavalueset/dataValueSetALastUpdated.xml" ).getInputStream();
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+
+        Collection<DataValue> dataValues = mockDataValueBatchHandler.getInserts();
+
+        assertEquals( 3, dataValues.size() );
+
+        for ( DataValue dataValue : dataValues )
+        {
+            assertTrue( dataValue.getLastUpdated().before( started ) );
+            assertFalse( dataValue.getLastUpdatedAtServer().before( started ) );
+        }
+    }
+
     @Test
     public void testImportDataValueSetXmlPreheatCache()
         throws Exception
@@ -343,6 +367,31 @@ public class DataValueSetServiceTest
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValueSetXmlBulkImportNotSupported()
+        throws Exception
+    {
+        in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+        ImportOptions importOptions = new ImportOptions().setBulkImport( true );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, importOptions );
+
+        assertNotNull( summary );
+        assertNotNull( summary.getImportCount() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+
+        Collection<DataValue> dataValues = mockDataValueBatchHandler.getInserts();
+
+        assertNotNull( dataValues );
+        assertEquals( 3, dataValues.size() );
+        assertTrue( dataValues.contains( new DataValue( deA, peA, ouA, ocDef, ocDef ) ) );
+        assertTrue( dataValues.contains( new DataValue( deB, peA, ouA, ocDef, ocDef ) ) );
+        assertTrue( dataValues.contains( new DataValue( deC, peA, ouA, ocDef, ocDef ) ) );
+    }
+
     @Test
     public void testImportDataValuesXmlWithCodeA()
         throws Exception
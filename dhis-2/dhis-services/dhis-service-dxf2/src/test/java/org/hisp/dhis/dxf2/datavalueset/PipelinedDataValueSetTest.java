@@ -0,0 +1,221 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelinedDataValueSetTest
+{
+    @Test
+    public void testReadDataValues()
+    {
+        DataValueSet dataValueSet = new DataValueSet();
+        dataValueSet.setDataSet( "dataSetA" );
+        dataValueSet.setPeriod( "201701" );
+        dataValueSet.setOrgUnit( "orgUnitA" );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            dataValueSet.getDataValues().add( getDataValue( "dataElement" + i, String.valueOf( i ) ) );
+        }
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet, 10 );
+
+        assertEquals( "dataSetA", pipelined.getDataSet() );
+        assertEquals( "201701", pipelined.getPeriod() );
+        assertEquals( "orgUnitA", pipelined.getOrgUnit() );
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        while ( pipelined.hasNextDataValue() )
+        {
+            dataValues.add( pipelined.getNextDataValue() );
+        }
+
+        pipelined.close();
+
+        assertEquals( 100, dataValues.size() );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( "dataElement" + i, dataValues.get( i ).getDataElement() );
+            assertEquals( String.valueOf( i ), dataValues.get( i ).getValue() );
+        }
+
+        assertFalse( pipelined.hasNextDataValue() );
+        assertNull( pipelined.getNextDataValue() );
+    }
+
+    @Test
+    public void testCloseBeforeRead()
+    {
+        DataValueSet dataValueSet = new DataValueSet();
+        dataValueSet.getDataValues().add( getDataValue( "dataElementA", "1" ) );
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet );
+        pipelined.close();
+    }
+
+    @Test
+    public void testCloseBeforeReadCompleted()
+    {
+        DataValueSet dataValueSet = new DataValueSet();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            dataValueSet.getDataValues().add( getDataValue( "dataElement" + i, String.valueOf( i ) ) );
+        }
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet, 5 );
+
+        assertTrue( pipelined.hasNextDataValue() );
+        assertEquals( "dataElement0", pipelined.getNextDataValue().getDataElement() );
+
+        pipelined.close();
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testReadFailure()
+    {
+        DataValueSet dataValueSet = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                throw new IllegalStateException( "Malformed input" );
+            }
+        };
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet );
+
+        try
+        {
+            pipelined.hasNextDataValue();
+        }
+        finally
+        {
+            pipelined.close();
+        }
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testReadTimeout()
+    {
+        DataValueSet dataValueSet = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                try
+                {
+                    Thread.sleep( 10000 );
+                }
+                catch ( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                return false;
+            }
+        };
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet, 10, 200 );
+
+        try
+        {
+            pipelined.hasNextDataValue();
+        }
+        finally
+        {
+            pipelined.close();
+        }
+    }
+
+    @Test
+    public void testConsumeTimeout()
+        throws InterruptedException
+    {
+        DataValueSet dataValueSet = new DataValueSet();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            dataValueSet.getDataValues().add( getDataValue( "dataElement" + i, String.valueOf( i ) ) );
+        }
+
+        DataValueSet pipelined = new PipelinedDataValueSet( dataValueSet, 1, 200 );
+
+        assertTrue( pipelined.hasNextDataValue() );
+        assertEquals( "dataElement0", pipelined.getNextDataValue().getDataElement() );
+
+        Thread.sleep( 1000 );
+
+        int count = 1;
+
+        try
+        {
+            while ( pipelined.hasNextDataValue() )
+            {
+                pipelined.getNextDataValue();
+                count++;
+            }
+
+            fail( "Expected failure as data values were not consumed in time" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertTrue( count < 100 );
+        }
+        finally
+        {
+            pipelined.close();
+        }
+
+        assertFalse( pipelined.hasNextDataValue() );
+    }
+
+    private DataValue getDataValue( String dataElement, String value )
+    {
+        DataValue dataValue = new DataValue();
+        dataValue.setDataElement( dataElement );
+        dataValue.setPeriod( "201701" );
+        dataValue.setOrgUnit( "orgUnitA" );
+        dataValue.setValue( value );
+        return dataValue;
+    }
+}
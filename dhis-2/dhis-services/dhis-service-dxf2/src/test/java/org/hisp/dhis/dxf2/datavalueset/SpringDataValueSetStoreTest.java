@@ -0,0 +1,221 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.IntegrationTest;
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the merge of data values through a staging table, which requires
+ * PostgreSQL.
+ */
+@Category( IntegrationTest.class )
+public class SpringDataValueSetStoreTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private DataValueSetStore dataValueSetStore;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private DataElementCategoryService categoryService;
+
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DataElement deA;
+    private DataElement deB;
+    private DataElement deC;
+
+    private Period peA;
+
+    private OrganisationUnit ouA;
+
+    private DataElementCategoryOptionCombo ocDef;
+
+    @Override
+    public void setUpTest()
+    {
+        assumeTrue( dataValueSetStore.isMergeDataValuesSupported() );
+
+        ocDef = categoryService.getDefaultDataElementCategoryOptionCombo();
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+        deC = createDataElement( 'C' );
+
+        idObjectManager.save( deA );
+        idObjectManager.save( deB );
+        idObjectManager.save( deC );
+
+        peA = createPeriod( "201701" );
+        periodService.addPeriod( peA );
+
+        ouA = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( ouA );
+
+        dataValueService.addDataValue( new DataValue( deA, peA, ouA, ocDef, ocDef, "10" ) );
+        dataValueService.addDataValue( new DataValue( deB, peA, ouA, ocDef, ocDef, "20" ) );
+
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    @Test
+    public void testMergeDataValues()
+    {
+        List<DataValue> dataValues = Lists.newArrayList(
+            new DataValue( deA, peA, ouA, ocDef, ocDef, "11" ),
+            new DataValue( deB, peA, ouA, ocDef, ocDef, null ),
+            new DataValue( deC, peA, ouA, ocDef, ocDef, "30" ) );
+
+        ImportCount count = dataValueSetStore.mergeDataValues( dataValues, ImportStrategy.CREATE_AND_UPDATE, false );
+
+        assertEquals( 1, count.getImported() );
+        assertEquals( 1, count.getUpdated() );
+        assertEquals( 1, count.getDeleted() );
+
+        assertEquals( "11", getValue( deA ) );
+        assertEquals( Boolean.FALSE, isDeleted( deA ) );
+        assertEquals( Boolean.TRUE, isDeleted( deB ) );
+        assertEquals( "30", getValue( deC ) );
+        assertEquals( Boolean.FALSE, isDeleted( deC ) );
+
+        assertEquals( "10", getAuditValue( deA, AuditType.UPDATE ) );
+        assertEquals( "20", getAuditValue( deB, AuditType.DELETE ) );
+        assertEquals( 0, getAuditCount( deC ) );
+
+        assertEquals( 0, getStagingTableCount() );
+    }
+
+    @Test
+    public void testMergeDataValuesDryRun()
+    {
+        List<DataValue> dataValues = Lists.newArrayList(
+            new DataValue( deA, peA, ouA, ocDef, ocDef, "11" ),
+            new DataValue( deC, peA, ouA, ocDef, ocDef, "30" ) );
+
+        ImportCount count = dataValueSetStore.mergeDataValues( dataValues, ImportStrategy.CREATE_AND_UPDATE, true );
+
+        assertEquals( 1, count.getImported() );
+        assertEquals( 1, count.getUpdated() );
+        assertEquals( 0, count.getDeleted() );
+
+        assertEquals( "10", getValue( deA ) );
+        assertEquals( null, getValue( deC ) );
+        assertEquals( 0, getAuditCount( deA ) );
+    }
+
+    @Test
+    public void testMergeDataValuesRepeatedInTransaction()
+    {
+        dataValueSetStore.mergeDataValues( Lists.newArrayList(
+            new DataValue( deA, peA, ouA, ocDef, ocDef, "11" ) ), ImportStrategy.CREATE_AND_UPDATE, false );
+
+        dataValueSetStore.mergeDataValues( Lists.newArrayList(
+            new DataValue( deA, peA, ouA, ocDef, ocDef, "12" ) ), ImportStrategy.CREATE_AND_UPDATE, false );
+
+        assertEquals( "12", getValue( deA ) );
+        assertEquals( 2, getAuditCount( deA ) );
+        assertEquals( 0, getStagingTableCount() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String getValue( DataElement dataElement )
+    {
+        List<String> values = jdbcTemplate.queryForList( "select value from datavalue where dataelementid = ?",
+            String.class, dataElement.getId() );
+
+        return values.isEmpty() ? null : values.get( 0 );
+    }
+
+    private Boolean isDeleted( DataElement dataElement )
+    {
+        return jdbcTemplate.queryForObject( "select deleted from datavalue where dataelementid = ?",
+            Boolean.class, dataElement.getId() );
+    }
+
+    private String getAuditValue( DataElement dataElement, AuditType auditType )
+    {
+        return jdbcTemplate.queryForObject( "select value from datavalueaudit where dataelementid = ? and audittype = ?",
+            String.class, dataElement.getId(), auditType.name() );
+    }
+
+    private int getAuditCount( DataElement dataElement )
+    {
+        return jdbcTemplate.queryForObject( "select count(*) from datavalueaudit where dataelementid = ?",
+            Integer.class, dataElement.getId() );
+    }
+
+    private int getStagingTableCount()
+    {
+        return jdbcTemplate.queryForObject( "select count(*) from pg_tables where tablename = 'datavalue_staging'",
+            Integer.class );
+    }
+}
@@ -28,6 +28,7 @@ package org.hisp.dhis.dxf2.events;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
@@ -36,6 +37,7 @@ import org.hisp.dhis.dxf2.events.event.DataValue;
 import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.EventService;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummaries;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.Program;
@@ -169,6 +171,26 @@ public class NoRegistrationSingleEventServiceTest
         assertEquals( "10", event.getDataValues().get( 0 ).getValue() );
     }
 
+    @Test
+    public void testSaveEvents()
+    {
+        Event eventA = createEvent( programA.getUid(), organisationUnitA.getUid() );
+        Event eventB = createEvent( programA.getUid(), organisationUnitA.getUid() );
+        eventB.getDataValues().get( 0 ).setValue( "20" );
+
+        ImportSummaries importSummaries = eventService.addEvents( Lists.newArrayList( eventA, eventB ), null );
+        assertEquals( ImportStatus.SUCCESS, importSummaries.getStatus() );
+        assertEquals( 2, importSummaries.getImported() );
+
+        Event event = eventService.getEvent( importSummaries.getImportSummaries().get( 0 ).getReference() );
+        assertNotNull( event );
+        assertEquals( "10", event.getDataValues().get( 0 ).getValue() );
+
+        event = eventService.getEvent( importSummaries.getImportSummaries().get( 1 ).getReference() );
+        assertNotNull( event );
+        assertEquals( "20", event.getDataValues().get( 0 ).getValue() );
+    }
+
     @Test
     public void testUpdateEvent()
     {
@@ -0,0 +1,212 @@
+package org.hisp.dhis.dxf2.events.event;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramInstanceService;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.program.ProgramStageDataElement;
+import org.hisp.dhis.program.ProgramStageDataElementService;
+import org.hisp.dhis.program.ProgramType;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the state of an event import is kept per import, so that
+ * imports which run at the same time do not see each other's batches.
+ */
+public class EventImportContextTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private ProgramStageDataElementService programStageDataElementService;
+
+    @Autowired
+    private ProgramInstanceService programInstanceService;
+
+    @Autowired
+    private IdentifiableObjectManager identifiableObjectManager;
+
+    @Autowired
+    private UserService _userService;
+
+    private AbstractEventService abstractEventService;
+
+    private OrganisationUnit organisationUnitA;
+
+    private DataElement dataElementA;
+
+    private Program programA;
+
+    private User user;
+
+    @Override
+    protected void setUpTest()
+        throws Exception
+    {
+        userService = _userService;
+
+        abstractEventService = AopTestUtils.getTargetObject( eventService );
+
+        organisationUnitA = createOrganisationUnit( 'A' );
+        identifiableObjectManager.save( organisationUnitA );
+
+        dataElementA = createDataElement( 'A' );
+        dataElementA.setValueType( ValueType.INTEGER );
+        identifiableObjectManager.save( dataElementA );
+
+        ProgramStage programStageA = createProgramStage( 'A', 0 );
+        identifiableObjectManager.save( programStageA );
+
+        programA = createProgram( 'A', new HashSet<>(), organisationUnitA );
+        programA.setProgramType( ProgramType.WITHOUT_REGISTRATION );
+        identifiableObjectManager.save( programA );
+
+        ProgramStageDataElement programStageDataElement = new ProgramStageDataElement();
+        programStageDataElement.setDataElement( dataElementA );
+        programStageDataElement.setProgramStage( programStageA );
+        programStageDataElementService.addProgramStageDataElement( programStageDataElement );
+
+        programStageA.getProgramStageDataElements().add( programStageDataElement );
+        programStageA.setProgram( programA );
+        programA.getProgramStages().add( programStageA );
+
+        identifiableObjectManager.update( programStageA );
+        identifiableObjectManager.update( programA );
+
+        ProgramInstance programInstance = new ProgramInstance();
+        programInstance.setProgram( programA );
+        programInstance.setIncidentDate( new Date() );
+        programInstance.setEnrollmentDate( new Date() );
+
+        programInstanceService.addProgramInstance( programInstance );
+
+        user = createUserAndInjectSecurityContext( true );
+    }
+
+    @Test
+    public void testInterleavedImports()
+    {
+        ImportOptions importOptions = new ImportOptions();
+
+        EventImportContext contextA = new EventImportContext( true );
+        EventImportContext contextB = new EventImportContext( true );
+
+        ImportSummary summaryA = abstractEventService.addEvent( createEvent( "10" ), user, importOptions, contextA );
+        ImportSummary summaryB = abstractEventService.addEvent( createEvent( "20" ), user, importOptions, contextB );
+
+        assertEquals( ImportStatus.SUCCESS, summaryA.getStatus() );
+        assertEquals( ImportStatus.SUCCESS, summaryB.getStatus() );
+
+        assertEquals( 1, contextA.getDataValueBatch().size() );
+        assertEquals( 1, contextB.getDataValueBatch().size() );
+        assertEquals( "10", contextA.getDataValueBatch().get( 0 ).getValue() );
+        assertEquals( "20", contextB.getDataValueBatch().get( 0 ).getValue() );
+
+        ImportSummary summaryC = abstractEventService.addEvent( createEvent( "30" ), user, importOptions, contextA );
+
+        assertEquals( ImportStatus.SUCCESS, summaryC.getStatus() );
+        assertEquals( 2, contextA.getDataValueBatch().size() );
+        assertEquals( 2, contextA.getProgramStageInstanceBatch().size() );
+
+        abstractEventService.flushBatches( contextA );
+
+        assertTrue( contextA.getDataValueBatch().isEmpty() );
+        assertTrue( contextA.getProgramStageInstanceBatch().isEmpty() );
+        assertEquals( 1, contextB.getDataValueBatch().size() );
+        assertEquals( 1, contextB.getProgramStageInstanceBatch().size() );
+
+        assertValue( summaryA, "10" );
+        assertValue( summaryC, "30" );
+        assertTrue( eventService.getEvent( summaryB.getReference() ).getDataValues().isEmpty() );
+
+        abstractEventService.flushBatches( contextB );
+
+        assertTrue( contextB.getDataValueBatch().isEmpty() );
+
+        assertValue( summaryA, "10" );
+        assertValue( summaryB, "20" );
+        assertValue( summaryC, "30" );
+    }
+
+    @Test
+    public void testImportNotBatched()
+    {
+        EventImportContext context = new EventImportContext( false );
+
+        ImportSummary summary = abstractEventService.addEvent( createEvent( "10" ), user, new ImportOptions(), context );
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertFalse( context.isBatched() );
+        assertNull( context.getDataValueBatch() );
+
+        assertValue( summary, "10" );
+    }
+
+    private void assertValue( ImportSummary importSummary, String value )
+    {
+        Event event = eventService.getEvent( importSummary.getReference() );
+
+        assertNotNull( event );
+        assertEquals( 1, event.getDataValues().size() );
+        assertEquals( value, event.getDataValues().get( 0 ).getValue() );
+    }
+
+    private Event createEvent( String value )
+    {
+        Event event = new Event();
+        event.setProgram( programA.getUid() );
+        event.setOrgUnit( organisationUnitA.getUid() );
+        event.setEventDate( "2013-01-01" );
+
+        event.getDataValues().add( new DataValue( dataElementA.getUid(), value ) );
+
+        return event;
+    }
+}
@@ -29,7 +29,9 @@ package org.hisp.dhis.dxf2.metadata.objectbundle;
  */
 
 import com.google.common.collect.Sets;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -98,6 +100,9 @@ public class ObjectBundleServiceTest
     @Autowired
     private UserService _userService;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     @Override
     protected void setUpTest() throws Exception
     {
@@ -1557,6 +1562,75 @@ public class ObjectBundleServiceTest
         assertEquals( 3, objectBundleValidationService.validate( bundle ).getErrorReports().size() );
     }
 
+    @Test
+    public void testValidateUniqueValuesOfExistingObjects()
+    {
+        defaultSetup();
+
+        DataElement dataElementA = manager.get( DataElement.class, "deabcdefghA" );
+        DataElement dataElementB = manager.get( DataElement.class, "deabcdefghB" );
+
+        DataElement dataElementE = createDataElement( 'E' );
+        dataElementE.setCode( dataElementA.getCode() );
+
+        DataElement dataElementF = createDataElement( 'F' );
+        dataElementF.setName( dataElementB.getName() );
+
+        ObjectBundleParams params = new ObjectBundleParams();
+        params.setObjectBundleMode( ObjectBundleMode.VALIDATE );
+        params.setPreheatMode( PreheatMode.REFERENCE );
+        params.setImportStrategy( ImportStrategy.CREATE );
+        params.addObject( dataElementE );
+        params.addObject( dataElementF );
+
+        ObjectBundle bundle = objectBundleService.create( params );
+
+        // unique values of existing objects are preheated without loading the objects
+
+        Map<String, Map<Object, String>> uniqueValues = bundle.getPreheat().getUniquenessMap().get( DataElement.class );
+
+        assertEquals( "deabcdefghA", uniqueValues.get( "code" ).get( dataElementA.getCode() ) );
+        assertEquals( "deabcdefghB", uniqueValues.get( "name" ).get( dataElementB.getName() ) );
+        assertFalse( bundle.getPreheat().containsKey( PreheatIdentifier.UID, DataElement.class, "deabcdefghA" ) );
+        assertFalse( bundle.getPreheat().containsKey( PreheatIdentifier.UID, DataElement.class, "deabcdefghB" ) );
+
+        ObjectBundleValidationReport validate = objectBundleValidationService.validate( bundle );
+        List<ErrorReport> errorReports = validate.getErrorReportsByCode( DataElement.class, ErrorCode.E5003 );
+
+        assertEquals( 2, errorReports.size() );
+        assertTrue( errorReports.stream().anyMatch( errorReport -> "code".equals( errorReport.getErrorProperty() ) ) );
+        assertTrue( errorReports.stream().anyMatch( errorReport -> "name".equals( errorReport.getErrorProperty() ) ) );
+    }
+
+    @Test
+    public void testCommitBatchedInserts()
+    {
+        Integer jdbcBatchSize = sessionFactory.getCurrentSession().getJdbcBatchSize();
+
+        ObjectBundleParams params = new ObjectBundleParams();
+        params.setObjectBundleMode( ObjectBundleMode.COMMIT );
+        params.setImportStrategy( ImportStrategy.CREATE );
+
+        for ( int i = 0; i < 120; i++ )
+        {
+            DataElement dataElement = createDataElement( 'A' );
+            dataElement.setUid( CodeGenerator.generateUid() );
+            dataElement.setName( "BatchDataElement" + i );
+            dataElement.setShortName( "BatchDataElementShort" + i );
+            dataElement.setCode( "BatchDataElementCode" + i );
+
+            params.addObject( dataElement );
+        }
+
+        ObjectBundle bundle = objectBundleService.create( params );
+        assertTrue( objectBundleValidationService.validate( bundle ).getErrorReports().isEmpty() );
+
+        objectBundleService.commit( bundle );
+
+        assertEquals( 120, manager.getAll( DataElement.class ).size() );
+        assertEquals( jdbcBatchSize, sessionFactory.getCurrentSession().getJdbcBatchSize() );
+    }
+
     private void defaultSetup()
     {
         DataElement de1 = createDataElement( 'A' );
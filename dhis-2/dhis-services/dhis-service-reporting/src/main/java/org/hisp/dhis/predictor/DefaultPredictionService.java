@@ -34,6 +34,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
@@ -46,10 +47,15 @@ import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.dataelement.DataElementCategoryService;
 import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
+import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.minmax.MinMaxDataElementService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
@@ -58,6 +64,8 @@ import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
@@ -71,6 +79,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
+import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHMS;
 
 /**
  * @author Ken Haase
@@ -81,6 +90,8 @@ public class DefaultPredictionService implements PredictionService
 {
     private static final Log log = LogFactory.getLog( DefaultPredictionService.class );
 
+    private static final int ORG_UNIT_BLOCK_SIZE = 500;
+
     @Autowired
     private PredictorStore predictorStore;
 
@@ -108,6 +119,12 @@ public class DefaultPredictionService implements PredictionService
     @Autowired
     private CurrentUserService currentUserService;
 
+    @Autowired
+    private BatchHandlerFactory batchHandlerFactory;
+
+    @Autowired
+    private MinMaxDataElementService minMaxDataElementService;
+
     public void setCurrentUserService( CurrentUserService currentUserService )
     {
         this.currentUserService = currentUserService;
@@ -124,7 +141,6 @@ public class DefaultPredictionService implements PredictionService
 
         Expression generator = predictor.getGenerator();
         Expression skipTest = predictor.getSampleSkipTest();
-        DataElement outputDataElement = predictor.getOutput();
 
         Set<String> aggregates = new HashSet<>();
         Set<String> nonAggregates = new HashSet<>();
@@ -141,64 +157,197 @@ public class DefaultPredictionService implements PredictionService
         DataElementCategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ?
             categoryService.getDefaultDataElementCategoryOptionCombo() : predictor.getOutputCombo();
 
+        // Resolve lazy state of the predictor here, as predictions are made on worker threads without a session
+
+        DataElement outputDataElement = predictor.getOutput();
+        boolean integerOutput = outputDataElement.getValueType().isInteger();
+        Expression plainGenerator = getPlainExpression( generator );
+        Expression plainSkipTest = skipTest != null ? getPlainExpression( skipTest ) : null;
+
+        Set<Period> newOutputPeriods = outputPeriods.stream()
+            .filter( period -> !existingOutputPeriods.contains( period ) )
+            .collect( Collectors.toSet() );
+
         List<OrganisationUnit> orgUnits = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
             predictor.getOrganisationUnitLevels(), currentUser.getOrganisationUnits() );
 
+        DataElementCategoryOptionCombo defaultCombo = categoryService.getDefaultDataElementCategoryOptionCombo();
+
+        Map<String, DataElementCategoryOptionCombo> attributeOptionCombos = new HashMap<>();
+        attributeOptionCombos.put( defaultCombo.getUid(), defaultCombo );
+
+        Map<Period, Period> storedPeriods = new HashMap<>();
+
+        BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory
+            .createBatchHandler( DataValueBatchHandler.class ).init();
+
+        BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory
+            .createBatchHandler( DataValueAuditBatchHandler.class ).init();
+
+        Set<OrganisationUnit> predictedOrgUnits = new HashSet<>();
+
         int predictionCount = 0;
 
-        for ( OrganisationUnit orgUnit : orgUnits )
+        long fetchTime = 0;
+        long evaluateTime = 0;
+        long writeTime = 0;
+
+        for ( List<OrganisationUnit> orgUnitBlock : Lists.partition( orgUnits, ORG_UNIT_BLOCK_SIZE ) )
         {
-            MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap = aggregateDimensionItems.isEmpty() ?
-                null : getDataValues( aggregateDimensionItems, allSamplePeriods, orgUnit );
+            long time = System.currentTimeMillis();
 
-            MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap = nonAggregateDimensionItems.isEmpty() ?
-                new MapMapMap<>() : getDataValues( nonAggregateDimensionItems, existingOutputPeriods, orgUnit );
+            Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> aggregateDataMaps = aggregateDimensionItems.isEmpty() ?
+                new HashMap<>() : getDataValues( aggregateDimensionItems, allSamplePeriods, orgUnitBlock );
 
-            applySkipTest( aggregateDataMap, skipTest, constantMap );
+            Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> nonAggregateDataMaps = nonAggregateDimensionItems.isEmpty() ?
+                new HashMap<>() : getDataValues( nonAggregateDimensionItems, existingOutputPeriods, orgUnitBlock );
 
-            for ( Period period : outputPeriods )
-            {
-                ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
-                    aggregates, samplePeriodsMap.get( period ), constantMap );
+            addAttributeOptionCombos( attributeOptionCombos, aggregateDataMaps.values() );
+            addAttributeOptionCombos( attributeOptionCombos, nonAggregateDataMaps.values() );
 
-                MapMap<String, ? extends DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
-                    nonAggregateDataMap.get( period ), new MapMap<>() );
+            aggregateDataMaps.values().forEach( dataMap -> applySkipTest( dataMap, plainSkipTest, constantMap ) );
 
-                Set<String> attributeOptionCombos = Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() );
+            fetchTime += System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
 
-                if ( attributeOptionCombos.isEmpty() ) {
-                    attributeOptionCombos = Sets.newHashSet( categoryService.getDefaultDataElementCategoryOptionCombo().getUid() );
-                }
+            List<DataValue> predictions = orgUnitBlock.parallelStream()
+                .flatMap( orgUnit -> getPredictions( orgUnit, aggregateDataMaps.get( orgUnit.getId() ),
+                    firstNonNull( nonAggregateDataMaps.get( orgUnit.getId() ), new MapMapMap<>() ), plainGenerator,
+                    outputDataElement, integerOutput, aggregates, outputPeriods, samplePeriodsMap, constantMap,
+                    outputOptionCombo, defaultCombo.getUid(), attributeOptionCombos ).stream() )
+                .collect( Collectors.toList() );
 
-                for ( String aoc : attributeOptionCombos )
-                {
-                    ListMap<String, Double> aggregateValueMap = firstNonNull( aggregateSampleMap.get( aoc ), new ListMap<>() );
-                    Map<? extends DimensionalItemObject, Double> nonAggregateValueMap =
-                        firstNonNull( nonAggregateSampleMap.get( aoc ), new HashMap<>() );
+            evaluateTime += System.currentTimeMillis() - time;
+            time = System.currentTimeMillis();
 
-                    Double value = expressionService.getExpressionValue( generator, nonAggregateValueMap,
-                        constantMap,null, period.getDaysInPeriod(), aggregateValueMap );
+            writeDataValues( predictions, orgUnitBlock, storedPeriods, newOutputPeriods, currentUser.getUsername(),
+                dataValueBatchHandler, auditBatchHandler );
 
-                    if ( value != null && !value.isNaN() && !value.isInfinite() )
-                    {
-                        String valueString = outputDataElement.getValueType().isInteger() ?
-                            Long.toString( Math.round( value ) ) :
-                            Double.toString( MathUtils.roundFraction( value, 4 ) );
+            writeTime += System.currentTimeMillis() - time;
 
-                        writeDataValue( outputDataElement, period, orgUnit, outputOptionCombo,
-                            categoryService.getDataElementCategoryOptionCombo( aoc ),
-                            valueString, currentUser.getUsername() );
+            predictions.forEach( prediction -> predictedOrgUnits.add( prediction.getSource() ) );
 
-                        predictionCount++;
-                    }
+            predictionCount += predictions.size();
+        }
+
+        long time = System.currentTimeMillis();
+
+        dataValueBatchHandler.flush();
+        auditBatchHandler.flush();
+
+        minMaxDataElementService.refreshMinMaxStatistics( Sets.newHashSet( predictor.getOutput() ), predictedOrgUnits );
+
+        writeTime += System.currentTimeMillis() - time;
+
+        log.info( "Generated " + predictionCount + " predictions for " + predictor.getName()
+            + " from " + startDate.toString() + " to " + endDate.toString() + " for " + orgUnits.size()
+            + " org units, fetching data took " + formatDurationHMS( fetchTime ) + ", evaluation took "
+            + formatDurationHMS( evaluateTime ) + ", writing took " + formatDurationHMS( writeTime ) );
+
+        return predictionCount;
+    }
+
+    /**
+     * Evaluates the generator of a predictor for an organisation unit for each
+     * of the output periods. Does not access the database or lazy state of
+     * the predictor, so that predictions for organisation units can be made
+     * in parallel. The skip test must already be applied to the sample data.
+     *
+     * @param orgUnit the organisation unit.
+     * @param aggregateDataMap sample data of the organisation unit (if any).
+     * @param nonAggregateDataMap non-aggregate data of the organisation unit.
+     * @param generator the generator expression, not a proxy.
+     * @param outputDataElement the output data element.
+     * @param integerOutput whether the output data element has an integer value type.
+     * @param aggregates the aggregate expressions of the generator.
+     * @param outputPeriods the output periods.
+     * @param samplePeriodsMap map from output periods to sample periods.
+     * @param constantMap constants to use in expressions.
+     * @param outputOptionCombo the output category option combo.
+     * @param defaultComboUid UID of the default category option combo.
+     * @param attributeOptionCombos attribute option combos by UID.
+     * @return the predicted data values.
+     */
+    private List<DataValue> getPredictions( OrganisationUnit orgUnit,
+        MapMapMap<Period, String, DimensionalItemObject, Double> aggregateDataMap,
+        MapMapMap<Period, String, DimensionalItemObject, Double> nonAggregateDataMap, Expression generator,
+        DataElement outputDataElement, boolean integerOutput, Set<String> aggregates, List<Period> outputPeriods, ListMap<Period, Period> samplePeriodsMap,
+        Map<String, Double> constantMap, DataElementCategoryOptionCombo outputOptionCombo,
+        String defaultComboUid, Map<String, DataElementCategoryOptionCombo> attributeOptionCombos )
+    {
+        List<DataValue> predictions = new ArrayList<>();
+
+        for ( Period period : outputPeriods )
+        {
+            ListMapMap<String, String, Double> aggregateSampleMap = getAggregateSamples( aggregateDataMap,
+                aggregates, samplePeriodsMap.get( period ), constantMap );
+
+            MapMap<String, ? extends DimensionalItemObject, Double> nonAggregateSampleMap = firstNonNull(
+                nonAggregateDataMap.get( period ), new MapMap<>() );
+
+            Set<String> aocs = Sets.union( aggregateSampleMap.keySet(), nonAggregateSampleMap.keySet() );
+
+            if ( aocs.isEmpty() ) {
+                aocs = Sets.newHashSet( defaultComboUid );
+            }
+
+            for ( String aoc : aocs )
+            {
+                ListMap<String, Double> aggregateValueMap = firstNonNull( aggregateSampleMap.get( aoc ), new ListMap<>() );
+                Map<? extends DimensionalItemObject, Double> nonAggregateValueMap =
+                    firstNonNull( nonAggregateSampleMap.get( aoc ), new HashMap<>() );
+
+                Double value = expressionService.getExpressionValue( generator, nonAggregateValueMap,
+                    constantMap,null, period.getDaysInPeriod(), aggregateValueMap );
+
+                if ( value != null && !value.isNaN() && !value.isInfinite() )
+                {
+                    String valueString = integerOutput ?
+                        Long.toString( Math.round( value ) ) :
+                        Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                    predictions.add( new DataValue( outputDataElement, period, orgUnit, outputOptionCombo,
+                        attributeOptionCombos.get( aoc ), valueString ) );
                 }
             }
         }
 
-        log.info("Generated " + predictionCount + " predictions for " + predictor.getName()
-            + " from " + startDate.toString() + " to " + endDate.toString() );
+        return predictions;
+    }
 
-        return predictionCount;
+    /**
+     * Returns a copy of the given expression which is not attached to the
+     * session, so that it can be evaluated on worker threads.
+     *
+     * @param expression the expression, possibly a lazy proxy.
+     * @return a plain copy of the expression.
+     */
+    private Expression getPlainExpression( Expression expression )
+    {
+        Expression plainExpression = new Expression( expression.getExpression(), expression.getDescription(),
+            expression.getMissingValueStrategy() );
+        plainExpression.setSlidingWindow( expression.getSlidingWindow() );
+
+        return plainExpression;
+    }
+
+    /**
+     * Adds the attribute option combos found in the given data maps to the
+     * given map of attribute option combos by UID, so that they are available
+     * when predictions are made in parallel.
+     *
+     * @param attributeOptionCombos the map of attribute option combos by UID.
+     * @param dataMaps the data maps by period and attribute option combo UID.
+     */
+    private void addAttributeOptionCombos( Map<String, DataElementCategoryOptionCombo> attributeOptionCombos,
+        Collection<MapMapMap<Period, String, DimensionalItemObject, Double>> dataMaps )
+    {
+        dataMaps.stream()
+            .flatMap( dataMap -> dataMap.values().stream() )
+            .flatMap( periodMap -> periodMap.keySet().stream() )
+            .filter( aoc -> !attributeOptionCombos.containsKey( aoc ) )
+            .distinct()
+            .forEach( aoc -> attributeOptionCombos.put( aoc, categoryService.getDataElementCategoryOptionCombo( aoc ) ) );
     }
 
     /**
@@ -442,25 +591,25 @@ public class DefaultPredictionService implements PredictionService
 
     /**
      * Gets data values for a set of DimensionalItemObjects over a set of
-     * Periods for an organisation unit and/or any of the organisation unit's
-     * descendants.
+     * Periods for a block of organisation units and/or any of the organisation
+     * units' descendants.
      *
      * DimensionalItemObjects may reference aggregate and/or event data.
      *
-     * Returns the values mapped by Period, then attribute option combo UID,
-     * then DimensionalItemObject.
+     * Returns the values mapped by organisation unit identifier, then Period,
+     * then attribute option combo UID, then DimensionalItemObject.
      *
      * @param dimensionItems the dimensionItems.
      * @param periods the Periods of the DataValues.
-     * @param orgUnit the root of the OrganisationUnit tree to include.
+     * @param orgUnits the roots of the OrganisationUnit trees to include.
      * @return the map of values
      */
-    private MapMapMap<Period, String, DimensionalItemObject, Double> getDataValues(
-        Set<DimensionalItemObject> dimensionItems, Set<Period> periods, OrganisationUnit orgUnit)
+    private Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> getDataValues(
+        Set<DimensionalItemObject> dimensionItems, Set<Period> periods, List<OrganisationUnit> orgUnits )
     {
         Set<DataElementOperand> dataElementOperands = new HashSet<>();
         Set<DimensionalItemObject> eventObjects = new HashSet<>();
-        MapMapMap<Period, String, DimensionalItemObject, Double> dataValues = new MapMapMap<>();
+        Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> dataValues = new HashMap<>();
 
         for ( DimensionalItemObject o : dimensionItems )
         {
@@ -480,12 +629,16 @@ public class DefaultPredictionService implements PredictionService
 
         if ( !dataElementOperands.isEmpty() )
         {
-            dataValues = dataValueService.getDataElementOperandValues( dataElementOperands, periods, orgUnit );
+            dataValues = dataValueService.getDataElementOperandValues( dataElementOperands, periods, orgUnits );
         }
 
         if ( !eventObjects.isEmpty() )
         {
-            dataValues.putAll( getEventDataValues( eventObjects, periods, orgUnit ) );
+            for ( Map.Entry<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> entry :
+                getEventDataValues( eventObjects, periods, orgUnits ).entrySet() )
+            {
+                dataValues.computeIfAbsent( entry.getKey(), id -> new MapMapMap<>() ).putAll( entry.getValue() );
+            }
         }
 
         return dataValues;
@@ -493,27 +646,27 @@ public class DefaultPredictionService implements PredictionService
 
     /**
      * Gets data values for a set of Event dimensionItems over a set of
-     * Periods for an organisation unit and/or any of the organisation unit's
-     * descendants.
+     * Periods for a block of organisation units and/or any of the organisation
+     * units' descendants.
      *
-     * Returns the values mapped by Period, then attribute option combo UID,
-     * then DimensionalItemObject.
+     * Returns the values mapped by organisation unit identifier, then Period,
+     * then attribute option combo UID, then DimensionalItemObject.
      *
      * @param dimensionItems the dimensionItems.
      * @param periods the Periods of the DataValues.
-     * @param orgUnit the root of the OrganisationUnit tree to include.
+     * @param orgUnits the roots of the OrganisationUnit trees to include.
      * @return the map of values
      */
-    private MapMapMap<Period, String, DimensionalItemObject, Double> getEventDataValues(
-        Set<DimensionalItemObject> dimensionItems, Set<Period> periods, OrganisationUnit orgUnit)
+    private Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> getEventDataValues(
+        Set<DimensionalItemObject> dimensionItems, Set<Period> periods, List<OrganisationUnit> orgUnits )
     {
-        MapMapMap<Period, String, DimensionalItemObject, Double> eventDataValues = new MapMapMap<>();
+        Map<Integer, MapMapMap<Period, String, DimensionalItemObject, Double>> eventDataValues = new HashMap<>();
 
         DataQueryParams params = DataQueryParams.newBuilder()
             .withPeriods( new ArrayList( periods ) )
             .withDataDimensionItems( Lists.newArrayList( dimensionItems ) )
             .withAttributeOptionCombos( Lists.newArrayList() )
-            .withFilterOrganisationUnits( Lists.newArrayList( orgUnit ) )
+            .withOrganisationUnits( Lists.newArrayList( orgUnits ) )
             .build();
 
         Grid grid = analyticsService.getAggregatedDataValues( params );
@@ -521,58 +674,119 @@ public class DefaultPredictionService implements PredictionService
         int peInx = grid.getIndexOfHeader( DimensionalObject.PERIOD_DIM_ID );
         int aoInx = grid.getIndexOfHeader( DimensionalObject.ATTRIBUTEOPTIONCOMBO_DIM_ID );
         int dxInx = grid.getIndexOfHeader( DimensionalObject.DATA_X_DIM_ID );
+        int ouInx = grid.getIndexOfHeader( DimensionalObject.ORGUNIT_DIM_ID );
         int vlInx = grid.getWidth() - 1;
 
         Map<String, Period> periodLookup = periods.stream().collect( Collectors.toMap( p -> p.getIsoDate(), p -> p ) );
         Map<String, DimensionalItemObject> dimensionItemLookup = dimensionItems.stream().collect( Collectors.toMap( d -> d.getDimensionItem(), d -> d ) );
+        Map<String, Integer> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap( o -> o.getUid(), o -> o.getId() ) );
 
         for ( List<Object> row : grid.getRows() )
         {
             String pe = (String) row.get( peInx );
             String ao = (String) row.get( aoInx );
             String dx = (String) row.get( dxInx );
+            String ou = (String) row.get( ouInx );
             Double vl = (Double) row.get( vlInx );
 
             Period period = periodLookup.get( pe );
             DimensionalItemObject dimensionItem = dimensionItemLookup.get( dx );
+            Integer orgUnitId = orgUnitLookup.get( ou );
 
-            eventDataValues.putEntry( period, ao, dimensionItem, vl );
+            eventDataValues.computeIfAbsent( orgUnitId, id -> new MapMapMap<>() ).putEntry( period, ao, dimensionItem, vl );
         }
 
         return eventDataValues;
     }
 
     /**
-     * Writes (adds or updates) a predicted data value to the database.
+     * Writes (adds or updates) predicted data values for a block of
+     * organisation units to the database. Existing values are fetched in a
+     * single query, and values which have not changed are not written again.
+     * Updated values are audited.
      *
-     * @param dataElement the data element.
-     * @param period the period.
-     * @param orgUnit the organisation unit.
-     * @param categoryOptionCombo the category option combo.
-     * @param attributeOptionCombo the attribute option combo.
-     * @param value the value.
-     * @param storedBy the user that will store this data value.
+     * Values for output periods which did not exist before the prediction are
+     * added through the data value service, as their periods are added in the
+     * current session and are not visible to the connection of the batch
+     * handler until committed.
+     *
+     * @param predictions the predicted data values.
+     * @param orgUnits the organisation units of the predictions.
+     * @param storedPeriods map of output periods to persisted periods.
+     * @param newPeriods output periods which did not exist before the prediction.
+     * @param storedBy the user that will store the data values.
+     * @param dataValueBatchHandler the data value batch handler.
+     * @param auditBatchHandler the data value audit batch handler.
      */
-    private void writeDataValue( DataElement dataElement, Period period,
-        OrganisationUnit orgUnit, DataElementCategoryOptionCombo categoryOptionCombo,
-        DataElementCategoryOptionCombo attributeOptionCombo, String value, String storedBy )
+    private void writeDataValues( List<DataValue> predictions, List<OrganisationUnit> orgUnits,
+        Map<Period, Period> storedPeriods, Set<Period> newPeriods, String storedBy,
+        BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler )
     {
-        DataValue existingValue = dataValueService.getDataValue( dataElement, period,
-            orgUnit, categoryOptionCombo, attributeOptionCombo );
+        List<DataValue> batchPredictions = new ArrayList<>();
 
-        if ( existingValue != null )
+        for ( DataValue prediction : predictions )
         {
-            existingValue.setValue( value );
-            existingValue.setStoredBy( storedBy );
+            boolean newPeriod = newPeriods.contains( prediction.getPeriod() );
+
+            prediction.setPeriod( storedPeriods.computeIfAbsent( prediction.getPeriod(), p -> periodService.reloadPeriod( p ) ) );
+            prediction.setStoredBy( storedBy );
+
+            if ( newPeriod )
+            {
+                dataValueService.addDataValue( prediction );
+            }
+            else
+            {
+                batchPredictions.add( prediction );
+            }
+        }
 
-            dataValueService.updateDataValue( existingValue );
+        if ( batchPredictions.isEmpty() )
+        {
+            return;
         }
-        else
+
+        DataExportParams params = new DataExportParams()
+            .setDataElements( Sets.newHashSet( batchPredictions.get( 0 ).getDataElement() ) )
+            .setPeriods( batchPredictions.stream().map( DataValue::getPeriod ).collect( Collectors.toSet() ) )
+            .setOrganisationUnits( new HashSet<>( orgUnits ) )
+            .setIncludeDeleted( true );
+
+        Map<String, DataValue> existingValues = dataValueService.getDataValues( params ).stream()
+            .collect( Collectors.toMap( this::getDataValueKey, dv -> dv ) );
+
+        for ( DataValue prediction : batchPredictions )
         {
-            DataValue dv = new DataValue( dataElement, period, orgUnit,
-                categoryOptionCombo, attributeOptionCombo, value, storedBy, null, null );
+            DataValue existingValue = existingValues.get( getDataValueKey( prediction ) );
 
-            dataValueService.addDataValue( dv );
+            if ( existingValue == null )
+            {
+                dataValueBatchHandler.addObject( prediction );
+            }
+            else if ( existingValue.isDeleted() )
+            {
+                prediction.setCreated( existingValue.getCreated() );
+
+                dataValueBatchHandler.updateObject( prediction );
+            }
+            else if ( !prediction.getValue().equals( existingValue.getValue() ) )
+            {
+                prediction.setCreated( existingValue.getCreated() );
+
+                dataValueBatchHandler.updateObject( prediction );
+
+                auditBatchHandler.addObject( new DataValueAudit( prediction, existingValue.getValue(),
+                    storedBy, AuditType.UPDATE ) );
+            }
         }
     }
+
+    /**
+     * Gets a key which identifies a data value within the output data element.
+     */
+    private String getDataValueKey( DataValue dataValue )
+    {
+        return dataValue.getPeriod().getId() + "-" + dataValue.getSource().getId() + "-" +
+            dataValue.getCategoryOptionCombo().getId() + "-" + dataValue.getAttributeOptionCombo().getId();
+    }
 }
@@ -33,6 +33,7 @@ import org.hisp.dhis.credentials.CredentialsExpiryAlertTask;
 import org.hisp.dhis.dataset.notifications.DataSetNotificationTask;
 import org.hisp.dhis.datastatistics.DataStatisticsTask;
 import org.hisp.dhis.fileresource.FileResourceCleanUpTask;
+import org.hisp.dhis.minmax.MinMaxStatisticsPopulationTask;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.scheduling.ScheduledTaskStatus;
@@ -96,6 +97,9 @@ public class DefaultSchedulingManager
     @Autowired
     private DataSetNotificationTask dataSetNotificationTask;
 
+    @Autowired
+    private MinMaxStatisticsPopulationTask minMaxStatisticsPopulationTask;
+
     // TODO Avoid map, use bean identifier directly and get bean from context
 
     // -------------------------------------------------------------------------
@@ -136,6 +140,7 @@ public class DefaultSchedulingManager
         scheduler.scheduleTask( ValidationResultNotificationTask.KEY_TASK, validationResultNotificationTask, Scheduler.CRON_DAILY_7AM );
         scheduler.scheduleTask( CredentialsExpiryAlertTask.KEY_TASK, credentialsExpiryAlertTask, Scheduler.CRON_DAILY_2AM );
         scheduler.scheduleTask( DataSetNotificationTask.KEY_TASK, dataSetNotificationTask, Scheduler.CRON_DAILY_2AM );
+        scheduler.scheduleTask( MinMaxStatisticsPopulationTask.KEY_TASK, minMaxStatisticsPopulationTask, Scheduler.CRON_DAILY_2AM );
     }
     
     @Override
@@ -43,15 +43,19 @@ import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.Operator;
+import org.hisp.dhis.jdbc.batchhandler.ValidationResultBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.MathUtils;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
 import static org.hisp.dhis.system.util.MathUtils.*;
@@ -59,7 +63,8 @@ import static org.hisp.dhis.system.util.MathUtils.*;
 /**
  * Runs a validation task on a thread within a multi-threaded validation run.
  * <p>
- * Each task looks for validation results in a different organisation unit.
+ * Each task looks for validation results in a different block of organisation
+ * units.
  *
  * @author Jim Grace
  */
@@ -88,19 +93,25 @@ public class DataValidationTask
     @Autowired
     private ValidationResultService validationResultService;
 
-    private OrganisationUnit orgUnit;
+    @Autowired
+    private BatchHandlerFactory batchHandlerFactory;
+
+    private List<OrganisationUnit> orgUnits;
 
     private ValidationRunContext context;
 
-    public void init( OrganisationUnit orgUnit, ValidationRunContext context )
+    @Override
+    public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context )
     {
-        this.orgUnit = orgUnit;
+        this.orgUnits = orgUnits;
         this.context = context;
     }
 
     /**
-     * Evaluates validation rules for a single organisation unit. This is the
-     * central method in validation rule evaluation.
+     * Evaluates validation rules for a block of organisation units. This is
+     * the central method in validation rule evaluation. Data values are
+     * fetched for all organisation units and periods of a period type in one
+     * query.
      */
     @Override
     @Transactional
@@ -122,25 +133,63 @@ public class DataValidationTask
     {
         Set<ValidationResult> validationResults = new HashSet<>();
 
+        List<ValidationResult> resolvedValidationResults = new ArrayList<>();
+
         if ( !context.isAnalysisComplete() )
         {
             for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeExtendedMap().values() )
             {
                 log.trace( "Validation PeriodType " + periodTypeX.getPeriodType().getName() );
 
-                Set<ValidationRuleExtended> ruleXs = getRulesBySourceAndPeriodType( orgUnit, periodTypeX );
+                Map<OrganisationUnit, Set<ValidationRuleExtended>> orgUnitRuleXs = new LinkedHashMap<>();
+
+                SetMap<String, DataElementOperand> dataElementOperandsToGet = new SetMap<>();
+
+                for ( OrganisationUnit orgUnit : orgUnits )
+                {
+                    Set<ValidationRuleExtended> ruleXs = getRulesBySourceAndPeriodType( orgUnit, periodTypeX );
+
+                    if ( context.isIncremental() )
+                    {
+                        ruleXs = ruleXs.stream()
+                            .filter( ruleX -> periodTypeX.getPeriods().stream()
+                                .anyMatch( period -> context.isValidationRequired( orgUnit, period, ruleX ) ) )
+                            .collect( Collectors.toSet() );
+                    }
+
+                    if ( !ruleXs.isEmpty() )
+                    {
+                        orgUnitRuleXs.put( orgUnit, ruleXs );
+                        dataElementOperandsToGet.putValues( getDataElementOperands( ruleXs ) );
+                    }
+                }
+
+                if ( orgUnitRuleXs.isEmpty() )
+                {
+                    continue;
+                }
 
-                SetMap<String, DataElementOperand> dataElementOperandsToGet = getDataElementOperands( ruleXs );
+                MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> blockDataValueMap = getDataValueMap(
+                    dataElementOperandsToGet, periodTypeX.getAllowedPeriodTypes(), periodTypeX.getPeriods(), orgUnitRuleXs.keySet() );
 
-                if ( !ruleXs.isEmpty() )
+                for ( Map.Entry<OrganisationUnit, Set<ValidationRuleExtended>> entry : orgUnitRuleXs.entrySet() )
                 {
+                    OrganisationUnit orgUnit = entry.getKey();
+                    Set<ValidationRuleExtended> ruleXs = entry.getValue();
+                    Set<DataElementOperand> orgUnitOperands = ruleXs.stream()
+                        .flatMap( ruleX -> ruleX.getDataElementOperands().stream() ).collect( Collectors.toSet() );
+
                     for ( Period period : periodTypeX.getPeriods() )
                     {
-                        MapMap<String, DataElementOperand, Date> lastUpdatedMap = new MapMap<>();
+                        Set<ValidationRuleExtended> periodRuleXs = getRulesToValidate( orgUnit, period, ruleXs );
+
+                        if ( periodRuleXs.isEmpty() )
+                        {
+                            continue;
+                        }
 
-                        MapMap<String, DimensionalItemObject, Double> dataValueMap = getDataValueMap(
-                            dataElementOperandsToGet, periodTypeX.getAllowedPeriodTypes(),
-                            period, orgUnit, lastUpdatedMap );
+                        MapMap<String, DimensionalItemObject, Double> dataValueMap = getOrgUnitDataValueMap(
+                            blockDataValueMap.getValue( orgUnit.getId(), period ), orgUnitOperands );
 
                         MapMap<String, DimensionalItemObject, Double> slidingWindowEventMap = getEventMapForSlidingWindow(
                             context.getEventItems(), period, orgUnit );
@@ -155,108 +204,8 @@ public class DataValidationTask
                         log.trace( "OrgUnit " + orgUnit.getName() + " [" + period.getStartDate() + " - "
                             + period.getEndDate() + "]" + " currentValueMap[" + dataValueMap.size() + "]" );
 
-                        for ( ValidationRuleExtended ruleX : ruleXs )
-                        {
-                            ValidationRule rule = ruleX.getRule();
-
-                            // Skip validation if org unit level does not match
-                            if ( !rule.getOrganisationUnitLevels().isEmpty() &&
-                                !rule.getOrganisationUnitLevels().contains( orgUnit.getLevel() ) )
-                            {
-                                continue;
-                            }
-                            log.trace( "Validation rule " + rule.getUid() + " " + rule.getName() );
-
-                            Map<String, Double> leftSideValues;
-
-                            if ( rule.getLeftSide() != null && rule.getLeftSide().getSlidingWindow() )
-                            {
-                                leftSideValues = getExpressionValueMap( rule.getLeftSide(), slidingWindowEventMap,
-                                    period );
-                            }
-                            else
-                            {
-                                leftSideValues = getExpressionValueMap( rule.getLeftSide(), dataValueMap, period );
-                            }
-
-                            Map<String, Double> rightSideValues;
-
-                            if ( rule.getRightSide() != null && rule.getRightSide().getSlidingWindow() )
-                            {
-                                rightSideValues = getExpressionValueMap( rule.getRightSide(), slidingWindowEventMap,
-                                    period );
-                            }
-                            else
-                            {
-                                rightSideValues = getExpressionValueMap( rule.getRightSide(), dataValueMap, period );
-                            }
-
-                            Set<String> attributeOptionCombos = Sets.newHashSet( leftSideValues.keySet() );
-                            attributeOptionCombos.addAll( rightSideValues.keySet() );
-
-                            for ( String optionCombo : attributeOptionCombos )
-                            {
-                                // Skipping any results we already know
-                                if ( context.skipValidationOfTuple( orgUnit, rule, period, optionCombo,
-                                    periodService.getDayInPeriod( period, new Date() ) ) )
-                                {
-                                    continue;
-                                }
-
-                                log.trace( "Validation attributeOptionCombo " + optionCombo );
-
-                                Double leftSide = leftSideValues.get( optionCombo );
-                                Double rightSide = rightSideValues.get( optionCombo );
-                                boolean violation = false;
-
-                                if ( Operator.compulsory_pair.equals( rule.getOperator() ) )
-                                {
-                                    violation = (leftSide != null && rightSide == null)
-                                        || (leftSide == null && rightSide != null);
-                                }
-                                else if ( Operator.exclusive_pair.equals( rule.getOperator() ) )
-                                {
-                                    violation = (leftSide != null && rightSide != null);
-                                }
-                                else
-                                {
-                                    if ( leftSide == null &&
-                                        rule.getLeftSide().getMissingValueStrategy() == NEVER_SKIP )
-                                    {
-                                        leftSide = 0d;
-                                    }
-
-                                    if ( rightSide == null &&
-                                        rule.getRightSide().getMissingValueStrategy() == NEVER_SKIP )
-                                    {
-                                        rightSide = 0d;
-                                    }
-
-                                    if ( leftSide != null && rightSide != null )
-                                    {
-                                        violation = !expressionIsTrue( leftSide, rule.getOperator(), rightSide );
-                                    }
-                                }
-
-                                if ( violation )
-                                {
-                                    validationResults.add( new ValidationResult(
-                                        rule, period, orgUnit,
-                                        categoryService.getDataElementCategoryOptionCombo( optionCombo ),
-                                        roundSignificant( zeroIfNull( leftSide ) ),
-                                        roundSignificant( zeroIfNull( rightSide ) ),
-                                        periodService.getDayInPeriod( period, new Date() ) ) );
-                                }
-
-                                log.debug( "Evaluated " + rule.getName() + ", combo id " + optionCombo
-                                    + ": " + (violation ? "violation" : "OK") + " "
-                                    + (leftSide == null ? "(null)" : leftSide.toString()) + " "
-                                    + rule.getOperator() + " "
-                                    + (rightSide == null ? "(null)" : rightSide.toString()) + " ("
-                                    + context.getValidationResults().size() + " results)" );
-
-                            }
-                        }
+                        validateRules( orgUnit, period, periodRuleXs, dataValueMap, slidingWindowEventMap,
+                            validationResults, resolvedValidationResults );
                     }
                 }
             }
@@ -268,11 +217,215 @@ public class DataValidationTask
 
             if ( context.isPersistResults() )
             {
-                validationResultService.saveValidationResults( validationResults );
+                saveValidationResults( validationResults );
+            }
+        }
+
+        if ( !resolvedValidationResults.isEmpty() )
+        {
+            context.getValidationResults().removeAll( resolvedValidationResults );
+
+            if ( context.isPersistResults() )
+            {
+                resolvedValidationResults.forEach( validationResultService::deleteValidationResult );
             }
         }
     }
 
+    /**
+     * Gets the rules to evaluate for an organisation unit and period. In
+     * incremental analysis, these are the rules required because of updated
+     * data values.
+     *
+     * @param orgUnit the organisation unit.
+     * @param period  the period.
+     * @param ruleXs  the rules of the organisation unit.
+     * @return the rules to evaluate.
+     */
+    private Set<ValidationRuleExtended> getRulesToValidate( OrganisationUnit orgUnit, Period period,
+        Set<ValidationRuleExtended> ruleXs )
+    {
+        if ( !context.isIncremental() )
+        {
+            return ruleXs;
+        }
+
+        return ruleXs.stream()
+            .filter( ruleX -> context.isValidationRequired( orgUnit, period, ruleX ) )
+            .collect( Collectors.toSet() );
+    }
+
+    /**
+     * Evaluates the given rules for an organisation unit and period, adding
+     * violations to the given set of validation results. In incremental
+     * analysis, existing results which are no longer violated are added to
+     * the given list of resolved validation results.
+     *
+     * @param orgUnit               the organisation unit.
+     * @param period                the period.
+     * @param ruleXs                the rules to evaluate.
+     * @param dataValueMap          map of values by attribute option combo.
+     * @param slidingWindowEventMap map of values by attribute option combo
+     *                              for sliding window expressions.
+     * @param validationResults     the set of validation results.
+     * @param resolvedResults       the list of resolved validation results.
+     */
+    private void validateRules( OrganisationUnit orgUnit, Period period, Set<ValidationRuleExtended> ruleXs,
+        MapMap<String, DimensionalItemObject, Double> dataValueMap,
+        MapMap<String, DimensionalItemObject, Double> slidingWindowEventMap, Set<ValidationResult> validationResults,
+        List<ValidationResult> resolvedResults )
+    {
+        for ( ValidationRuleExtended ruleX : ruleXs )
+        {
+            ValidationRule rule = ruleX.getRule();
+
+            // Skip validation if org unit level does not match
+            if ( !rule.getOrganisationUnitLevels().isEmpty() &&
+                !rule.getOrganisationUnitLevels().contains( orgUnit.getLevel() ) )
+            {
+                continue;
+            }
+            log.trace( "Validation rule " + rule.getUid() + " " + rule.getName() );
+
+            Map<String, Double> leftSideValues;
+
+            if ( rule.getLeftSide() != null && rule.getLeftSide().getSlidingWindow() )
+            {
+                leftSideValues = getExpressionValueMap( rule.getLeftSide(), slidingWindowEventMap,
+                    period );
+            }
+            else
+            {
+                leftSideValues = getExpressionValueMap( rule.getLeftSide(), dataValueMap, period );
+            }
+
+            Map<String, Double> rightSideValues;
+
+            if ( rule.getRightSide() != null && rule.getRightSide().getSlidingWindow() )
+            {
+                rightSideValues = getExpressionValueMap( rule.getRightSide(), slidingWindowEventMap,
+                    period );
+            }
+            else
+            {
+                rightSideValues = getExpressionValueMap( rule.getRightSide(), dataValueMap, period );
+            }
+
+            Set<String> attributeOptionCombos = Sets.newHashSet( leftSideValues.keySet() );
+            attributeOptionCombos.addAll( rightSideValues.keySet() );
+
+            List<ValidationResult> initialResults = context.isIncremental() ?
+                context.getInitialValidationResults( orgUnit, rule, period ) : new ArrayList<>();
+
+            // Existing results must be evaluated again to be resolved
+            initialResults.stream()
+                .map( result -> result.getAttributeOptionCombo().getUid() )
+                .filter( uid -> context.getAttributeCombo() == null || context.getAttributeCombo().getUid().equals( uid ) )
+                .forEach( attributeOptionCombos::add );
+
+            for ( String optionCombo : attributeOptionCombos )
+            {
+                boolean knownResult = context.skipValidationOfTuple( orgUnit, rule, period, optionCombo,
+                    periodService.getDayInPeriod( period, new Date() ) );
+
+                // Skipping any results we already know, unless incremental
+                if ( knownResult && !context.isIncremental() )
+                {
+                    continue;
+                }
+
+                log.trace( "Validation attributeOptionCombo " + optionCombo );
+
+                Double leftSide = leftSideValues.get( optionCombo );
+                Double rightSide = rightSideValues.get( optionCombo );
+                boolean violation = false;
+
+                if ( Operator.compulsory_pair.equals( rule.getOperator() ) )
+                {
+                    violation = (leftSide != null && rightSide == null)
+                        || (leftSide == null && rightSide != null);
+                }
+                else if ( Operator.exclusive_pair.equals( rule.getOperator() ) )
+                {
+                    violation = (leftSide != null && rightSide != null);
+                }
+                else
+                {
+                    if ( leftSide == null &&
+                        rule.getLeftSide().getMissingValueStrategy() == NEVER_SKIP )
+                    {
+                        leftSide = 0d;
+                    }
+
+                    if ( rightSide == null &&
+                        rule.getRightSide().getMissingValueStrategy() == NEVER_SKIP )
+                    {
+                        rightSide = 0d;
+                    }
+
+                    if ( leftSide != null && rightSide != null )
+                    {
+                        violation = !expressionIsTrue( leftSide, rule.getOperator(), rightSide );
+                    }
+                }
+
+                if ( violation && !knownResult )
+                {
+                    validationResults.add( new ValidationResult(
+                        rule, period, orgUnit,
+                        categoryService.getDataElementCategoryOptionCombo( optionCombo ),
+                        roundSignificant( zeroIfNull( leftSide ) ),
+                        roundSignificant( zeroIfNull( rightSide ) ),
+                        periodService.getDayInPeriod( period, new Date() ) ) );
+                }
+                else if ( !violation )
+                {
+                    initialResults.stream()
+                        .filter( result -> result.getAttributeOptionCombo().getUid().equals( optionCombo ) )
+                        .forEach( resolvedResults::add );
+                }
+
+                log.debug( "Evaluated " + rule.getName() + ", combo id " + optionCombo
+                    + ": " + (violation ? "violation" : "OK") + " "
+                    + (leftSide == null ? "(null)" : leftSide.toString()) + " "
+                    + rule.getOperator() + " "
+                    + (rightSide == null ? "(null)" : rightSide.toString()) + " ("
+                    + context.getValidationResults().size() + " results)" );
+
+            }
+        }
+    }
+
+    /**
+     * Saves the given validation results in batches. The batch handler uses a
+     * separate connection, so results are saved through the validation result
+     * service if any period is not yet persisted.
+     *
+     * @param validationResults the validation results.
+     */
+    private void saveValidationResults( Collection<ValidationResult> validationResults )
+    {
+        if ( validationResults.stream().anyMatch( result -> result.getPeriod().getId() == 0 ) )
+        {
+            validationResultService.saveValidationResults( validationResults );
+            return;
+        }
+
+        BatchHandler<ValidationResult> batchHandler = batchHandlerFactory
+            .createBatchHandler( ValidationResultBatchHandler.class ).init();
+
+        Date created = new Date();
+
+        for ( ValidationResult validationResult : validationResults )
+        {
+            validationResult.setCreated( created );
+
+            batchHandler.addObject( validationResult );
+        }
+
+        batchHandler.flush();
+    }
+
     /**
      * Gets the rules that should be evaluated for a given organisation unit and
      * period type.
@@ -355,28 +508,60 @@ public class DataValidationTask
     }
 
     /**
-     * Gets data values for a given organisation unit and period, recursing if
-     * necessary to sum the values from child organisation units.
+     * Gets data values for a block of organisation units and periods in one
+     * query.
      *
-     * @param dataElementOperandsToGet data element operands for orgUnit and period
+     * @param dataElementOperandsToGet data element operands for the org units and periods
      * @param allowedPeriodTypes       all the periods in which we might find data values
-     * @param period                   period in which we are looking for values
-     * @param orgUnit                  organisation unit for which we are looking for values
-     * @param lastUpdatedMap           map showing when each data value was last updated
-     * @return map of attribute option combo to map of values found.
+     * @param periods                  periods in which we are looking for values
+     * @param orgUnits                 organisation units for which we are looking for values
+     * @return map of attribute option combo to map of values found, by
+     *         organisation unit identifier and period.
      */
-    private MapMap<String, DimensionalItemObject, Double> getDataValueMap(
+    private MapMap<Integer, Period, MapMap<String, DimensionalItemObject, Double>> getDataValueMap(
         SetMap<String, DataElementOperand> dataElementOperandsToGet,
-        Set<PeriodType> allowedPeriodTypes, Period period,
-        OrganisationUnit orgUnit, MapMap<String, DataElementOperand, Date> lastUpdatedMap )
+        Set<PeriodType> allowedPeriodTypes, Collection<Period> periods, Collection<OrganisationUnit> orgUnits )
     {
-        log.trace( "getDataValueMap: orgUnit:" + orgUnit.getName()
-            + " dataElementOperandsToGet[" + dataElementOperandsToGet.size()
+        log.trace( "getDataValueMap: orgUnits[" + orgUnits.size() + "] periods[" + periods.size()
+            + "] dataElementOperandsToGet[" + dataElementOperandsToGet.size()
             + "] allowedPeriodTypes[" + allowedPeriodTypes.size() + "]" );
 
-        MapMap<String, DimensionalItemObject, Double> map = dataValueService.getDataValueMapByAttributeCombo(
-            dataElementOperandsToGet, period.getStartDate(), orgUnit, allowedPeriodTypes, context.getAttributeCombo(),
-            context.getCogDimensionConstraints(), context.getCoDimensionConstraints(), lastUpdatedMap );
+        return dataValueService.getDataValueMapByAttributeCombo(
+            dataElementOperandsToGet, periods, orgUnits, allowedPeriodTypes, context.getAttributeCombo(),
+            context.getCogDimensionConstraints(), context.getCoDimensionConstraints() );
+    }
+
+    /**
+     * Gets the data values of an organisation unit and period from the values
+     * fetched for a block, retaining only the given data element operands of
+     * the rules of the organisation unit. Attribute option combos without
+     * values for these operands are left out.
+     *
+     * @param blockValueMap map of values for the organisation unit and period,
+     *                      may be null.
+     * @param operands      the data element operands to retain.
+     * @return map of attribute option combo to map of values found.
+     */
+    private MapMap<String, DimensionalItemObject, Double> getOrgUnitDataValueMap(
+        MapMap<String, DimensionalItemObject, Double> blockValueMap, Set<DataElementOperand> operands )
+    {
+        MapMap<String, DimensionalItemObject, Double> map = new MapMap<>();
+
+        if ( blockValueMap == null )
+        {
+            return map;
+        }
+
+        for ( Map.Entry<String, Map<DimensionalItemObject, Double>> entry : blockValueMap.entrySet() )
+        {
+            for ( Map.Entry<DimensionalItemObject, Double> value : entry.getValue().entrySet() )
+            {
+                if ( operands.contains( value.getKey() ) )
+                {
+                    map.putEntry( entry.getKey(), value.getKey(), value.getValue() );
+                }
+            }
+        }
 
         return map;
     }
@@ -43,7 +43,9 @@ import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.expression.Expression;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.expression.MissingValueStrategy;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
@@ -262,6 +264,13 @@ public class DefaultValidationService
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withMaxResults( parameters.getMaxResults() );
 
+        if ( parameters.getLastUpdatedAfter() != null && !isConstantUpdatedAfter( parameters.getLastUpdatedAfter() ) )
+        {
+            builder.withUpdatedDataElements(
+                getUpdatedDataElements( periodTypeExtendedMap, parameters.getLastUpdatedAfter() ),
+                getUnconditionalRules( periodTypeExtendedMap, parameters.getLastUpdatedAfter() ) );
+        }
+
         if ( currentUser != null )
         {
             builder
@@ -571,6 +580,90 @@ public class DefaultValidationService
         }
     }
 
+    /**
+     * Gets the data elements of the rules with data values updated after the
+     * given date, by organisation unit identifier and period.
+     *
+     * @param periodTypeExtendedMap period type map to extended period types.
+     * @param lastUpdatedAfter      the date after which values were updated.
+     * @return data element UIDs by organisation unit identifier and period.
+     */
+    private MapMap<Integer, Period, Set<String>> getUpdatedDataElements(
+        Map<PeriodType, PeriodTypeExtended> periodTypeExtendedMap, Date lastUpdatedAfter )
+    {
+        MapMap<Integer, Period, Set<String>> updatedDataElements = new MapMap<>();
+
+        for ( PeriodTypeExtended periodTypeX : periodTypeExtendedMap.values() )
+        {
+            Set<String> dataElements = periodTypeX.getDataElements().stream()
+                .map( DataElement::getUid )
+                .collect( Collectors.toSet() );
+
+            MapMap<Integer, Period, Set<String>> map = dataValueService.getDataElementsLastUpdatedAfter(
+                dataElements, periodTypeX.getPeriods(), periodTypeX.getAllowedPeriodTypes(), lastUpdatedAfter );
+
+            map.forEach( ( orgUnitId, periodMap ) -> periodMap.forEach(
+                ( period, uids ) -> updatedDataElements.putEntry( orgUnitId, period, uids ) ) );
+        }
+
+        return updatedDataElements;
+    }
+
+    /**
+     * Gets the rules which must be evaluated regardless of updated data
+     * values. These are rules updated after the given date, rules where
+     * missing values are never skipped, rules using sliding windows and
+     * rules with items other than data element operands.
+     *
+     * @param periodTypeExtendedMap period type map to extended period types.
+     * @param lastUpdatedAfter      the date after which rules were updated.
+     * @return the rules to evaluate regardless of updated data values.
+     */
+    private Set<ValidationRule> getUnconditionalRules( Map<PeriodType, PeriodTypeExtended> periodTypeExtendedMap,
+        Date lastUpdatedAfter )
+    {
+        Set<ValidationRule> rules = new HashSet<>();
+
+        for ( PeriodTypeExtended periodTypeX : periodTypeExtendedMap.values() )
+        {
+            for ( ValidationRuleExtended ruleX : periodTypeX.getRuleXs() )
+            {
+                ValidationRule rule = ruleX.getRule();
+
+                boolean unconditional = rule.getLastUpdated() == null || rule.getLastUpdated().after( lastUpdatedAfter )
+                    || isUnconditional( rule.getLeftSide() ) || isUnconditional( rule.getRightSide() )
+                    || ruleX.getDimensionalItemObjects().stream().anyMatch(
+                        item -> item == null || item.getDimensionItemType() != DimensionItemType.DATA_ELEMENT_OPERAND );
+
+                if ( unconditional )
+                {
+                    rules.add( rule );
+                }
+            }
+        }
+
+        return rules;
+    }
+
+    /**
+     * Indicates whether the given expression may give a different result
+     * without any updated data values.
+     */
+    private boolean isUnconditional( Expression expression )
+    {
+        return expression == null || Boolean.TRUE.equals( expression.getSlidingWindow() )
+            || expression.getMissingValueStrategy() == MissingValueStrategy.NEVER_SKIP;
+    }
+
+    /**
+     * Indicates whether any constant was updated after the given date.
+     */
+    private boolean isConstantUpdatedAfter( Date date )
+    {
+        return constantService.getAllConstants().stream()
+            .anyMatch( constant -> constant.getLastUpdated() == null || constant.getLastUpdated().after( date ) );
+    }
+
     /**
      * Gets the PeriodTypeExtended from the context object. If not found,
      * creates a new PeriodTypeExtended object, puts it into the context object,
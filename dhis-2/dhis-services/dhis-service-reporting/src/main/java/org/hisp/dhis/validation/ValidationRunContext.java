@@ -29,6 +29,7 @@ package org.hisp.dhis.validation;
 
 import org.apache.commons.lang3.Validate;
 import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
 import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.dataelement.CategoryOptionGroup;
 import org.hisp.dhis.dataelement.DataElementCategoryOption;
@@ -76,6 +77,18 @@ public class ValidationRunContext
 
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
+    /**
+     * UIDs of data elements with updated data values by organisation unit
+     * identifier and period. Null if all rules are to be evaluated.
+     */
+    private MapMap<Integer, Period, Set<String>> updatedDataElements;
+
+    /**
+     * Rules to evaluate in incremental analysis regardless of updated data
+     * values.
+     */
+    private Set<ValidationRule> unconditionalRules = new HashSet<>();
+
     public ValidationRunContext()
     {
         validationResults = new ConcurrentLinkedQueue<>();
@@ -145,6 +158,43 @@ public class ValidationRunContext
         return validationResults;
     }
 
+    public boolean isIncremental()
+    {
+        return updatedDataElements != null;
+    }
+
+    /**
+     * Indicates whether the given rule must be evaluated for the given
+     * organisation unit and period. In incremental analysis, this is the case
+     * if data values of the data elements of the rule have been updated, or
+     * if the rule is to be evaluated regardless of updated data values.
+     */
+    public boolean isValidationRequired( OrganisationUnit organisationUnit, Period period, ValidationRuleExtended ruleX )
+    {
+        if ( !isIncremental() || unconditionalRules.contains( ruleX.getRule() ) )
+        {
+            return true;
+        }
+
+        Set<String> dataElements = updatedDataElements.getValue( organisationUnit.getId(), period );
+
+        return dataElements != null && ruleX.getDataElements().stream()
+            .anyMatch( dataElement -> dataElements.contains( dataElement.getUid() ) );
+    }
+
+    /**
+     * Gets the validation results which existed before the analysis for the
+     * given organisation unit, rule and period.
+     */
+    public List<ValidationResult> getInitialValidationResults( OrganisationUnit organisationUnit,
+        ValidationRule validationRule, Period period )
+    {
+        List<ValidationResult> validationResultList = initialValidationResults
+            .getValue( organisationUnit, validationRule, period );
+
+        return validationResultList != null ? validationResultList : new ArrayList<>();
+    }
+
     public boolean skipValidationOfTuple( OrganisationUnit organisationUnit, ValidationRule validationRule,
         Period period, String attributeOptionCombo, int dayInPeriod )
     {
@@ -285,6 +335,23 @@ public class ValidationRunContext
             return this;
         }
 
+        /**
+         * Makes the analysis incremental, evaluating rules only for organisation
+         * units and periods with updated data values of their data elements.
+         *
+         * @param updatedDataElements data element UIDs by organisation unit
+         *                            identifier and period
+         * @param unconditionalRules  rules to evaluate regardless of updated
+         *                            data values
+         */
+        public Builder withUpdatedDataElements( MapMap<Integer, Period, Set<String>> updatedDataElements,
+            Set<ValidationRule> unconditionalRules )
+        {
+            this.context.updatedDataElements = updatedDataElements;
+            this.context.unconditionalRules = unconditionalRules;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
@@ -28,12 +28,14 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
 import org.hisp.dhis.dataelement.DataElementCategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.springframework.context.ApplicationContext;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -45,10 +47,15 @@ import java.util.concurrent.TimeUnit;
  */
 public class Validator
 {
+    /**
+     * Maximum number of organisation units evaluated by a single task.
+     */
+    private static final int MAX_ORG_UNIT_BLOCK_SIZE = 500;
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
+     * method breaks the job down into blocks of organisation units. It assigns
+     * the evaluation for each block to a task that can be evaluated
      * independently in a multi-threaded environment.
      * 
      * @return a collection of any validations that were found
@@ -62,10 +69,10 @@ public class Validator
         int threadPoolSize = getThreadPoolSize( context );
         ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
 
-        for ( OrganisationUnit orgUnit : context.getOrgUnits() )
+        for ( List<OrganisationUnit> orgUnits : Lists.partition( context.getOrgUnits(), getBlockSize( context, threadPoolSize ) ) )
         {
             ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnit, context );
+            task.init( orgUnits, context );
 
             executor.execute( task );
         }
@@ -109,6 +116,21 @@ public class Validator
 	return threadPoolSize;
     }
 
+    /**
+     * Determines how many organisation units each task should evaluate, so
+     * that all threads get work while blocks do not exceed the maximum size.
+     *
+     * @param context        validation run context
+     * @param threadPoolSize number of threads for testing validation rules
+     * @return number of organisation units for each task
+     */
+    private static int getBlockSize( ValidationRunContext context, int threadPoolSize )
+    {
+        int blockSize = (int) Math.ceil( (double) context.getCountOfSourcesToValidate() / Math.max( threadPoolSize, 1 ) );
+
+        return Math.max( 1, Math.min( blockSize, MAX_ORG_UNIT_BLOCK_SIZE ) );
+    }
+
     /**
      * Reload attribute category option combos into this Hibernate context.
      *
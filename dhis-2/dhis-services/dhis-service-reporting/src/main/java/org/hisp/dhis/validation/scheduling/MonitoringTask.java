@@ -81,6 +81,17 @@ public class MonitoringTask
         this.taskId = taskId;
     }
 
+    private boolean incremental;
+
+    /**
+     * Whether to only evaluate rules for data which has changed since the
+     * last successful monitoring run. Defaults to false, i.e. a full run.
+     */
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
     // -------------------------------------------------------------------------
     // Runnable implementation
     // -------------------------------------------------------------------------
@@ -107,6 +118,7 @@ public class MonitoringTask
                 .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
                 .withSendNotifications( false )
                 .withPersistResults( true )
+                .withLastUpdatedAfter( incremental ? (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_MONITORING ) : null )
                 .build();
 
             validationService.validationAnalysis( parameters );
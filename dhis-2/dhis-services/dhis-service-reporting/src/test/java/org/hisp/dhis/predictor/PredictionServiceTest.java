@@ -428,6 +428,31 @@ public class PredictionServiceTest
         assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
     }
 
+    @Test
+    @Category( IntegrationTest.class )
+    public void testPredictWithExplicitCategoryOptionCombo()
+    {
+        useDataValue( dataElementB, makeMonth( 2001, 6 ), sourceA, 5 );
+        dataValueService.addDataValue( createDataValue( dataElementB, makeMonth( 2001, 6 ), sourceA, "7", altCombo, defaultCombo ) );
+
+        Expression expressionAlt = new Expression( "avg(#{" + dataElementB.getUid() + "." + altCombo.getUid() + "})", "descriptionAlt" );
+        expressionService.addExpression( expressionAlt );
+
+        // Only values of the category option combo of the operand are used
+
+        Predictor p = createPredictor( dataElementX, defaultCombo, "A", expressionB, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        assertEquals( 1, predictionService.predict( p, monthStart( 2001, 7 ), monthStart( 2001, 8 ) ) );
+        assertEquals( "5.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+
+        p = createPredictor( dataElementX, defaultCombo, "B", expressionAlt, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        assertEquals( 1, predictionService.predict( p, monthStart( 2001, 7 ), monthStart( 2001, 8 ) ) );
+        assertEquals( "7.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+    }
+
     @Test
     @Category( IntegrationTest.class )
     public void testPredictSequential()
@@ -558,6 +583,44 @@ public class PredictionServiceTest
         assertEquals( "30.0", getDataValue( dataElementX, altCombo, sourceG, makeMonth( 2001, 9 ) ) );
     }
 
+    @Test
+    @Category( IntegrationTest.class )
+    public void testPredictInParallelForNewPeriods()
+    {
+        Set<OrganisationUnit> units = new HashSet<>();
+
+        for ( char uniqueCharacter = 'H'; uniqueCharacter <= 'W'; uniqueCharacter++ )
+        {
+            OrganisationUnit unit = createOrganisationUnit( uniqueCharacter );
+            organisationUnitService.addOrganisationUnit( unit );
+            units.add( unit );
+        }
+
+        setDependency( predictionService, "currentUserService", new MockCurrentUserService( true, units, units ), CurrentUserService.class );
+
+        Predictor p = createPredictor( dataElementY, defaultCombo, "PredictInParallel",
+            expressionC, null, periodTypeMonthly, orgUnitLevel1, 0, 0, 0 );
+
+        // Periods of 2010 do not exist before the prediction
+
+        assertEquals( 32, predictionService.predict( p, monthStart( 2010, 1 ), monthStart( 2010, 3 ) ) );
+
+        for ( OrganisationUnit unit : units )
+        {
+            assertEquals( "136", getDataValue( dataElementY, defaultCombo, unit, makeMonth( 2010, 1 ) ) );
+            assertEquals( "136", getDataValue( dataElementY, defaultCombo, unit, makeMonth( 2010, 2 ) ) );
+        }
+
+        // Periods exist now, values are written through the batch handler
+
+        assertEquals( 32, predictionService.predict( p, monthStart( 2010, 1 ), monthStart( 2010, 3 ) ) );
+
+        for ( OrganisationUnit unit : units )
+        {
+            assertEquals( "136", getDataValue( dataElementY, defaultCombo, unit, makeMonth( 2010, 2 ) ) );
+        }
+    }
+
     @Test
     @Category( IntegrationTest.class )
     public void testPredictNoPeriods()
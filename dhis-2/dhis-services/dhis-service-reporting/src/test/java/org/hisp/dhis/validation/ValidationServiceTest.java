@@ -28,6 +28,8 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.DhisTest;
@@ -47,11 +49,14 @@ import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.hisp.dhis.expression.Expression.SEPARATOR;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_DAYS;
 import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
@@ -95,6 +100,12 @@ public class ValidationServiceTest
     @Autowired
     private PeriodService periodService;
 
+    @Autowired
+    private ValidationResultService validationResultService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
     private DataElement dataElementC;
@@ -599,6 +610,189 @@ public class ValidationServiceTest
         assertResultsEquals( reference, results );
     }
 
+    @Test
+    public void testValidateOrgUnitBlocks()
+    {
+        // More org units than fit in one block, so validation spans blocks
+
+        List<OrganisationUnit> orgUnits = new ArrayList<>();
+        List<OrganisationUnit> orgUnitsWithData = new ArrayList<>();
+
+        for ( int i = 0; i < 510; i++ )
+        {
+            OrganisationUnit orgUnit = createOrganisationUnit( "BlockOrgUnit" + i );
+            dataSetMonthly.addOrganisationUnit( orgUnit );
+            organisationUnitService.addOrganisationUnit( orgUnit );
+            orgUnits.add( orgUnit );
+
+            if ( i % 50 == 0 || i == 509 )
+            {
+                Period period = i % 100 == 0 ? periodA : periodB;
+
+                useDataValue( dataElementA, period, orgUnit, "1" );
+                useDataValue( dataElementB, period, orgUnit, String.valueOf( i % 5 + 1 ) );
+                useDataValue( dataElementC, period, orgUnit, "3" );
+                useDataValue( dataElementD, period, orgUnit, "4" );
+
+                orgUnitsWithData.add( orgUnit );
+            }
+        }
+
+        dataSetService.updateDataSet( dataSetMonthly );
+
+        validationRuleService.saveValidationRule( validationRuleA );
+        validationRuleService.saveValidationRule( validationRuleB );
+        validationRuleService.saveValidationRule( validationRuleC );
+        validationRuleService.saveValidationRule( validationRuleD );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis(
+            validationService.newParamsBuilder( null, orgUnits, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) ).build() );
+
+        // Validating each org unit on its own gives the same results
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        for ( OrganisationUnit orgUnit : orgUnitsWithData )
+        {
+            reference.addAll( validationService.validationAnalysis(
+                validationService.newParamsBuilder( null, Lists.newArrayList( orgUnit ), getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) ).build() ) );
+        }
+
+        assertTrue( reference.stream().map( ValidationResult::getOrganisationUnit ).collect( Collectors.toSet() )
+            .containsAll( orgUnitsWithData ) );
+
+        assertResultsEquals( reference, results );
+    }
+
+    @Test
+    public void testValidateIncremental()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleB ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleC ); // Valid
+        validationRuleService.saveValidationRule( validationRuleD ); // Valid
+
+        // No data updated after the given date
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService.newParamsBuilder( dataSetMonthly, sourceA, periodA )
+            .withLastUpdatedAfter( getDate( 2100, 1, 1 ) )
+            .build() );
+
+        assertTrue( results.isEmpty() );
+
+        // Data updated after the given date
+
+        results = validationService.validationAnalysis( validationService.newParamsBuilder( dataSetMonthly, sourceA, periodA )
+            .withLastUpdatedAfter( getDate( 2000, 1, 1 ) )
+            .build() );
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( new ValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+        reference.add( new ValidationResult( validationRuleB, periodA, sourceA, defaultCombo, -1.0, 4.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, results );
+    }
+
+    @Test
+    public void testValidateIncrementalResolvedAndPartial()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleB ); // Invalid
+        validationRuleService.saveValidationRule( validationRuleC ); // Valid
+        validationRuleService.saveValidationRule( validationRuleD ); // Valid
+
+        List<ValidationRule> rules = Lists.newArrayList( validationRuleA, validationRuleB, validationRuleC, validationRuleD );
+        List<OrganisationUnit> orgUnits = Lists.newArrayList( sourceA, sourceB );
+        List<Period> periods = Lists.newArrayList( periodA );
+
+        // Full run which persists the results
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService.newParamsBuilder( rules, orgUnits, periods )
+            .withPersistResults( true )
+            .build() );
+
+        assertEquals( Sets.newHashSet( key( validationRuleA, sourceA ), key( validationRuleB, sourceA ),
+            key( validationRuleA, sourceB ), key( validationRuleB, sourceB ) ), keys( results ) );
+        assertEquals( 4, validationResultService.getAllValidationResults().size() );
+
+        // Rules and data values are last updated before the given date
+
+        Date lastUpdatedAfter = getDate( 2010, 1, 1 );
+
+        rules.forEach( rule -> rule.setLastUpdated( getDate( 2000, 1, 1 ) ) );
+
+        jdbcTemplate.update( "update datavalue set lastupdatedatserver = '2000-01-01'" );
+
+        // Values changed without being updated are not seen by rules which
+        // are not evaluated again
+
+        setValueWithoutUpdate( dataElementB, sourceA, "1" );
+        setValueWithoutUpdate( dataElementB, sourceB, "1" );
+        setValueWithoutUpdate( dataElementD, sourceB, "1" );
+
+        // Update of D for org unit A requires rules A, B and C for org unit A
+
+        DataValue dataValue = dataValueService.getDataValue( dataElementD, periodA, sourceA, optionCombo );
+        dataValue.setValue( "1" );
+        dataValueService.updateDataValue( dataValue );
+
+        results = validationService.validationAnalysis( validationService.newParamsBuilder( rules, orgUnits, periods )
+            .withPersistResults( true )
+            .withLastUpdatedAfter( lastUpdatedAfter )
+            .build() );
+
+        // Rule A for org unit A is resolved, rule B for org unit A is still
+        // violated, rule D for org unit A and org unit B are not evaluated
+
+        Set<String> expected = Sets.newHashSet( key( validationRuleB, sourceA ),
+            key( validationRuleA, sourceB ), key( validationRuleB, sourceB ) );
+
+        assertEquals( expected, keys( results ) );
+        assertEquals( expected, keys( validationResultService.getAllValidationResults() ) );
+
+        // Full run evaluates rule D for org unit A and org unit B
+
+        results = validationService.validationAnalysis( validationService.newParamsBuilder( rules, orgUnits, periods )
+            .build() );
+
+        assertTrue( keys( results ).contains( key( validationRuleD, sourceA ) ) );
+        assertTrue( keys( results ).contains( key( validationRuleD, sourceB ) ) );
+    }
+
+    private void setValueWithoutUpdate( DataElement dataElement, OrganisationUnit source, String value )
+    {
+        jdbcTemplate.update( "update datavalue set value = ? where dataelementid = ? and sourceid = ?",
+            value, dataElement.getId(), source.getId() );
+    }
+
+    private String key( ValidationRule rule, OrganisationUnit orgUnit )
+    {
+        return rule.getUid() + "-" + orgUnit.getUid();
+    }
+
+    private Set<String> keys( Collection<ValidationResult> results )
+    {
+        return results.stream()
+            .map( result -> key( result.getValidationRule(), result.getOrganisationUnit() ) )
+            .collect( Collectors.toSet() );
+    }
+
     @Test
     public void testValidateForm()
     {
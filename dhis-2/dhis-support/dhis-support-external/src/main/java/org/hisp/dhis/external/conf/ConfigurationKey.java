@@ -65,6 +65,7 @@ public enum ConfigurationKey
     CACHE_TIME( "cache.time", "600", false ),
     METADATA_AUDIT_PERSIST( "metadata.audit.persist", "off", false ),
     METADATA_AUDIT_LOG( "metadata.audit.log", "off", false ),
+    ANALYTICS_QUERY_THREADS( "analytics.query.threads", "", false ),
     RABBITMQ_HOST( "rabbitmq.host" ),
     RABBITMQ_ADDRESSES( "rabbitmq.addresses" ),
     RABBITMQ_VIRTUAL_HOST( "rabbitmq.virtual-host", "/", false ),
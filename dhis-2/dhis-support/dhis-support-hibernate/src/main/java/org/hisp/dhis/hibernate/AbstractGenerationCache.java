@@ -0,0 +1,291 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of values loaded from the database which is invalidated by generation
+ * counters. Keys of entries include the generations which the values depend
+ * on, and the generation of the whole cache. Generations are incremented by
+ * Hibernate event listeners, registered by subclasses, after transactions
+ * which change the values complete, whether committed or not.
+ * <p>
+ * As a key is made of the generations read before the value is loaded,
+ * entries loaded concurrently with a change are never returned after the
+ * change. Sessions with pending invalidations do not use the cache, so that
+ * uncommitted changes are never cached.
+ * <p>
+ * The cache is local to the instance and is hence disabled when clustering
+ * is enabled. The cache is bounded by the number of entries, or by the total
+ * weight of entries when a weigher is given. The max size of the cache is 0
+ * during tests unless set explicitly.
+ *
+ * @param <V> the value type.
+ */
+public abstract class AbstractGenerationCache<V>
+{
+    private static final String ALL = "*";
+
+    private final int initialCapacity;
+
+    private volatile long maximumSize;
+
+    private final Weigher<String, V> weigher;
+
+    private volatile Cache<String, V> cache;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<Object, Set<String>> pendingInvalidations = new ConcurrentHashMap<>();
+
+    private boolean enabled = true;
+
+    protected AbstractGenerationCache( int initialCapacity, long maximumSize )
+    {
+        this( initialCapacity, maximumSize, null );
+    }
+
+    /**
+     * @param initialCapacity the initial capacity.
+     * @param maximumSize     the max number of entries, or the max total
+     *                        weight of entries if a weigher is given.
+     * @param weigher         the weigher of entries, can be null.
+     */
+    protected AbstractGenerationCache( int initialCapacity, long maximumSize, Weigher<String, V> weigher )
+    {
+        this.initialCapacity = initialCapacity;
+        this.maximumSize = SystemUtils.isTestRun() ? 0 : maximumSize;
+        this.weigher = weigher;
+        this.cache = newCache();
+    }
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory( SessionFactory sessionFactory )
+    {
+        this.sessionFactory = sessionFactory;
+    }
+
+    private DhisConfigurationProvider configurationProvider;
+
+    public void setConfigurationProvider( DhisConfigurationProvider configurationProvider )
+    {
+        this.configurationProvider = configurationProvider;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        enabled = !configurationProvider.isClusterEnabled();
+
+        if ( !enabled )
+        {
+            return;
+        }
+
+        EventListenerRegistry registry = ((SessionFactoryImplementor) sessionFactory)
+            .getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registerListeners( registry );
+    }
+
+    /**
+     * Registers the event listeners which invalidate the cache.
+     */
+    protected abstract void registerListeners( EventListenerRegistry registry );
+
+    // -------------------------------------------------------------------------
+    // Cache
+    // -------------------------------------------------------------------------
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public long getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the max number of entries, or the max total weight of entries if
+     * the cache has a weigher, and clears the cache.
+     */
+    public void setMaximumSize( long maximumSize )
+    {
+        this.maximumSize = maximumSize;
+        this.cache = newCache();
+    }
+
+    /**
+     * Returns the cached value with the given key. Loads the value with the
+     * given loader if not cached, or if the current session has pending
+     * invalidations. The key must include the generations of the value.
+     *
+     * @param key    the key.
+     * @param loader the loader of the value.
+     * @return the value.
+     */
+    protected V get( String key, Supplier<V> loader )
+    {
+        if ( !enabled || hasPendingInvalidations( sessionFactory.getCurrentSession() ) )
+        {
+            return loader.get();
+        }
+
+        return cache.get( key + "-" + generation.get(), k -> loader.get() );
+    }
+
+    /**
+     * Returns the current generation with the given name.
+     */
+    protected long getGeneration( String name )
+    {
+        AtomicLong gen = generations.get( name );
+        return gen != null ? gen.get() : 0;
+    }
+
+    /**
+     * Invalidates cached values of the generation with the given name.
+     */
+    protected void invalidateGeneration( String name )
+    {
+        generations.computeIfAbsent( name, n -> new AtomicLong() ).incrementAndGet();
+    }
+
+    /**
+     * Invalidates all cached values.
+     */
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Indicates whether the given session has flushed changes which invalidate
+     * the cache and which are not yet committed.
+     */
+    public boolean hasPendingInvalidations( Object session )
+    {
+        return pendingInvalidations.containsKey( session );
+    }
+
+    /**
+     * Adds the invalidation of the generation with the given name, or of the
+     * whole cache if null, to the given session, and runs the invalidations of
+     * the session after its transaction completes, whether committed or not.
+     */
+    protected void invalidateAfterCompletion( EventSource session, String name )
+    {
+        boolean[] added = { false };
+
+        Set<String> names = pendingInvalidations.computeIfAbsent( session, s -> {
+            added[0] = true;
+            return ConcurrentHashMap.newKeySet();
+        } );
+
+        names.add( name != null ? name : ALL );
+
+        if ( added[0] )
+        {
+            session.getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) ( success, s ) -> invalidatePending( session ) );
+        }
+    }
+
+    /**
+     * Adds the invalidation of the whole cache to the given session.
+     */
+    public void invalidateAllAfterCompletion( EventSource session )
+    {
+        invalidateAfterCompletion( session, null );
+    }
+
+    private void invalidatePending( Object session )
+    {
+        Set<String> names = pendingInvalidations.get( session );
+
+        if ( names != null )
+        {
+            names.forEach( name -> {
+                if ( ALL.equals( name ) )
+                {
+                    invalidateAll();
+                }
+                else
+                {
+                    invalidateGeneration( name );
+                }
+            } );
+        }
+
+        pendingInvalidations.remove( session );
+    }
+
+    private Cache<String, V> newCache()
+    {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .expireAfterAccess( 1, TimeUnit.HOURS )
+            .initialCapacity( initialCapacity );
+
+        if ( weigher != null )
+        {
+            return builder
+                .maximumWeight( maximumSize )
+                .weigher( weigher )
+                .build();
+        }
+
+        return builder
+            .maximumSize( maximumSize )
+            .build();
+    }
+}
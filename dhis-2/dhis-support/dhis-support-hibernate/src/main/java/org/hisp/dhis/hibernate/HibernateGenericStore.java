@@ -28,9 +28,11 @@ package org.hisp.dhis.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.primitives.Ints;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
@@ -75,7 +77,9 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Lars Helge Overland
@@ -120,6 +124,9 @@ public class HibernateGenericStore<T>
     @Autowired
     protected AclService aclService;
 
+    @Autowired( required = false )
+    protected SharingAccessIndex sharingAccessIndex;
+
     protected Class<T> clazz;
 
     /**
@@ -290,6 +297,19 @@ public class HibernateGenericStore<T>
         disjunction.add( Restrictions.isNull( "c.user.id" ) );
         disjunction.add( Restrictions.eq( "c.user.id", user.getId() ) );
 
+        int[] sharedIds = getSharedIds( user, access );
+
+        if ( sharedIds != null )
+        {
+            if ( sharedIds.length > 0 )
+            {
+                disjunction.add( Restrictions.in( "c.id", Ints.asList( sharedIds ) ) );
+            }
+
+            criteria.add( disjunction );
+            return criteria;
+        }
+
         DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
         userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
         userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
@@ -319,6 +339,69 @@ public class HibernateGenericStore<T>
         return criteria;
     }
 
+    /**
+     * Returns the identifiers of objects which the given user can access
+     * through user accesses and user group accesses from the sharing access
+     * index, or null if the index is not available or the identifiers are
+     * too many to filter on.
+     * <p>
+     * The index is not used when the session has pending changes, as changes
+     * to sharing or user group members are seen by the index only once they
+     * are flushed, while the sharing subqueries cause them to be flushed.
+     */
+    private int[] getSharedIds( UserInfo user, String access )
+    {
+        Session session = getSession();
+
+        if ( sharingAccessIndex == null || !sharingAccessIndex.isEnabled() || sharingAccessIndex.hasPendingInvalidations( session ) ||
+            hasPendingChanges( session ) )
+        {
+            return null;
+        }
+
+        int[] ids = sharingAccessIndex.getIds( user.getId(), getClazz(), access, () -> loadSharedIds( user, access ) );
+
+        return ids.length <= sharingAccessIndex.getMaxIds() ? ids : null;
+    }
+
+    /**
+     * Indicates whether the given session has changes which would be flushed
+     * before a query is executed.
+     */
+    private boolean hasPendingChanges( Session session )
+    {
+        FlushMode flushMode = session.getHibernateFlushMode();
+
+        return (FlushMode.AUTO == flushMode || FlushMode.ALWAYS == flushMode) && session.isDirty();
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private Set<Integer> loadSharedIds( UserInfo user, String access )
+    {
+        String userGroupHql = "select distinct c.id from " + getClazz().getName() + " c " +
+            "join c.userGroupAccesses uga join uga.userGroup ug join ug.members ugm " +
+            "where ugm.id = :userId and uga.access like :access";
+
+        String userHql = "select distinct c.id from " + getClazz().getName() + " c " +
+            "join c.userAccesses ua " +
+            "where ua.user.id = :userId and ua.access like :access";
+
+        Set<Integer> ids = new HashSet<>();
+
+        // load one more than the max to tell when the max is exceeded
+
+        for ( String hql : new String[]{ userGroupHql, userHql } )
+        {
+            ids.addAll( getQuery( hql )
+                .setParameter( "userId", user.getId() )
+                .setParameter( "access", access )
+                .setMaxResults( sharingAccessIndex.getMaxIds() + 1 )
+                .list() );
+        }
+
+        return ids;
+    }
+
     /**
      * Override to add additional restrictions to criteria before
      * it is invoked.
@@ -0,0 +1,154 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Index of the identifiers of objects which users can access through user
+ * accesses and user group accesses, by user, object type and access string.
+ * Used to replace the correlated sharing subqueries of stores with an
+ * identifier filter.
+ * <p>
+ * Entries are keyed on generations of users and object types, which are
+ * incremented by {@link SharingAccessIndexEventListener} after transactions
+ * which change sharing or user group members complete.
+ * <p>
+ * Identifiers are stored as sorted arrays of primitive integers. The index is
+ * bounded by the total number of identifiers rather than by the number of
+ * entries, as the number of identifiers per entry varies greatly.
+ */
+public class SharingAccessIndex
+    extends AbstractGenerationCache<int[]>
+{
+    /**
+     * Default max number of identifiers to filter on, above which stores fall
+     * back to sharing subqueries.
+     */
+    public static final int MAX_IDS = 10000;
+
+    /**
+     * Max total number of identifiers in the index.
+     */
+    private static final long MAX_WEIGHT = 5_000_000;
+
+    private static final String USER_GENERATION_PREFIX = "user-";
+
+    private int maxIds = MAX_IDS;
+
+    public SharingAccessIndex()
+    {
+        super( 1000, MAX_WEIGHT, ( key, ids ) -> Math.max( 1, ids.length ) );
+    }
+
+    @Override
+    protected void registerListeners( EventListenerRegistry registry )
+    {
+        SharingAccessIndexEventListener listener = new SharingAccessIndexEventListener( this );
+
+        registry.appendListeners( EventType.POST_COLLECTION_RECREATE, listener );
+        registry.appendListeners( EventType.POST_COLLECTION_UPDATE, listener );
+        registry.appendListeners( EventType.POST_COLLECTION_REMOVE, listener );
+        registry.appendListeners( EventType.POST_UPDATE, listener );
+    }
+
+    // -------------------------------------------------------------------------
+    // Index
+    // -------------------------------------------------------------------------
+
+    public int getMaxIds()
+    {
+        return maxIds;
+    }
+
+    public void setMaxIds( int maxIds )
+    {
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Returns the identifiers of objects of the given type which the given user
+     * can access through user accesses and user group accesses with an access
+     * string matching the given pattern. Loads the identifiers with the given
+     * loader if not indexed.
+     *
+     * @param userId the user identifier.
+     * @param klass  the object type.
+     * @param access the access string pattern.
+     * @param loader the loader of identifiers.
+     * @return a sorted array of distinct object identifiers.
+     */
+    public int[] getIds( int userId, Class<?> klass, String access, Supplier<Collection<Integer>> loader )
+    {
+        String key = userId + "-" + getGeneration( USER_GENERATION_PREFIX + userId ) + "-" +
+            klass.getName() + "-" + getGeneration( klass.getName() ) + "-" + access;
+
+        return get( key, () -> loader.get().stream().mapToInt( Integer::intValue ).distinct().sorted().toArray() );
+    }
+
+    /**
+     * Invalidates indexed identifiers of the given user.
+     */
+    public void invalidateUser( int userId )
+    {
+        invalidateGeneration( USER_GENERATION_PREFIX + userId );
+    }
+
+    /**
+     * Invalidates indexed identifiers of the object type with the given entity
+     * name, which is the class name.
+     */
+    public void invalidateType( String entityName )
+    {
+        invalidateGeneration( entityName );
+    }
+
+    /**
+     * Invalidates indexed identifiers of the given user after the transaction
+     * of the given session completes.
+     */
+    public void invalidateUserAfterCompletion( EventSource session, int userId )
+    {
+        invalidateAfterCompletion( session, USER_GENERATION_PREFIX + userId );
+    }
+
+    /**
+     * Invalidates indexed identifiers of the object type with the given entity
+     * name after the transaction of the given session completes.
+     */
+    public void invalidateTypeAfterCompletion( EventSource session, String entityName )
+    {
+        invalidateAfterCompletion( session, entityName );
+    }
+}
@@ -0,0 +1,178 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Invalidates the {@link SharingAccessIndex} after transactions which change
+ * user accesses, user group accesses or user group members complete.
+ */
+public class SharingAccessIndexEventListener
+    implements PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+    PostCollectionRemoveEventListener, PostUpdateEventListener
+{
+    private static final String ROLE_USER_GROUP_ACCESSES = ".userGroupAccesses";
+
+    private static final String ROLE_USER_ACCESSES = ".userAccesses";
+
+    private static final String ROLE_USER_GROUP_MEMBERS = UserGroup.class.getName() + ".members";
+
+    private final SharingAccessIndex sharingAccessIndex;
+
+    public SharingAccessIndexEventListener( SharingAccessIndex sharingAccessIndex )
+    {
+        this.sharingAccessIndex = sharingAccessIndex;
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        handleCollectionEvent( event );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        if ( event.getEntity() instanceof UserGroupAccess || event.getEntity() instanceof UserAccess )
+        {
+            // the object type of the access is not known, invalidate everything
+
+            sharingAccessIndex.invalidateAllAfterCompletion( event.getSession() );
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void handleCollectionEvent( AbstractCollectionEvent event )
+    {
+        String role = event.getCollection().getRole();
+
+        if ( role == null )
+        {
+            return;
+        }
+
+        if ( role.endsWith( ROLE_USER_GROUP_ACCESSES ) || role.endsWith( ROLE_USER_ACCESSES ) )
+        {
+            sharingAccessIndex.invalidateTypeAfterCompletion( event.getSession(), event.getAffectedOwnerEntityName() );
+        }
+        else if ( ROLE_USER_GROUP_MEMBERS.equals( role ) )
+        {
+            Set<Integer> userIds = getMemberIds( event.getCollection() );
+
+            if ( userIds == null )
+            {
+                sharingAccessIndex.invalidateAllAfterCompletion( event.getSession() );
+            }
+            else
+            {
+                userIds.forEach( userId -> sharingAccessIndex.invalidateUserAfterCompletion( event.getSession(), userId ) );
+            }
+        }
+    }
+
+    /**
+     * Returns the identifiers of current and previous members of a user group
+     * members collection, or null if previous members can not be determined.
+     */
+    private Set<Integer> getMemberIds( PersistentCollection collection )
+    {
+        Set<Integer> userIds = new HashSet<>();
+
+        Serializable snapshot = collection.getStoredSnapshot();
+
+        if ( snapshot instanceof Map )
+        {
+            addMemberIds( userIds, ((Map<?, ?>) snapshot).values() );
+        }
+        else if ( snapshot instanceof Collection )
+        {
+            addMemberIds( userIds, (Collection<?>) snapshot );
+        }
+        else if ( snapshot != null )
+        {
+            return null;
+        }
+
+        if ( collection.getValue() instanceof Collection )
+        {
+            addMemberIds( userIds, (Collection<?>) collection.getValue() );
+        }
+
+        return userIds;
+    }
+
+    private void addMemberIds( Set<Integer> userIds, Collection<?> members )
+    {
+        members.stream()
+            .filter( member -> member instanceof User )
+            .forEach( member -> userIds.add( ((User) member).getId() ) );
+    }
+}
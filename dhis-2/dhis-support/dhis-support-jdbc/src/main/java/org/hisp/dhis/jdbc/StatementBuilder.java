@@ -28,6 +28,8 @@ package org.hisp.dhis.jdbc;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+
 /**
  * @author Lars Helge Overland
  * @version $Id: StatementBuilder.java 5715 2008-09-17 14:05:28Z larshelg $
@@ -214,4 +216,17 @@ public interface StatementBuilder
     String getAddPrimaryKeyToExistingTable( String table, String column );
     
     String getDropNotNullConstraint( String table, String column, String type );
+
+    /**
+     * Returns a clause to append to an insert statement of a single row which
+     * adds the inserted values of the given columns to the existing row if a
+     * row with the same key already exists. Returns null if not supported by
+     * the database.
+     *
+     * @param table the table name.
+     * @param keyColumns the columns of the primary key.
+     * @param incrementColumns the columns to increment.
+     * @return clause to append to an insert statement, or null.
+     */
+    String getUpsertIncrement( String table, List<String> keyColumns, List<String> incrementColumns );
 }
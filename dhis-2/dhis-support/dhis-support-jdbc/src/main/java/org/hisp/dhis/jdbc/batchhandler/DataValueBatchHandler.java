@@ -132,6 +132,7 @@ public class DataValueBatchHandler
             "storedby",
             "created",
             "lastupdated",
+            "lastupdatedatserver",
             "comment",
             "followup",
             "deleted" );
@@ -150,6 +151,7 @@ public class DataValueBatchHandler
             value.getStoredBy(),
             getLongDateString( value.getCreated() ),
             getLongDateString( value.getLastUpdated() ),
+            getLongDateString( value.getLastUpdatedAtServer() ),
             value.getComment(),
             value.isFollowup(),
             value.isDeleted() );
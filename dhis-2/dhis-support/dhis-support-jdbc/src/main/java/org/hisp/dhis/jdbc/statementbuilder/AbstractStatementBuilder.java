@@ -31,6 +31,8 @@ package org.hisp.dhis.jdbc.statementbuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.jdbc.StatementBuilder;
 
+import java.util.List;
+
 /**
  * @author Lars Helge Overland
  */
@@ -162,4 +164,10 @@ public abstract class AbstractStatementBuilder
     {
         return "alter table " + table + " modify column " + column + " " + type + " null;";
     }
+
+    @Override
+    public String getUpsertIncrement( String table, List<String> keyColumns, List<String> incrementColumns )
+    {
+        return null;
+    }
 }
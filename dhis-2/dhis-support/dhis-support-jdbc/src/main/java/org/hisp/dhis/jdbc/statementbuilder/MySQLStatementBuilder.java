@@ -28,6 +28,9 @@ package org.hisp.dhis.jdbc.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * @author Lars Helge Overland
  */
@@ -111,4 +114,12 @@ public class MySQLStatementBuilder
     {
         return "ADDDATE(" + dateField + "," + days + ")";
     }
+
+    @Override
+    public String getUpsertIncrement( String table, List<String> keyColumns, List<String> incrementColumns )
+    {
+        return "on duplicate key update " + incrementColumns.stream()
+            .map( c -> c + " = " + c + " + values(" + c + ")" )
+            .collect( Collectors.joining( ", " ) );
+    }
 }
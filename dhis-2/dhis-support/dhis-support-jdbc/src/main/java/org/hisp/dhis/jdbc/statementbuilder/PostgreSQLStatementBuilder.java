@@ -28,6 +28,9 @@ package org.hisp.dhis.jdbc.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * @author Lars Helge Overland
  */
@@ -151,4 +154,12 @@ public class PostgreSQLStatementBuilder
     {
         return "alter table " + table + " alter column " + column + " drop not null;";
     }
+
+    @Override
+    public String getUpsertIncrement( String table, List<String> keyColumns, List<String> incrementColumns )
+    {
+        return "on conflict (" + String.join( ",", keyColumns ) + ") do update set " + incrementColumns.stream()
+            .map( c -> c + " = " + table + "." + c + " + excluded." + c )
+            .collect( Collectors.joining( ", " ) );
+    }
 }
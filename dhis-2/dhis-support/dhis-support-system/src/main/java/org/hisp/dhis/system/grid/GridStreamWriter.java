@@ -0,0 +1,71 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import org.hisp.dhis.common.Grid;
+
+/**
+ * Writer which writes a grid to an output incrementally, i.e. one row at a
+ * time, without holding the rows of the grid in memory. The headers and
+ * meta-data of the grid must be written first, then the rows and finally
+ * the writer must be closed, or aborted if producing the rows failed.
+ * 
+ * Implementations wrap I/O errors in {@link java.io.UncheckedIOException}
+ * so that producers like JDBC row callbacks can abort on client disconnects.
+ */
+public interface GridStreamWriter
+{
+    /**
+     * Writes the headers and meta-data of the given grid. Rows of the given
+     * grid are ignored.
+     * 
+     * @param grid the grid.
+     */
+    void writeHeaders( Grid grid );
+
+    /**
+     * Writes the given row.
+     * 
+     * @param row the row values.
+     */
+    void writeRow( List<Object> row );
+
+    /**
+     * Completes the output and closes the underlying stream.
+     */
+    void close();
+
+    /**
+     * Closes the underlying stream without completing the output, so that
+     * clients can detect that the output is incomplete.
+     */
+    void abort();
+}
@@ -0,0 +1,142 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.common.Grid;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streaming JSON writer for grids. The output has the same structure as the
+ * Jackson serialization of {@link ListGrid}, where the height is written
+ * after the rows as it is not known up front.
+ */
+public class JsonGridStreamWriter
+    implements GridStreamWriter
+{
+    private final JsonGenerator generator;
+
+    private boolean startedRows;
+
+    private int height = 0;
+
+    public JsonGridStreamWriter( ObjectMapper jsonMapper, OutputStream out )
+    {
+        try
+        {
+            this.generator = jsonMapper.getFactory().createGenerator( out );
+            this.generator.writeStartObject();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void writeHeaders( Grid grid )
+    {
+        try
+        {
+            generator.writeObjectField( "headers", grid.getHeaders() );
+            generator.writeObjectField( "metaData", grid.getMetaData() );
+            generator.writeNumberField( "width", grid.getHeaders().size() );
+            generator.writeArrayFieldStart( "rows" );
+
+            startedRows = true;
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void writeRow( List<Object> row )
+    {
+        try
+        {
+            generator.writeStartArray();
+
+            for ( Object value : row )
+            {
+                generator.writeString( value != null ? String.valueOf( value ) : StringUtils.EMPTY );
+            }
+
+            generator.writeEndArray();
+
+            height++;
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if ( startedRows )
+            {
+                generator.writeEndArray();
+                generator.writeNumberField( "height", height );
+            }
+
+            generator.writeEndObject();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( generator );
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        // Prevent the generator from closing open arrays and objects
+
+        generator.disable( JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT );
+
+        IOUtils.closeQuietly( generator );
+    }
+}
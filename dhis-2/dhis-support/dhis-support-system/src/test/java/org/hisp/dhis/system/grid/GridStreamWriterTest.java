@@ -0,0 +1,130 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2017, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+public class GridStreamWriterTest
+{
+    private Grid grid;
+
+    @Before
+    public void before()
+    {
+        grid = new ListGrid();
+        grid.addHeader( new GridHeader( "psi", "Event" ) );
+        grid.addHeader( new GridHeader( "ouname", "Organisation unit name" ) );
+        grid.getMetaData().put( "keyA", "valueA" );
+    }
+
+    @Test
+    public void testCsvGridStreamWriter()
+    {
+        StringWriter out = new StringWriter();
+
+        GridStreamWriter writer = new CsvGridStreamWriter( out );
+        writer.writeHeaders( grid );
+        writer.writeRow( Lists.newArrayList( "eventA", "Bo" ) );
+        writer.writeRow( Lists.newArrayList( "eventB", null ) );
+        writer.close();
+
+        String[] lines = out.toString().split( "\\R" );
+
+        assertEquals( 3, lines.length );
+        assertEquals( "Event,Organisation unit name", lines[0] );
+        assertEquals( "eventA,Bo", lines[1] );
+        assertEquals( "eventB,", lines[2] );
+    }
+
+    @Test
+    public void testJsonGridStreamWriter()
+        throws Exception
+    {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GridStreamWriter writer = new JsonGridStreamWriter( jsonMapper, out );
+        writer.writeHeaders( grid );
+        writer.writeRow( Lists.newArrayList( "eventA", "Bo" ) );
+        writer.writeRow( Lists.newArrayList( "eventB", null ) );
+        writer.close();
+
+        JsonNode json = jsonMapper.readTree( out.toByteArray() );
+
+        assertEquals( 2, json.get( "headers" ).size() );
+        assertEquals( "psi", json.get( "headers" ).get( 0 ).get( "name" ).asText() );
+        assertEquals( "valueA", json.get( "metaData" ).get( "keyA" ).asText() );
+        assertEquals( 2, json.get( "width" ).asInt() );
+        assertEquals( 2, json.get( "height" ).asInt() );
+        assertEquals( "Bo", json.get( "rows" ).get( 0 ).get( 1 ).asText() );
+        assertEquals( "", json.get( "rows" ).get( 1 ).get( 1 ).asText() );
+    }
+
+    @Test
+    public void testJsonGridStreamWriterAbort()
+        throws Exception
+    {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GridStreamWriter writer = new JsonGridStreamWriter( jsonMapper, out );
+        writer.writeHeaders( grid );
+        writer.writeRow( Lists.newArrayList( "eventA", "Bo" ) );
+        writer.abort();
+
+        String json = out.toString( "UTF-8" );
+
+        assertTrue( json.contains( "eventA" ) );
+        assertFalse( json.contains( "height" ) );
+        assertFalse( json.endsWith( "}" ) );
+
+        try
+        {
+            jsonMapper.readTree( out.toByteArray() );
+            fail( "Aborted output should not be valid JSON" );
+        }
+        catch ( JsonProcessingException ex )
+        {
+            // Expected
+        }
+    }
+}
@@ -60,6 +60,7 @@ import org.hisp.dhis.feedback.TypeReport;
 import org.hisp.dhis.fieldfilter.Defaults;
 import org.hisp.dhis.fieldfilter.FieldFilterParams;
 import org.hisp.dhis.fieldfilter.FieldFilterService;
+import org.hisp.dhis.fieldfilter.FieldMap;
 import org.hisp.dhis.hibernate.exception.CreateAccessDeniedException;
 import org.hisp.dhis.hibernate.exception.DeleteAccessDeniedException;
 import org.hisp.dhis.hibernate.exception.ReadAccessDeniedException;
@@ -212,6 +213,16 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             throw new ReadAccessDeniedException( "You don't have the proper permissions to read objects of this type." );
         }
 
+        if ( isProjectionSupported( options ) )
+        {
+            RootNode rootNode = getProjectedObjectList( options, filters, orders, fields, rpParameters );
+
+            if ( rootNode != null )
+            {
+                return rootNode;
+            }
+        }
+
         List<T> entities = getEntityList( metadata, options, filters, orders );
         Pager pager = metadata.getPager();
 
@@ -236,7 +247,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             rootNode.addChild( NodeUtils.createPager( pager ) );
         }
 
-        rootNode.addChild( fieldFilterService.toCollectionNode( getEntityClass(),
+        rootNode.addChild( fieldFilterService.toLazyCollectionNode( getEntityClass(),
             new FieldFilterParams( entities, fields, Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) ) ) );
 
         return rootNode;
@@ -927,6 +938,16 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
     {
     }
 
+    /**
+     * Indicates whether the object list may be rendered from the requested
+     * fields only, fetched by a projection query instead of loading entities.
+     * Override to return false when the entity list is customized.
+     */
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return !options.getOptions().containsKey( "query" );
+    }
+
     /**
      * Override to process entities after it has been retrieved from
      * storage and before it is returned to the view. Entities is null-safe.
@@ -1026,6 +1047,52 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
         return entityList;
     }
 
+    /**
+     * Returns the object list rendered from the values of the requested fields,
+     * or null if the fields or the filters are not all simple persisted
+     * properties, in which case entities must be loaded.
+     */
+    private RootNode getProjectedObjectList( WebOptions options, List<String> filters, List<Order> orders,
+        List<String> fields, Map<String, String> rpParameters ) throws QueryParserException
+    {
+        FieldMap fieldMap = fieldFilterService.getFieldMap( getEntityClass(), fields );
+
+        Query query = queryService.getQueryFromUrl( getEntityClass(), filters, orders, options.getRootJunction() );
+        query.setDefaultOrder();
+        query.setDefaults( Defaults.valueOf( options.get( "defaults", DEFAULTS ) ) );
+
+        if ( !queryService.isProjectable( query, fieldMap ) )
+        {
+            return null;
+        }
+
+        Pager pager = null;
+
+        if ( options.hasPaging() )
+        {
+            pager = new Pager( options.getPage(), queryService.count( query ), options.getPageSize() );
+
+            query.setFirstResult( pager.getOffset() );
+            query.setMaxResults( pager.getPageSize() );
+        }
+
+        List<Map<String, Object>> values = queryService.queryProjection( query, fieldMap );
+
+        linkService.generatePagerLinks( pager, getEntityClass() );
+
+        RootNode rootNode = NodeUtils.createMetadata();
+        rootNode.getConfig().setInclusionStrategy( getInclusionStrategy( rpParameters.get( "inclusionStrategy" ) ) );
+
+        if ( pager != null )
+        {
+            rootNode.addChild( NodeUtils.createPager( pager ) );
+        }
+
+        rootNode.addChild( fieldFilterService.toCollectionNode( getEntityClass(), fieldMap, values ) );
+
+        return rootNode;
+    }
+
     private List<T> getEntity( String uid )
     {
         return getEntity( uid, NO_WEB_OPTIONS );
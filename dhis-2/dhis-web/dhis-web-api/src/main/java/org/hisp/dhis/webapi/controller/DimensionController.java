@@ -88,6 +88,12 @@ public class DimensionController
     // Controller
     // -------------------------------------------------------------------------
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected @ResponseBody List<DimensionalObject> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -42,7 +42,10 @@ import org.hisp.dhis.common.OrganisationUnitSelectionMode;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.program.ProgramStatus;
+import org.hisp.dhis.render.DefaultRenderService;
+import org.hisp.dhis.system.grid.CsvGridStreamWriter;
 import org.hisp.dhis.system.grid.GridUtils;
+import org.hisp.dhis.system.grid.JsonGridStreamWriter;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
@@ -567,6 +570,72 @@ public class EventAnalyticsController
         GridUtils.toCsv( substituteMetaData( grid ), response.getWriter() );
     }
 
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_VIEW_EVENT_ANALYTICS')" )
+    @RequestMapping( value = RESOURCE_PATH + "/query/{program}", params = "stream=true", method = RequestMethod.GET, produces = "application/json" )
+    public void getQueryStreamJson(
+        @PathVariable String program,
+        @RequestParam( required = false ) String stage,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam Set<String> dimension,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) Set<String> asc,
+        @RequestParam( required = false ) Set<String> desc,
+        @RequestParam( required = false ) boolean skipMeta,
+        @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean hierarchyMeta,
+        @RequestParam( required = false ) boolean coordinatesOnly,
+        @RequestParam( required = false ) EventStatus eventStatus,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) DisplayProperty displayProperty,
+        @RequestParam( required = false ) Date relativePeriodDate,
+        @RequestParam( required = false ) String userOrgUnit,
+        @RequestParam( required = false ) String coordinateField,
+        DhisApiVersion apiVersion,
+        HttpServletResponse response ) throws Exception
+    {
+        EventQueryParams params = eventDataQueryService.getFromUrl( program, stage, startDate, endDate, dimension, filter,
+            ouMode, asc, desc, skipMeta, false, completedOnly, hierarchyMeta, coordinatesOnly, eventStatus, programStatus,
+            displayProperty, relativePeriodDate, userOrgUnit, coordinateField, null, null, apiVersion );
+
+        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING );
+        analyticsService.streamEvents( params, new JsonGridStreamWriter( DefaultRenderService.getJsonMapper(), response.getOutputStream() ) );
+    }
+
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_VIEW_EVENT_ANALYTICS')" )
+    @RequestMapping( value = RESOURCE_PATH + "/query/{program}.csv", params = "stream=true", method = RequestMethod.GET )
+    public void getQueryStreamCsv(
+        @PathVariable String program,
+        @RequestParam( required = false ) String stage,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam Set<String> dimension,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) Set<String> asc,
+        @RequestParam( required = false ) Set<String> desc,
+        @RequestParam( required = false ) boolean skipMeta,
+        @RequestParam( required = false ) boolean completedOnly,
+        @RequestParam( required = false ) boolean hierarchyMeta,
+        @RequestParam( required = false ) boolean coordinatesOnly,
+        @RequestParam( required = false ) EventStatus eventStatus,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) DisplayProperty displayProperty,
+        @RequestParam( required = false ) Date relativePeriodDate,
+        @RequestParam( required = false ) String userOrgUnit,
+        @RequestParam( required = false ) String coordinateField,
+        DhisApiVersion apiVersion,
+        HttpServletResponse response ) throws Exception
+    {
+        EventQueryParams params = eventDataQueryService.getFromUrl( program, stage, startDate, endDate, dimension, filter,
+            ouMode, asc, desc, skipMeta, false, completedOnly, hierarchyMeta, coordinatesOnly, eventStatus, programStatus,
+            displayProperty, relativePeriodDate, userOrgUnit, coordinateField, null, null, apiVersion );
+
+        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_CSV, CacheStrategy.RESPECT_SYSTEM_SETTING, "events.csv", true );
+        analyticsService.streamEvents( params, new CsvGridStreamWriter( response.getWriter() ) );
+    }
+
     @PreAuthorize( "hasRole('ALL') or hasRole('F_VIEW_EVENT_ANALYTICS')" )
     @RequestMapping( value = RESOURCE_PATH + "/query/{program}.html", method = RequestMethod.GET )
     public void getQueryHtml(
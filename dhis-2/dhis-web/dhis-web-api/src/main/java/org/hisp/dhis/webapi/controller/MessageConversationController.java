@@ -133,6 +133,12 @@ public class MessageConversationController
         return super.getObject( uid, rpParameters, request, response );
     }
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<org.hisp.dhis.message.MessageConversation> getEntityList( WebMetadata metadata, WebOptions options,
@@ -43,11 +43,17 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableMetric;
+import org.hisp.dhis.analytics.AnalyticsTableMetricService;
+import org.hisp.dhis.analytics.AnalyticsTableStage;
 import org.hisp.dhis.analytics.table.AnalyticsTableType;
 
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
@@ -66,6 +72,9 @@ public class ResourceTableController
     @Autowired
     private AnalyticsTableGenerator analyticsTableGenerator;
 
+    @Autowired
+    private AnalyticsTableMetricService analyticsTableMetricService;
+
     @Autowired
     private MonitoringTask monitoringTask;
 
@@ -86,6 +95,7 @@ public class ResourceTableController
         @RequestParam( required = false ) boolean skipEvents,
         @RequestParam( required = false ) boolean skipEnrollment,
         @RequestParam( required = false ) Integer lastYears,
+        @RequestParam( required = false ) boolean incremental,
         HttpServletResponse response, HttpServletRequest request )
     {
         TaskId taskId = new TaskId( TaskCategory.ANALYTICSTABLE_UPDATE, currentUserService.getCurrentUser() );
@@ -109,11 +119,33 @@ public class ResourceTableController
             skipTableTypes.add( AnalyticsTableType.ENROLLMENT );
         }
         
-        scheduler.executeTask( () -> analyticsTableGenerator.generateTables( lastYears, taskId, skipTableTypes, skipResourceTables ) );
+        if ( incremental )
+        {
+            scheduler.executeTask( () -> analyticsTableGenerator.generateTablesIncrementally( taskId, skipTableTypes ) );
+        }
+        else
+        {
+            scheduler.executeTask( () -> analyticsTableGenerator.generateTables( lastYears, taskId, skipTableTypes, skipResourceTables ) );
+        }
         
         webMessageService.send( WebMessageUtils.ok( "Initiated analytics table update" ), response, request );
     }
 
+    @RequestMapping( value = "/analytics/metrics", method = RequestMethod.GET, produces = { "application/json" } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_DATA_MART_ADMIN')" )
+    public @ResponseBody List<AnalyticsTableMetric> getAnalyticsMetrics(
+        @RequestParam( required = false ) AnalyticsTableType tableType,
+        @RequestParam( required = false ) String tableName,
+        @RequestParam( required = false ) AnalyticsTableStage stage,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false, defaultValue = "1000" ) int max )
+    {
+        String type = tableType != null ? tableType.getTableName() : null;
+
+        return analyticsTableMetricService.getMetrics( type, tableName, stage, startDate, endDate, max );
+    }
+
     @RequestMapping( method = { RequestMethod.PUT, RequestMethod.POST } )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
     public void resourceTables( HttpServletResponse response, HttpServletRequest request )
@@ -127,9 +159,11 @@ public class ResourceTableController
 
     @RequestMapping( value = "/monitoring", method = { RequestMethod.PUT, RequestMethod.POST } )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
-    public void monitoring( HttpServletResponse response, HttpServletRequest request )
+    public void monitoring( @RequestParam( required = false ) boolean incremental,
+        HttpServletResponse response, HttpServletRequest request )
     {
         monitoringTask.setTaskId( new TaskId( TaskCategory.MONITORING, currentUserService.getCurrentUser() ) );
+        monitoringTask.setIncremental( incremental );
 
         scheduler.executeTask( monitoringTask );
 
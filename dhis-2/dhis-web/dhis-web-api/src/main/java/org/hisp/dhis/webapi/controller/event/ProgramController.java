@@ -91,6 +91,12 @@ public class ProgramController
         }
     }
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<Program> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -119,6 +119,12 @@ public class MapViewController
     // Hooks
     //--------------------------------------------------------------------------
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<MapView> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -83,6 +83,19 @@ public class OrganisationUnitController
     @Autowired
     private VersionService versionService;
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        // special parameters select organisation units outside of the query
+
+        boolean anySpecialPropertySet = ObjectUtils.anyIsTrue( options.isTrue( "userOnly" ),
+            options.isTrue( "userDataViewOnly" ), options.isTrue( "userDataViewFallback" ), options.isTrue( "levelSorted" ) );
+        boolean anyQueryPropertySet = ObjectUtils.firstNonNull( options.get( "query" ), options.getInt( "level" ),
+            options.getInt( "maxLevel" ) ) != null || options.isTrue( "withinUserHierarchy" );
+
+        return !anySpecialPropertySet && !anyQueryPropertySet;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<OrganisationUnit> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
@@ -119,6 +119,12 @@ public class UserController
     // GET
     // -------------------------------------------------------------------------
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected List<User> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters,
@@ -59,6 +59,12 @@ public class ValidationRuleController
     @Autowired
     private ValidationRuleService validationRuleService;
 
+    @Override
+    protected boolean isProjectionSupported( WebOptions options )
+    {
+        return false;
+    }
+
     @Override
     protected List<ValidationRule> getEntityList( WebMetadata metadata, WebOptions options, List<String> filters, List<Order> orders )
         throws QueryParserException